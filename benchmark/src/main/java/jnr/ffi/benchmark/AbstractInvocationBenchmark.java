@@ -0,0 +1,137 @@
+package jnr.ffi.benchmark;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call latency of each representative signature in {@link BenchmarkLib}.
+ * <p>
+ * Subclasses select the method generator under test by disabling, through system properties
+ * on the forked JVM, every generator that {@code AsmLibraryLoader} would otherwise try first.
+ * A signature the selected generator cannot handle falls through to the next one in the chain,
+ * exactly as it would in an application. Run with {@code -prof gc} to get the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+public abstract class AbstractInvocationBenchmark {
+    private static final String HELLO = "hello, world";
+    private static final Object[] VARARGS = { 1, 2, 3 };
+
+    private BenchmarkLib lib;
+    private Pointer pointer;
+    private ByteBuffer heapBuffer;
+    private ByteBuffer directBuffer;
+    private BenchmarkLib.BenchStruct struct;
+
+    @Setup
+    public void setUp() {
+        lib = BenchmarkLib.Loader.load();
+        Runtime runtime = Runtime.getRuntime(lib);
+        pointer = Memory.allocateDirect(runtime, 64);
+        pointer.putInt(0, 1);
+        heapBuffer = ByteBuffer.allocate(64);
+        directBuffer = ByteBuffer.allocateDirect(64);
+        struct = new BenchmarkLib.BenchStruct(runtime);
+        struct.i.set(1);
+        struct.l.set(2);
+        struct.d.set(3);
+    }
+
+    @Benchmark
+    public void returnVoid() {
+        lib.returnVoid();
+    }
+
+    @Benchmark
+    public void returnVoidI() {
+        lib.returnVoidI(1);
+    }
+
+    @Benchmark
+    public int returnInt() {
+        return lib.returnInt();
+    }
+
+    @Benchmark
+    public int returnIntI() {
+        return lib.returnIntI(1);
+    }
+
+    @Benchmark
+    public int returnIntIII() {
+        return lib.returnIntIII(1, 2, 3);
+    }
+
+    @Benchmark
+    public long returnLongLLL() {
+        return lib.returnLongLLL(1L, 2L, 3L);
+    }
+
+    @Benchmark
+    public double returnDoubleFD() {
+        return lib.returnDoubleFD(1f, 2d);
+    }
+
+    @Benchmark
+    public double returnDoubleIFD() {
+        return lib.returnDoubleIFD(1, 2f, 3d);
+    }
+
+    @Benchmark
+    public Pointer returnPointerP() {
+        return lib.returnPointerP(pointer);
+    }
+
+    @Benchmark
+    public int returnIntPointer() {
+        return lib.returnIntP(pointer);
+    }
+
+    @Benchmark
+    public int returnIntHeapByteBuffer() {
+        return lib.returnIntPI(heapBuffer, 64);
+    }
+
+    @Benchmark
+    public int returnIntDirectByteBuffer() {
+        return lib.returnIntPI(directBuffer, 64);
+    }
+
+    @Benchmark
+    public int returnIntString() {
+        return lib.returnIntS(HELLO);
+    }
+
+    @Benchmark
+    public long returnLongStruct() {
+        return lib.returnLongStruct(struct);
+    }
+
+    @Benchmark
+    public int returnIntVarargs() {
+        return lib.returnIntVarargs(3, VARARGS);
+    }
+
+    @Benchmark
+    public int returnIntFixedVarargs() {
+        return lib.returnIntVarargs(3, 1, 2, 3);
+    }
+}
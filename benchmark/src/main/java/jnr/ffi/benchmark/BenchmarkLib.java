@@ -0,0 +1,55 @@
+package jnr.ffi.benchmark;
+
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+import jnr.ffi.annotations.IgnoreError;
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Variadic;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bindings for the functions in libtest/Benchmark.c.
+ *
+ * Every method is annotated with {@link IgnoreError} so that the measured cost is the
+ * invocation path itself and not the errno save that follows it.
+ */
+public interface BenchmarkLib {
+    @IgnoreError void returnVoid();
+    @IgnoreError void returnVoidI(int arg);
+    @IgnoreError int returnInt();
+    @IgnoreError int returnIntI(int arg);
+    @IgnoreError int returnIntII(int arg1, int arg2);
+    @IgnoreError int returnIntIII(int arg1, int arg2, int arg3);
+    @IgnoreError long returnLongLL(long arg1, long arg2);
+    @IgnoreError long returnLongLLL(long arg1, long arg2, long arg3);
+    @IgnoreError double returnDoubleFD(float arg1, double arg2);
+    @IgnoreError double returnDoubleIFD(int arg1, float arg2, double arg3);
+    @IgnoreError Pointer returnPointerP(Pointer arg);
+    @IgnoreError int returnIntP(Pointer arg);
+    @IgnoreError int returnIntPI(@In ByteBuffer arg, int len);
+    @IgnoreError int returnIntS(CharSequence str);
+    @IgnoreError long returnLongStruct(@In BenchStruct s);
+    @IgnoreError int returnIntVarargs(int count, Object... args);
+    @IgnoreError @Variadic(fixedCount = 1) int returnIntVarargs(int count, int arg1, int arg2, int arg3);
+
+    final class BenchStruct extends Struct {
+        public final Signed32 i = new Signed32();
+        public final Signed64 l = new Signed64();
+        public final Double d = new Double();
+
+        public BenchStruct(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    final class Loader {
+        private Loader() {}
+
+        public static BenchmarkLib load() {
+            return LibraryLoader.create(BenchmarkLib.class).load("test");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package jnr.ffi.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Calls with every fast path disabled, so all signatures land on {@code BufferMethodGenerator}.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m", "-Djnr.ffi.x86asm.enabled=false", "-Djnr.ffi.fast-int.enabled=false",
+        "-Djnr.ffi.fast-long.enabled=false", "-Djnr.ffi.fast-numeric.enabled=false" })
+public class BufferMethodGeneratorBenchmark extends AbstractInvocationBenchmark {
+}
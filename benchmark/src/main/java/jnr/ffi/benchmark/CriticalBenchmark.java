@@ -0,0 +1,106 @@
+package jnr.ffi.benchmark;
+
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.annotations.Critical;
+import jnr.ffi.annotations.IgnoreError;
+import jnr.ffi.annotations.In;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call latency of leaf functions declared with the default errno saving, with {@link IgnoreError} and with
+ * {@link Critical}, the latter also passing heap arrays pinned instead of copied.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+public class CriticalBenchmark {
+    public interface SaveErrorLib {
+        int returnIntI(int arg);
+        long returnLongLL(long arg1, long arg2);
+        int returnIntPI(@In byte[] arg, int len);
+    }
+
+    public interface IgnoreErrorLib {
+        @IgnoreError int returnIntI(int arg);
+        @IgnoreError long returnLongLL(long arg1, long arg2);
+        @IgnoreError int returnIntPI(@In byte[] arg, int len);
+    }
+
+    public interface CriticalLib {
+        @Critical int returnIntI(int arg);
+        @Critical long returnLongLL(long arg1, long arg2);
+        @Critical int returnIntPI(@In byte[] arg, int len);
+    }
+
+    private SaveErrorLib saveError;
+    private IgnoreErrorLib ignoreError;
+    private CriticalLib critical;
+    private byte[] array;
+
+    @Setup
+    public void setUp() {
+        saveError = LibraryLoader.create(SaveErrorLib.class).load("test");
+        ignoreError = LibraryLoader.create(IgnoreErrorLib.class).load("test");
+        critical = LibraryLoader.create(CriticalLib.class).load("test");
+        array = new byte[256];
+    }
+
+    @Benchmark
+    public int returnIntSaveError() {
+        return saveError.returnIntI(1);
+    }
+
+    @Benchmark
+    public int returnIntIgnoreError() {
+        return ignoreError.returnIntI(1);
+    }
+
+    @Benchmark
+    public int returnIntCritical() {
+        return critical.returnIntI(1);
+    }
+
+    @Benchmark
+    public long returnLongSaveError() {
+        return saveError.returnLongLL(1L, 2L);
+    }
+
+    @Benchmark
+    public long returnLongIgnoreError() {
+        return ignoreError.returnLongLL(1L, 2L);
+    }
+
+    @Benchmark
+    public long returnLongCritical() {
+        return critical.returnLongLL(1L, 2L);
+    }
+
+    @Benchmark
+    public int returnIntHeapArraySaveError() {
+        return saveError.returnIntPI(array, array.length);
+    }
+
+    @Benchmark
+    public int returnIntHeapArrayIgnoreError() {
+        return ignoreError.returnIntPI(array, array.length);
+    }
+
+    @Benchmark
+    public int returnIntHeapArrayCritical() {
+        return critical.returnIntPI(array, array.length);
+    }
+}
@@ -0,0 +1,10 @@
+package jnr.ffi.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Calls with the stub compiler disabled, so int-sized signatures land on {@code FastIntMethodGenerator}.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m", "-Djnr.ffi.x86asm.enabled=false" })
+public class FastIntMethodGeneratorBenchmark extends AbstractInvocationBenchmark {
+}
@@ -0,0 +1,11 @@
+package jnr.ffi.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Calls with the stub compiler and the fast-int path disabled, so long-sized signatures land on
+ * {@code FastLongMethodGenerator}.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m", "-Djnr.ffi.x86asm.enabled=false", "-Djnr.ffi.fast-int.enabled=false" })
+public class FastLongMethodGeneratorBenchmark extends AbstractInvocationBenchmark {
+}
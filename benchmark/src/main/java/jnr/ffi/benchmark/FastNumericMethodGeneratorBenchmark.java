@@ -0,0 +1,12 @@
+package jnr.ffi.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Calls with every integer-only path disabled, so numeric and pointer signatures land on
+ * {@code FastNumericMethodGenerator}.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m", "-Djnr.ffi.x86asm.enabled=false", "-Djnr.ffi.fast-int.enabled=false",
+        "-Djnr.ffi.fast-long.enabled=false" })
+public class FastNumericMethodGeneratorBenchmark extends AbstractInvocationBenchmark {
+}
@@ -0,0 +1,93 @@
+package jnr.ffi.benchmark;
+
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.annotations.IgnoreError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load a library, with generated classes kept in a {@code jnr.ffi.cache.dir} and without.  Every load
+ * defines a new class, so a load without the cache scans the interface and generates its class each time.
+ * {@link BenchmarkLib} needs converters, so a cache hit still emits its code to check it, whereas
+ * {@link PrimitiveLib} only needs the addresses of its functions, so a hit only looks up its symbols.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+public class LoadBenchmark {
+    public interface PrimitiveLib {
+        @IgnoreError void returnVoid();
+        @IgnoreError void returnVoidI(int arg);
+        @IgnoreError int returnInt();
+        @IgnoreError int returnIntI(int arg);
+        @IgnoreError int returnIntII(int arg1, int arg2);
+        @IgnoreError int returnIntIII(int arg1, int arg2, int arg3);
+        @IgnoreError long returnLongLL(long arg1, long arg2);
+        @IgnoreError long returnLongLLL(long arg1, long arg2, long arg3);
+        @IgnoreError double returnDoubleFD(float arg1, double arg2);
+        @IgnoreError double returnDoubleIFD(int arg1, float arg2, double arg3);
+    }
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    private File cacheDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (cached) {
+            cacheDirectory = Files.createTempDirectory("jnr-ffi-cache").toFile();
+            System.setProperty("jnr.ffi.cache.dir", cacheDirectory.getPath());
+
+            // fill the cache, so every measured load is a hit
+            loadBenchmarkLib();
+            loadPrimitiveLib();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("jnr.ffi.cache.dir");
+        if (cacheDirectory != null) {
+            delete(cacheDirectory);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Benchmark
+    public BenchmarkLib loadBenchmarkLib() {
+        return LibraryLoader.create(BenchmarkLib.class).load("test");
+    }
+
+    @Benchmark
+    public PrimitiveLib loadPrimitiveLib() {
+        return LibraryLoader.create(PrimitiveLib.class).load("test");
+    }
+}
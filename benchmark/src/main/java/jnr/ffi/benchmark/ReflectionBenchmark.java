@@ -0,0 +1,10 @@
+package jnr.ffi.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Calls through {@code ReflectionLibraryLoader}, for comparison with the generated classes.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m", "-Djnr.ffi.asm.enabled=false" })
+public class ReflectionBenchmark extends AbstractInvocationBenchmark {
+}
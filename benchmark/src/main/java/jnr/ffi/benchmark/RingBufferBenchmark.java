@@ -0,0 +1,111 @@
+package jnr.ffi.benchmark;
+
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.annotations.Delegate;
+import jnr.ffi.util.RingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of passing records from a native thread to java, through an upcall per record and through a
+ * {@link RingBuffer} written by the native thread and drained in batches by the benchmark thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+public class RingBufferBenchmark {
+    private static final int RECORDS = 100000;
+
+    public interface Callback {
+        @Delegate void call(Pointer record, int length);
+    }
+
+    public interface Lib {
+        int ring_produce(Pointer ring, int id, int count, int length);
+        int ring_produce_callback(Callback callback, int id, int count, int length);
+    }
+
+    @Param({ "16", "64" })
+    public int length;
+
+    private Lib lib;
+    private Callback callback;
+    private RingBuffer.Handler handler;
+    private long sum;
+
+    /**
+     * Starts a native thread writing the records to a new ring buffer for each invocation.
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+        private RingBuffer ring;
+        private Thread thread;
+
+        @Setup(Level.Invocation)
+        public void start(final RingBufferBenchmark benchmark) {
+            ring = RingBuffer.allocate(Runtime.getSystemRuntime(), 1024, benchmark.length, RingBuffer.ProducerType.SINGLE);
+            thread = new Thread(new Runnable() {
+                public void run() {
+                    benchmark.lib.ring_produce(ring.getMemory(), 0, RECORDS, benchmark.length);
+                }
+            });
+            thread.start();
+        }
+
+        @TearDown(Level.Invocation)
+        public void join() throws InterruptedException {
+            thread.join();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        lib = LibraryLoader.create(Lib.class).load("test");
+        callback = new Callback() {
+            public void call(Pointer record, int length) {
+                sum += record.getInt(4);
+            }
+        };
+        handler = new RingBuffer.Handler() {
+            public void onRecord(Pointer memory, long offset, int length) {
+                sum += memory.getInt(offset + 4);
+            }
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void upcall(Blackhole blackhole) {
+        lib.ring_produce_callback(callback, 0, RECORDS, length);
+        blackhole.consume(sum);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void ringBuffer(Producer producer, Blackhole blackhole) {
+        for (int count = 0; count < RECORDS; ) {
+            count += producer.ring.drain(handler, 256, RingBuffer.WaitStrategy.BUSY_SPIN, 1, TimeUnit.SECONDS);
+        }
+        blackhole.consume(sum);
+    }
+}
@@ -0,0 +1,10 @@
+package jnr.ffi.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Calls that land on {@code X86MethodGenerator}, the direct JNI trampoline, where the signature allows it.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+public class X86MethodGeneratorBenchmark extends AbstractInvocationBenchmark {
+}
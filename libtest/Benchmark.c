@@ -16,6 +16,10 @@
  * limitations under the License.
  */
 
+#include <stdarg.h>
+#include <stdint.h>
+#include <string.h>
+
 void returnVoid() {
     
 }
@@ -31,3 +35,65 @@ int returnIntI(int arg) {
     return arg;
 }
 
+int returnIntII(int arg1, int arg2) {
+    return arg1 + arg2;
+}
+
+int returnIntIII(int arg1, int arg2, int arg3) {
+    return arg1 + arg2 + arg3;
+}
+
+int64_t returnLongLL(int64_t arg1, int64_t arg2) {
+    return arg1 + arg2;
+}
+
+int64_t returnLongLLL(int64_t arg1, int64_t arg2, int64_t arg3) {
+    return arg1 + arg2 + arg3;
+}
+
+double returnDoubleFD(float arg1, double arg2) {
+    return arg1 + arg2;
+}
+
+double returnDoubleIFD(int arg1, float arg2, double arg3) {
+    return arg1 + arg2 + arg3;
+}
+
+void* returnPointerP(void* arg) {
+    return arg;
+}
+
+int returnIntP(void* arg) {
+    return arg != NULL ? *(int *) arg : 0;
+}
+
+int returnIntPI(void* arg, int len) {
+    return arg != NULL ? ((unsigned char *) arg)[len - 1] : 0;
+}
+
+int returnIntS(const char* str) {
+    return str != NULL ? (int) strlen(str) : 0;
+}
+
+struct BenchStruct {
+    int32_t i;
+    int64_t l;
+    double d;
+};
+
+int64_t returnLongStruct(struct BenchStruct* s) {
+    return s->i + s->l + (int64_t) s->d;
+}
+
+int returnIntVarargs(int count, ...) {
+    va_list ap;
+    int i, sum = 0;
+
+    va_start(ap, count);
+    for (i = 0; i < count; i++) {
+        sum += va_arg(ap, int);
+    }
+    va_end(ap);
+
+    return sum;
+}
@@ -63,3 +63,56 @@ TEST(ldouble);
 RET(bool);
 RET(Enum);
 RET(pointer);
+
+/*
+ * Functions with enough arguments that some of them are passed on the stack, each argument is
+ * weighted by its position so that arguments passed in the wrong order give a different result.
+ */
+int64_t
+weigh_int_6(int8_t a1, uint8_t a2, int16_t a3, uint16_t a4, int32_t a5, uint32_t a6)
+{
+    return 1 * a1 + 2 * a2 + 3 * a3 + 4 * a4 + 5 * (int64_t) a5 + 6 * (int64_t) a6;
+}
+
+int64_t
+weigh_int_9(int8_t a1, uint8_t a2, int16_t a3, uint16_t a4, int32_t a5, uint32_t a6,
+            int64_t a7, int32_t a8, uint16_t a9)
+{
+    return weigh_int_6(a1, a2, a3, a4, a5, a6) + 7 * a7 + 8 * (int64_t) a8 + 9 * a9;
+}
+
+double
+weigh_mixed_18(int8_t i1, double d1, uint16_t i2, float f2, int32_t i3, double d3, uint32_t i4, double d4,
+               int64_t i5, double d5, int16_t i6, double d6, uint8_t i7, double d7, int32_t i8, double d8,
+               double d9, float f10)
+{
+    return 1 * i1 + 2 * i2 + 3 * i3 + 4 * (double) i4 + 5 * (double) i5 + 6 * i6 + 7 * i7 + 8 * i8
+        + 10 * d1 + 20 * f2 + 30 * d3 + 40 * d4 + 50 * d5 + 60 * d6 + 70 * d7 + 80 * d8 + 90 * d9 + 100 * f10;
+}
+
+int64_t
+weigh_arrays(int32_t* a1, int32_t* a2, int32_t* a3, int32_t* a4, int32_t n)
+{
+    int64_t result = 0;
+    int i;
+
+    for (i = 0; i < n; i++) {
+        result += 1 * a1[i] + 2 * a2[i] + 3 * a3[i] + 4 * a4[i];
+    }
+
+    return result;
+}
+
+void
+fill_arrays(int8_t* a1, int16_t* a2, int32_t* a3, int64_t* a4, double* a5, int32_t n)
+{
+    int i;
+
+    for (i = 0; i < n; i++) {
+        a1[i] = i;
+        a2[i] = 2 * i;
+        a3[i] = 3 * i;
+        a4[i] = 4 * i;
+        a5[i] = 5 * i;
+    }
+}
@@ -0,0 +1,108 @@
+#include <stdint.h>
+#include <string.h>
+
+/* The layout documented by jnr.ffi.util.RingBuffer */
+struct ring {
+    int64_t head;
+    char pad0[56];
+    int64_t tail;
+    char pad1[56];
+    int32_t capacity;
+    int32_t slot_size;
+    int32_t producers;
+    char pad2[52];
+    char slots[];
+};
+
+struct ring_slot {
+    int64_t sequence;
+    int32_t length;
+    int32_t reserved;
+    char data[];
+};
+
+static struct ring_slot*
+ring_slot(struct ring* ring, int64_t position)
+{
+    return (struct ring_slot *) (ring->slots + (position & (ring->capacity - 1)) * (16 + (int64_t) ring->slot_size));
+}
+
+int
+ring_offer(struct ring* ring, const void* record, int length)
+{
+    struct ring_slot* slot;
+    int64_t p = __atomic_load_n(&ring->tail, __ATOMIC_RELAXED);
+
+    for (;;) {
+        int64_t seq;
+        slot = ring_slot(ring, p);
+        seq = __atomic_load_n(&slot->sequence, __ATOMIC_ACQUIRE);
+        if (seq < p) {
+            return 0;
+        }
+        if (seq == p) {
+            if (ring->producers == 1) {
+                __atomic_store_n(&ring->tail, p + 1, __ATOMIC_RELAXED);
+                break;
+            }
+            if (__atomic_compare_exchange_n(&ring->tail, &p, p + 1, 0, __ATOMIC_RELAXED, __ATOMIC_RELAXED)) {
+                break;
+            }
+        } else {
+            p = __atomic_load_n(&ring->tail, __ATOMIC_RELAXED);
+        }
+    }
+
+    memcpy(slot->data, record, length);
+    slot->length = length;
+    __atomic_store_n(&slot->sequence, p + 1, __ATOMIC_RELEASE);
+    return 1;
+}
+
+/*
+ * Writes count records of length bytes, each starting with the int values id and i, waiting while the ring is full.
+ */
+int
+ring_produce(struct ring* ring, int id, int count, int length)
+{
+    char record[256];
+    int i;
+
+    if (length < 8 || length > (int) sizeof(record)) {
+        return -1;
+    }
+
+    memset(record, 0, sizeof(record));
+    for (i = 0; i < count; i++) {
+        memcpy(record, &id, sizeof(id));
+        memcpy(record + sizeof(id), &i, sizeof(i));
+        while (!ring_offer(ring, record, length)) {
+            ;
+        }
+    }
+
+    return count;
+}
+
+/*
+ * Passes count records of length bytes to a callback, as ring_produce writes them to a ring.
+ */
+int
+ring_produce_callback(void (*callback)(const void*, int), int id, int count, int length)
+{
+    char record[256];
+    int i;
+
+    if (length < 8 || length > (int) sizeof(record)) {
+        return -1;
+    }
+
+    memset(record, 0, sizeof(record));
+    for (i = 0; i < count; i++) {
+        memcpy(record, &id, sizeof(id));
+        memcpy(record + sizeof(id), &i, sizeof(i));
+        (*callback)(record, length);
+    }
+
+    return count;
+}
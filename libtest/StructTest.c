@@ -237,3 +237,59 @@ STRUCT_ALIGNMENT(8)
 #pragma pack(push, 16)
 STRUCT_ALIGNMENT(16)
 #pragma pack(pop)
+
+struct Pair {
+    long long a;
+    long long b;
+};
+
+struct Pair
+struct_pair_make(long long a, long long b)
+{
+    struct Pair p = { a, b };
+    return p;
+}
+
+long long
+struct_pair_sum(struct Pair p)
+{
+    return p.a + p.b;
+}
+
+struct Pair
+struct_pair_swap(int n, struct Pair p)
+{
+    struct Pair r = { p.b + n, p.a + n };
+    return r;
+}
+
+struct Mixed {
+    char c;
+    double d;
+    float f;
+};
+
+struct Mixed
+struct_mixed_scale(struct Mixed m, double k)
+{
+    struct Mixed r = { m.c + 1, m.d * k, m.f * (float) k };
+    return r;
+}
+
+struct Large {
+    long long v[3];
+    struct Pair inner;
+};
+
+struct Large
+struct_large_make(long long base)
+{
+    struct Large l = { { base, base + 1, base + 2 }, { base + 3, base + 4 } };
+    return l;
+}
+
+long long
+struct_large_sum(struct Large l)
+{
+    return l.v[0] + l.v[1] + l.v[2] + l.inner.a + l.inner.b;
+}
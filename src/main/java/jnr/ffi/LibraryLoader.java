@@ -133,6 +133,17 @@ public abstract class LibraryLoader<T> {
         return saveError;
     }
 
+    /**
+     * Whether a function is a short leaf call, which never saves errno.
+     *
+     * @param options options
+     * @param methodIsCritical whether the method has the {@link jnr.ffi.annotations.Critical} annotation
+     * @return true if the function is critical, false otherwise
+     */
+    public static boolean isCritical(Map<LibraryOption, ?> options, boolean methodIsCritical) {
+        return methodIsCritical || options.containsKey(LibraryOption.Critical);
+    }
+
     /**
      * Loads a native library and links the methods defined in {@code interfaceClass}
      * to native methods in the library.
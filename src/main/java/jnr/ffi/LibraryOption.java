@@ -64,6 +64,20 @@ public enum LibraryOption {
      */
     LoadNow,
 
+    /**
+     * Treat every function of the library as a short leaf call, as if annotated with
+     * {@link jnr.ffi.annotations.Critical}.  Errno is not saved after any call.
+     */
+    Critical,
+
+    /**
+     * Generate the call path of each function when it is first called, instead of when the library is loaded.
+     * <p>
+     * This shortens loading and saves memory for large interfaces of which only a few functions are used.  Variadic
+     * functions and global variables are still bound when the library is loaded.
+     */
+    LazyBinding,
+
     /**
      * Relevant for GNU/Linux {@link Platform.Linux} only
      *
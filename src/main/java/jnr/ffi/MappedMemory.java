@@ -0,0 +1,95 @@
+package jnr.ffi;
+
+/**
+ * A region of a file mapped into native memory with {@code mmap}, returned by {@link Memory#map}.
+ * <p>
+ * The contents of the file are read and written through {@link #getPointer()}, without copying them into java
+ * memory.  The mapping is removed when it is closed, or once it has been garbage collected, after which the
+ * pointer must not be used anymore.
+ * <pre>
+ * try (MappedMemory mapped = Memory.map(runtime, path, 0, size, FileChannel.MapMode.READ_ONLY)) {
+ *     mapped.advise(MappedMemory.Advice.SEQUENTIAL);
+ *     mapped.getPointer().get(0, buf, 0, buf.length);
+ * }
+ * </pre>
+ */
+public interface MappedMemory extends AutoCloseable {
+    /**
+     * How the memory is going to be used, which lets the kernel choose how to page it in and out.
+     */
+    enum Advice {
+        /** No particular access pattern */
+        NORMAL,
+        /** Pages are accessed in random order, so there is no point in reading ahead */
+        RANDOM,
+        /** Pages are accessed in order, so they can be read ahead aggressively and freed soon after access */
+        SEQUENTIAL,
+        /** Pages will be accessed soon, so they should be read ahead now */
+        WILL_NEED,
+        /** Pages will not be accessed soon, so they can be freed.  Private mappings lose any changes */
+        DONT_NEED,
+        /** Back the mapping with huge pages where possible.  Only supported on Linux */
+        HUGE_PAGE
+    }
+
+    /**
+     * Gets the pointer to the mapped memory.  The pointer is only valid until the mapping is closed, after which
+     * accessing it throws {@link IllegalStateException}.
+     *
+     * @return the pointer to the start of the mapped region.
+     */
+    Pointer getPointer();
+
+    /**
+     * Gets the size of the mapped region.
+     *
+     * @return the size in bytes.
+     */
+    long size();
+
+    /**
+     * Writes any changes to the whole region back to the file, and waits until they are written.
+     */
+    void force();
+
+    /**
+     * Writes any changes to part of the region back to the file, and waits until they are written.
+     *
+     * @param offset the offset of the part within the region.
+     * @param length the length of the part.
+     */
+    void force(long offset, long length);
+
+    /**
+     * Tells the kernel how the whole region is going to be used.
+     *
+     * @param advice the expected usage.
+     * @return {@code true} if the advice was taken, {@code false} if the platform does not support it.
+     */
+    boolean advise(Advice advice);
+
+    /**
+     * Tells the kernel how part of the region is going to be used.
+     *
+     * @param advice the expected usage.
+     * @param offset the offset of the part within the region.
+     * @param length the length of the part.
+     * @return {@code true} if the advice was taken, {@code false} if the platform does not support it.
+     */
+    boolean advise(Advice advice, long offset, long length);
+
+    /**
+     * Starts reading part of the region in from the file in the background, so later accesses do not wait
+     * for it.  This is the same as {@link Advice#WILL_NEED} for that part.
+     *
+     * @param offset the offset of the part within the region.
+     * @param length the length of the part.
+     */
+    void prefetch(long offset, long length);
+
+    /**
+     * Removes the mapping.  Changes to a shared mapping are written back to the file by the kernel, but not
+     * necessarily before this returns, use {@link #force()} for that.  Closing a mapping again does nothing.
+     */
+    void close();
+}
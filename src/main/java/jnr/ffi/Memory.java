@@ -18,6 +18,10 @@
 
 package jnr.ffi;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
 /**
  * A utility for allocating memory that can be passed to native functions.
  */
@@ -203,4 +207,51 @@ public final class Memory {
     public static Pointer allocateTemporary(Runtime runtime, NativeType type, boolean clear) {
         return runtime.getMemoryManager().allocateTemporary(runtime.findType(type).size(), clear);
     }
+
+    /**
+     * Opens a {@link MemoryScope} on the current thread.  Native memory allocated from the scope, or
+     * by this thread through {@link #allocateTemporary} while the scope is open, is released when the
+     * scope is closed.
+     *
+     * @param runtime The current runtime.
+     *
+     * @return a {@code MemoryScope} that must be closed by the caller.
+     */
+    public static MemoryScope openScope(Runtime runtime) {
+        return runtime.getMemoryManager().openScope();
+    }
+
+    /**
+     * Maps a region of a file into native memory.
+     * <p>
+     * A {@link FileChannel.MapMode#READ_WRITE} mapping extends the file if the region goes past its end, and
+     * changes to it are written back to the file.  A {@link FileChannel.MapMode#PRIVATE} mapping can be written
+     * to, but changes are not visible to other mappings of the file.  The region does not need to start on a
+     * page boundary.
+     *
+     * @param runtime The current runtime.
+     * @param path The file to map.
+     * @param offset The offset in the file of the region.
+     * @param length The length of the region.
+     * @param mode Whether the region is mapped read only, read and write or copy on write.
+     *
+     * @return a {@code MappedMemory} that should be closed by the caller.
+     * @throws IOException if the file can not be opened or mapped, or a read only region goes past its end.
+     * @throws UnsupportedOperationException if the platform does not support memory mapped files.
+     */
+    public static MappedMemory map(Runtime runtime, Path path, long offset, long length, FileChannel.MapMode mode)
+            throws IOException {
+        return runtime.getMemoryManager().map(path, offset, length, mode);
+    }
+
+    /**
+     * Releases the native memory of a {@link Pointer} returned by {@link #allocateDirect}, without
+     * waiting for it to be garbage collected.  The pointer must not be used afterwards.  Slices of the
+     * pointer are ignored.
+     *
+     * @param pointer The pointer to release.
+     */
+    public static void dispose(Pointer pointer) {
+        pointer.getRuntime().getMemoryManager().dispose(pointer);
+    }
 }
@@ -0,0 +1,47 @@
+package jnr.ffi;
+
+/**
+ * A region of native memory that is released all at once when the scope is closed.
+ * <p>
+ * Memory allocated through {@link #allocate}, or on the same thread through {@link Memory#allocateTemporary}
+ * while the scope is open, is carved out of a per-thread arena instead of being reclaimed by the garbage
+ * collector, and becomes invalid as soon as the scope is closed.  Allocations that do not fit in the arena fall
+ * back to {@code malloc} and are freed when the scope is closed.  Memory from {@link Memory#allocateDirect} is not
+ * affected by an open scope, so it can outlive the scope.
+ * <p>
+ * Scopes may be nested, and must be used and closed on the thread that opened them, in the reverse order to
+ * which they were opened.
+ * <pre>
+ * try (MemoryScope scope = Memory.openScope(runtime)) {
+ *     Pointer buf = scope.allocate(1024);
+ *     libc.read(fd, buf, 1024);
+ * }
+ * </pre>
+ */
+public interface MemoryScope extends AutoCloseable {
+    /**
+     * Allocates cleared native memory that is released when this scope is closed.
+     *
+     * @param size The number of bytes to allocate.
+     * @return a {@code Pointer} instance that can access the memory.
+     * @throws IllegalStateException if this scope is closed, is not the innermost open scope, or was opened on
+     * another thread.
+     */
+    Pointer allocate(long size);
+
+    /**
+     * Allocates native memory that is released when this scope is closed.
+     *
+     * @param size The number of bytes to allocate.
+     * @param clear Whether the memory contents should be cleared, or left as random data.
+     * @return a {@code Pointer} instance that can access the memory.
+     * @throws IllegalStateException if this scope is closed, is not the innermost open scope, or was opened on
+     * another thread.
+     */
+    Pointer allocate(long size, boolean clear);
+
+    /**
+     * Releases all memory allocated within this scope.
+     */
+    void close();
+}
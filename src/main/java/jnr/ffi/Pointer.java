@@ -19,6 +19,7 @@
 package jnr.ffi;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +31,11 @@ import java.util.List;
  * memory (that is, a fixed address in the process address space, directly accessible by native code), however,
  * it is possible to wrap a java <code>byte</code> array in a <code>Pointer</code>instance to pass to a native function
  * as a memory address.  See {@link #isDirect()} for more information.
+ * <p>
+ * Direct memory also supports volatile, acquire/release and atomic access to 32 and 64 bit values, such as
+ * {@link #compareAndSetInt(long, int, int)}, so that counters and flags can be shared with native threads.
+ * These values must be naturally aligned.
+ * </p>
  */
 abstract public class Pointer {
     private final Runtime runtime;
@@ -679,6 +685,387 @@ abstract public class Pointer {
      */
     abstract public int indexOf(long offset, byte value, int maxlen);
 
+    /**
+     * Returns the location of a sequence of bytes within the memory area represented by this {@code Pointer}.
+     *
+     * @param offset the offset from the start of the memory location this {@code Pointer} represents to begin searching.
+     * @param length the number of bytes to search.
+     * @param pattern the bytes to locate.
+     * @return the offset of the first occurrence from the start of the search area (i.e. relative to the offset
+     * parameter), or -1 if not found.
+     */
+    public long indexOf(long offset, long length, byte[] pattern) {
+        checkBounds(size(), offset, length);
+        if (pattern.length == 0) {
+            return 0;
+        }
+
+        for (long i = 0; i <= length - pattern.length; i++) {
+            if (getByte(offset + i) == pattern[0] && matches(offset + i, pattern)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean matches(long offset, byte[] pattern) {
+        for (int i = 1; i < pattern.length; i++) {
+            if (getByte(offset + i) != pattern[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the first byte that differs between this memory area and another.
+     *
+     * @param offset the offset from the start of the memory location this {@code Pointer} represents to begin comparing.
+     * @param other the memory location to compare with.
+     * @param otherOffset the offset from the start of the memory location the other {@code Pointer} represents.
+     * @param length the number of bytes to compare.
+     * @return the offset of the first differing byte, relative to the offset parameters, or -1 if all bytes are equal.
+     */
+    public long mismatch(long offset, Pointer other, long otherOffset, long length) {
+        checkBounds(size(), offset, length);
+        checkBounds(other.size(), otherOffset, length);
+
+        // Skip over equal words, then find the differing byte within the word
+        long i = 0;
+        while (i + 8 <= length && getLongLong(offset + i) == other.getLongLong(otherOffset + i)) {
+            i += 8;
+        }
+        for (; i < length; i++) {
+            if (getByte(offset + i) != other.getByte(otherOffset + i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Compares this memory area with another, in the same way as {@code memcmp}, treating bytes as unsigned.
+     *
+     * @param offset the offset from the start of the memory location this {@code Pointer} represents to begin comparing.
+     * @param other the memory location to compare with.
+     * @param otherOffset the offset from the start of the memory location the other {@code Pointer} represents.
+     * @param length the number of bytes to compare.
+     * @return a negative value, zero or a positive value if this memory area is less than, equal to or greater than
+     * the other.
+     */
+    public int compare(long offset, Pointer other, long otherOffset, long length) {
+        long index = mismatch(offset, other, otherOffset, length);
+
+        return index < 0 ? 0 : (getByte(offset + index) & 0xff) - (other.getByte(otherOffset + index) & 0xff);
+    }
+
+    /**
+     * Computes a 64 bit hash of the bytes in a memory area.  The hash only depends on the bytes, so it is the same
+     * for equal contents in any kind of memory, but it is not a cryptographic hash and may change between releases.
+     *
+     * @param offset the offset from the start of the memory location this {@code Pointer} represents.
+     * @param length the number of bytes to hash.
+     * @return the hash.
+     */
+    public long hash(long offset, long length) {
+        checkBounds(size(), offset, length);
+        boolean bigEndian = getRuntime().byteOrder() == ByteOrder.BIG_ENDIAN;
+        long hash = hashSeed(length);
+        long i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long word = getLongLong(offset + i);
+            hash = hashWord(hash, bigEndian ? Long.reverseBytes(word) : word);
+        }
+
+        if (i < length) {
+            long tail = 0;
+            for (int shift = 0; i < length; i++, shift += 8) {
+                tail |= (getByte(offset + i) & 0xffL) << shift;
+            }
+            hash = hashWord(hash, tail);
+        }
+
+        return hashFinish(hash);
+    }
+
+    /**
+     * Fills a memory area with a repeated {@code long} (64 bit) value, in the byte order of the runtime.  If the
+     * size is not a multiple of 8, the last copy of the value is truncated.
+     *
+     * @param offset the offset from the start of the memory location this {@code Pointer} represents to begin writing to.
+     * @param size the number of bytes to fill.
+     * @param pattern the value to fill the memory with.
+     */
+    public void fill(long offset, long size, long pattern) {
+        checkBounds(size(), offset, size);
+        long i = 0;
+        for (; i + 8 <= size; i += 8) {
+            putLongLong(offset + i, pattern);
+        }
+        for (int index = 0; i < size; i++, index++) {
+            putByte(offset + i, patternByte(pattern, index, getRuntime().byteOrder()));
+        }
+    }
+
+    /**
+     * Bulk data transfer from one memory location to another, reversing the byte order of each element, for
+     * converting arrays of numbers between little and big endian.  The memory areas must not overlap, unless
+     * they are the same, in which case the elements are swapped in place.
+     *
+     * @param offset the offset from the start of the memory location this {@code Pointer} represents to begin copying from.
+     * @param dst the destination memory location to transfer data to.
+     * @param dstOffset the offset from the start of the memory location the destination {@code Pointer} represents to begin copying to.
+     * @param count the number of bytes to transfer, a multiple of {@code elementSize}.
+     * @param elementSize the size of each element: 1, 2, 4 or 8 bytes.
+     */
+    public void transferToSwapped(long offset, Pointer dst, long dstOffset, long count, int elementSize) {
+        checkElementSize(count, elementSize);
+        checkBounds(size(), offset, count);
+        checkBounds(dst.size(), dstOffset, count);
+
+        switch (elementSize) {
+            case 1:
+                if (dst.hasArray() && dst.array() instanceof byte[]) {
+                    get(offset, (byte[]) dst.array(), dst.arrayOffset() + (int) dstOffset, (int) count);
+                } else {
+                    for (long i = 0; i < count; i++) {
+                        dst.putByte(dstOffset + i, getByte(offset + i));
+                    }
+                }
+                break;
+
+            case 2:
+                for (long i = 0; i < count; i += 2) {
+                    dst.putShort(dstOffset + i, Short.reverseBytes(getShort(offset + i)));
+                }
+                break;
+
+            case 4:
+                for (long i = 0; i < count; i += 4) {
+                    dst.putInt(dstOffset + i, Integer.reverseBytes(getInt(offset + i)));
+                }
+                break;
+
+            default:
+                for (long i = 0; i < count; i += 8) {
+                    dst.putLongLong(dstOffset + i, Long.reverseBytes(getLongLong(offset + i)));
+                }
+                break;
+        }
+    }
+
+    private static void checkBounds(long size, long off, long len) {
+        if ((off | len | (off + len) | (size - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    protected static void checkElementSize(long count, int elementSize) {
+        if ((elementSize != 1 && elementSize != 2 && elementSize != 4 && elementSize != 8) || count % elementSize != 0) {
+            throw new IllegalArgumentException("count " + count + " is not a multiple of element size " + elementSize);
+        }
+    }
+
+    /**
+     * Gets a byte of a fill pattern, as it is laid out in memory.
+     *
+     * @param pattern the fill pattern.
+     * @param index the index of the byte within the pattern, from 0 to 7.
+     * @param order the byte order the pattern is stored in.
+     * @return the byte.
+     */
+    protected static byte patternByte(long pattern, int index, ByteOrder order) {
+        return (byte) (order == ByteOrder.LITTLE_ENDIAN ? pattern >>> (index * 8) : pattern >>> (56 - index * 8));
+    }
+
+    /*
+     * The hash consumes the memory as 64 bit little endian words, the last one padded with zeroes, so all
+     * implementations get the same hash for the same bytes.
+     */
+
+    protected static long hashSeed(long length) {
+        return length * 0x9e3779b97f4a7c15L;
+    }
+
+    protected static long hashWord(long hash, long word) {
+        return Long.rotateLeft(hash ^ (word * 0xc2b2ae3d27d4eb4fL), 31) * 0x9e3779b97f4a7c15L;
+    }
+
+    protected static long hashFinish(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Reads a {@code int} (32 bit) value at the given offset, with volatile memory semantics.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be read.
+     * @return the {@code int} value at the offset.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public int getIntVolatile(long offset) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Writes a {@code int} (32 bit) value at the given offset, with volatile memory semantics.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code int} value to be written.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public void putIntVolatile(long offset, int value) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Reads a {@code int} (32 bit) value at the given offset, so that no later reads or writes are
+     * reordered before it.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be read.
+     * @return the {@code int} value at the offset.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public int getIntAcquire(long offset) {
+        return getIntVolatile(offset);
+    }
+
+    /**
+     * Writes a {@code int} (32 bit) value at the given offset, so that no earlier reads or writes are
+     * reordered after it.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code int} value to be written.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public void putIntRelease(long offset, int value) {
+        putIntVolatile(offset, value);
+    }
+
+    /**
+     * Atomically sets the {@code int} (32 bit) value at the given offset, if it is the expected value.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents of the value.
+     * @param expected the expected current value.
+     * @param value the new value.
+     * @return {@code true} if the value was set, {@code false} if the current value was not the expected value.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public boolean compareAndSetInt(long offset, int expected, int value) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Atomically adds to the {@code int} (32 bit) value at the given offset.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents of the value.
+     * @param delta the value to add.
+     * @return the previous value.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public int getAndAddInt(long offset, int delta) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Atomically replaces the {@code int} (32 bit) value at the given offset.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents of the value.
+     * @param value the new value.
+     * @return the previous value.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public int getAndSetInt(long offset, int value) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Reads a {@code long} (64 bit) value at the given offset, with volatile memory semantics.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be read.
+     * @return the {@code long} value at the offset.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public long getLongLongVolatile(long offset) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Writes a {@code long} (64 bit) value at the given offset, with volatile memory semantics.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code long} value to be written.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public void putLongLongVolatile(long offset, long value) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Reads a {@code long} (64 bit) value at the given offset, so that no later reads or writes are
+     * reordered before it.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be read.
+     * @return the {@code long} value at the offset.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public long getLongLongAcquire(long offset) {
+        return getLongLongVolatile(offset);
+    }
+
+    /**
+     * Writes a {@code long} (64 bit) value at the given offset, so that no earlier reads or writes are
+     * reordered after it.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code long} value to be written.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public void putLongLongRelease(long offset, long value) {
+        putLongLongVolatile(offset, value);
+    }
+
+    /**
+     * Atomically sets the {@code long} (64 bit) value at the given offset, if it is the expected value.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents of the value.
+     * @param expected the expected current value.
+     * @param value the new value.
+     * @return {@code true} if the value was set, {@code false} if the current value was not the expected value.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public boolean compareAndSetLongLong(long offset, long expected, long value) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Atomically adds to the {@code long} (64 bit) value at the given offset.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents of the value.
+     * @param delta the value to add.
+     * @return the previous value.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public long getAndAddLongLong(long offset, long delta) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
+    /**
+     * Atomically replaces the {@code long} (64 bit) value at the given offset.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents of the value.
+     * @param value the new value.
+     * @return the previous value.
+     * @throws UnsupportedOperationException if this pointer does not support atomic access.
+     */
+    public long getAndSetLongLong(long offset, long value) {
+        throw new UnsupportedOperationException("atomic access not supported");
+    }
+
     /**
      * Bulk get method for multiple {@code Pointer} values.
      *
@@ -34,6 +34,7 @@ import jnr.ffi.util.EnumMapper;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 /**
  * Representation of C structures in java.
@@ -44,6 +45,9 @@ public abstract class Struct {
     static final Charset ASCII = Charset.forName("ASCII");
     static final Charset UTF8 = Charset.forName("UTF-8");
 
+    // set while getFieldLayout creates a struct, so only the structs it creates record their fields
+    private static final ThreadLocal<java.lang.Boolean> recordingFields = new ThreadLocal<java.lang.Boolean>();
+
     static final class Info {
         private final Runtime runtime;
         private jnr.ffi.Pointer memory = null;
@@ -57,8 +61,17 @@ public abstract class Struct {
 
         Alignment alignment = new Alignment(0);
 
+        // the native type and offset of each field, only recorded for getFieldLayout
+        NativeType[] fieldTypes;
+        int[] fieldOffsets;
+        int fieldCount = 0;
+
         public Info(Runtime runtime) {
             this.runtime = runtime;
+            if (recordingFields.get() != null) {
+                this.fieldTypes = new NativeType[8];
+                this.fieldOffsets = new int[8];
+            }
         }
 
         public final int getOffset() {
@@ -110,6 +123,42 @@ public abstract class Struct {
             this.minAlign = Math.max(this.minAlign, alignment);
             return offset;
         }
+
+        final int addField(Type type, Offset offset) {
+            int fieldOffset = offset != null
+                    ? addField(type.size() * 8, type.alignment() * 8, offset)
+                    : addField(type.size() * 8, type.alignment() * 8);
+            recordField(type.getNativeType(), fieldOffset);
+            return fieldOffset;
+        }
+
+        final int addRawField(int sizeBits, int alignBits, Offset offset) {
+            int fieldOffset = offset != null ? addField(sizeBits, alignBits, offset) : addField(sizeBits, alignBits);
+
+            // Fields without a type are described as an array of integers of their alignment
+            int unitSize = alignBits >> 3;
+            NativeType unitType = unitSize == 8 ? NativeType.ULONGLONG : unitSize == 4 ? NativeType.UINT
+                    : unitSize == 2 ? NativeType.USHORT : NativeType.UCHAR;
+            if (unitSize <= 0 || unitSize > 8 || (sizeBits >> 3) % unitSize != 0) {
+                unitSize = 1;
+                unitType = NativeType.UCHAR;
+            }
+            for (int i = 0; i < (sizeBits >> 3) / unitSize; i++) {
+                recordField(unitType, fieldOffset + i * unitSize);
+            }
+            return fieldOffset;
+        }
+
+        final void recordField(NativeType type, int offset) {
+            if (fieldTypes == null) {
+                return;
+            } else if (fieldCount == fieldTypes.length) {
+                fieldTypes = Arrays.copyOf(fieldTypes, fieldCount * 2);
+                fieldOffsets = Arrays.copyOf(fieldOffsets, fieldCount * 2);
+            }
+            fieldTypes[fieldCount] = type;
+            fieldOffsets[fieldCount++] = offset;
+        }
     }
     final Info __info;
 
@@ -209,6 +258,30 @@ public abstract class Struct {
         return Struct.size(structClass, Runtime.getSystemRuntime());
     }
 
+    /**
+     * Gets the layout of the fields of a Struct type, which describes the struct when it is passed by value.  Struct
+     * instances do not keep their layout, so a new instance is created to record it.  Callers should compute it once
+     * for each Struct type.
+     *
+     * @param structConstructor the constructor of the Struct, taking a {@link Runtime} argument
+     * @param runtime           the {@link Runtime} used to create an instance of the Struct
+     * @return the layout of the fields, or {@code null} if the struct is a union.
+     */
+    public static FieldLayout getFieldLayout(Constructor<? extends Struct> structConstructor, Runtime runtime) {
+        Info info;
+        recordingFields.set(java.lang.Boolean.TRUE);
+        try {
+            info = structConstructor.newInstance(runtime).__info;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            recordingFields.remove();
+        }
+
+        return !info.isUnion ? new FieldLayout(Arrays.copyOf(info.fieldTypes, info.fieldCount),
+                Arrays.copyOf(info.fieldOffsets, info.fieldCount), info.size()) : null;
+    }
+
     public static int alignment(Struct struct) {
         return struct.__info.getMinimumAlignment();
     }
@@ -303,6 +376,41 @@ public abstract class Struct {
         }
     }
 
+    /**
+     * The native type and offset of each field of a Struct type, in the order the fields were declared.  The fields
+     * of inner structs are included in place of the inner struct.
+     */
+    public static final class FieldLayout {
+        private final NativeType[] fieldTypes;
+        private final int[] fieldOffsets;
+        private final int size;
+
+        FieldLayout(NativeType[] fieldTypes, int[] fieldOffsets, int size) {
+            this.fieldTypes = fieldTypes;
+            this.fieldOffsets = fieldOffsets;
+            this.size = size;
+        }
+
+        public int getFieldCount() {
+            return fieldTypes.length;
+        }
+
+        public NativeType getFieldType(int index) {
+            return fieldTypes[index];
+        }
+
+        public int getFieldOffset(int index) {
+            return fieldOffsets[index];
+        }
+
+        /**
+         * Gets the size of the Struct in bytes.
+         */
+        public int size() {
+            return size;
+        }
+    }
+
     public static final class Alignment extends Number {
         private final int alignment;
 
@@ -757,6 +865,9 @@ public abstract class Struct {
         struct.__info.enclosing = this;
         struct.__info.offset = offset;
         __info.size = Math.max(__info.size, offset + struct.__info.size);
+        for (int i = 0; i < struct.__info.fieldCount; i++) {
+            __info.recordField(struct.__info.fieldTypes[i], offset + struct.__info.fieldOffsets[i]);
+        }
         return struct;
     }
 
@@ -806,20 +917,18 @@ public abstract class Struct {
             this(size, size);
         }
         protected AbstractMember(int size, int align, Offset offset) {
-            this.offset = __info.addField(size, align, offset);
+            this.offset = __info.addRawField(size, align, offset);
         }
         protected AbstractMember(int size, int align) {
-            this.offset = __info.addField(size, align);
+            this.offset = __info.addRawField(size, align, null);
         }
 
         protected AbstractMember(NativeType type) {
-            final Type t = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8);
+            this.offset = __info.addField(getRuntime().findType(type), null);
         }
 
         protected AbstractMember(NativeType type, Offset offset) {
-            final Type t = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8, offset);
+            this.offset = __info.addField(getRuntime().findType(type), offset);
         }
 
         public final jnr.ffi.Pointer getMemory() {
@@ -976,22 +1085,22 @@ public abstract class Struct {
 
         protected NumberField(NativeType type) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8);
+            this.offset = __info.addField(t, null);
         }
 
         protected NumberField(NativeType type, Offset offset) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8, offset);
+            this.offset = __info.addField(t, offset);
         }
 
         protected NumberField(TypeAlias type) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8);
+            this.offset = __info.addField(t, null);
         }
 
         protected NumberField(TypeAlias type, Offset offset) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8, offset);
+            this.offset = __info.addField(t, offset);
         }
 
 
@@ -0,0 +1,20 @@
+package jnr.ffi.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Passes a {@link jnr.ffi.Struct} parameter, or returns a {@link jnr.ffi.Struct} result, by value instead of by
+ * reference.  Put it on the parameter, or on the method for the result.
+ * <p>
+ * The struct class must have a public constructor taking a {@link jnr.ffi.Runtime}, and its fields must be laid
+ * out the way the C compiler would lay them out, so unions and structs with explicit offsets or alignment are not
+ * supported.  Returned structs are backed by java heap memory rather than native memory.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.PARAMETER, ElementType.METHOD })
+public @interface ByValue {
+}
@@ -0,0 +1,23 @@
+package jnr.ffi.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a native function as a short leaf call, such as a getter, a hash function or a clock read, so that it can
+ * be called in the cheapest way possible.
+ * <p>
+ * A critical function must return quickly, must not block, must not call back into java and must not set errno,
+ * which is not saved after the call.  Array and heap buffer parameters are pinned instead of copied, which stops the
+ * garbage collector for the duration of the call.  When the function is called through the JDK's foreign function
+ * API, it is linked as a critical downcall, which skips the thread state transition.
+ * </p>
+ *
+ * @see jnr.ffi.LibraryOption#Critical
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Critical {
+}
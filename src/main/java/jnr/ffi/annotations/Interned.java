@@ -0,0 +1,25 @@
+package jnr.ffi.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the native copy of {@link String} parameters, so passing the same string again does not
+ * encode or copy it.
+ * <p>
+ * This is intended for parameters that are usually one of a small set of strings, such as paths, keys or
+ * format strings.  Encoded strings are kept in a cache per charset that is bounded by the
+ * {@code jnr.ffi.string.intern.size} system property (in bytes, default 1MiB), and the least recently used
+ * strings are evicted once it is full.  Other {@link CharSequence} types, and strings too large to be
+ * cached, are converted as usual.
+ * </p>
+ * <p>
+ * The native function must not modify the string.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Interned {
+}
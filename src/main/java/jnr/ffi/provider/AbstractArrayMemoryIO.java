@@ -18,8 +18,8 @@
 
 package jnr.ffi.provider;
 
+import jnr.ffi.Pointer;
 import jnr.ffi.Runtime;
-import jnr.ffi.util.BufferUtil;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -27,6 +27,8 @@ import java.nio.charset.Charset;
 import java.util.Arrays;
 
 public abstract class AbstractArrayMemoryIO extends AbstractMemoryIO {
+    private static final int FILL_COPY_THRESHOLD = 256;
+
     private final ArrayIO io;
     protected final byte[] buffer;
     protected final int offset, length;
@@ -93,11 +95,18 @@ public abstract class AbstractArrayMemoryIO extends AbstractMemoryIO {
     }
 
     public String getString(long offset) {
-        return BufferUtil.getString(ByteBuffer.wrap(buffer, index(offset), length - (int) offset), Charset.defaultCharset());
+        return getString(offset, Integer.MAX_VALUE, Charset.defaultCharset());
     }
 
     public String getString(long offset, int maxLength, Charset cs) {
-        return BufferUtil.getString(ByteBuffer.wrap(buffer, index(offset), Math.min(length - (int) offset, maxLength)), cs);
+        final int start = index(offset);
+        final int end = start + Math.min(length - (int) offset, maxLength);
+        int idx = start;
+        while (idx < end && buffer[idx] != 0) {
+            idx++;
+        }
+
+        return new String(buffer, start, idx - start, cs);
     }
     
     public void putString(long offset, String string, int maxLength, Charset cs) {
@@ -277,6 +286,154 @@ public abstract class AbstractArrayMemoryIO extends AbstractMemoryIO {
         Arrays.fill(buffer, offset, length, (byte) 0);
     }
 
+    @Override
+    public final long indexOf(long offset, long length, byte[] pattern) {
+        checkBounds(this.length, offset, length);
+        if (pattern.length == 0) {
+            return 0;
+        }
+
+        ByteBuffer words = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        int start = index(offset);
+        long last = length - pattern.length;
+        long first = broadcast(pattern[0]);
+        int i = 0;
+
+        // Find candidates for the first byte of the pattern a word at a time
+        for (; i + 7 <= last; i += 8) {
+            long mask = matchBytes(words.getLong(start + i), first);
+            while (mask != 0) {
+                int candidate = i + (Long.numberOfTrailingZeros(mask) >>> 3);
+                if (matches(start + candidate, pattern)) {
+                    return candidate;
+                }
+                mask &= mask - 1;
+            }
+        }
+        for (; i <= last; i++) {
+            if (matches(start + i, pattern)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean matches(int index, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (buffer[index + i] != pattern[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public final long mismatch(long offset, Pointer other, long otherOffset, long length) {
+        if (!other.hasArray() || !(other.array() instanceof byte[])) {
+            return super.mismatch(offset, other, otherOffset, length);
+        }
+        checkBounds(this.length, offset, length);
+        checkBounds(other.size(), otherOffset, length);
+
+        ByteBuffer words = ByteBuffer.wrap(buffer), otherWords = ByteBuffer.wrap((byte[]) other.array());
+        int index = index(offset), otherIndex = other.arrayOffset() + (int) otherOffset;
+        int i = 0;
+        while (i + 8 <= length && words.getLong(index + i) == otherWords.getLong(otherIndex + i)) {
+            i += 8;
+        }
+        for (; i < length; i++) {
+            if (buffer[index + i] != otherWords.get(otherIndex + i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public final long hash(long offset, long length) {
+        checkBounds(this.length, offset, length);
+        ByteBuffer words = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        int index = index(offset);
+        long hash = hashSeed(length);
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            hash = hashWord(hash, words.getLong(index + i));
+        }
+
+        if (i < length) {
+            long tail = 0;
+            for (int shift = 0; i < length; i++, shift += 8) {
+                tail |= (buffer[index + i] & 0xffL) << shift;
+            }
+            hash = hashWord(hash, tail);
+        }
+
+        return hashFinish(hash);
+    }
+
+    @Override
+    public final void fill(long offset, long size, long pattern) {
+        checkBounds(this.length, offset, size);
+        ByteBuffer words = ByteBuffer.wrap(buffer).order(getRuntime().byteOrder());
+        int index = index(offset);
+
+        // Write the first few copies, then double them with arraycopy, which is faster for large areas
+        int filled = (int) Math.min(size, FILL_COPY_THRESHOLD) & ~7;
+        for (int i = 0; i < filled; i += 8) {
+            words.putLong(index + i, pattern);
+        }
+        if (filled == FILL_COPY_THRESHOLD) {
+            for (; filled < size; filled += (int) Math.min(filled, size - filled)) {
+                System.arraycopy(buffer, index, buffer, index + filled, (int) Math.min(filled, size - filled));
+            }
+        }
+        for (int i = 0; filled < size; filled++, i++) {
+            buffer[index + filled] = patternByte(pattern, i, getRuntime().byteOrder());
+        }
+    }
+
+    @Override
+    public final void transferToSwapped(long offset, Pointer dst, long dstOffset, long count, int elementSize) {
+        if (!dst.hasArray() || !(dst.array() instanceof byte[])) {
+            super.transferToSwapped(offset, dst, dstOffset, count, elementSize);
+            return;
+        }
+        checkElementSize(count, elementSize);
+        checkBounds(this.length, offset, count);
+        checkBounds(dst.size(), dstOffset, count);
+
+        // Reading and writing with opposite byte orders swaps each element
+        ByteBuffer src = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer dest = ByteBuffer.wrap((byte[]) dst.array()).order(ByteOrder.BIG_ENDIAN);
+        int index = index(offset), dstIndex = dst.arrayOffset() + (int) dstOffset;
+        switch (elementSize) {
+            case 1:
+                System.arraycopy(buffer, index, dest.array(), dstIndex, (int) count);
+                break;
+
+            case 2:
+                for (int i = 0; i < count; i += 2) {
+                    dest.putShort(dstIndex + i, src.getShort(index + i));
+                }
+                break;
+
+            case 4:
+                for (int i = 0; i < count; i += 4) {
+                    dest.putInt(dstIndex + i, src.getInt(index + i));
+                }
+                break;
+
+            default:
+                for (int i = 0; i < count; i += 8) {
+                    dest.putLong(dstIndex + i, src.getLong(index + i));
+                }
+                break;
+        }
+    }
+
     protected static abstract class ArrayIO {
 
         public static ArrayIO getArrayIO(Runtime runtime) {
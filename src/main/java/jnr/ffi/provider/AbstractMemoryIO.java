@@ -201,4 +201,20 @@ abstract public class AbstractMemoryIO extends Pointer {
             }
         }
     }
+
+    /**
+     * Gets a word with each byte set to a value, for finding the value in a word with {@link #matchBytes}.
+     */
+    protected static long broadcast(byte value) {
+        return (value & 0xffL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Gets a mask of the bytes in a little endian word that are equal to a broadcast value.  The lowest set bit
+     * is always in the first matching byte, but the bits of later bytes can be set when they do not match.
+     */
+    protected static long matchBytes(long word, long broadcast) {
+        long x = word ^ broadcast;
+        return (x - 0x0101010101010101L) & ~x & 0x8080808080808080L;
+    }
 }
@@ -291,6 +291,120 @@ public final class BoundedMemoryIO extends AbstractMemoryIO implements Delegatin
         io.setMemory(base + offset, size, value);
     }
 
+    @Override
+    public long indexOf(long offset, long length, byte[] pattern) {
+        checkBounds(size, offset, length);
+        return io.indexOf(base + offset, length, pattern);
+    }
+
+    @Override
+    public long mismatch(long offset, Pointer other, long otherOffset, long length) {
+        checkBounds(size, offset, length);
+        return io.mismatch(base + offset, other, otherOffset, length);
+    }
+
+    @Override
+    public long hash(long offset, long length) {
+        checkBounds(size, offset, length);
+        return io.hash(base + offset, length);
+    }
+
+    @Override
+    public void fill(long offset, long size, long pattern) {
+        checkBounds(this.size, offset, size);
+        io.fill(base + offset, size, pattern);
+    }
+
+    @Override
+    public void transferToSwapped(long offset, Pointer dst, long dstOffset, long count, int elementSize) {
+        checkBounds(size, offset, count);
+        io.transferToSwapped(base + offset, dst, dstOffset, count, elementSize);
+    }
+
+    @Override
+    public int getIntVolatile(long offset) {
+        checkBounds(size, offset, 4);
+        return io.getIntVolatile(base + offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        checkBounds(size, offset, 4);
+        io.putIntVolatile(base + offset, value);
+    }
+
+    @Override
+    public int getIntAcquire(long offset) {
+        checkBounds(size, offset, 4);
+        return io.getIntAcquire(base + offset);
+    }
+
+    @Override
+    public void putIntRelease(long offset, int value) {
+        checkBounds(size, offset, 4);
+        io.putIntRelease(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetInt(long offset, int expected, int value) {
+        checkBounds(size, offset, 4);
+        return io.compareAndSetInt(base + offset, expected, value);
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        checkBounds(size, offset, 4);
+        return io.getAndAddInt(base + offset, delta);
+    }
+
+    @Override
+    public int getAndSetInt(long offset, int value) {
+        checkBounds(size, offset, 4);
+        return io.getAndSetInt(base + offset, value);
+    }
+
+    @Override
+    public long getLongLongVolatile(long offset) {
+        checkBounds(size, offset, 8);
+        return io.getLongLongVolatile(base + offset);
+    }
+
+    @Override
+    public void putLongLongVolatile(long offset, long value) {
+        checkBounds(size, offset, 8);
+        io.putLongLongVolatile(base + offset, value);
+    }
+
+    @Override
+    public long getLongLongAcquire(long offset) {
+        checkBounds(size, offset, 8);
+        return io.getLongLongAcquire(base + offset);
+    }
+
+    @Override
+    public void putLongLongRelease(long offset, long value) {
+        checkBounds(size, offset, 8);
+        io.putLongLongRelease(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetLongLong(long offset, long expected, long value) {
+        checkBounds(size, offset, 8);
+        return io.compareAndSetLongLong(base + offset, expected, value);
+    }
+
+    @Override
+    public long getAndAddLongLong(long offset, long delta) {
+        checkBounds(size, offset, 8);
+        return io.getAndAddLongLong(base + offset, delta);
+    }
+
+    @Override
+    public long getAndSetLongLong(long offset, long value) {
+        checkBounds(size, offset, 8);
+        return io.getAndSetLongLong(base + offset, value);
+    }
+
     @Override
     public void transferFrom(long offset, Pointer other, long otherOffset, long count) {
         checkBounds(this.size, base + offset, count);
@@ -18,9 +18,14 @@
 
 package jnr.ffi.provider;
 
+import jnr.ffi.MappedMemory;
+import jnr.ffi.MemoryScope;
 import jnr.ffi.Pointer;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 /**
  * Manages access to various types of java and native memory.
@@ -36,4 +41,41 @@ public interface MemoryManager {
     public abstract Pointer newPointer(long address);
     public abstract Pointer newPointer(long address, long size);
     public abstract Pointer newOpaquePointer(long address);
+
+    /**
+     * Opens a scope on the current thread.  Memory allocated from the scope, and temporary memory allocated on
+     * the thread while it is open, is released when the scope is closed.
+     *
+     * @return a new {@link MemoryScope}, to be closed by the caller.
+     * @throws UnsupportedOperationException if the memory manager does not support scopes.
+     */
+    public default MemoryScope openScope() {
+        throw new UnsupportedOperationException("memory scopes not supported");
+    }
+
+    /**
+     * Maps a region of a file into native memory.
+     *
+     * @param path the file to map.
+     * @param offset the offset in the file of the region.
+     * @param length the length of the region.
+     * @param mode whether the region is mapped read only, read and write or copy on write.
+     * @return a new {@link MappedMemory}, to be closed by the caller.
+     * @throws IOException if the file can not be opened or mapped.
+     * @throws UnsupportedOperationException if the memory manager does not support memory mapped files.
+     */
+    public default MappedMemory map(Path path, long offset, long length, FileChannel.MapMode mode) throws IOException {
+        throw new UnsupportedOperationException("memory mapped files not supported");
+    }
+
+    /**
+     * Releases the native memory of a pointer returned by one of the {@code allocateDirect} methods,
+     * without waiting for it to be garbage collected.  The pointer must not be used afterwards.
+     * Slices of those pointers, pointers to memory that was not allocated by this manager, or that can
+     * only be released by the garbage collector, are ignored.
+     *
+     * @param pointer The pointer to release.
+     */
+    public default void dispose(Pointer pointer) {
+    }
 }
@@ -19,6 +19,7 @@
 package jnr.ffi.provider;
 
 import jnr.ffi.CallingConvention;
+import jnr.ffi.annotations.Critical;
 import jnr.ffi.annotations.IgnoreError;
 import jnr.ffi.annotations.SaveError;
 
@@ -33,6 +34,7 @@ public final class NativeFunction {
     private final Collection<Annotation> annotations;
     private final boolean saveError;
     private final boolean ignoreError;
+    private final boolean critical;
     private final CallingConvention callingConvention;
 
     public NativeFunction(Method method, CallingConvention callingConvention) {
@@ -41,6 +43,7 @@ public final class NativeFunction {
 
         this.saveError = hasSaveError(method);
         this.ignoreError = hasIgnoreError(method);
+        this.critical = isCritical(method);
 
         this.callingConvention = callingConvention;
     }
@@ -58,7 +61,7 @@ public final class NativeFunction {
     }
     
     public boolean isErrnoRequired() {
-        return !ignoreError || saveError;
+        return !critical && (!ignoreError || saveError);
     }
 
     public boolean hasSaveError() {
@@ -69,6 +72,10 @@ public final class NativeFunction {
         return ignoreError;
     }
 
+    public boolean isCritical() {
+        return critical;
+    }
+
     public Method getMethod() {
         return method;
     }
@@ -80,4 +87,8 @@ public final class NativeFunction {
     public static boolean hasIgnoreError(Method method) {
         return method.getAnnotation(IgnoreError.class) != null;
     }
+
+    public static boolean isCritical(Method method) {
+        return method.getAnnotation(Critical.class) != null;
+    }
 }
@@ -232,4 +232,99 @@ public class ShareMemoryIO extends AbstractMemoryIO implements DelegatingMemoryI
     public void setMemory(long offset, long size, byte value) {
         ptr.setMemory(base + offset, size, value);
     }
+
+    @Override
+    public long indexOf(long offset, long length, byte[] pattern) {
+        return ptr.indexOf(base + offset, length, pattern);
+    }
+
+    @Override
+    public long mismatch(long offset, Pointer other, long otherOffset, long length) {
+        return ptr.mismatch(base + offset, other, otherOffset, length);
+    }
+
+    @Override
+    public long hash(long offset, long length) {
+        return ptr.hash(base + offset, length);
+    }
+
+    @Override
+    public void fill(long offset, long size, long pattern) {
+        ptr.fill(base + offset, size, pattern);
+    }
+
+    @Override
+    public void transferToSwapped(long offset, Pointer dst, long dstOffset, long count, int elementSize) {
+        ptr.transferToSwapped(base + offset, dst, dstOffset, count, elementSize);
+    }
+
+    @Override
+    public int getIntVolatile(long offset) {
+        return ptr.getIntVolatile(base + offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        ptr.putIntVolatile(base + offset, value);
+    }
+
+    @Override
+    public int getIntAcquire(long offset) {
+        return ptr.getIntAcquire(base + offset);
+    }
+
+    @Override
+    public void putIntRelease(long offset, int value) {
+        ptr.putIntRelease(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetInt(long offset, int expected, int value) {
+        return ptr.compareAndSetInt(base + offset, expected, value);
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        return ptr.getAndAddInt(base + offset, delta);
+    }
+
+    @Override
+    public int getAndSetInt(long offset, int value) {
+        return ptr.getAndSetInt(base + offset, value);
+    }
+
+    @Override
+    public long getLongLongVolatile(long offset) {
+        return ptr.getLongLongVolatile(base + offset);
+    }
+
+    @Override
+    public void putLongLongVolatile(long offset, long value) {
+        ptr.putLongLongVolatile(base + offset, value);
+    }
+
+    @Override
+    public long getLongLongAcquire(long offset) {
+        return ptr.getLongLongAcquire(base + offset);
+    }
+
+    @Override
+    public void putLongLongRelease(long offset, long value) {
+        ptr.putLongLongRelease(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetLongLong(long offset, long expected, long value) {
+        return ptr.compareAndSetLongLong(base + offset, expected, value);
+    }
+
+    @Override
+    public long getAndAddLongLong(long offset, long delta) {
+        return ptr.getAndAddLongLong(base + offset, delta);
+    }
+
+    @Override
+    public long getAndSetLongLong(long offset, long value) {
+        return ptr.getAndSetLongLong(base + offset, value);
+    }
 }
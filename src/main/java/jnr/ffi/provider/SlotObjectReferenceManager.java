@@ -0,0 +1,193 @@
+package jnr.ffi.provider;
+
+import jnr.ffi.ObjectReferenceManager;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An {@link ObjectReferenceManager} that issues handles from a table of slots.
+ * <p>
+ * Each handle encodes a slot index and the generation of that slot, so looking up a handle is a single
+ * array read, and a handle that has been removed (and whose slot may since have been reused) is detected
+ * by its generation no longer matching.  Free slots are kept on a set of lock-free stacks striped by thread,
+ * so concurrent adds and removes on different threads rarely contend.
+ * <p>
+ * On 32 bit platforms the generation wraps after 2048 reuses of a slot, so a stale handle may very rarely
+ * match a newer reference.
+ */
+public final class SlotObjectReferenceManager<T> extends ObjectReferenceManager<T> {
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int MAX_STRIPES = 64;
+
+    private final Runtime runtime;
+    private final int indexBits;
+    private final long indexMask;
+    private final long generationMask;
+    private final int maxIndex;
+    private final AtomicReferenceArray<Segment> segments;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final AtomicLong[] freeLists;
+    private final int stripeMask;
+
+    public SlotObjectReferenceManager(Runtime runtime) {
+        this.runtime = runtime;
+        this.indexBits = runtime.addressSize() == 4 ? 20 : 28;
+        this.indexMask = (1L << indexBits) - 1;
+        this.generationMask = (runtime.addressSize() == 4 ? (1L << (31 - indexBits)) : (1L << 32)) - 1;
+        // index + 1 must still fit in the index bits, so a handle is never zero
+        this.maxIndex = (int) indexMask - 1;
+        this.segments = new AtomicReferenceArray<Segment>((int) ((indexMask + SEGMENT_SIZE) >>> SEGMENT_SHIFT));
+
+        int stripes = 1;
+        while (stripes < Math.min(MAX_STRIPES, java.lang.Runtime.getRuntime().availableProcessors())) {
+            stripes <<= 1;
+        }
+        this.freeLists = new AtomicLong[stripes];
+        for (int i = 0; i < stripes; i++) {
+            freeLists[i] = new AtomicLong(0L);
+        }
+        this.stripeMask = stripes - 1;
+    }
+
+    public Pointer add(T obj) {
+        if (obj == null) {
+            throw new IllegalArgumentException("reference to null value not allowed");
+        }
+
+        int index = allocateSlot();
+        Segment segment = segment(index);
+        int i = index & SEGMENT_MASK;
+        // the slot is owned by this thread until it is published below
+        long generation = ++segment.generations[i] & generationMask;
+        SlotReference ref = new SlotReference(runtime, (generation << indexBits) | (index + 1L), obj);
+        segment.references.set(i, ref);
+
+        return ref;
+    }
+
+    public boolean remove(Pointer reference) {
+        long address = reference.address();
+        int index = (int) (address & indexMask) - 1;
+        Segment segment = index >= 0 ? segments.get(index >>> SEGMENT_SHIFT) : null;
+        if (segment == null) {
+            return false;
+        }
+
+        int i = index & SEGMENT_MASK;
+        SlotReference ref = segment.references.get(i);
+        if (ref != null && ref.address() == address && segment.references.compareAndSet(i, ref, null)) {
+            free(segment, index);
+            return true;
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(Pointer reference) {
+        long address = reference.address();
+        int index = (int) (address & indexMask) - 1;
+        Segment segment = index >= 0 ? segments.get(index >>> SEGMENT_SHIFT) : null;
+        if (segment == null) {
+            return null;
+        }
+
+        SlotReference ref = segment.references.get(index & SEGMENT_MASK);
+        return ref != null && ref.address() == address ? (T) ref.referent : null;
+    }
+
+    private int allocateSlot() {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        for (int n = 0; n <= stripeMask; n++) {
+            int index = pop(freeLists[(stripe + n) & stripeMask]);
+            if (index >= 0) {
+                return index;
+            }
+        }
+
+        int index = nextIndex.getAndIncrement();
+        if (index > maxIndex) {
+            nextIndex.decrementAndGet();
+            throw new IllegalStateException("too many object references");
+        }
+
+        return index;
+    }
+
+    private Segment segment(int index) {
+        int s = index >>> SEGMENT_SHIFT;
+        Segment segment = segments.get(s);
+        if (segment == null && !segments.compareAndSet(s, null, segment = new Segment())) {
+            segment = segments.get(s);
+        }
+
+        return segment;
+    }
+
+    /*
+     * Each free list is a Treiber stack of slot indices, linked through Segment.next.  The head holds the
+     * index + 1 of the top slot in its low 32 bits, and a version in its high 32 bits to guard against ABA.
+     */
+    private int pop(AtomicLong freeList) {
+        for (;;) {
+            long head = freeList.get();
+            int top = (int) head - 1;
+            if (top < 0) {
+                return -1;
+            }
+
+            int next = segments.get(top >>> SEGMENT_SHIFT).next.get(top & SEGMENT_MASK);
+            if (freeList.compareAndSet(head, ((head >>> 32) + 1) << 32 | (next & 0xffffffffL))) {
+                return top;
+            }
+        }
+    }
+
+    private void free(Segment segment, int index) {
+        AtomicLong freeList = freeLists[(int) Thread.currentThread().getId() & stripeMask];
+        for (;;) {
+            long head = freeList.get();
+            segment.next.set(index & SEGMENT_MASK, (int) head);
+            if (freeList.compareAndSet(head, ((head >>> 32) + 1) << 32 | (index + 1L))) {
+                return;
+            }
+        }
+    }
+
+    private static final class Segment {
+        final AtomicReferenceArray<SlotReference> references = new AtomicReferenceArray<SlotReference>(SEGMENT_SIZE);
+        final AtomicIntegerArray next = new AtomicIntegerArray(SEGMENT_SIZE);
+        /** Only written by the thread that currently owns the slot */
+        final int[] generations = new int[SEGMENT_SIZE];
+    }
+
+    private static final class SlotReference extends InAccessibleMemoryIO {
+        private final Object referent;
+
+        public SlotReference(jnr.ffi.Runtime runtime, long address, Object referent) {
+            super(runtime, address, true);
+            this.referent = referent;
+        }
+
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (address() ^ (address() >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Pointer && ((Pointer) obj).address() == address();
+        }
+    }
+}
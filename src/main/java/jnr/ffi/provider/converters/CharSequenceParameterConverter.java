@@ -34,20 +34,33 @@ import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Locale;
 
 import static jnr.ffi.provider.converters.StringUtil.getEncoder;
 import static jnr.ffi.provider.converters.StringUtil.throwException;
 
 /**
  * Converts a CharSequence (e.g. String) to a primitive ByteBuffer array parameter
+ * <p>
+ * Strings in US-ASCII, ISO-8859-1 or UTF-8 are encoded straight into a per-thread direct buffer, which is
+ * passed to the native function by address and released once the call returns.  Any other charset, or a
+ * string that does not fit in the space left in the buffer, is encoded into a new heap buffer.
  */
 @ToNativeConverter.NoContext
 @ToNativeConverter.Cacheable
-public class CharSequenceParameterConverter implements ToNativeConverter<CharSequence, ByteBuffer> {
+public class CharSequenceParameterConverter implements ToNativeConverter<CharSequence, ByteBuffer>,
+        ToNativeConverter.PostInvocation<CharSequence, ByteBuffer> {
     private static final ToNativeConverter<CharSequence, ByteBuffer> DEFAULT = new CharSequenceParameterConverter(Charset.defaultCharset());
     private final ThreadLocal<Reference<CharsetEncoder>> localEncoder = new ThreadLocal<Reference<CharsetEncoder>>();
 
+    /** The size of the per-thread buffer used by the fast encoding path; zero disables it */
+    private static final int DIRECT_BUFFER_SIZE = (int) Util.getLongProperty("jnr.ffi.string.buffer.size", 8192);
+    private static final ThreadLocal<DirectStringBuffer> localBuffer = new ThreadLocal<DirectStringBuffer>();
+
+    private static final int GENERIC = 0, ASCII = 1, LATIN1 = 2, UTF8 = 3;
+
     private final Charset charset;
+    private final int encoding;
 
 
     public static ToNativeConverter<CharSequence, ByteBuffer> getInstance(Charset charset, ToNativeContext toNativeContext) {
@@ -92,6 +105,23 @@ public class CharSequenceParameterConverter implements ToNativeConverter<CharSeq
 
     private CharSequenceParameterConverter(Charset charset) {
         this.charset = charset;
+        this.encoding = DIRECT_BUFFER_SIZE > 0 ? getEncoding(charset) : GENERIC;
+    }
+
+    private static int getEncoding(Charset charset) {
+        String name = charset.name().toUpperCase(Locale.ENGLISH);
+        if ("US-ASCII".equals(name)) {
+            return ASCII;
+
+        } else if ("ISO-8859-1".equals(name)) {
+            return LATIN1;
+
+        } else if ("UTF-8".equals(name)) {
+            return UTF8;
+
+        } else {
+            return GENERIC;
+        }
     }
 
     @Override
@@ -100,6 +130,30 @@ public class CharSequenceParameterConverter implements ToNativeConverter<CharSeq
             return null;
         }
 
+        if (encoding != GENERIC) {
+            DirectStringBuffer buffer = localBuffer.get();
+            if (buffer == null) {
+                localBuffer.set(buffer = new DirectStringBuffer(DIRECT_BUFFER_SIZE));
+            }
+
+            ByteBuffer byteBuffer = buffer.encode(string, encoding);
+            if (byteBuffer != null) {
+                return byteBuffer;
+            }
+        }
+
+        return encode(string);
+    }
+
+    @Override
+    public void postInvoke(CharSequence string, ByteBuffer byteBuffer, ToNativeContext context) {
+        // only the fast path hands out direct buffers
+        if (byteBuffer != null && byteBuffer.isDirect()) {
+            localBuffer.get().release();
+        }
+    }
+
+    private ByteBuffer encode(CharSequence string) {
         CharsetEncoder encoder = getEncoder(charset, localEncoder);
         ByteBuffer byteBuffer = ByteBuffer.wrap(new byte[(int) (string.length() * encoder.averageBytesPerChar()) + 4]);
         CharBuffer charBuffer = CharBuffer.wrap(string);
@@ -129,6 +183,106 @@ public class CharSequenceParameterConverter implements ToNativeConverter<CharSeq
         return byteBuffer;
     }
 
+    /**
+     * A native buffer that strings are encoded into, stack fashion, for the duration of a call.
+     * <p>
+     * Every string handed out is released in the post-invoke step of its call.  Nested calls (e.g. from a
+     * callback) allocate above the strings of the calls that are still in progress, so the buffer is only
+     * rewound once every string has been released.
+     */
+    private static final class DirectStringBuffer {
+        private static final int MAX_CACHED_VIEWS = 16;
+        private final ByteBuffer buffer;
+        private final ByteBuffer[] views = new ByteBuffer[MAX_CACHED_VIEWS];
+        private int offset;
+        private int live;
+
+        DirectStringBuffer(int size) {
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        /**
+         * Encodes a string and its NUL terminator at the current offset.
+         *
+         * @return a view of the encoded string, or {@code null} if it does not fit.
+         */
+        ByteBuffer encode(CharSequence string, int encoding) {
+            final ByteBuffer buf = buffer;
+            final int start = offset;
+            // always leave room for a 4 byte NUL terminator, as the generic path does
+            final int limit = buf.capacity() - 4;
+            final int length = string.length();
+            int pos = start;
+
+            if (start + length > limit) {
+                return null;
+            }
+
+            for (int i = 0; i < length; i++) {
+                char c = string.charAt(i);
+                if (c < 0x80) {
+                    if (pos >= limit) return null;
+                    buf.put(pos++, (byte) c);
+
+                } else if (encoding == LATIN1 && c < 0x100) {
+                    if (pos >= limit) return null;
+                    buf.put(pos++, (byte) c);
+
+                } else if (encoding != UTF8) {
+                    // unmappable, or a surrogate pair that is encoded as a single replacement
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                        i++;
+                    }
+                    if (pos >= limit) return null;
+                    buf.put(pos++, (byte) '?');
+
+                } else if (c < 0x800) {
+                    if (pos + 2 > limit) return null;
+                    buf.put(pos++, (byte) (0xc0 | (c >> 6)));
+                    buf.put(pos++, (byte) (0x80 | (c & 0x3f)));
+
+                } else if (!Character.isSurrogate(c)) {
+                    if (pos + 3 > limit) return null;
+                    buf.put(pos++, (byte) (0xe0 | (c >> 12)));
+                    buf.put(pos++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+                    buf.put(pos++, (byte) (0x80 | (c & 0x3f)));
+
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    if (pos + 4 > limit) return null;
+                    int cp = Character.toCodePoint(c, string.charAt(++i));
+                    buf.put(pos++, (byte) (0xf0 | (cp >> 18)));
+                    buf.put(pos++, (byte) (0x80 | ((cp >> 12) & 0x3f)));
+                    buf.put(pos++, (byte) (0x80 | ((cp >> 6) & 0x3f)));
+                    buf.put(pos++, (byte) (0x80 | (cp & 0x3f)));
+
+                } else {
+                    // malformed surrogate
+                    if (pos >= limit) return null;
+                    buf.put(pos++, (byte) '?');
+                }
+            }
+
+            buf.putInt(pos, 0);
+            pos += 4;
+
+            ByteBuffer view = live < views.length
+                    ? (views[live] != null ? views[live] : (views[live] = buf.duplicate()))
+                    : buf.duplicate();
+            view.limit(pos).position(start);
+            offset = pos;
+            live++;
+
+            return view;
+        }
+
+        void release() {
+            if (--live <= 0) {
+                live = 0;
+                offset = 0;
+            }
+        }
+    }
+
     private static ByteBuffer grow(ByteBuffer oldBuffer) {
         ByteBuffer buf = ByteBuffer.wrap(new byte[oldBuffer.capacity() * 2]);
         oldBuffer.flip();
@@ -0,0 +1,194 @@
+package jnr.ffi.provider.converters;
+
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Interned;
+import jnr.ffi.annotations.NulTerminate;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts a String parameter to a cached, read-only, NUL terminated native copy.
+ *
+ * @see Interned
+ */
+@ToNativeConverter.NoContext
+@ToNativeConverter.Cacheable
+public class InternedCharSequenceParameterConverter implements ToNativeConverter<CharSequence, ByteBuffer>,
+        ToNativeConverter.PostInvocation<CharSequence, ByteBuffer> {
+    private static final long CACHE_SIZE = Util.getLongProperty("jnr.ffi.string.intern.size", 1024 * 1024);
+    private static final Map<Charset, InternedStringCache> caches = new ConcurrentHashMap<Charset, InternedStringCache>();
+
+    private final InternedStringCache cache;
+    private final ToNativeConverter<CharSequence, ByteBuffer> fallback;
+
+    public static ToNativeConverter<CharSequence, ByteBuffer> getInstance(ToNativeContext toNativeContext) {
+        Charset charset = StringUtil.getCharset(toNativeContext);
+        InternedStringCache cache = caches.get(charset);
+        if (cache == null) {
+            synchronized (caches) {
+                if ((cache = caches.get(charset)) == null) {
+                    caches.put(charset, cache = new InternedStringCache(charset, CACHE_SIZE));
+                }
+            }
+        }
+
+        return new InternedCharSequenceParameterConverter(cache, CharSequenceParameterConverter.getInstance(charset, toNativeContext));
+    }
+
+    /**
+     * Checks if a parameter is annotated with {@link Interned}.
+     *
+     * @param toNativeContext the parameter context.
+     * @return {@code true} if the parameter should use the interned string cache.
+     */
+    public static boolean isInterned(ToNativeContext toNativeContext) {
+        if (CACHE_SIZE <= 0) {
+            return false;
+        }
+
+        for (Annotation a : toNativeContext.getAnnotations()) {
+            if (a instanceof Interned) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private InternedCharSequenceParameterConverter(InternedStringCache cache, ToNativeConverter<CharSequence, ByteBuffer> fallback) {
+        this.cache = cache;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public ByteBuffer toNative(CharSequence value, ToNativeContext context) {
+        if (value instanceof String) {
+            ByteBuffer buffer = cache.get((String) value);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+
+        return fallback.toNative(value, context);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void postInvoke(CharSequence value, ByteBuffer buffer, ToNativeContext context) {
+        // cached buffers are read-only and are never released
+        if (buffer != null && !buffer.isReadOnly() && fallback instanceof PostInvocation) {
+            ((PostInvocation<CharSequence, ByteBuffer>) fallback).postInvoke(value, buffer, context);
+        }
+    }
+
+    @Override
+    @In
+    @NulTerminate
+    public Class<ByteBuffer> nativeType() {
+        return ByteBuffer.class;
+    }
+
+    /**
+     * A bounded cache of encoded strings for one charset.
+     * <p>
+     * Lookups do not lock.  Eviction uses the CLOCK approximation of LRU: a hit marks its entry as referenced,
+     * and when the cache is full, referenced entries are given a second chance while the first unreferenced
+     * entry is evicted.  An evicted buffer stays valid for as long as a call in progress still references it.
+     */
+    static final class InternedStringCache {
+        private final Charset charset;
+        private final long maxBytes;
+        private final long maxEntryBytes;
+        private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+        /** guarded by this */
+        private final ArrayDeque<Entry> clock = new ArrayDeque<Entry>();
+        /** guarded by this */
+        private long totalBytes;
+
+        InternedStringCache(Charset charset, long maxBytes) {
+            this.charset = charset;
+            this.maxBytes = maxBytes;
+            this.maxEntryBytes = Math.max(64, maxBytes / 16);
+        }
+
+        /**
+         * Gets the cached native copy of a string, encoding and adding it to the cache if needed.
+         *
+         * @return a read-only direct buffer, or {@code null} if the string is too large to be cached.
+         */
+        ByteBuffer get(String string) {
+            Entry entry = entries.get(string);
+            if (entry != null) {
+                if (!entry.referenced) {
+                    entry.referenced = true;
+                }
+                return entry.buffer;
+            }
+
+            // every char encodes to at least one byte, so this string cannot fit
+            if ((long) string.length() + 4 > maxEntryBytes) {
+                return null;
+            }
+
+            return add(string, string.getBytes(charset));
+        }
+
+        private ByteBuffer add(String string, byte[] bytes) {
+            if (bytes.length + 4 > maxEntryBytes) {
+                return null;
+            }
+
+            // ensure native memory is NUL terminated (assume max wchar_t 4 byte termination needed)
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 4);
+            buffer.put(bytes).putInt(0).flip();
+            Entry entry = new Entry(string, buffer.asReadOnlyBuffer());
+
+            synchronized (this) {
+                Entry existing = entries.get(string);
+                if (existing != null) {
+                    return existing.buffer;
+                }
+
+                while (totalBytes + entry.size() > maxBytes && !clock.isEmpty()) {
+                    Entry e = clock.poll();
+                    if (e.referenced) {
+                        e.referenced = false;
+                        clock.add(e);
+                    } else {
+                        entries.remove(e.string);
+                        totalBytes -= e.size();
+                    }
+                }
+
+                entries.put(string, entry);
+                clock.add(entry);
+                totalBytes += entry.size();
+            }
+
+            return entry.buffer;
+        }
+
+        private static final class Entry {
+            final String string;
+            final ByteBuffer buffer;
+            volatile boolean referenced;
+
+            Entry(String string, ByteBuffer buffer) {
+                this.string = string;
+                this.buffer = buffer;
+            }
+
+            long size() {
+                return buffer.capacity();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package jnr.ffi.provider.converters;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+import jnr.ffi.util.NativeArray;
+
+/**
+ * Passes a {@link NativeArray} as the pointer to its direct memory, so the elements are not copied.
+ */
+@ToNativeConverter.NoContext
+@ToNativeConverter.Cacheable
+public final class NativeArrayParameterConverter implements ToNativeConverter<NativeArray<?>, Pointer> {
+    private static final ToNativeConverter<NativeArray<?>, Pointer> INSTANCE = new NativeArrayParameterConverter();
+
+    public static ToNativeConverter<NativeArray<?>, Pointer> getInstance(ToNativeContext toNativeContext) {
+        return INSTANCE;
+    }
+
+    public Class<Pointer> nativeType() {
+        return Pointer.class;
+    }
+
+    public Pointer toNative(NativeArray<?> value, ToNativeContext ctx) {
+        return value != null ? value.getPointer() : null;
+    }
+}
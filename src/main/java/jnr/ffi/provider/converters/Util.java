@@ -0,0 +1,16 @@
+package jnr.ffi.provider.converters;
+
+final class Util {
+    private Util() {
+    }
+
+    static long getLongProperty(String propertyName, long defaultValue) {
+        try {
+            return Long.decode(System.getProperty(propertyName, Long.toString(defaultValue)));
+        } catch (SecurityException se) {
+            return defaultValue;
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
+}
@@ -60,11 +60,12 @@ abstract class AbstractFastNumericMethodGenerator extends BaseMethodGenerator {
         final LocalVariable objCount = localVariableAllocator.allocate(int.class);
         final LocalVariable[] parameters = AsmUtil.getParameterVariables(parameterTypes);
         final LocalVariable[] converted = new LocalVariable[parameterTypes.length];
+        final CallGuard guard = emitCallGuard(mv, localVariableAllocator, parameterTypes, converted, false);
         int pointerCount = 0;
 
         // Load, convert, and un-box parameters
         for (int i = 0; i < parameterTypes.length; ++i) {
-            converted[i] = loadAndConvertParameter(builder, mv, localVariableAllocator, parameters[i], parameterTypes[i]);
+            converted[i] = loadAndConvertParameter(builder, mv, localVariableAllocator, parameters[i], parameterTypes[i], converted[i]);
 
             Class javaParameterType = parameterTypes[i].effectiveJavaType();
             ToNativeOp op = ToNativeOp.get(parameterTypes[i]);
@@ -81,8 +82,12 @@ abstract class AbstractFastNumericMethodGenerator extends BaseMethodGenerator {
 
         // stack now contains [ IntInvoker, Function, int/long args ]
         Label hasObjects = new Label();
+        Label hasObjectsEnd = new Label();
         Label convertResult = new Label();
         if (pointerCount > 0) {
+            if (guard != null) {
+                guard.cover(mv, hasObjects, hasObjectsEnd);
+            }
             mv.iload(objCount);
             mv.ifne(hasObjects);
         }
@@ -111,7 +116,7 @@ abstract class AbstractFastNumericMethodGenerator extends BaseMethodGenerator {
         // box and/or narrow/widen the return value if needed
         final Class unboxedResultType = unboxedReturnType(javaReturnType);
         convertPrimitive(mv, nativeReturnType, unboxedResultType, resultType.getNativeType());
-        emitEpilogue(builder, mv, resultType, parameterTypes, parameters, converted, null);
+        emitEpilogue(builder, mv, resultType, parameterTypes, parameters, converted, guard, null);
 
         /* --  method returns above - below is an alternative path -- */
 
@@ -160,6 +165,7 @@ abstract class AbstractFastNumericMethodGenerator extends BaseMethodGenerator {
                     getObjectParameterMethodSignature(parameterTypes.length, pointerCount));
             narrow(mv, long.class, nativeIntType);
             mv.go_to(convertResult);
+            mv.label(hasObjectsEnd);
         }
     }
 
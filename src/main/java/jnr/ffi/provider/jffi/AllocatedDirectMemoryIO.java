@@ -20,18 +20,27 @@ package jnr.ffi.provider.jffi;
 
 import jnr.ffi.Runtime;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-
 class AllocatedDirectMemoryIO extends DirectMemoryIO {
-    private final AtomicBoolean allocated = new AtomicBoolean(true);
+    private final MemoryCleanup cleanup;
     private final long size;
     
     public AllocatedDirectMemoryIO(Runtime runtime, long size, boolean clear) {
-        super(runtime, IO.allocateMemory(size, clear));
+        super(runtime, allocateMemory(size, clear));
         this.size = size;
         if (address() == 0L) {
             throw new OutOfMemoryError("Failed to allocate " + size + " bytes");
         }
+        this.cleanup = new MemoryCleanup(this, address(), size);
+    }
+
+    private static long allocateMemory(long size, boolean clear) {
+        Object event = FlightRecorderEvents.ENABLED ? FlightRecorderEvents.DIRECT_ALLOCATION.begin() : null;
+        long address = IO.allocateMemory(size, clear);
+        if (event != null) {
+            FlightRecorderEvents.DIRECT_ALLOCATION.commit(event, address, size);
+        }
+
+        return address;
     }
 
     @Override
@@ -55,19 +64,27 @@ class AllocatedDirectMemoryIO extends DirectMemoryIO {
     }
 
     public final void dispose() {
-        if (allocated.getAndSet(false)) {
-            IO.freeMemory(address());
-        }
+        cleanup.dispose();
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        try {
-            if (allocated.getAndSet(false)) {
-                IO.freeMemory(address());
+    /**
+     * Frees the memory once it has been disposed, or once its {@code AllocatedDirectMemoryIO} has been collected.
+     * This must not hold a reference to the {@code AllocatedDirectMemoryIO} itself.
+     */
+    private static final class MemoryCleanup extends NativeMemoryCleaner.Cleanup<AllocatedDirectMemoryIO> {
+        private final long address;
+
+        MemoryCleanup(AllocatedDirectMemoryIO memory, long address, long size) {
+            super(memory, size);
+            this.address = address;
+        }
+
+        protected void free(boolean reclaimed) {
+            Object event = FlightRecorderEvents.ENABLED ? FlightRecorderEvents.DIRECT_FREE.begin() : null;
+            IO.freeMemory(address);
+            if (event != null) {
+                FlightRecorderEvents.DIRECT_FREE.commit(event, address, size, reclaimed);
             }
-        } finally {
-            super.finalize();
         }
     }
 }
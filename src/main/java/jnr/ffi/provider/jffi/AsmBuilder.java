@@ -19,8 +19,12 @@
 package jnr.ffi.provider.jffi;
 
 import com.kenai.jffi.CallContext;
+import com.kenai.jffi.CallContextCache;
 import com.kenai.jffi.Function;
 import com.kenai.jffi.ObjectParameterInfo;
+import com.kenai.jffi.Type;
+import jnr.ffi.CallingConvention;
+import jnr.ffi.NativeType;
 import jnr.ffi.Variable;
 import jnr.ffi.mapper.FromNativeContext;
 import jnr.ffi.mapper.FromNativeConverter;
@@ -71,6 +75,11 @@ class AsmBuilder {
     private final Map<Object, ObjectField> genericObjects = new IdentityHashMap<Object, ObjectField>();
     private final List<ObjectField> objectFields = new ArrayList<ObjectField>();
 
+    /** How the function addresses and call contexts of the class are bound, for classes that are cached */
+    private final Map<Long, String> symbolBindings = new HashMap<Long, String>();
+    private final Map<CallContext, String> callContextBindings = new HashMap<CallContext, String>();
+    private final List<String> missingSymbols = new ArrayList<String>();
+
     AsmBuilder(jnr.ffi.Runtime runtime, String classNamePath, ClassVisitor classVisitor, AsmClassLoader classLoader) {
         this.runtime = runtime;
         this.classNamePath = classNamePath;
@@ -180,6 +189,104 @@ class AsmBuilder {
         return getField(variableAccessors, variableAccessor, Variable.class, variableAccessorId).name;
     }
 
+    /**
+     * Records the symbol and the call context of a function, so the fields holding them can be bound again
+     * without generating the class.
+     */
+    void bindFunction(Function function, String symbol, int fixedParamCount, CallingConvention convention,
+                      boolean saveErrno) {
+        symbolBindings.put(function.getFunctionAddress(), "symbol " + symbol);
+
+        CallContext context = function.getCallContext();
+        StringBuilder sb = new StringBuilder("context ").append(convention).append(' ').append(saveErrno)
+                .append(' ').append(fixedParamCount);
+        for (int i = -1; i < context.getParameterCount(); i++) {
+            NativeType nativeType = nativeType(i < 0 ? context.getReturnType() : context.getParameterType(i));
+            if (nativeType == null) {
+                // a struct passed by value, which is not bound again
+                return;
+            }
+            sb.append(' ').append(nativeType);
+        }
+        callContextBindings.put(context, sb.toString());
+    }
+
+    /**
+     * Records a symbol that was not found, which the class was generated to throw an error for.
+     */
+    void bindMissingSymbol(String symbol) {
+        missingSymbols.add("missing " + symbol);
+    }
+
+    private static NativeType nativeType(Type type) {
+        for (Map.Entry<NativeType, Type> e : InvokerUtil.jffiTypes.entrySet()) {
+            if (e.getValue() == type) {
+                return e.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets how each field of the class is bound, followed by the symbols that were not found.
+     *
+     * @return the bindings, or {@code null} if a field holds something other than the runtime, a function
+     * address or a call context with no struct types.
+     */
+    String[] getBindings() {
+        List<String> bindings = new ArrayList<String>();
+        for (ObjectField f : objectFields) {
+            String binding = f.value == runtime ? "runtime"
+                    : f.value instanceof Long ? symbolBindings.get(f.value)
+                    : f.value instanceof CallContext ? callContextBindings.get(f.value) : null;
+            if (binding == null) {
+                return null;
+            }
+            bindings.add(binding);
+        }
+        bindings.addAll(missingSymbols);
+
+        return bindings.toArray(new String[bindings.size()]);
+    }
+
+    /**
+     * Binds the fields of a class from the bindings recorded when it was generated.
+     *
+     * @return the values of the fields, or {@code null} if a symbol the class calls is no longer found, or a
+     * symbol that was not found now is.
+     */
+    static Object[] bind(String[] bindings, jnr.ffi.Runtime runtime, NativeLibrary library) {
+        List<Object> values = new ArrayList<Object>(bindings.length);
+        for (String binding : bindings) {
+            String[] args = binding.split(" ");
+            if (args[0].equals("runtime")) {
+                values.add(runtime);
+
+            } else if (args[0].equals("symbol")) {
+                long address = library.getSymbolAddress(args[1]);
+                if (address == 0L) {
+                    return null;
+                }
+                values.add(address);
+
+            } else if (args[0].equals("context")) {
+                Type[] parameterTypes = new Type[args.length - 5];
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    parameterTypes[i] = InvokerUtil.jffiType(NativeType.valueOf(args[i + 5]));
+                }
+                values.add(CallContextCache.getInstance().getCallContext(
+                        InvokerUtil.jffiType(NativeType.valueOf(args[4])), Integer.parseInt(args[3]), parameterTypes,
+                        InvokerUtil.jffiConvention(CallingConvention.valueOf(args[1])), Boolean.parseBoolean(args[2])));
+
+            } else if (args[0].equals("missing") && library.getSymbolAddress(args[1]) != 0L) {
+                return null;
+            }
+        }
+
+        return values.toArray();
+    }
+
     public static final class ObjectField {
         public final String name;
         public final Object value;
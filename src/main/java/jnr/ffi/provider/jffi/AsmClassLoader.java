@@ -20,9 +20,11 @@ package jnr.ffi.provider.jffi;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 final class AsmClassLoader extends ClassLoader {
     private final ConcurrentMap<String, Class> definedClasses = new ConcurrentHashMap<String, Class>();
+    private final AtomicLong nextClassID = new AtomicLong(0);
 
     public AsmClassLoader() {
     }
@@ -39,6 +41,19 @@ final class AsmClassLoader extends ClassLoader {
         return klass;
     }
 
+    boolean isDefined(String name) {
+        return definedClasses.containsKey(name);
+    }
+
+    /**
+     * Names a class to be generated in this class loader.  Classes are numbered per class loader, so loading a
+     * library again in a new class loader gives its classes the same names, as cached classes that refer to
+     * them expect.
+     */
+    String newClassName(String prefix) {
+        return prefix + nextClassID.getAndIncrement();
+    }
+
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
         Class klass = definedClasses.get(name);
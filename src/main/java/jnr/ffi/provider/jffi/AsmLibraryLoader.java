@@ -25,11 +25,17 @@ import jnr.ffi.annotations.Variadic;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 
 import java.io.PrintWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -51,6 +57,7 @@ import jnr.ffi.provider.NativeVariable;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.ffi.provider.jffi.AsmBuilder.ObjectField;
+import jnr.ffi.util.FunctionMetrics;
 
 import static jnr.ffi.provider.jffi.CodegenUtils.ci;
 import static jnr.ffi.provider.jffi.CodegenUtils.p;
@@ -69,14 +76,19 @@ import static org.objectweb.asm.Opcodes.V1_8;
 public class AsmLibraryLoader extends LibraryLoader {
     public final static boolean DEBUG = Boolean.getBoolean("jnr.ffi.compile.dump");
     private static final AtomicLong nextClassID = new AtomicLong(0);
-    private static final AtomicLong uniqueId = new AtomicLong(0);
     private static final ThreadLocal<AsmClassLoader> classLoader = new ThreadLocal<AsmClassLoader>();
 
     private final NativeRuntime runtime = NativeRuntime.getInstance();
 
     @Override
     <T> T loadLibrary(NativeLibrary library, Class<T> interfaceClass, Map<LibraryOption, ?> libraryOptions,
-                      boolean failImmediately /* ignored, asm loader eagerly binds everything */) {
+                      boolean failImmediately) {
+        if (failImmediately) {
+            // missing functions otherwise only fail when they are called, even if they are bound as the class is
+            // generated
+            findSymbols(library, interfaceClass, libraryOptions);
+        }
+
         AsmClassLoader oldClassLoader = classLoader.get();
 
         // Only create a new class loader if this was not a recursive call (i.e. loading a library as a result of loading another library)
@@ -84,20 +96,77 @@ public class AsmLibraryLoader extends LibraryLoader {
             classLoader.set(new AsmClassLoader(interfaceClass.getClassLoader()));
         }
         try {
-            return generateInterfaceImpl(library, interfaceClass, libraryOptions, classLoader.get());
+            AsmClassLoader asmClassLoader = classLoader.get();
+            GeneratedClassCache.Entry cacheEntry = GeneratedClassCache.lookup(asmClassLoader, interfaceClass,
+                    p(interfaceClass) + "$jnr$ffi$", library.getLibraryNames(), libraryOptions, library.getMetrics() != null);
+            Object[] fieldValues = cacheEntry != null && cacheEntry.getBindings() != null
+                    ? AsmBuilder.bind(cacheEntry.getBindings(), runtime, library) : null;
+            if (fieldValues != null) {
+                // the stored class only needs the symbols of its functions, so none of its code is generated
+                Class<T> implClass = cacheEntry.defineBound(asmClassLoader, interfaceClass, fieldValues.length);
+                return implClass != null
+                        ? newInstance(implClass, library, fieldValues)
+                        : generateInterfaceImpl(library, interfaceClass, libraryOptions, asmClassLoader, null);
+            }
+
+            T result = generateInterfaceImpl(library, interfaceClass, libraryOptions, asmClassLoader, cacheEntry);
+            if (result == null) {
+                // the cached class did not match the interface and was discarded, so generate it again
+                result = generateInterfaceImpl(library, interfaceClass, libraryOptions, asmClassLoader, null);
+            }
+
+            return result;
         } finally {
             if (oldClassLoader == null) classLoader.remove();
         }
     }
 
+    private static void findSymbols(NativeLibrary library, Class<?> interfaceClass, Map<LibraryOption, ?> libraryOptions) {
+        FunctionMapper functionMapper = libraryOptions.containsKey(LibraryOption.FunctionMapper)
+                ? (FunctionMapper) libraryOptions.get(LibraryOption.FunctionMapper) : IdentityFunctionMapper.getInstance();
+        InterfaceScanner scanner = new InterfaceScanner(interfaceClass, getSignatureTypeMapper(libraryOptions),
+                getCallingConvention(interfaceClass, libraryOptions));
+        for (NativeFunction function : scanner.functions()) {
+            Method method = function.getMethod();
+            if (method.getName().equals("getRuntime") && method.getParameterTypes().length == 0
+                    && method.getReturnType().isAssignableFrom(NativeRuntime.class)) {
+                // implemented by AbstractAsmLibraryInterface
+                continue;
+            }
+            MethodHandleLibraryLoader.findSymbolAddress(library, functionMapper, function.name(), method);
+        }
+        for (NativeVariable variable : scanner.variables()) {
+            Method method = variable.getMethod();
+            MethodHandleLibraryLoader.findSymbolAddress(library, functionMapper, method.getName(), method);
+        }
+    }
+
+    private <T> T newInstance(Class<T> implClass, NativeLibrary library, Object[] fieldValues) {
+        try {
+            return implClass.getDeclaredConstructor(jnr.ffi.Runtime.class, NativeLibrary.class, Object[].class)
+                    .newInstance(runtime, library, fieldValues);
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Generates the implementation class of an interface, or reuses a cached one if there is an entry for it.
+     * Cached classes do not call compiled x86 stubs, which would have to be compiled again when they are reused.
+     *
+     * @return an instance of the class, or {@code null} if the cached class did not match and was discarded.
+     */
     private <T> T generateInterfaceImpl(final NativeLibrary library, Class<T> interfaceClass, Map<LibraryOption, ?> libraryOptions,
-                                        AsmClassLoader classLoader) {
+                                        AsmClassLoader classLoader, GeneratedClassCache.Entry cacheEntry) {
 
         boolean debug = DEBUG && !interfaceClass.isAnnotationPresent(NoTrace.class);
-        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        ClassVisitor cv = debug ? AsmUtil.newCheckClassAdapter(cw) : cw;
+        ClassWriter cw = cacheEntry == null ? new ClassWriter(ClassWriter.COMPUTE_FRAMES) : null;
+        ClassVisitor cv = cacheEntry != null ? cacheEntry.getClassVisitor() : debug ? AsmUtil.newCheckClassAdapter(cw) : cw;
 
-        AsmBuilder builder = new AsmBuilder(runtime, p(interfaceClass) + "$jnr$ffi$" + nextClassID.getAndIncrement(), cv, classLoader);
+        String className = cacheEntry != null
+                ? cacheEntry.getClassName() : p(interfaceClass) + "$jnr$ffi$" + nextClassID.getAndIncrement();
+        AsmBuilder builder = new AsmBuilder(runtime, className, cv, classLoader);
+        int errorId = 0;
 
         cv.visit(V1_8, ACC_PUBLIC | ACC_FINAL, builder.getClassNamePath(), null, p(AbstractAsmLibraryInterface.class),
                 new String[]{p(interfaceClass)});
@@ -113,61 +182,46 @@ public class AsmLibraryLoader extends LibraryLoader {
         CallingConvention libraryCallingConvention = getCallingConvention(interfaceClass, libraryOptions);
 
         StubCompiler compiler = StubCompiler.newCompiler(runtime);
+        final MethodGenerator[] generators = newMethodGenerators(interfaceClass, compiler, cacheEntry == null);
 
-        final MethodGenerator[] generators = {
-                !interfaceClass.isAnnotationPresent(NoX86.class)
-                    ? new X86MethodGenerator(compiler) : new NotImplMethodGenerator(),
-                new FastIntMethodGenerator(),
-                new FastLongMethodGenerator(),
-                new FastNumericMethodGenerator(),
-                new BufferMethodGenerator()
-        };
-        
         DefaultInvokerFactory invokerFactory = new DefaultInvokerFactory(runtime, library, typeMapper, functionMapper, libraryCallingConvention, libraryOptions, interfaceClass.isAnnotationPresent(Synchronized.class));
         InterfaceScanner scanner = new InterfaceScanner(interfaceClass, typeMapper, libraryCallingConvention);
+        List<NativeFunction> lazyFunctions = libraryOptions.containsKey(LibraryOption.LazyBinding)
+                ? new ArrayList<NativeFunction>() : null;
 
         for (NativeFunction function : scanner.functions()) {
             Method method = function.getMethod();
 
-            if (method.isVarArgs() || method.isAnnotationPresent(Variadic.class)) {
+            if (method.isVarArgs()) {
                 ObjectField field = builder.getObjectField(invokerFactory.createInvoker(method), Invoker.class);
                 generateVarargsInvocation(builder, method, field);
                 continue;
             }
 
+            if (lazyFunctions != null) {
+                LazyBinding.generateInvocation(cv, method, lazyFunctions.size());
+                lazyFunctions.add(function);
+                continue;
+            }
+
             String functionName = functionMapper.mapFunctionName(function.name(), new NativeFunctionMapperContext(library, function.annotations()));
 
             try {
-                long functionAddress = library.findSymbolAddress(functionName);
-                
-                FromNativeContext resultContext = new MethodResultContext(runtime, method);
-                SignatureType signatureType = DefaultSignatureType.create(method.getReturnType(), resultContext);
-                ResultType resultType = getResultType(runtime, method.getReturnType(),
-                        resultContext.getAnnotations(), typeMapper.getFromNativeType(signatureType, resultContext),
-                        resultContext);
-
-                ParameterType[] parameterTypes = getParameterTypes(runtime, typeMapper, method);
-
-                boolean saveError = jnr.ffi.LibraryLoader.saveError(libraryOptions, function.hasSaveError(), function.hasIgnoreError());
-
-                Function jffiFunction = new Function(functionAddress, 
-                        getCallContext(resultType, parameterTypes,function.convention(), saveError));
-
-                for (MethodGenerator g : generators) {
-                    if (g.isSupported(resultType, parameterTypes, function.convention())) {
-                        g.generate(builder, method.getName(), jffiFunction, resultType, parameterTypes, !saveError);
-                        break;
-                    }
-                }
+                generateFunction(builder, library, function, functionName, typeMapper, libraryOptions, generators);
 
             } catch (SymbolNotFoundError ex) {
-                String errorFieldName = "error_" + uniqueId.incrementAndGet();
+                String errorFieldName = "error_" + ++errorId;
                 cv.visitField(ACC_PRIVATE | ACC_FINAL | ACC_STATIC, errorFieldName, ci(String.class), null, ex.getMessage());
                 generateFunctionNotFound(cv, builder.getClassNamePath(), errorFieldName, functionName, 
                         method.getReturnType(), method.getParameterTypes());
+                builder.bindMissingSymbol(functionName);
             }
         }
 
+        if (lazyFunctions != null) {
+            LazyBinding.generateField(cv, builder.getClassNamePath());
+        }
+
         // generate global variable accessors
         VariableAccessorGenerator variableAccessorGenerator = new VariableAccessorGenerator(runtime);
         for (NativeVariable v : scanner.variables()) {
@@ -183,39 +237,37 @@ public class AsmLibraryLoader extends LibraryLoader {
                         typeMapper, classLoader);
 
             } catch (SymbolNotFoundError ex) {
-                String errorFieldName = "error_" + uniqueId.incrementAndGet();
+                String errorFieldName = "error_" + ++errorId;
                 cv.visitField(ACC_PRIVATE | ACC_FINAL | ACC_STATIC, errorFieldName, ci(String.class), null, ex.getMessage());
                 generateFunctionNotFound(cv, builder.getClassNamePath(), errorFieldName, functionName, m.getReturnType(), m.getParameterTypes());
+                builder.bindMissingSymbol(functionName);
             }
         }
 
-        // Create the constructor to set the instance fields
-        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cv, ACC_PUBLIC, "<init>",
-                sig(void.class, jnr.ffi.Runtime.class, NativeLibrary.class, Object[].class),
-                null, null);
-        init.start();
-        // Invoke the super class constructor as super(Library)
-        init.aload(0);
-        init.aload(1);
-        init.aload(2);
-        init.invokespecial(p(AbstractAsmLibraryInterface.class), "<init>", sig(void.class, jnr.ffi.Runtime.class, NativeLibrary.class));
-
-        builder.emitFieldInitialization(init, 3);
-
-        init.voidreturn();
-        init.visitMaxs(10, 10);
-        init.visitEnd();
+        generateConstructor(cv, builder);
 
         cv.visitEnd();
 
         try {
-            byte[] bytes = cw.toByteArray();
-            if (debug) {
-                ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
-                new ClassReader(bytes).accept(trace, 0);
+            Class<T> implClass;
+            if (cacheEntry != null) {
+                if ((implClass = cacheEntry.define(classLoader, lazyFunctions == null ? builder.getBindings() : null)) == null) {
+                    return null;
+                }
+            } else {
+                byte[] bytes = cw.toByteArray();
+                if (debug) {
+                    ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
+                    new ClassReader(bytes).accept(trace, 0);
+                }
+                implClass = classLoader.defineClass(builder.getClassNamePath().replace("/", "."), bytes);
+            }
+
+            if (lazyFunctions != null) {
+                LazyBinding.install(implClass, new AsmLazyBinding(library, interfaceClass, libraryOptions, classLoader,
+                        typeMapper, functionMapper, lazyFunctions.toArray(new NativeFunction[0])));
             }
 
-            Class<T> implClass = classLoader.defineClass(builder.getClassNamePath().replace("/", "."), bytes);
             Constructor<T> cons = implClass.getDeclaredConstructor(jnr.ffi.Runtime.class, NativeLibrary.class, Object[].class);
             T result = cons.newInstance(runtime, library, builder.getObjectFieldValues());
 
@@ -231,6 +283,137 @@ public class AsmLibraryLoader extends LibraryLoader {
         }
     }
 
+    private MethodGenerator[] newMethodGenerators(Class interfaceClass, StubCompiler compiler, boolean stubs) {
+        return new MethodGenerator[] {
+                stubs && !interfaceClass.isAnnotationPresent(NoX86.class)
+                    ? new X86MethodGenerator(compiler) : new NotImplMethodGenerator(),
+                new FastIntMethodGenerator(),
+                new FastLongMethodGenerator(),
+                new FastNumericMethodGenerator(),
+                new BufferMethodGenerator()
+        };
+    }
+
+    private void generateFunction(AsmBuilder builder, NativeLibrary library, NativeFunction function, String functionName,
+                                  SignatureTypeMapper typeMapper, Map<LibraryOption, ?> libraryOptions,
+                                  MethodGenerator[] generators) {
+        Method method = function.getMethod();
+        long functionAddress = library.findSymbolAddress(functionName);
+
+        FromNativeContext resultContext = new MethodResultContext(runtime, method);
+        SignatureType signatureType = DefaultSignatureType.create(method.getReturnType(), resultContext);
+        ResultType resultType = getResultType(runtime, method.getReturnType(),
+                resultContext.getAnnotations(), typeMapper.getFromNativeType(signatureType, resultContext),
+                resultContext);
+
+        boolean critical = jnr.ffi.LibraryLoader.isCritical(libraryOptions, function.isCritical());
+        ParameterType[] parameterTypes = getParameterTypes(runtime, typeMapper, method, critical);
+
+        boolean saveError = !critical && jnr.ffi.LibraryLoader.saveError(libraryOptions, function.hasSaveError(), function.hasIgnoreError());
+
+        // With metrics or flight recorder events enabled, the call path is generated under another name and
+        // wrapped by a method that times it
+        String methodName = method.getName();
+        if (library.getMetrics() != null || FlightRecorderEvents.ENABLED) {
+            methodName = method.getName() + "$jnr$metered";
+            generateMeteredInvocation(builder, method, methodName,
+                    library.getMetrics() != null
+                            ? builder.getObjectField(library.getMetrics().getFunction(functionName), FunctionMetrics.class) : null,
+                    FlightRecorderEvents.ENABLED
+                            ? builder.getObjectField(FlightRecorderEvents.downcall(library.getLibraryNames(), functionName), FlightRecorderEvents.Call.class) : null);
+        }
+
+        Variadic variadic = method.getAnnotation(Variadic.class);
+        if (variadic != null) {
+            // The fast paths call the function through a fixed-arity prototype, which does not follow the
+            // variadic calling convention, so only the libffi buffer invocation can be used here.
+            Function jffiFunction = new Function(functionAddress,
+                    getCallContext(resultType, variadic.fixedCount(), parameterTypes, function.convention(), saveError));
+            builder.bindFunction(jffiFunction, functionName, variadic.fixedCount(), function.convention(), saveError);
+            new BufferMethodGenerator().generate(builder, methodName, jffiFunction, resultType, parameterTypes, !saveError);
+            return;
+        }
+
+        Function jffiFunction = new Function(functionAddress,
+                getCallContext(resultType, parameterTypes,function.convention(), saveError));
+        builder.bindFunction(jffiFunction, functionName, parameterTypes.length, function.convention(), saveError);
+
+        MethodGenerator generator = selectGenerator(generators, resultType, parameterTypes, function.convention());
+        if (generator != null) {
+            generator.generate(builder, methodName, jffiFunction, resultType, parameterTypes, !saveError);
+        }
+    }
+
+    /**
+     * Selects the generator of the call path of a function: the first one in the chain that supports it.
+     */
+    static MethodGenerator selectGenerator(MethodGenerator[] generators, ResultType resultType, ParameterType[] parameterTypes,
+                                           CallingConvention callingConvention) {
+        for (MethodGenerator g : generators) {
+            if (g.isSupported(resultType, parameterTypes, callingConvention)) {
+                return g;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Generates the call path of one function of a lazily bound library, in a class of its own.
+     *
+     * @return a handle to the generated method, bound to an instance of the class.
+     */
+    private MethodHandle generateFunction(AsmLazyBinding binding, NativeFunction function) throws Exception {
+        Class interfaceClass = binding.interfaceClass;
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        AsmBuilder builder = new AsmBuilder(runtime, p(interfaceClass) + "$jnr$ffi$" + nextClassID.getAndIncrement(), cw, binding.classLoader);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL, builder.getClassNamePath(), null, p(AbstractAsmLibraryInterface.class), null);
+
+        StubCompiler compiler = StubCompiler.newCompiler(runtime);
+        Method method = function.getMethod();
+        String functionName = binding.functionMapper.mapFunctionName(function.name(),
+                new NativeFunctionMapperContext(binding.library, function.annotations()));
+        try {
+            generateFunction(builder, binding.library, function, functionName, binding.typeMapper, binding.libraryOptions,
+                    newMethodGenerators(interfaceClass, compiler, true));
+
+        } catch (SymbolNotFoundError ex) {
+            cw.visitField(ACC_PRIVATE | ACC_FINAL | ACC_STATIC, "error_1", ci(String.class), null, ex.getMessage());
+            generateFunctionNotFound(cw, builder.getClassNamePath(), "error_1", method.getName(),
+                    method.getReturnType(), method.getParameterTypes());
+        }
+
+        generateConstructor(cw, builder);
+        cw.visitEnd();
+
+        Class<?> implClass = binding.classLoader.defineClass(builder.getClassNamePath().replace("/", "."), cw.toByteArray());
+        Object instance = implClass.getDeclaredConstructor(jnr.ffi.Runtime.class, NativeLibrary.class, Object[].class)
+                .newInstance(runtime, binding.library, builder.getObjectFieldValues());
+        compiler.attach(implClass);
+
+        return MethodHandles.publicLookup().findVirtual(implClass, method.getName(),
+                MethodType.methodType(method.getReturnType(), method.getParameterTypes())).bindTo(instance);
+    }
+
+    private void generateConstructor(ClassVisitor cv, AsmBuilder builder) {
+        // Create the constructor to set the instance fields
+        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cv, ACC_PUBLIC, "<init>",
+                sig(void.class, jnr.ffi.Runtime.class, NativeLibrary.class, Object[].class),
+                null, null);
+        init.start();
+        // Invoke the super class constructor as super(Library)
+        init.aload(0);
+        init.aload(1);
+        init.aload(2);
+        init.invokespecial(p(AbstractAsmLibraryInterface.class), "<init>", sig(void.class, jnr.ffi.Runtime.class, NativeLibrary.class));
+
+        builder.emitFieldInitialization(init, 3);
+
+        init.voidreturn();
+        init.visitMaxs(10, 10);
+        init.visitEnd();
+    }
+
     private void generateFunctionNotFound(ClassVisitor cv, String className, String errorFieldName, String functionName,
                                                 Class returnType, Class[] parameterTypes) {
         SkinnyMethodAdapter mv = new SkinnyMethodAdapter(cv, ACC_PUBLIC | ACC_FINAL, functionName,
@@ -243,6 +426,81 @@ public class AsmLibraryLoader extends LibraryLoader {
         mv.visitEnd();
     }
 
+    private void generateMeteredInvocation(AsmBuilder builder, Method m, String methodName, ObjectField metrics,
+                                           ObjectField events) {
+        Class[] parameterTypes = m.getParameterTypes();
+        SkinnyMethodAdapter mv = new SkinnyMethodAdapter(builder.getClassVisitor(), ACC_PUBLIC | ACC_FINAL,
+                m.getName(), sig(m.getReturnType(), parameterTypes), null, null);
+        mv.start();
+
+        int startTime = AsmUtil.calculateLocalVariableSpace(parameterTypes) + 1;
+        int event = startTime + 2;
+        if (metrics != null) {
+            mv.invokestatic(System.class, "nanoTime", long.class);
+            mv.lstore(startTime);
+        }
+        if (events != null) {
+            AsmUtil.getfield(mv, builder, events);
+            mv.invokevirtual(FlightRecorderEvents.Call.class, "begin", Object.class);
+            mv.astore(event);
+        }
+
+        // call this.methodName(parameters), with a handler that also records calls that throw
+        Label start = new Label(), end = new Label(), handler = new Label();
+        mv.trycatch(start, end, handler, null);
+        mv.label(start);
+        mv.aload(0);
+        int slot = 1;
+        for (Class parameterType : parameterTypes) {
+            AsmUtil.load(mv, parameterType, new LocalVariable(parameterType, slot));
+            slot += AsmUtil.calculateLocalVariableSpace(parameterType);
+        }
+        mv.invokevirtual(builder.getClassNamePath(), methodName, sig(m.getReturnType(), parameterTypes));
+        mv.label(end);
+
+        // the result is left on the stack and returned
+        emitEndInvocation(mv, builder, metrics, events, parameterTypes, startTime, event);
+        AsmUtil.emitReturnOp(mv, m.getReturnType());
+
+        // the exception is left on the stack and rethrown
+        mv.label(handler);
+        emitEndInvocation(mv, builder, metrics, events, parameterTypes, startTime, event);
+        mv.athrow();
+        mv.visitMaxs(100, event + 1);
+        mv.visitEnd();
+    }
+
+    // events.end(event) and metrics.record(start, bytes)
+    private static void emitEndInvocation(SkinnyMethodAdapter mv, AsmBuilder builder, ObjectField metrics,
+                                          ObjectField events, Class[] parameterTypes, int startTime, int event) {
+        if (events != null) {
+            AsmUtil.getfield(mv, builder, events);
+            mv.aload(event);
+            mv.invokevirtual(FlightRecorderEvents.Call.class, "end", void.class, Object.class);
+        }
+        if (metrics != null) {
+            emitRecordMetrics(mv, builder, metrics, parameterTypes, startTime);
+        }
+    }
+
+    // metrics.record(start, bytes)
+    private static void emitRecordMetrics(SkinnyMethodAdapter mv, AsmBuilder builder, ObjectField metrics,
+                                          Class[] parameterTypes, int startTime) {
+        AsmUtil.getfield(mv, builder, metrics);
+        mv.lload(startTime);
+        mv.lconst_0();
+        int slot = 1;
+        for (Class parameterType : parameterTypes) {
+            if (FunctionMetrics.isSized(parameterType)) {
+                mv.aload(slot);
+                mv.invokestatic(FunctionMetrics.class, "sizeOf", long.class, Object.class);
+                mv.ladd();
+            }
+            slot += AsmUtil.calculateLocalVariableSpace(parameterType);
+        }
+        mv.invokevirtual(FunctionMetrics.class, "record", void.class, long.class, long.class);
+    }
+
     private void generateVarargsInvocation(AsmBuilder builder, Method m, ObjectField field) {
         Class[] parameterTypes = m.getParameterTypes();
         SkinnyMethodAdapter mv = new SkinnyMethodAdapter(builder.getClassVisitor(), ACC_PUBLIC | ACC_FINAL,
@@ -291,9 +549,8 @@ public class AsmLibraryLoader extends LibraryLoader {
                 mv.iload(slot);
                 mv.i2b();
                 mv.invokestatic(Byte.class, "valueOf", Byte.class, byte.class);
-            } else if (parameterTypes[i].equals(char.class)) {
+            } else if (parameterTypes[i].equals(boolean.class)) {
                 mv.iload(slot);
-                mv.i2b();
                 mv.invokestatic(Boolean.class, "valueOf", Boolean.class, boolean.class);
             } else {
                 mv.aload(slot);
@@ -348,4 +605,35 @@ public class AsmLibraryLoader extends LibraryLoader {
         mv.visitMaxs(100, AsmUtil.calculateLocalVariableSpace(parameterTypes) + 1);
         mv.visitEnd();
     }
+
+    private final class AsmLazyBinding extends LazyBinding {
+        final NativeLibrary library;
+        final Class interfaceClass;
+        final Map<LibraryOption, ?> libraryOptions;
+        final AsmClassLoader classLoader;
+        final SignatureTypeMapper typeMapper;
+        final FunctionMapper functionMapper;
+        final NativeFunction[] functions;
+
+        AsmLazyBinding(NativeLibrary library, Class interfaceClass, Map<LibraryOption, ?> libraryOptions,
+                       AsmClassLoader classLoader, SignatureTypeMapper typeMapper, FunctionMapper functionMapper,
+                       NativeFunction[] functions) {
+            this.library = library;
+            this.interfaceClass = interfaceClass;
+            this.libraryOptions = libraryOptions;
+            this.classLoader = classLoader;
+            this.typeMapper = typeMapper;
+            this.functionMapper = functionMapper;
+            this.functions = functions;
+        }
+
+        MethodHandle bind(int index) throws Exception {
+            Object event = FlightRecorderEvents.ENABLED ? FlightRecorderEvents.LIBRARY_BIND.begin() : null;
+            MethodHandle handle = generateFunction(this, functions[index]);
+            if (event != null) {
+                FlightRecorderEvents.LIBRARY_BIND.commit(event, interfaceClass.getName(), functions[index].name());
+            }
+            return handle;
+        }
+    }
 }
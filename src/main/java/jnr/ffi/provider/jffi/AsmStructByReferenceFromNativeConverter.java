@@ -34,7 +34,6 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static jnr.ffi.provider.jffi.CodegenUtils.ci;
 import static jnr.ffi.provider.jffi.CodegenUtils.p;
@@ -80,7 +79,6 @@ abstract public class AsmStructByReferenceFromNativeConverter implements FromNat
         }
     }
 
-    private static final AtomicLong nextClassID = new AtomicLong(0);
 
     static Class<? extends AsmStructByReferenceFromNativeConverter> newStructByReferenceClass(Class<? extends Struct> structClass, AsmClassLoader classLoader) {
 
@@ -98,7 +96,7 @@ abstract public class AsmStructByReferenceFromNativeConverter implements FromNat
         ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
         ClassVisitor cv = AsmLibraryLoader.DEBUG ? AsmUtil.newCheckClassAdapter(cw) : cw;
 
-        final String className = p(structClass) + "$$jnr$$StructByReferenceFromNativeConverter$$" + nextClassID.getAndIncrement();
+        final String className = classLoader.newClassName(p(structClass) + "$$jnr$$StructByReferenceFromNativeConverter$$");
 
         cv.visit(V1_5, ACC_PUBLIC | ACC_FINAL, className, null, p(AsmStructByReferenceFromNativeConverter.class),
                 new String[0]);
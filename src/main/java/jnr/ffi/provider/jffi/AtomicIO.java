@@ -0,0 +1,193 @@
+package jnr.ffi.provider.jffi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Volatile and atomic access to native memory, with {@code sun.misc.Unsafe}.
+ * <p>
+ * Unsafe is only accessed through method handles, as jnr-ffi is built for Java 8 and it is not part of the Java 8
+ * API.  The handles are constants bound to the Unsafe instance, so the JIT compiles each call to the same
+ * instructions as the matching {@code java.util.concurrent.atomic} operation, with no native call.  Java 8 has no
+ * acquire read, so acquire reads are volatile reads, while release writes are ordered writes.
+ * </p>
+ */
+final class AtomicIO {
+    private static final MethodHandle GET_INT_VOLATILE, PUT_INT_VOLATILE, PUT_INT_RELEASE,
+            COMPARE_AND_SET_INT, GET_AND_ADD_INT, GET_AND_SET_INT;
+    private static final MethodHandle GET_LONG_VOLATILE, PUT_LONG_VOLATILE, PUT_LONG_RELEASE,
+            COMPARE_AND_SET_LONG, GET_AND_ADD_LONG, GET_AND_SET_LONG;
+
+    static {
+        MethodHandle getIntVolatile = null, putIntVolatile = null, putIntRelease = null,
+                compareAndSetInt = null, getAndAddInt = null, getAndSetInt = null;
+        MethodHandle getLongVolatile = null, putLongVolatile = null, putLongRelease = null,
+                compareAndSetLong = null, getAndAddLong = null, getAndSetLong = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+
+            getIntVolatile = find(unsafe, "getIntVolatile", int.class, Object.class, long.class);
+            putIntVolatile = find(unsafe, "putIntVolatile", void.class, Object.class, long.class, int.class);
+            putIntRelease = find(unsafe, "putOrderedInt", void.class, Object.class, long.class, int.class);
+            compareAndSetInt = find(unsafe, "compareAndSwapInt", boolean.class, Object.class, long.class, int.class, int.class);
+            getAndAddInt = find(unsafe, "getAndAddInt", int.class, Object.class, long.class, int.class);
+            getAndSetInt = find(unsafe, "getAndSetInt", int.class, Object.class, long.class, int.class);
+            getLongVolatile = find(unsafe, "getLongVolatile", long.class, Object.class, long.class);
+            putLongVolatile = find(unsafe, "putLongVolatile", void.class, Object.class, long.class, long.class);
+            putLongRelease = find(unsafe, "putOrderedLong", void.class, Object.class, long.class, long.class);
+            compareAndSetLong = find(unsafe, "compareAndSwapLong", boolean.class, Object.class, long.class, long.class, long.class);
+            getAndAddLong = find(unsafe, "getAndAddLong", long.class, Object.class, long.class, long.class);
+            getAndSetLong = find(unsafe, "getAndSetLong", long.class, Object.class, long.class, long.class);
+        } catch (Throwable t) {
+            getIntVolatile = null;
+        }
+
+        // Only the first handle is checked, it is cleared if any of them is missing
+        GET_INT_VOLATILE = getIntVolatile;
+        PUT_INT_VOLATILE = putIntVolatile;
+        PUT_INT_RELEASE = putIntRelease;
+        COMPARE_AND_SET_INT = compareAndSetInt;
+        GET_AND_ADD_INT = getAndAddInt;
+        GET_AND_SET_INT = getAndSetInt;
+        GET_LONG_VOLATILE = getLongVolatile;
+        PUT_LONG_VOLATILE = putLongVolatile;
+        PUT_LONG_RELEASE = putLongRelease;
+        COMPARE_AND_SET_LONG = compareAndSetLong;
+        GET_AND_ADD_LONG = getAndAddLong;
+        GET_AND_SET_LONG = getAndSetLong;
+    }
+
+    private AtomicIO() {
+    }
+
+    private static MethodHandle find(Object unsafe, String name, Class<?> returnType, Class<?>... parameterTypes)
+            throws ReflectiveOperationException {
+        return MethodHandles.publicLookup().findVirtual(unsafe.getClass(), name,
+                MethodType.methodType(returnType, parameterTypes)).bindTo(unsafe);
+    }
+
+    static int getIntVolatile(long address) {
+        try {
+            return (int) GET_INT_VOLATILE.invokeExact((Object) null, checkAddress(address, 4));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void putIntVolatile(long address, int value) {
+        try {
+            PUT_INT_VOLATILE.invokeExact((Object) null, checkAddress(address, 4), value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void putIntRelease(long address, int value) {
+        try {
+            PUT_INT_RELEASE.invokeExact((Object) null, checkAddress(address, 4), value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean compareAndSetInt(long address, int expected, int value) {
+        try {
+            return (boolean) COMPARE_AND_SET_INT.invokeExact((Object) null, checkAddress(address, 4), expected, value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getAndAddInt(long address, int delta) {
+        try {
+            return (int) GET_AND_ADD_INT.invokeExact((Object) null, checkAddress(address, 4), delta);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getAndSetInt(long address, int value) {
+        try {
+            return (int) GET_AND_SET_INT.invokeExact((Object) null, checkAddress(address, 4), value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long getLongVolatile(long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, checkAddress(address, 8));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void putLongVolatile(long address, long value) {
+        try {
+            PUT_LONG_VOLATILE.invokeExact((Object) null, checkAddress(address, 8), value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void putLongRelease(long address, long value) {
+        try {
+            PUT_LONG_RELEASE.invokeExact((Object) null, checkAddress(address, 8), value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean compareAndSetLong(long address, long expected, long value) {
+        try {
+            return (boolean) COMPARE_AND_SET_LONG.invokeExact((Object) null, checkAddress(address, 8), expected, value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long getAndAddLong(long address, long delta) {
+        try {
+            return (long) GET_AND_ADD_LONG.invokeExact((Object) null, checkAddress(address, 8), delta);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long getAndSetLong(long address, long value) {
+        try {
+            return (long) GET_AND_SET_LONG.invokeExact((Object) null, checkAddress(address, 8), value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Checks that a value is naturally aligned, as atomic access to unaligned memory is not atomic, or faults,
+     * on many platforms.
+     */
+    private static long checkAddress(long address, int size) {
+        if (GET_INT_VOLATILE == null) {
+            throw new UnsupportedOperationException("atomic access not supported");
+        }
+        if ((address & (size - 1)) != 0) {
+            throw new IllegalArgumentException("unaligned address: 0x" + Long.toHexString(address));
+        }
+
+        return address;
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new RuntimeException(t);
+    }
+}
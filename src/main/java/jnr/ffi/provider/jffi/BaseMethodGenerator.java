@@ -24,12 +24,12 @@ import jnr.ffi.mapper.ToNativeContext;
 import jnr.ffi.mapper.ToNativeConverter;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
+import org.objectweb.asm.Label;
 
 import static jnr.ffi.provider.jffi.AsmUtil.emitFromNativeConversion;
 import static jnr.ffi.provider.jffi.AsmUtil.emitReturnOp;
 import static jnr.ffi.provider.jffi.AsmUtil.emitToNativeConversion;
 import static jnr.ffi.provider.jffi.AsmUtil.getfield;
-import static jnr.ffi.provider.jffi.AsmUtil.tryfinally;
 import static jnr.ffi.provider.jffi.AsmUtil.unboxedReturnType;
 import static jnr.ffi.provider.jffi.CodegenUtils.ci;
 import static jnr.ffi.provider.jffi.CodegenUtils.p;
@@ -78,11 +78,24 @@ abstract class BaseMethodGenerator implements MethodGenerator {
     static LocalVariable loadAndConvertParameter(AsmBuilder builder, SkinnyMethodAdapter mv,
                                                  LocalVariableAllocator localVariableAllocator,
                                                  LocalVariable parameter, jnr.ffi.provider.ToNativeType parameterType) {
+        return loadAndConvertParameter(builder, mv, localVariableAllocator, parameter, parameterType, null);
+    }
+
+    /**
+     * Loads and converts a parameter, storing the converted value in {@code converted} if it was already allocated
+     * by {@link #emitCallGuard}.
+     */
+    static LocalVariable loadAndConvertParameter(AsmBuilder builder, SkinnyMethodAdapter mv,
+                                                 LocalVariableAllocator localVariableAllocator,
+                                                 LocalVariable parameter, jnr.ffi.provider.ToNativeType parameterType,
+                                                 LocalVariable converted) {
         AsmUtil.load(mv, parameterType.getDeclaredType(), parameter);
         emitToNativeConversion(builder, mv, parameterType);
 
         if (parameterType.getToNativeConverter() != null) {
-            LocalVariable converted = localVariableAllocator.allocate(parameterType.getToNativeConverter().nativeType());
+            if (converted == null) {
+                converted = localVariableAllocator.allocate(parameterType.getToNativeConverter().nativeType());
+            }
             mv.astore(converted);
             mv.aload(converted);
             return converted;
@@ -101,29 +114,76 @@ abstract class BaseMethodGenerator implements MethodGenerator {
         return false;
     }
 
+    /**
+     * Starts the part of a call path that is covered by the finally block of {@link #emitEpilogue}, so that the
+     * post-invocation conversions and the session cleanup also run when a parameter conversion, the call or the
+     * result conversion throws.  This must be emitted before the first parameter is converted.  The finally block
+     * reads the converted parameters, so they are allocated and set to null here.
+     *
+     * @return the guard to pass to {@link #emitEpilogue}, or {@code null} if there is nothing to run after the call.
+     */
+    static CallGuard emitCallGuard(SkinnyMethodAdapter mv, LocalVariableAllocator localVariableAllocator,
+                                   ParameterType[] parameterTypes, LocalVariable[] converted, boolean sessionRequired) {
+        if (!isPostInvokeRequired(parameterTypes) && !sessionRequired) {
+            return null;
+        }
+
+        for (int i = 0; i < parameterTypes.length; ++i) {
+            ToNativeConverter converter = parameterTypes[i].getToNativeConverter();
+            if (converter instanceof ToNativeConverter.PostInvocation) {
+                converted[i] = localVariableAllocator.allocate(converter.nativeType());
+                mv.aconst_null();
+                mv.astore(converted[i]);
+            }
+        }
+
+        CallGuard guard = new CallGuard();
+        guard.cover(mv, guard.start, guard.end);
+        mv.label(guard.start);
+
+        return guard;
+    }
+
+    /**
+     * The finally block of a call path, started by {@link #emitCallGuard} and emitted by {@link #emitEpilogue}.
+     */
+    static final class CallGuard {
+        private final Label start = new Label(), end = new Label(), handler = new Label();
+
+        /**
+         * Covers a range of code with the finally block.  This is needed for code that is placed after the
+         * epilogue, such as the heap object path that jumps back to the result conversion, and must be called before
+         * the epilogue is emitted.
+         */
+        void cover(SkinnyMethodAdapter mv, Label from, Label to) {
+            mv.trycatch(from, to, handler, null);
+        }
+    }
+
     static void emitEpilogue(final AsmBuilder builder, final SkinnyMethodAdapter mv, final ResultType resultType,
                            final ParameterType[] parameterTypes,
-                      final LocalVariable[] parameters, final LocalVariable[] converted, final Runnable sessionCleanup) {
+                      final LocalVariable[] parameters, final LocalVariable[] converted, final CallGuard guard,
+                      final Runnable sessionCleanup) {
         final Class unboxedResultType = unboxedReturnType(resultType.effectiveJavaType());
-        if (isPostInvokeRequired(parameterTypes) || sessionCleanup != null) {
-            tryfinally(mv, new Runnable() {
-                        public void run() {
-                            emitFromNativeConversion(builder, mv, resultType, unboxedResultType);
-                            // ensure there is always at least one instruction inside the try {} block
-                            mv.nop();
-                        }
-                    },
-                    new Runnable() {
-                        public void run() {
-                            emitPostInvoke(builder, mv, parameterTypes, parameters, converted);
-                            if (sessionCleanup != null) {
-                                sessionCleanup.run();
-                            }
-                        }
-                    }
-            );
-        } else {
-            emitFromNativeConversion(builder, mv, resultType, unboxedResultType);
+        emitFromNativeConversion(builder, mv, resultType, unboxedResultType);
+        if (guard != null) {
+            Label done = new Label();
+            // ensure there is always at least one instruction inside the try {} block
+            mv.nop();
+            mv.label(guard.end);
+            emitPostInvoke(builder, mv, parameterTypes, parameters, converted);
+            if (sessionCleanup != null) {
+                sessionCleanup.run();
+            }
+            mv.go_to(done);
+
+            mv.label(guard.handler);
+            emitPostInvoke(builder, mv, parameterTypes, parameters, converted);
+            if (sessionCleanup != null) {
+                sessionCleanup.run();
+            }
+            mv.athrow();
+            mv.label(done);
         }
         emitReturnOp(mv, resultType.getDeclaredType());
     }
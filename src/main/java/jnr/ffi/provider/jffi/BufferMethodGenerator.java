@@ -24,6 +24,7 @@ import com.kenai.jffi.Invoker;
 import com.kenai.jffi.ObjectParameterStrategy;
 import jnr.ffi.CallingConvention;
 import jnr.ffi.NativeType;
+import jnr.ffi.Struct;
 import jnr.ffi.provider.InvocationSession;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
@@ -34,6 +35,7 @@ import java.util.Map;
 
 import static jnr.ffi.provider.jffi.AbstractFastNumericMethodGenerator.emitParameterStrategyLookup;
 import static jnr.ffi.provider.jffi.AbstractFastNumericMethodGenerator.hasPointerParameterStrategy;
+import static jnr.ffi.provider.jffi.AsmUtil.getfield;
 import static jnr.ffi.provider.jffi.AsmUtil.unboxedReturnType;
 import static jnr.ffi.provider.jffi.CodegenUtils.ci;
 import static jnr.ffi.provider.jffi.CodegenUtils.p;
@@ -160,14 +162,16 @@ final class BufferMethodGenerator extends BaseMethodGenerator {
             mv.astore(session);
         }
 
+        final LocalVariable[] parameters = AsmUtil.getParameterVariables(parameterTypes);
+        final LocalVariable[] converted = new LocalVariable[parameterTypes.length];
+        final CallGuard guard = emitCallGuard(mv, localVariableAllocator, parameterTypes, converted, sessionRequired);
+
         // Create a new InvocationBuffer
         mv.aload(0);
         mv.getfield(builder.getClassNamePath(), builder.getCallContextFieldName(callContext), ci(CallContext.class));
         mv.invokestatic(AsmRuntime.class, "newHeapInvocationBuffer", HeapInvocationBuffer.class, CallContext.class);
         // [ stack contains: Invoker, Function, HeapInvocationBuffer ]
 
-        final LocalVariable[] parameters = AsmUtil.getParameterVariables(parameterTypes);
-        final LocalVariable[] converted = new LocalVariable[parameterTypes.length];
         LocalVariable[] strategies = new LocalVariable[parameterTypes.length];
 
         for (int i = 0; i < parameterTypes.length; ++i) {
@@ -176,11 +180,18 @@ final class BufferMethodGenerator extends BaseMethodGenerator {
             if (isSessionRequired(parameterTypes[i])) {
                 mv.aload(session);
             }
-            converted[i] = loadAndConvertParameter(builder, mv, localVariableAllocator, parameters[i], parameterTypes[i]);
+            converted[i] = loadAndConvertParameter(builder, mv, localVariableAllocator, parameters[i], parameterTypes[i], converted[i]);
 
             final Class javaParameterType = parameterTypes[i].effectiveJavaType();
             ToNativeOp op = ToNativeOp.get(parameterTypes[i]);
-            if (op != null && op.isPrimitive()) {
+            if (parameterTypes[i].getNativeType() == NativeType.STRUCT) {
+                // [ stack contains: HeapInvocationBuffer, Struct ]
+                getfield(mv, builder, builder.getObjectField(StructByValue.getInstance(javaParameterType), StructByValue.class));
+                mv.dup_x2();
+                mv.pop();
+                mv.invokevirtual(StructByValue.class, "marshal", void.class, HeapInvocationBuffer.class, Struct.class);
+
+            } else if (op != null && op.isPrimitive()) {
                 emitPrimitiveOp(mv, parameterTypes[i], op);
 
             } else if (hasPointerParameterStrategy(javaParameterType)) {
@@ -197,16 +208,29 @@ final class BufferMethodGenerator extends BaseMethodGenerator {
             }
         }
 
-        InvokeOp iop = invokeOps.get(resultType.getNativeType());
-        if (iop == null) {
-            throw new IllegalArgumentException("unsupported return type " + resultType.getDeclaredType());
-        }
+        if (resultType.getNativeType() == NativeType.STRUCT) {
+            mv.invokevirtual(Invoker.class, "invokeStruct", byte[].class, CallContext.class, long.class, HeapInvocationBuffer.class);
 
-        mv.invokevirtual(Invoker.class, iop.methodName, iop.primitiveClass, CallContext.class, long.class, HeapInvocationBuffer.class);
+            // [ stack contains: byte[] ]
+            getfield(mv, builder, builder.getObjectField(StructByValue.getInstance(resultType.effectiveJavaType()), StructByValue.class));
+            mv.swap();
+            getfield(mv, builder, builder.getRuntimeField());
+            mv.swap();
+            mv.invokevirtual(StructByValue.class, "fromNative", Struct.class, jnr.ffi.Runtime.class, byte[].class);
+            mv.checkcast(resultType.effectiveJavaType());
 
-        // box and/or narrow/widen the return value if needed
-        convertPrimitive(mv, iop.primitiveClass, unboxedReturnType(resultType.effectiveJavaType()), resultType.getNativeType());
-        emitEpilogue(builder, mv, resultType, parameterTypes, parameters, converted, sessionRequired ? new Runnable() {
+        } else {
+            InvokeOp iop = invokeOps.get(resultType.getNativeType());
+            if (iop == null) {
+                throw new IllegalArgumentException("unsupported return type " + resultType.getDeclaredType());
+            }
+
+            mv.invokevirtual(Invoker.class, iop.methodName, iop.primitiveClass, CallContext.class, long.class, HeapInvocationBuffer.class);
+
+            // box and/or narrow/widen the return value if needed
+            convertPrimitive(mv, iop.primitiveClass, unboxedReturnType(resultType.effectiveJavaType()), resultType.getNativeType());
+        }
+        emitEpilogue(builder, mv, resultType, parameterTypes, parameters, converted, guard, sessionRequired ? new Runnable() {
             public void run() {
                 mv.aload(session);
                 mv.invokevirtual(p(InvocationSession.class), "finish", "()V");
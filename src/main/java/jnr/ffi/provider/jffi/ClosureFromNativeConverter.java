@@ -27,7 +27,6 @@ import org.objectweb.asm.ClassWriter;
 import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.util.concurrent.atomic.AtomicLong;
 
 import jnr.ffi.CallingConvention;
 import jnr.ffi.Pointer;
@@ -103,14 +102,13 @@ abstract public class ClosureFromNativeConverter implements FromNativeConverter<
     }
 
 
-    private static final AtomicLong nextClassID = new AtomicLong(0);
     private static FromNativeConverter newClosureConverter(jnr.ffi.Runtime runtime, AsmClassLoader classLoader, Class closureClass,
                                                                         SignatureTypeMapper typeMapper) {
 
         ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
         ClassVisitor cv = AsmLibraryLoader.DEBUG ? AsmUtil.newCheckClassAdapter(cw) : cw;
 
-        final String className = p(closureClass) + "$jnr$fromNativeConverter$" + nextClassID.getAndIncrement();
+        final String className = classLoader.newClassName(p(closureClass) + "$jnr$fromNativeConverter$");
         AsmBuilder builder = new AsmBuilder(runtime, className, cv, classLoader);
 
         cv.visit(V1_8, ACC_PUBLIC | ACC_FINAL, className, null, p(AbstractClosurePointer.class),
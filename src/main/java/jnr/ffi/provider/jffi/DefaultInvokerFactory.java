@@ -29,6 +29,7 @@ import jnr.ffi.LibraryOption;
 import jnr.ffi.NativeType;
 import jnr.ffi.Pointer;
 import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
 import jnr.ffi.annotations.Meta;
 import jnr.ffi.annotations.StdCall;
 import jnr.ffi.annotations.Synchronized;
@@ -51,6 +52,7 @@ import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.ffi.provider.SigType;
 import jnr.ffi.util.AnnotationProxy;
+import jnr.ffi.util.FunctionMetrics;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
@@ -62,6 +64,7 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -120,12 +123,13 @@ final class DefaultInvokerFactory {
             functionInvoker = new ConvertingInvoker(resultType.getFromNativeConverter(), resultType.getFromNativeContext(), functionInvoker);
         }
         
-        ParameterType[] parameterTypes = getParameterTypes(runtime, typeMapper, method);
+        boolean critical = LibraryLoader.isCritical(libraryOptions, NativeFunction.isCritical(method));
+        ParameterType[] parameterTypes = getParameterTypes(runtime, typeMapper, method, critical);
         //Allow individual methods to set the calling convention to stdcall
         CallingConvention callingConvention = method.isAnnotationPresent(StdCall.class)
                 ? CallingConvention.STDCALL : libraryCallingConvention;
 
-        boolean saveError = LibraryLoader.saveError(libraryOptions, NativeFunction.hasSaveError(method), NativeFunction.hasIgnoreError(method));
+        boolean saveError = !critical && LibraryLoader.saveError(libraryOptions, NativeFunction.hasSaveError(method), NativeFunction.hasIgnoreError(method));
         
         Invoker invoker;
         if (method.isVarArgs()) {
@@ -155,8 +159,17 @@ final class DefaultInvokerFactory {
         // If either the method or the library is specified as requiring
         // synchronization, then wrap the raw invoker in a synchronized proxy
         //
-        return libraryIsSynchronized || method.isAnnotationPresent(Synchronized.class)
-                ? new SynchronizedInvoker(invoker) : invoker;
+        if (libraryIsSynchronized || method.isAnnotationPresent(Synchronized.class)) {
+            invoker = new SynchronizedInvoker(invoker);
+        }
+
+        if (FlightRecorderEvents.ENABLED) {
+            invoker = new RecordedInvoker(FlightRecorderEvents.downcall(library.getLibraryNames(), functionName), invoker);
+        }
+
+        return library.getMetrics() != null
+                ? new MeteredInvoker(library.getMetrics().getFunction(functionName), method.getParameterTypes(), invoker)
+                : invoker;
     }
 
     private static FunctionInvoker getFunctionInvoker(ResultType resultType) {
@@ -174,6 +187,9 @@ final class DefaultInvokerFactory {
         } else if (Pointer.class.isAssignableFrom(returnType)) {
             return PointerInvoker.INSTANCE;
 
+        } else if (resultType.getNativeType() == NativeType.STRUCT) {
+            return new StructByValueInvoker(StructByValue.getInstance(returnType));
+
         } else {
             throw new IllegalArgumentException("Unknown return type: " + returnType);
         }
@@ -212,7 +228,10 @@ final class DefaultInvokerFactory {
     }
 
     static Marshaller getMarshaller(Class type, NativeType nativeType, Collection<Annotation> annotations) {
-        if (Number.class.isAssignableFrom(type) || (type.isPrimitive() && Number.class.isAssignableFrom(getBoxedClass(type)))) {
+        if (nativeType == NativeType.STRUCT) {
+            return new StructByValueMarshaller(StructByValue.getInstance(type));
+
+        } else if (Number.class.isAssignableFrom(type) || (type.isPrimitive() && Number.class.isAssignableFrom(getBoxedClass(type)))) {
             switch (nativeType) {
                 case SCHAR:
                     return new Int8Marshaller(Signed8Converter.INSTANCE);
@@ -301,14 +320,19 @@ final class DefaultInvokerFactory {
     }
 
     static class VariadicInvoker implements jnr.ffi.provider.Invoker {
+        private static final int MAX_CACHED_SHAPES = 16;
+        private static final CallShape[] EMPTY_SHAPES = new CallShape[0];
+
         private final jnr.ffi.Runtime runtime;
         private final FunctionInvoker functionInvoker;
         private final SignatureTypeMapper typeMapper;
         private final ParameterType[] fixedParameterTypes;
+        private final Marshaller[] fixedMarshallers;
         private final long functionAddress;
         private final SigType resultType;
         private final boolean requiresErrno;
         private final CallingConvention callingConvention;
+        private volatile CallShape[] shapes = EMPTY_SHAPES;
 
         VariadicInvoker(Runtime runtime,
                 FunctionInvoker functionInvoker, SignatureTypeMapper typeMapper,
@@ -324,18 +348,77 @@ final class DefaultInvokerFactory {
             this.resultType = resultType;
             this.requiresErrno = requiresErrno;
             this.callingConvention = callingConvention;
+            this.fixedMarshallers = new Marshaller[fixedParameterTypes.length - 1];
+            for (int i = 0; i < fixedMarshallers.length; ++i) {
+                fixedMarshallers[i] = getMarshaller(fixedParameterTypes[i]);
+            }
         }
 
         public final Object invoke(Object self, Object[] parameters) {
             Object[] varParam = (Object[])parameters[parameters.length - 1];
+            CallShape shape = getCallShape(varParam);
+            HeapInvocationBuffer buffer = new HeapInvocationBuffer(shape.function.getCallContext());
+
+            InvocationSession session = new InvocationSession();
+            try {
+                for (int i = 0; i < fixedMarshallers.length; ++i) {
+                    fixedMarshallers[i].marshal(session, buffer, parameters[i]);
+                }
+
+                // annotation markers have a null marshaller, the trailing NULL is the last marshaller
+                for (int i = 0; i < varParam.length; ++i) {
+                    if (shape.marshallers[i] != null) {
+                        shape.marshallers[i].marshal(session, buffer, varParam[i]);
+                    }
+                }
+                shape.marshallers[varParam.length].marshal(session, buffer, null);
+
+                return functionInvoker.invoke(runtime, shape.function, buffer);
+            } finally {
+                session.finish();
+            }
+        }
+
+        /**
+         * Finds the call context and marshallers for the runtime types of the variadic arguments, building and
+         * caching them the first time a particular combination of types is seen.
+         */
+        private CallShape getCallShape(Object[] varParam) {
+            CallShape[] shapes = this.shapes;
+            for (CallShape shape : shapes) {
+                if (shape.matches(varParam)) {
+                    return shape;
+                }
+            }
+
+            CallShape shape = newCallShape(varParam);
+            CallShape[] newShapes;
+            if (shapes.length < MAX_CACHED_SHAPES) {
+                newShapes = new CallShape[shapes.length + 1];
+                System.arraycopy(shapes, 0, newShapes, 0, shapes.length);
+            } else {
+                // evict the oldest shape
+                newShapes = new CallShape[shapes.length];
+                System.arraycopy(shapes, 1, newShapes, 0, shapes.length - 1);
+            }
+            newShapes[newShapes.length - 1] = shape;
+            this.shapes = newShapes;
+
+            return shape;
+        }
+
+        private CallShape newCallShape(Object[] varParam) {
             ParameterType[] argTypes = new ParameterType[fixedParameterTypes.length + varParam.length];
             System.arraycopy(fixedParameterTypes, 0, argTypes, 0, fixedParameterTypes.length - 1);
 
-            Object[] variableArgs = new Object[varParam.length + 1];
+            Object[] kinds = new Object[varParam.length];
+            Marshaller[] marshallers = new Marshaller[varParam.length + 1];
             int variableArgsCount = 0;
             List<Class<? extends Annotation>> paramAnnotations = new ArrayList<Class<? extends Annotation>>();
 
-            for (Object arg : varParam) {
+            for (int i = 0; i < varParam.length; ++i) {
+                Object arg = varParam[i];
+                kinds[i] = CallShape.kindOf(arg);
                 if (arg instanceof Class && Annotation.class.isAssignableFrom((Class)arg)) {
                     paramAnnotations.add((Class)arg);
                 } else {
@@ -349,18 +432,18 @@ final class DefaultInvokerFactory {
                         ToNativeType toNativeType = typeMapper.getToNativeType(DefaultSignatureType.create(arg.getClass(), toNativeContext), toNativeContext);
                         toNativeConverter = toNativeType == null ? null : toNativeType.getToNativeConverter();
                         argClass = toNativeConverter == null ? arg.getClass() : toNativeConverter.nativeType();
-                        variableArgs[variableArgsCount] = arg;
                     } else {
                         argClass = Pointer.class;
-                        variableArgs[variableArgsCount] = arg;
                     }
 
-                    argTypes[fixedParameterTypes.length + variableArgsCount - 1] = new ParameterType(
+                    ParameterType parameterType = new ParameterType(
                             argClass, 
                             Types.getType(runtime, argClass, annos).getNativeType(), 
                             annos, 
                             toNativeConverter, 
                             new SimpleNativeContext(runtime, annos));
+                    argTypes[fixedParameterTypes.length + variableArgsCount - 1] = parameterType;
+                    marshallers[i] = getMarshaller(parameterType);
                     variableArgsCount++;
                 }
             }
@@ -374,37 +457,24 @@ final class DefaultInvokerFactory {
             // setup of the call when invoking a variadic function, which does not need the trailing null. However, for
             // platforms where we have not rebuilt the jffi stub we still set up this trailing NULL to be compatible
             // with ffi_prep_cif and the common va_arg layout. Once all platforms have been rebuilt to use
-            // ffi_prep_cif_var, this NULL and the +1 on variableArgs allocation above can be removed.
+            // ffi_prep_cif_var, this NULL and the +1 on marshallers allocation above can be removed.
 
-            argTypes[fixedParameterTypes.length + variableArgsCount - 1] = new ParameterType(
+            ParameterType nullParameterType = new ParameterType(
                     Pointer.class, 
                     Types.getType(runtime, Pointer.class, Collections.<Annotation>emptyList()).getNativeType(), 
                     Collections.<Annotation>emptyList(), 
                     null, 
                     new SimpleNativeContext(runtime, Collections.<Annotation>emptyList()));
-            variableArgs[variableArgsCount] = null;
+            argTypes[fixedParameterTypes.length + variableArgsCount - 1] = nullParameterType;
+            marshallers[varParam.length] = getMarshaller(nullParameterType);
             variableArgsCount++;
 
             int fixedParamCount = fixedParameterTypes.length - 1;
             int totalArgsCount = variableArgsCount + fixedParamCount;
             Function function = new Function(functionAddress,
                     getCallContext(resultType, fixedParamCount, argTypes, totalArgsCount, callingConvention, requiresErrno));
-            HeapInvocationBuffer buffer = new HeapInvocationBuffer(function.getCallContext());
 
-            InvocationSession session = new InvocationSession();
-            try {
-                if (parameters != null) for (int i = 0; i < parameters.length - 1; ++i) {
-                    getMarshaller(argTypes[i]).marshal(session, buffer, parameters[i]);
-                }
-                
-                for (int i = 0; i < variableArgsCount; ++i) {
-                    getMarshaller(argTypes[i + fixedParamCount]).marshal(session, buffer, variableArgs[i]);
-                }
-
-                return functionInvoker.invoke(runtime, function, buffer);
-            } finally {
-                session.finish();
-            }
+            return new CallShape(kinds, function, marshallers);
         }
         
         private static Collection<Annotation> getAnnotations(Collection<Class<? extends Annotation>> klasses) {
@@ -424,6 +494,46 @@ final class DefaultInvokerFactory {
             }
             return ret;
         }
+
+        /**
+         * The call context and marshallers for one combination of variadic argument types.
+         */
+        private static final class CallShape {
+            private final Object[] kinds;
+            final Function function;
+            final Marshaller[] marshallers;
+
+            CallShape(Object[] kinds, Function function, Marshaller[] marshallers) {
+                this.kinds = kinds;
+                this.function = function;
+                this.marshallers = marshallers;
+            }
+
+            /**
+             * Annotation class markers are part of the shape, since they change how the following argument is passed.
+             */
+            static Object kindOf(Object arg) {
+                if (arg == null) {
+                    return null;
+                }
+
+                return arg instanceof Class && Annotation.class.isAssignableFrom((Class) arg) ? arg : arg.getClass();
+            }
+
+            boolean matches(Object[] varParam) {
+                if (varParam.length != kinds.length) {
+                    return false;
+                }
+
+                for (int i = 0; i < kinds.length; ++i) {
+                    if (kinds[i] != kindOf(varParam[i])) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+        }
     }
 
     static class DefaultInvoker implements jnr.ffi.provider.Invoker {
@@ -470,6 +580,66 @@ final class DefaultInvokerFactory {
         }
     }
 
+    private static final class MeteredInvoker implements Invoker {
+        private final FunctionMetrics metrics;
+        private final int[] sizedParameters;
+        private final Invoker invoker;
+
+        MeteredInvoker(FunctionMetrics metrics, Class[] parameterTypes, Invoker invoker) {
+            this.metrics = metrics;
+            this.invoker = invoker;
+            int[] sizedParameters = new int[parameterTypes.length];
+            int count = 0;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (FunctionMetrics.isSized(parameterTypes[i]) || (i == parameterTypes.length - 1 && parameterTypes[i] == Object[].class)) {
+                    sizedParameters[count++] = i;
+                }
+            }
+            this.sizedParameters = Arrays.copyOf(sizedParameters, count);
+        }
+
+        public Object invoke(Object self, Object[] parameters) {
+            long start = System.nanoTime();
+            try {
+                return invoker.invoke(self, parameters);
+
+            } finally {
+                long bytes = 0;
+                for (int i : sizedParameters) {
+                    if (parameters[i] instanceof Object[]) {
+                        // varargs
+                        for (Object parameter : (Object[]) parameters[i]) {
+                            bytes += FunctionMetrics.sizeOf(parameter);
+                        }
+                    } else {
+                        bytes += FunctionMetrics.sizeOf(parameters[i]);
+                    }
+                }
+                metrics.record(start, bytes);
+            }
+        }
+    }
+
+    private static final class RecordedInvoker implements Invoker {
+        private final FlightRecorderEvents.Call events;
+        private final Invoker invoker;
+
+        RecordedInvoker(FlightRecorderEvents.Call events, Invoker invoker) {
+            this.events = events;
+            this.invoker = invoker;
+        }
+
+        public Object invoke(Object self, Object[] parameters) {
+            Object event = events.begin();
+            try {
+                return invoker.invoke(self, parameters);
+
+            } finally {
+                events.end(event);
+            }
+        }
+    }
+
     private static final class FunctionNotFoundInvoker implements Invoker {
         private final Method method;
         private final String functionName;
@@ -562,6 +732,18 @@ final class DefaultInvokerFactory {
         }
     }
 
+    static class StructByValueInvoker extends BaseInvoker {
+        private final StructByValue layout;
+
+        StructByValueInvoker(StructByValue layout) {
+            this.layout = layout;
+        }
+
+        public final Object invoke(Runtime runtime, Function function, HeapInvocationBuffer buffer) {
+            return layout.fromNative(runtime, invoker.invokeStruct(function, buffer));
+        }
+    }
+
     /* ---------------------------------------------------------------------- */
     static class BooleanMarshaller implements Marshaller {
         static final Marshaller INSTANCE = new BooleanMarshaller();
@@ -637,6 +819,18 @@ final class DefaultInvokerFactory {
         }
     }
 
+    static class StructByValueMarshaller implements Marshaller {
+        private final StructByValue layout;
+
+        StructByValueMarshaller(StructByValue layout) {
+            this.layout = layout;
+        }
+
+        public void marshal(InvocationSession session, HeapInvocationBuffer buffer, Object parameter) {
+            layout.marshal(buffer, (Struct) parameter);
+        }
+    }
+
     static class PrimitiveArrayMarshaller implements Marshaller {
         private final PrimitiveArrayParameterStrategy strategy;
         private final int flags;
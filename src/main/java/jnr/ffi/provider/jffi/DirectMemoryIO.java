@@ -24,10 +24,14 @@ import jnr.ffi.provider.AbstractMemoryIO;
 import jnr.ffi.provider.DelegatingMemoryIO;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 
 class DirectMemoryIO extends AbstractMemoryIO {
     static final com.kenai.jffi.MemoryIO IO = com.kenai.jffi.MemoryIO.getInstance();
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    private static final long FILL_COPY_THRESHOLD = 256;
+
     DirectMemoryIO(Runtime runtime, long address) {
         super(runtime, address, true);
     }
@@ -181,13 +185,50 @@ class DirectMemoryIO extends AbstractMemoryIO {
     }
 
     public String getString(long offset) {
-        return Charset.defaultCharset().decode(ByteBuffer.wrap(IO.getZeroTerminatedByteArray(address() + offset))).toString();
+        return getString(offset, Integer.MAX_VALUE, Charset.defaultCharset());
     }
 
 
     public String getString(long offset, int maxLength, Charset cs) {
-        final byte[] bytes = IO.getZeroTerminatedByteArray(address() + offset, maxLength);
-        return cs.decode(ByteBuffer.wrap(bytes)).toString();
+        return getZeroTerminatedString(address() + offset, maxLength, cs);
+    }
+
+    /** Strings up to this length are copied through a per-thread buffer instead of a new array */
+    private static final int STRING_BUFFER_SIZE = 1024;
+    private static final ThreadLocal<byte[]> localStringBuffer = new ThreadLocal<byte[]>();
+
+    /**
+     * Decodes a NUL terminated string straight from native memory, with a single copy into the {@code String}.
+     * A {@code maxLength} of {@code Integer.MAX_VALUE} means the string is unbounded, and is scanned up to the
+     * terminator like {@code strlen}; otherwise at most {@code maxLength} bytes are decoded.
+     */
+    static String getZeroTerminatedString(long address, int maxLength, Charset cs) {
+        int length;
+        if (maxLength == Integer.MAX_VALUE) {
+            long strlen = IO.getStringLength(address);
+            if (strlen >= Integer.MAX_VALUE) {
+                throw new IndexOutOfBoundsException("string too long: " + strlen + " bytes");
+            }
+            length = (int) strlen;
+        } else if ((length = (int) IO.indexOf(address, (byte) 0, maxLength)) < 0) {
+            length = maxLength;
+        }
+
+        if (length == 0) {
+            return "";
+        }
+
+        byte[] bytes;
+        if (length <= STRING_BUFFER_SIZE) {
+            if ((bytes = localStringBuffer.get()) == null) {
+                localStringBuffer.set(bytes = new byte[STRING_BUFFER_SIZE]);
+            }
+        } else {
+            bytes = new byte[length];
+        }
+        IO.getByteArray(address, bytes, 0, length);
+
+        return new String(bytes, 0, length, cs);
     }
 
     public void putString(long offset, String string, int maxLength, Charset cs) {
@@ -209,6 +250,76 @@ class DirectMemoryIO extends AbstractMemoryIO {
         IO.setMemory(this.address() + offset, size, value);
     }
 
+    @Override
+    public int getIntVolatile(long offset) {
+        return AtomicIO.getIntVolatile(address() + offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        AtomicIO.putIntVolatile(address() + offset, value);
+    }
+
+    @Override
+    public int getIntAcquire(long offset) {
+        return AtomicIO.getIntVolatile(address() + offset);
+    }
+
+    @Override
+    public void putIntRelease(long offset, int value) {
+        AtomicIO.putIntRelease(address() + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetInt(long offset, int expected, int value) {
+        return AtomicIO.compareAndSetInt(address() + offset, expected, value);
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        return AtomicIO.getAndAddInt(address() + offset, delta);
+    }
+
+    @Override
+    public int getAndSetInt(long offset, int value) {
+        return AtomicIO.getAndSetInt(address() + offset, value);
+    }
+
+    @Override
+    public long getLongLongVolatile(long offset) {
+        return AtomicIO.getLongVolatile(address() + offset);
+    }
+
+    @Override
+    public void putLongLongVolatile(long offset, long value) {
+        AtomicIO.putLongVolatile(address() + offset, value);
+    }
+
+    @Override
+    public long getLongLongAcquire(long offset) {
+        return AtomicIO.getLongVolatile(address() + offset);
+    }
+
+    @Override
+    public void putLongLongRelease(long offset, long value) {
+        AtomicIO.putLongRelease(address() + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetLongLong(long offset, long expected, long value) {
+        return AtomicIO.compareAndSetLong(address() + offset, expected, value);
+    }
+
+    @Override
+    public long getAndAddLongLong(long offset, long delta) {
+        return AtomicIO.getAndAddLong(address() + offset, delta);
+    }
+
+    @Override
+    public long getAndSetLongLong(long offset, long value) {
+        return AtomicIO.getAndSetLong(address() + offset, value);
+    }
+
     @Override
     public void transferTo(long offset, Pointer other, long otherOffset, long count) {
         Pointer dst = other instanceof DelegatingMemoryIO ? ((DelegatingMemoryIO) other).getDelegatedMemoryIO() : other;
@@ -233,6 +344,153 @@ class DirectMemoryIO extends AbstractMemoryIO {
         }
     }
 
+    @Override
+    public long indexOf(long offset, long length, byte[] pattern) {
+        checkBounds(size(), offset, length);
+        if (pattern.length == 0) {
+            return 0;
+        }
+
+        long address = address() + offset;
+        long last = length - pattern.length;
+        long first = broadcast(pattern[0]);
+        long i = 0;
+
+        // Find candidates for the first byte of the pattern a word at a time
+        for (; i + 7 <= last; i += 8) {
+            long mask = matchBytes(littleEndian(IO.getLong(address + i)), first);
+            while (mask != 0) {
+                long candidate = i + (Long.numberOfTrailingZeros(mask) >>> 3);
+                if (matches(address + candidate, pattern)) {
+                    return candidate;
+                }
+                mask &= mask - 1;
+            }
+        }
+        for (; i <= last; i++) {
+            if (matches(address + i, pattern)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean matches(long address, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (IO.getByte(address + i) != pattern[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public long mismatch(long offset, Pointer other, long otherOffset, long length) {
+        if (!other.isDirect() || other.address() == 0L) {
+            return super.mismatch(offset, other, otherOffset, length);
+        }
+        checkBounds(size(), offset, length);
+        checkBounds(other.size(), otherOffset, length);
+        other.checkBounds(otherOffset, length);
+
+        long address = address() + offset, otherAddress = other.address() + otherOffset;
+        long i = 0;
+        while (i + 8 <= length && IO.getLong(address + i) == IO.getLong(otherAddress + i)) {
+            i += 8;
+        }
+        for (; i < length; i++) {
+            if (IO.getByte(address + i) != IO.getByte(otherAddress + i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public long hash(long offset, long length) {
+        checkBounds(size(), offset, length);
+        long address = address() + offset;
+        long hash = hashSeed(length);
+        long i = 0;
+        for (; i + 8 <= length; i += 8) {
+            hash = hashWord(hash, littleEndian(IO.getLong(address + i)));
+        }
+
+        if (i < length) {
+            long tail = 0;
+            for (int shift = 0; i < length; i++, shift += 8) {
+                tail |= (IO.getByte(address + i) & 0xffL) << shift;
+            }
+            hash = hashWord(hash, tail);
+        }
+
+        return hashFinish(hash);
+    }
+
+    @Override
+    public void fill(long offset, long size, long pattern) {
+        checkBounds(size(), offset, size);
+        long address = address() + offset;
+
+        // Write the first few copies, then double them with memcpy, which is faster for large areas
+        long filled = Math.min(size, FILL_COPY_THRESHOLD) & ~7L;
+        for (long i = 0; i < filled; i += 8) {
+            IO.putLong(address + i, pattern);
+        }
+        if (filled == FILL_COPY_THRESHOLD) {
+            for (; filled < size; filled += Math.min(filled, size - filled)) {
+                IO.memcpy(address + filled, address, Math.min(filled, size - filled));
+            }
+        }
+        for (int index = 0; filled < size; filled++, index++) {
+            IO.putByte(address + filled, patternByte(pattern, index, ByteOrder.nativeOrder()));
+        }
+    }
+
+    @Override
+    public void transferToSwapped(long offset, Pointer dst, long dstOffset, long count, int elementSize) {
+        if (!dst.isDirect() || dst.address() == 0L) {
+            super.transferToSwapped(offset, dst, dstOffset, count, elementSize);
+            return;
+        }
+        checkElementSize(count, elementSize);
+        checkBounds(size(), offset, count);
+        checkBounds(dst.size(), dstOffset, count);
+        dst.checkBounds(dstOffset, count);
+
+        long src = address() + offset, dest = dst.address() + dstOffset;
+        switch (elementSize) {
+            case 1:
+                IO.memmove(dest, src, count);
+                break;
+
+            case 2:
+                for (long i = 0; i < count; i += 2) {
+                    IO.putShort(dest + i, Short.reverseBytes(IO.getShort(src + i)));
+                }
+                break;
+
+            case 4:
+                for (long i = 0; i < count; i += 4) {
+                    IO.putInt(dest + i, Integer.reverseBytes(IO.getInt(src + i)));
+                }
+                break;
+
+            default:
+                for (long i = 0; i < count; i += 8) {
+                    IO.putLong(dest + i, Long.reverseBytes(IO.getLong(src + i)));
+                }
+                break;
+        }
+    }
+
+    private static long littleEndian(long word) {
+        return BIG_ENDIAN ? Long.reverseBytes(word) : word;
+    }
+
     private static void memcpy(DirectMemoryIO src, long srcOffset, DirectMemoryIO dst, long dstOffset, long count) {
         IO.memcpy(dst.address() + dstOffset, src.address() + srcOffset, count);
     }
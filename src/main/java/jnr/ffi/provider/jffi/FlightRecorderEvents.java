@@ -0,0 +1,333 @@
+package jnr.ffi.provider.jffi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Emits JDK Flight Recorder events for native calls, callbacks, native memory and library loading, when the
+ * {@code jnr.ffi.jfr.enabled} system property is set and the JDK supports {@code jdk.jfr.EventFactory}.
+ * <p>
+ * The API is only accessed reflectively, as jnr-ffi is built for Java 8.  The event types are created with
+ * {@code EventFactory} when this class is initialized, and every event is created, timed and committed through
+ * method handles.  The call sites check {@link #ENABLED} first, so when the property is not set nothing is
+ * generated or called at all, and when it is set but no recording has enabled an event type, each site only
+ * asks the event type whether it is enabled.
+ * </p>
+ */
+public final class FlightRecorderEvents {
+    private static final MethodHandle NEW_EVENT, BEGIN, END, SHOULD_COMMIT, SET, COMMIT, IS_ENABLED;
+    private static final Constructor ANNOTATION_ELEMENT, ANNOTATION_ELEMENT_VALUE, VALUE_DESCRIPTOR;
+    private static final Class ANNOTATION_ELEMENT_CLASS, VALUE_DESCRIPTOR_CLASS;
+    private static final java.lang.reflect.Method CREATE, REGISTER, GET_EVENT_TYPE;
+
+    static {
+        MethodHandle newEvent = null, begin = null, end = null, shouldCommit = null, set = null, commit = null, isEnabled = null;
+        Constructor annotationElement = null, annotationElementValue = null, valueDescriptor = null;
+        Class annotationElementClass = null, valueDescriptorClass = null;
+        java.lang.reflect.Method create = null, register = null, getEventType = null;
+        if (Util.getBooleanProperty("jnr.ffi.jfr.enabled", false)) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class factoryClass = Class.forName("jdk.jfr.EventFactory");
+                Class eventClass = Class.forName("jdk.jfr.Event");
+                Class eventTypeClass = Class.forName("jdk.jfr.EventType");
+                annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+
+                annotationElement = annotationElementClass.getConstructor(Class.class);
+                annotationElementValue = annotationElementClass.getConstructor(Class.class, Object.class);
+                valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+                create = factoryClass.getMethod("create", List.class, List.class);
+                register = factoryClass.getMethod("register");
+                getEventType = factoryClass.getMethod("getEventType");
+
+                // Erase the event types to Object, so the handles can be invoked exactly from this class
+                newEvent = erase(lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass)));
+                begin = erase(lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class)));
+                end = erase(lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class)));
+                shouldCommit = erase(lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class)));
+                set = erase(lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class)));
+                commit = erase(lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class)));
+                isEnabled = erase(lookup.findVirtual(eventTypeClass, "isEnabled", MethodType.methodType(boolean.class)));
+            } catch (Throwable t) {
+                newEvent = null;
+            }
+        }
+        NEW_EVENT = newEvent;
+        BEGIN = begin;
+        END = end;
+        SHOULD_COMMIT = shouldCommit;
+        SET = set;
+        COMMIT = commit;
+        IS_ENABLED = isEnabled;
+        ANNOTATION_ELEMENT = annotationElement;
+        ANNOTATION_ELEMENT_VALUE = annotationElementValue;
+        VALUE_DESCRIPTOR = valueDescriptor;
+        ANNOTATION_ELEMENT_CLASS = annotationElementClass;
+        VALUE_DESCRIPTOR_CLASS = valueDescriptorClass;
+        CREATE = create;
+        REGISTER = register;
+        GET_EVENT_TYPE = getEventType;
+    }
+
+    /** The calls of native functions.  Like {@code jdk.FileRead}, only calls slower than 20ms are recorded by default */
+    static final Type DOWNCALL = Type.create("jnr.ffi.Downcall", "Native Call", "A call of a native function", "20 ms",
+            new Field(String.class, "library", "Library"),
+            new Field(String.class, "function", "Function"));
+
+    /** The calls of java callbacks from native code */
+    static final Type UPCALL = Type.create("jnr.ffi.Upcall", "Native Callback", "A call of a java callback from native code", "20 ms",
+            new Field(String.class, "callback", "Callback"),
+            new Field(String.class, "method", "Method"));
+
+    /** The pages allocated for the small temporary allocations of a thread */
+    static final Type TRANSIENT_ALLOCATION = Type.create("jnr.ffi.TransientMemoryAllocation", "Transient Memory Allocation",
+            "Pages allocated for short lived native memory", null,
+            new Field(long.class, "address", "Address", "jdk.jfr.MemoryAddress"),
+            new Field(long.class, "size", "Size", "jdk.jfr.DataAmount"));
+
+    static final Type DIRECT_ALLOCATION = Type.create("jnr.ffi.DirectMemoryAllocation", "Direct Memory Allocation",
+            "Native memory allocated for a pointer", null,
+            new Field(long.class, "address", "Address", "jdk.jfr.MemoryAddress"),
+            new Field(long.class, "size", "Size", "jdk.jfr.DataAmount"));
+
+    static final Type DIRECT_FREE = Type.create("jnr.ffi.DirectMemoryFree", "Direct Memory Free",
+            "Native memory of a pointer freed", null,
+            new Field(long.class, "address", "Address", "jdk.jfr.MemoryAddress"),
+            new Field(long.class, "size", "Size", "jdk.jfr.DataAmount"),
+            new Field(boolean.class, "reclaimed", "Reclaimed"));
+
+    static final Type LIBRARY_LOAD = Type.create("jnr.ffi.LibraryLoad", "Native Library Load",
+            "Native libraries opened", null,
+            new Field(String.class, "libraries", "Libraries"),
+            new Field(String.class, "paths", "Paths"));
+
+    static final Type LIBRARY_BIND = Type.create("jnr.ffi.LibraryBind", "Library Bind",
+            "Functions of a library interface looked up and compiled", null,
+            new Field(String.class, "library", "Library"),
+            new Field(String.class, "function", "Function"));
+
+    /**
+     * Whether events are emitted.  Call sites check this before anything else.
+     */
+    static final boolean ENABLED = NEW_EVENT != null && DOWNCALL.factory != null;
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Creates the downcall events of a native function.
+     *
+     * @param libraryNames the names of the native libraries of the function.
+     * @param functionName the name of the native function.
+     * @return the events of the function.
+     */
+    static Call downcall(Collection<String> libraryNames, String functionName) {
+        return new Call(DOWNCALL, join(libraryNames), functionName);
+    }
+
+    /**
+     * Creates the upcall events of a callback.
+     *
+     * @param callMethod the java method native code calls.
+     * @return the events of the callback.
+     */
+    static Call upcall(java.lang.reflect.Method callMethod) {
+        return new Call(UPCALL, callMethod.getDeclaringClass().getName(), callMethod.getName());
+    }
+
+    static String join(Collection<String> names) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            if (name != null) {
+                sb.append(sb.length() > 0 ? ", " : "").append(name);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static MethodHandle erase(MethodHandle handle) {
+        return handle.asType(handle.type().erase());
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new RuntimeException(t);
+    }
+
+    /**
+     * The events of one function or callback.  The generated call paths call {@link #begin()} before the call and
+     * {@link #end(Object)} after it.
+     */
+    public static final class Call {
+        private final Type type;
+        private final String first, second;
+
+        Call(Type type, String first, String second) {
+            this.type = type;
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * Starts timing a call.
+         *
+         * @return the event of the call, or {@code null} if the event type is not enabled.
+         */
+        public Object begin() {
+            return type.begin();
+        }
+
+        /**
+         * Ends timing a call, and commits its event if it exceeds the threshold of the recording.
+         *
+         * @param event the event returned by {@link #begin()}.
+         */
+        public void end(Object event) {
+            if (event != null) {
+                type.commit(event, first, second);
+            }
+        }
+    }
+
+    static final class Field {
+        final Class type;
+        final String name, label, contentType;
+
+        Field(Class type, String name, String label) {
+            this(type, name, label, null);
+        }
+
+        /**
+         * @param contentType the annotation telling how the value is shown, such as {@code jdk.jfr.DataAmount}.
+         */
+        Field(Class type, String name, String label, String contentType) {
+            this.type = type;
+            this.name = name;
+            this.label = label;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * One event type, created with {@code jdk.jfr.EventFactory}.
+     */
+    static final class Type {
+        private final Object factory, eventType;
+
+        private Type(Object factory, Object eventType) {
+            this.factory = factory;
+            this.eventType = eventType;
+        }
+
+        static Type create(String name, String label, String description, String threshold, Field... fields) {
+            if (NEW_EVENT == null) {
+                return new Type(null, null);
+            }
+
+            try {
+                List<Object> annotations = new ArrayList<Object>();
+                annotations.add(annotation("jdk.jfr.Name", name));
+                annotations.add(annotation("jdk.jfr.Label", label));
+                annotations.add(annotation("jdk.jfr.Description", description));
+                annotations.add(annotation("jdk.jfr.Category", new String[] { "Java Application", "jnr-ffi" }));
+                if (threshold != null) {
+                    annotations.add(annotation("jdk.jfr.Threshold", threshold));
+                    annotations.add(annotation("jdk.jfr.StackTrace", true));
+                } else {
+                    annotations.add(annotation("jdk.jfr.StackTrace", false));
+                }
+
+                List<Object> values = new ArrayList<Object>();
+                for (Field field : fields) {
+                    List<Object> fieldAnnotations = new ArrayList<Object>();
+                    fieldAnnotations.add(annotation("jdk.jfr.Label", field.label));
+                    if (field.contentType != null) {
+                        fieldAnnotations.add("jdk.jfr.DataAmount".equals(field.contentType)
+                                ? annotation(field.contentType, "BYTES") : annotation(field.contentType, null));
+                    }
+                    values.add(VALUE_DESCRIPTOR.newInstance(field.type, field.name, typedList(ANNOTATION_ELEMENT_CLASS, fieldAnnotations)));
+                }
+
+                Object factory = CREATE.invoke(null, typedList(ANNOTATION_ELEMENT_CLASS, annotations),
+                        typedList(VALUE_DESCRIPTOR_CLASS, values));
+                REGISTER.invoke(factory);
+                return new Type(factory, GET_EVENT_TYPE.invoke(factory));
+            } catch (Throwable t) {
+                return new Type(null, null);
+            }
+        }
+
+        private static Object annotation(String className, Object value) throws Exception {
+            Class annotationClass = Class.forName(className);
+            return value != null
+                    ? ANNOTATION_ELEMENT_VALUE.newInstance(annotationClass, value)
+                    : ANNOTATION_ELEMENT.newInstance(annotationClass);
+        }
+
+        private static List<Object> typedList(Class elementType, List<Object> elements) {
+            // EventFactory copies the lists, but checks the type of each element
+            Object[] array = (Object[]) Array.newInstance(elementType, elements.size());
+            return Arrays.asList(elements.toArray(array));
+        }
+
+        boolean isEnabled() {
+            try {
+                return eventType != null && (boolean) IS_ENABLED.invokeExact(eventType);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        /**
+         * Creates and starts timing an event.
+         *
+         * @return the event, or {@code null} if the event type is not enabled.
+         */
+        Object begin() {
+            if (!isEnabled()) {
+                return null;
+            }
+
+            try {
+                Object event = (Object) NEW_EVENT.invokeExact(factory);
+                BEGIN.invokeExact(event);
+                return event;
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        /**
+         * Ends timing an event, and commits it with its field values if the recording accepts it.
+         *
+         * @param event the event returned by {@link #begin()}.
+         * @param values the values of the fields of the event type, in order.
+         */
+        void commit(Object event, Object... values) {
+            try {
+                END.invokeExact(event);
+                if ((boolean) SHOULD_COMMIT.invokeExact(event)) {
+                    for (int i = 0; i < values.length; i++) {
+                        SET.invokeExact(event, i, values[i]);
+                    }
+                    COMMIT.invokeExact(event);
+                }
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+}
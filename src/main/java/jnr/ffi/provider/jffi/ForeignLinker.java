@@ -0,0 +1,230 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.NativeType;
+import jnr.ffi.provider.ParameterType;
+import jnr.ffi.provider.ResultType;
+import jnr.ffi.provider.SigType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates downcall handles with the JDK's foreign function API ({@code java.lang.foreign}), when running on
+ * JDK 22 or later.  {@link MethodHandleLibraryLoader} uses them for the functions it would otherwise link to the
+ * jffi {@code invokeN} methods, when the {@code jnr.ffi.foreign.enabled} system property is set.
+ * <p>
+ * This is not a separate {@link jnr.ffi.provider.FFIProvider}: memory, pointers, callbacks and all the other
+ * functions are still provided by jffi.  The API is only accessed reflectively, as jnr-ffi is built for Java 8.
+ * Pointers are passed as 64 bit integers, which has the same calling convention as an address on the 64 bit
+ * platforms the JDK supports.
+ */
+final class ForeignLinker {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final AtomicLong downcallCount = new AtomicLong();
+
+    private static final MethodHandle DOWNCALL_HANDLE, OF_ADDRESS, FUNCTION_OF, FUNCTION_OF_VOID;
+    private static final Object LINKER, NO_OPTIONS, CRITICAL_OPTIONS;
+    private static final Object JAVA_BYTE, JAVA_SHORT, JAVA_INT, JAVA_LONG, JAVA_FLOAT, JAVA_DOUBLE;
+    private static final Class MEMORY_LAYOUT;
+    private static final MethodHandle INT_BITS_TO_FLOAT, LONG_BITS_TO_DOUBLE, FLOAT_TO_BITS, DOUBLE_TO_BITS;
+
+    static {
+        MethodHandle downcallHandle = null, ofAddress = null, functionOf = null, functionOfVoid = null;
+        Object linker = null, noOptions = null, criticalOptions = null;
+        Object javaByte = null, javaShort = null, javaInt = null, javaLong = null, javaFloat = null, javaDouble = null;
+        Class memoryLayout = null;
+        if (getFeatureVersion() >= 22 && NativeRuntime.getInstance().addressSize() == 8) {
+            try {
+                Class linkerClass = Class.forName("java.lang.foreign.Linker");
+                Class optionClass = Class.forName("java.lang.foreign.Linker$Option");
+                Class segmentClass = Class.forName("java.lang.foreign.MemorySegment");
+                Class descriptorClass = Class.forName("java.lang.foreign.FunctionDescriptor");
+                Class valueLayoutClass = Class.forName("java.lang.foreign.ValueLayout");
+                memoryLayout = Class.forName("java.lang.foreign.MemoryLayout");
+                Class layoutArrayClass = Array.newInstance(memoryLayout, 0).getClass();
+
+                linker = LOOKUP.findStatic(linkerClass, "nativeLinker", MethodType.methodType(linkerClass)).invoke();
+                noOptions = Array.newInstance(optionClass, 0);
+                criticalOptions = getCriticalOptions(optionClass);
+                downcallHandle = LOOKUP.findVirtual(linkerClass, "downcallHandle",
+                        MethodType.methodType(MethodHandle.class, segmentClass, descriptorClass, noOptions.getClass())).asFixedArity();
+                ofAddress = LOOKUP.findStatic(segmentClass, "ofAddress", MethodType.methodType(segmentClass, long.class));
+                functionOf = LOOKUP.findStatic(descriptorClass, "of",
+                        MethodType.methodType(descriptorClass, memoryLayout, layoutArrayClass)).asFixedArity();
+                functionOfVoid = LOOKUP.findStatic(descriptorClass, "ofVoid",
+                        MethodType.methodType(descriptorClass, layoutArrayClass)).asFixedArity();
+                javaByte = valueLayoutClass.getField("JAVA_BYTE").get(null);
+                javaShort = valueLayoutClass.getField("JAVA_SHORT").get(null);
+                javaInt = valueLayoutClass.getField("JAVA_INT").get(null);
+                javaLong = valueLayoutClass.getField("JAVA_LONG").get(null);
+                javaFloat = valueLayoutClass.getField("JAVA_FLOAT").get(null);
+                javaDouble = valueLayoutClass.getField("JAVA_DOUBLE").get(null);
+            } catch (Throwable t) {
+                downcallHandle = null;
+            }
+        }
+        DOWNCALL_HANDLE = downcallHandle;
+        OF_ADDRESS = ofAddress;
+        FUNCTION_OF = functionOf;
+        FUNCTION_OF_VOID = functionOfVoid;
+        LINKER = linker;
+        NO_OPTIONS = noOptions;
+        CRITICAL_OPTIONS = criticalOptions != null ? criticalOptions : noOptions;
+        JAVA_BYTE = javaByte;
+        JAVA_SHORT = javaShort;
+        JAVA_INT = javaInt;
+        JAVA_LONG = javaLong;
+        JAVA_FLOAT = javaFloat;
+        JAVA_DOUBLE = javaDouble;
+        MEMORY_LAYOUT = memoryLayout;
+
+        try {
+            INT_BITS_TO_FLOAT = LOOKUP.findStatic(ForeignLinker.class, "intBitsToFloat", MethodType.methodType(float.class, long.class));
+            LONG_BITS_TO_DOUBLE = LOOKUP.findStatic(Double.class, "longBitsToDouble", MethodType.methodType(double.class, long.class));
+            FLOAT_TO_BITS = LOOKUP.findStatic(ForeignLinker.class, "floatToBits", MethodType.methodType(long.class, float.class));
+            DOUBLE_TO_BITS = LOOKUP.findStatic(Double.class, "doubleToRawLongBits", MethodType.methodType(long.class, double.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private ForeignLinker() {
+    }
+
+    static boolean isAvailable() {
+        return DOWNCALL_HANDLE != null;
+    }
+
+    /**
+     * Gets the number of downcall handles created so far.
+     */
+    static long getDowncallCount() {
+        return downcallCount.get();
+    }
+
+    /**
+     * Creates a handle that calls a native function through the foreign function API.  The handle takes and
+     * returns the same longs as the jffi {@code invokeN} methods, so it can replace them in a method handle chain.
+     *
+     * @param functionAddress the address of the function.
+     * @param resultType the result type of the function.
+     * @param parameterTypes the parameter types of the function.
+     * @param critical whether the function is a short leaf call, which is linked without a thread state transition.
+     * @return a handle of type {@code (long...)long}, or {@code null} if the function can not be linked.
+     */
+    static MethodHandle downcallHandle(long functionAddress, ResultType resultType, ParameterType[] parameterTypes,
+                                       boolean critical) {
+        if (!isAvailable()) {
+            return null;
+        }
+
+        Object[] layouts = (Object[]) Array.newInstance(MEMORY_LAYOUT, parameterTypes.length);
+        for (int i = 0; i < parameterTypes.length; i++) {
+            layouts[i] = getLayout(parameterTypes[i]);
+            if (layouts[i] == null) {
+                return null;
+            }
+        }
+
+        Object resultLayout = resultType.getNativeType() != NativeType.VOID ? getLayout(resultType) : null;
+        if (resultLayout == null && resultType.getNativeType() != NativeType.VOID) {
+            return null;
+        }
+
+        MethodHandle handle;
+        try {
+            Object descriptor = resultLayout != null
+                    ? FUNCTION_OF.invoke(resultLayout, layouts)
+                    : FUNCTION_OF_VOID.invoke(layouts);
+            handle = (MethodHandle) DOWNCALL_HANDLE.invoke(LINKER, OF_ADDRESS.invoke(functionAddress), descriptor,
+                    critical ? CRITICAL_OPTIONS : NO_OPTIONS);
+        } catch (Throwable t) {
+            return null;
+        }
+        downcallCount.incrementAndGet();
+
+        // Convert the carrier types of the handle to and from the longs used by the jffi invokers
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            Class carrier = type.parameterType(i);
+            if (float.class == carrier) {
+                handle = MethodHandles.filterArguments(handle, i, INT_BITS_TO_FLOAT);
+            } else if (double.class == carrier) {
+                handle = MethodHandles.filterArguments(handle, i, LONG_BITS_TO_DOUBLE);
+            }
+        }
+
+        Class resultCarrier = type.returnType();
+        if (void.class == resultCarrier) {
+            handle = MethodHandles.filterReturnValue(handle, MethodHandles.constant(long.class, 0L));
+        } else if (float.class == resultCarrier) {
+            handle = MethodHandles.filterReturnValue(handle, FLOAT_TO_BITS);
+        } else if (double.class == resultCarrier) {
+            handle = MethodHandles.filterReturnValue(handle, DOUBLE_TO_BITS);
+        }
+
+        Class[] longs = new Class[parameterTypes.length];
+        Arrays.fill(longs, long.class);
+
+        return MethodHandles.explicitCastArguments(handle, MethodType.methodType(long.class, longs));
+    }
+
+    private static Object getCriticalOptions(Class optionClass) {
+        try {
+            // Linker.Option.critical(false) - the heap is never accessed, as pointers are passed as addresses
+            Object options = Array.newInstance(optionClass, 1);
+            Array.set(options, 0, optionClass.getMethod("critical", boolean.class).invoke(null, false));
+            return options;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static float intBitsToFloat(long bits) {
+        return Float.intBitsToFloat((int) bits);
+    }
+
+    private static long floatToBits(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    private static Object getLayout(SigType type) {
+        switch (type.getNativeType()) {
+            case SCHAR:
+            case UCHAR:
+                return JAVA_BYTE;
+            case SSHORT:
+            case USHORT:
+                return JAVA_SHORT;
+            case SINT:
+            case UINT:
+                return JAVA_INT;
+            case SLONG:
+            case ULONG:
+                return NumberUtil.sizeof(type.getNativeType()) == 8 ? JAVA_LONG : JAVA_INT;
+            case SLONGLONG:
+            case ULONGLONG:
+            case ADDRESS:
+                return JAVA_LONG;
+            case FLOAT:
+                return JAVA_FLOAT;
+            case DOUBLE:
+                return JAVA_DOUBLE;
+            default:
+                return null;
+        }
+    }
+
+    private static int getFeatureVersion() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        try {
+            return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,851 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.mapper.FromNativeConverter;
+import jnr.ffi.mapper.ToNativeConverter;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reuses generated classes that were packaged with the application or stored by an earlier run, instead of
+ * generating them again.
+ * <p>
+ * A class is identified by a key computed before it is generated, from the class it is generated for (including
+ * the SHA-1 of its class file), the inputs the generator passes in, such as the libraries, the library options and
+ * the classes of converters, the jnr-ffi and ASM versions, the platform and the system properties that change the
+ * generated code.  Generated classes are named after their key, so the stored bytes can be defined as is.  The
+ * type and function mappers of jnr-ffi are described by their class and the values of their fields, but other
+ * mappers only by their class, so a class loaded with a mapper of an application that holds state is not cached,
+ * as two mappers of the same class could generate different code.
+ * <p>
+ * A library class that is only constructed with function addresses and call contexts is stored with its
+ * bindings: the symbol of each address and the types of each call context, and the symbols that were not found.
+ * On a hit, those symbols are looked up again and the stored class is defined without emitting any code.
+ * <p>
+ * Other objects a generated class is constructed with, such as converters, are only created as its code is
+ * emitted, so on a hit for those classes, or if a symbol is not found as it was when the class was stored, the
+ * code is still emitted, but into a visitor that keeps nothing but the outline of the class: its fields and
+ * methods, and a hash of their code, which is stored with the class.  The stored class is only defined if it has
+ * the same outline, and is otherwise discarded, as the inputs that were not part of the key, such as the symbols
+ * the libraries export, must have changed.
+ * <p>
+ * Classes are looked up in two places:
+ * <ul>
+ * <li>on the class path of the class they were generated for, as
+ * {@code META-INF/jnr-ffi/<class name>/<key>.class}.  These are generated at build time by
+ * {@link ImplClassGenerator}, and an {@code index} resource in the same directory marks a class as having any.</li>
+ * <li>in the directory set by the {@code jnr.ffi.cache.dir} system property, under a subdirectory for the
+ * jnr-ffi and ASM versions.  Newly generated classes are written there, so later runs of the application
+ * can reuse them.</li>
+ * </ul>
+ */
+public final class GeneratedClassCache {
+    static final boolean ENABLED = Util.getBooleanProperty("jnr.ffi.pregenerated.enabled", true);
+
+    /** The directory generated classes are written to, when generating them ahead of time */
+    static final String OUTPUT_PROPERTY = "jnr.ffi.pregenerated.output";
+
+    /** The directory generated classes are cached in between runs */
+    static final String CACHE_DIR_PROPERTY = "jnr.ffi.cache.dir";
+
+    /** The system properties that select how calls are generated, which are part of every key */
+    private static final String[] CODEGEN_PROPERTIES = {
+            "jnr.ffi.x86asm.enabled", "jnr.ffi.fast-int.enabled", "jnr.ffi.fast-long.enabled",
+            "jnr.ffi.fast-numeric.enabled", "jnr.ffi.jfr.enabled", "jnr.ffi.metrics.enabled",
+    };
+
+    private static final String PREFIX = "META-INF/jnr-ffi/";
+    private static final String MAPPER_PACKAGE = "jnr.ffi.mapper.";
+
+    private static final String VERSION = version(GeneratedClassCache.class) + "-asm-" + version(ClassWriter.class);
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong boundHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    /** Keys of packaged classes that did not match, which cannot be deleted like cached ones */
+    private static final Set<String> discarded = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private static final ClassValue<String> classHashes = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> klass) {
+            byte[] bytes = read(getClassResource(klass));
+            return bytes != null ? hash(bytes) : null;
+        }
+    };
+
+    private GeneratedClassCache() {
+    }
+
+    /**
+     * Gets the number of classes defined from packaged or cached bytes.
+     *
+     * @return the number of cache hits.
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of cache hits that were defined without generating any code, and constructed with values
+     * bound from the symbols of their libraries.
+     *
+     * @return the number of bound cache hits.
+     */
+    public static long getBoundHits() {
+        return boundHits.get();
+    }
+
+    /**
+     * Gets the number of classes that had to be generated while the cache was in use.
+     *
+     * @return the number of cache misses.
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of stored classes that did not match the class being generated, or could not be defined,
+     * and were discarded.
+     *
+     * @return the number of invalidated entries.
+     */
+    public static long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Tests if classes generated for {@code owner} should be looked up or stored.
+     */
+    static boolean isEnabled(Class<?> owner) {
+        return ENABLED && !AsmLibraryLoader.DEBUG
+                && (getDirectory(OUTPUT_PROPERTY) != null || getDirectory(CACHE_DIR_PROPERTY) != null
+                || getResource(owner, "index") != null);
+    }
+
+    /**
+     * Looks up a class before it is generated.
+     *
+     * @param classLoader the class loader the class will be defined in.
+     * @param owner the class the class is generated for.
+     * @param classNamePrefix the internal name of the class, without the key.
+     * @param inputs everything else the generated code depends on.
+     * @return the entry to generate the class with, or {@code null} if it cannot be cached and should be
+     * generated as usual.
+     */
+    static Entry lookup(AsmClassLoader classLoader, Class<?> owner, String classNamePrefix, Object... inputs) {
+        if (!isEnabled(owner)) {
+            return null;
+        }
+
+        String key = key(owner, classNamePrefix, inputs);
+        if (key == null) {
+            return null;
+        }
+
+        String className = classNamePrefix + key.substring(0, 16);
+        if (classLoader.isDefined(CodegenUtils.c(className))) {
+            // the same class was already generated in this class loader, so it has to get a unique name
+            return null;
+        }
+
+        byte[] stored = find(owner, key + ".class");
+        byte[] code = stored != null ? find(owner, key + ".code") : null;
+        byte[] bindings = stored != null ? find(owner, key + ".bindings") : null;
+
+        return new Entry(owner, key, className, stored, code != null ? toString(code) : null,
+                bindings != null ? readBindings(bindings) : null);
+    }
+
+    /**
+     * A class that is being generated, and may be defined from stored bytes.
+     */
+    static final class Entry {
+        private final Class<?> owner;
+        private final String key;
+        private final String className;
+        private final byte[] stored;
+        private final String storedCodeHash;
+        private final String[] storedBindings;
+        private final ClassWriter writer;
+        private final Outline outline;
+
+        private Entry(Class<?> owner, String key, String className, byte[] stored, String storedCodeHash,
+                      String[] storedBindings) {
+            this.owner = owner;
+            this.key = key;
+            this.className = className;
+            this.stored = stored;
+            this.storedCodeHash = storedCodeHash;
+            this.storedBindings = storedBindings;
+            this.writer = stored == null ? new ClassWriter(ClassWriter.COMPUTE_FRAMES) : null;
+            this.outline = new Outline(writer);
+        }
+
+        /**
+         * Gets the internal name the class must be generated with.
+         */
+        String getClassName() {
+            return className;
+        }
+
+        /**
+         * Gets the visitor the class must be emitted to.
+         */
+        ClassVisitor getClassVisitor() {
+            return outline;
+        }
+
+        /**
+         * Defines the class once it has been emitted: the stored class if it has the same outline, or else the
+         * class that was generated.
+         *
+         * @return the class, or {@code null} if the stored class did not match and was discarded, in which case the
+         * class must be generated again, without an entry.
+         */
+        <T> Class<T> define(AsmClassLoader classLoader) {
+            return define(classLoader, null);
+        }
+
+        /**
+         * Defines the class once it has been emitted, storing how its fields are bound with a newly generated
+         * class.
+         *
+         * @param bindings how the values the class is constructed with are bound, or {@code null} if they cannot be
+         * bound without generating the class.
+         * @see #define(AsmClassLoader)
+         */
+        <T> Class<T> define(AsmClassLoader classLoader, String[] bindings) {
+            if (writer != null) {
+                byte[] bytes = writer.toByteArray();
+                Class<T> klass = classLoader.defineClass(CodegenUtils.c(className), bytes);
+                misses.incrementAndGet();
+                store(owner, key, bytes, outline.getCodeHash(), bindings);
+                return klass;
+            }
+
+            if (outline.matches(stored, storedCodeHash)) {
+                try {
+                    Class<T> klass = classLoader.defineClass(CodegenUtils.c(className), stored);
+                    hits.incrementAndGet();
+                    return klass;
+                } catch (ClassFormatError error) {
+                    // discarded below
+                }
+            }
+
+            invalidate(key);
+            return null;
+        }
+
+        /**
+         * Gets how the values the stored class is constructed with are bound, so it can be defined without
+         * emitting its code.
+         *
+         * @return the bindings, or {@code null} if the class must be emitted to build the values.
+         */
+        String[] getBindings() {
+            return storedBindings;
+        }
+
+        /**
+         * Defines the stored class without emitting it, once its field values have been bound.
+         *
+         * @param interfaceClass the interface the class must implement.
+         * @param fieldCount the number of values the class is constructed with.
+         * @return the class, or {@code null} if the stored class does not implement the interface or has another
+         * number of fields, and was discarded, in which case the class must be generated again, without an entry.
+         */
+        <T> Class<T> defineBound(AsmClassLoader classLoader, Class<?> interfaceClass, int fieldCount) {
+            Outline other = Outline.read(stored);
+            if (other != null && other.implementsInterface(CodegenUtils.p(interfaceClass))
+                    && other.instanceFieldCount() == fieldCount) {
+                try {
+                    Class<T> klass = classLoader.defineClass(CodegenUtils.c(className), stored);
+                    hits.incrementAndGet();
+                    boundHits.incrementAndGet();
+                    return klass;
+                } catch (ClassFormatError error) {
+                    // discarded below
+                }
+            }
+
+            invalidate(key);
+            return null;
+        }
+    }
+
+    /**
+     * Records the outline of a class as it is visited, passing it on to another visitor if there is one.  The code
+     * of its methods is recorded as emitted, before a class writer removes unreachable code, so it is compared by
+     * its hash, which is stored with the class, rather than with the code of the stored class.
+     */
+    private static final class Outline extends ClassVisitor {
+        private final List<String> header = new ArrayList<String>();
+        private final List<String> fields = new ArrayList<String>();
+        private final List<String> methods = new ArrayList<String>();
+        private final List<String> interfaces = new ArrayList<String>();
+        private final StringBuilder code = new StringBuilder();
+        private int instanceFieldCount;
+
+        Outline(ClassVisitor cv) {
+            super(Opcodes.ASM4, cv);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            header.add(access + " " + name + " " + superName + " " + Arrays.toString(interfaces));
+            if (interfaces != null) {
+                this.interfaces.addAll(Arrays.asList(interfaces));
+            }
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            fields.add(access + " " + name + " " + desc + " " + value);
+            if ((access & Opcodes.ACC_STATIC) == 0) {
+                instanceFieldCount++;
+            }
+            return super.visitField(access, name, desc, signature, value);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            methods.add(access + " " + name + " " + desc);
+            code.append(name).append(desc).append('\n');
+
+            // without a class writer, the code is only recorded
+            return new CodeOutline(super.visitMethod(access, name, desc, signature, exceptions), code);
+        }
+
+        boolean matches(byte[] bytes, String storedCodeHash) {
+            Outline other = read(bytes);
+
+            return other != null
+                    && header.equals(other.header) && fields.equals(other.fields) && methods.equals(other.methods)
+                    && getCodeHash().equals(storedCodeHash);
+        }
+
+        String getCodeHash() {
+            return hash(toBytes(code.toString()));
+        }
+
+        boolean implementsInterface(String interfaceName) {
+            return interfaces.contains(interfaceName);
+        }
+
+        int instanceFieldCount() {
+            return instanceFieldCount;
+        }
+
+        /**
+         * Reads the outline of a stored class.
+         *
+         * @return the outline, or {@code null} if the class file is damaged.
+         */
+        static Outline read(byte[] bytes) {
+            Outline outline = new Outline(null);
+            try {
+                new ClassReader(bytes).accept(outline, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            } catch (RuntimeException ex) {
+                return null;
+            }
+
+            return outline;
+        }
+    }
+
+    /**
+     * Records the instructions of a method, with its labels numbered in the order they are first used.
+     */
+    private static final class CodeOutline extends MethodVisitor {
+        private final StringBuilder code;
+        private final Map<Label, Integer> labels = new HashMap<Label, Integer>();
+
+        CodeOutline(MethodVisitor mv, StringBuilder code) {
+            super(Opcodes.ASM5, mv);
+            this.code = code;
+        }
+
+        private void record(int opcode, Object... operands) {
+            code.append(opcode);
+            for (Object operand : operands) {
+                code.append(' ').append(operand instanceof Label ? label((Label) operand)
+                        : operand instanceof Object[] ? Arrays.deepToString((Object[]) operand)
+                        : operand instanceof int[] ? Arrays.toString((int[]) operand) : operand);
+            }
+            code.append('\n');
+        }
+
+        private String label(Label label) {
+            Integer index = labels.get(label);
+            if (index == null) {
+                labels.put(label, index = labels.size());
+            }
+
+            return "L" + index;
+        }
+
+        private String[] labels(Label[] labels) {
+            String[] names = new String[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                names[i] = label(labels[i]);
+            }
+
+            return names;
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            record(opcode);
+            super.visitInsn(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            record(opcode, operand);
+            super.visitIntInsn(opcode, operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            record(opcode, var);
+            super.visitVarInsn(opcode, var);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            record(opcode, type);
+            super.visitTypeInsn(opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+            record(opcode, owner, name, desc);
+            super.visitFieldInsn(opcode, owner, name, desc);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+            record(opcode, owner, name, desc, itf);
+            super.visitMethodInsn(opcode, owner, name, desc, itf);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+            record(Opcodes.INVOKEDYNAMIC, name, desc, bsm, bsmArgs);
+            super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            record(opcode, label);
+            super.visitJumpInsn(opcode, label);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            code.append(label(label)).append(":\n");
+            super.visitLabel(label);
+        }
+
+        @Override
+        public void visitLdcInsn(Object cst) {
+            record(Opcodes.LDC, cst.getClass().getName(), cst);
+            super.visitLdcInsn(cst);
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            record(Opcodes.IINC, var, increment);
+            super.visitIincInsn(var, increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            record(Opcodes.TABLESWITCH, min, max, dflt, labels(labels));
+            super.visitTableSwitchInsn(min, max, dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            record(Opcodes.LOOKUPSWITCH, dflt, keys, labels(labels));
+            super.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String desc, int dims) {
+            record(Opcodes.MULTIANEWARRAY, desc, dims);
+            super.visitMultiANewArrayInsn(desc, dims);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            code.append("try ").append(label(start)).append(' ').append(label(end)).append(' ')
+                    .append(label(handler)).append(' ').append(type).append('\n');
+            super.visitTryCatchBlock(start, end, handler, type);
+        }
+    }
+
+    /**
+     * Computes the key of a class.
+     *
+     * @return the key, or {@code null} if the class of {@code owner} cannot be read, or an input cannot be
+     * described.
+     */
+    static String key(Class<?> owner, String classNamePrefix, Object... inputs) {
+        String ownerHash = classHashes.get(owner);
+        if (ownerHash == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(VERSION).append('\n');
+        sb.append(System.getProperty("os.name")).append(' ').append(System.getProperty("os.arch")).append('\n');
+        for (String propertyName : CODEGEN_PROPERTIES) {
+            sb.append(propertyName).append('=').append(System.getProperty(propertyName)).append('\n');
+        }
+        sb.append(classNamePrefix).append(' ').append(owner.getName()).append(' ').append(ownerHash).append('\n');
+        for (Object input : inputs) {
+            if (!describe(sb, input)) {
+                return null;
+            }
+            sb.append('\n');
+        }
+
+        return hash(toBytes(sb.toString()));
+    }
+
+    /**
+     * Describes an input to the generated code.  Converters are identified by their class, as they are passed to
+     * the generated class when it is constructed, and other objects, such as type and function mappers, by their
+     * class and the values of their fields.
+     *
+     * @return {@code false} if the input is an object whose configuration cannot be described, such as a mapper
+     * of an application that holds state.
+     */
+    private static boolean describe(StringBuilder sb, Object input) {
+        if (input == null || input instanceof String || input instanceof Number || input instanceof Boolean
+                || input instanceof Character || input instanceof Enum || input instanceof Annotation) {
+            sb.append(input);
+
+        } else if (input instanceof Class) {
+            Class<?> klass = (Class<?>) input;
+            sb.append(klass.getName());
+            if (klass.getClassLoader() != null) {
+                sb.append(':').append(classHashes.get(klass));
+            }
+
+        } else if (input instanceof Map) {
+            Set<String> entries = new TreeSet<String>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) input).entrySet()) {
+                StringBuilder e = new StringBuilder();
+                if (!describe(e, entry.getKey()) || !describe(e.append('='), entry.getValue())) {
+                    return false;
+                }
+                entries.add(e.toString());
+            }
+            sb.append(entries);
+
+        } else if (input instanceof Collection || input instanceof Object[]) {
+            sb.append('[');
+            for (Object element : input instanceof Collection ? (Collection<?>) input : Arrays.asList((Object[]) input)) {
+                if (!describe(sb, element)) {
+                    return false;
+                }
+                sb.append(',');
+            }
+            sb.append(']');
+
+        } else if (input instanceof ToNativeConverter || input instanceof FromNativeConverter) {
+            describe(sb, input.getClass());
+
+        } else {
+            describe(sb, input.getClass());
+            return describeFields(sb, input);
+        }
+
+        return true;
+    }
+
+    /**
+     * Describes the fields of an object.  Only the mappers of jnr-ffi, which are immutable, are described by the
+     * values of their fields; any other object must have no fields at all.
+     */
+    private static boolean describeFields(StringBuilder sb, Object input) {
+        boolean immutable = input.getClass().getName().startsWith(MAPPER_PACKAGE);
+        sb.append('{');
+        for (Class<?> c = input.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers)) {
+                    continue;
+                }
+                if (!immutable || !Modifier.isFinal(modifiers)) {
+                    return false;
+                }
+                try {
+                    field.setAccessible(true);
+                    sb.append(field.getName()).append('=');
+                    if (!describe(sb, field.get(input))) {
+                        return false;
+                    }
+                    sb.append(',');
+                } catch (RuntimeException ex) {
+                    return false;
+                } catch (IllegalAccessException ex) {
+                    return false;
+                }
+            }
+        }
+        sb.append('}');
+
+        return true;
+    }
+
+    static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Reads a stored file of a class, such as {@code <key>.class}.
+     */
+    private static byte[] find(Class<?> owner, String name) {
+        String key = name.substring(0, name.indexOf('.'));
+        InputStream is = discarded.contains(key) ? null : getResourceAsStream(owner, name);
+        if (is == null) {
+            File file = getCacheFile(name);
+            if (file == null || !file.isFile()) {
+                return null;
+            }
+
+            try {
+                is = new FileInputStream(file);
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+
+        return read(is);
+    }
+
+    private static byte[] read(InputStream is) {
+        if (is == null) {
+            return null;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                bytes.write(buf, 0, n);
+            }
+
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            return null;
+        } finally {
+            close(is);
+        }
+    }
+
+    private static String toString(byte[] bytes) {
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static byte[] toBytes(String text) {
+        try {
+            return text.getBytes("UTF-8");
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static String[] readBindings(byte[] bytes) {
+        String text = toString(bytes);
+        return text.isEmpty() ? new String[0] : text.split("\n");
+    }
+
+    private static byte[] writeBindings(String[] bindings) {
+        StringBuilder sb = new StringBuilder();
+        for (String binding : bindings) {
+            sb.append(sb.length() > 0 ? "\n" : "").append(binding);
+        }
+
+        return toBytes(sb.toString());
+    }
+
+    private static void store(Class<?> owner, String key, byte[] bytes, String codeHash, String[] bindings) {
+        // the class is written last, so a class that is found has the files stored with it too
+        Map<String, byte[]> files = new LinkedHashMap<String, byte[]>();
+        files.put(key + ".code", toBytes(codeHash));
+        if (bindings != null) {
+            files.put(key + ".bindings", writeBindings(bindings));
+        }
+        files.put(key + ".class", bytes);
+
+        String output = getDirectory(OUTPUT_PROPERTY);
+        if (output != null) {
+            File dir = new File(output, PREFIX + owner.getName());
+            try {
+                for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                    write(dir, file.getKey(), file.getValue());
+                }
+                appendIndex(new File(dir, "index"), key);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        File dir = getCacheDirectory();
+        if (dir != null) {
+            try {
+                for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                    write(dir, file.getKey(), file.getValue());
+                }
+            } catch (IOException ex) {
+                // the cache is only an optimization, so carry on without it
+            }
+        }
+    }
+
+    private static void invalidate(String key) {
+        invalidations.incrementAndGet();
+        discarded.add(key);
+        File dir = getCacheDirectory();
+        if (dir != null) {
+            new File(dir, key + ".class").delete();
+            new File(dir, key + ".code").delete();
+            new File(dir, key + ".bindings").delete();
+        }
+    }
+
+    private static File getCacheDirectory() {
+        String cacheDir = getDirectory(CACHE_DIR_PROPERTY);
+        return cacheDir != null ? new File(cacheDir, VERSION) : null;
+    }
+
+    private static File getCacheFile(String name) {
+        File dir = getCacheDirectory();
+        return dir != null ? new File(dir, name) : null;
+    }
+
+    private static String getDirectory(String propertyName) {
+        String dir = System.getProperty(propertyName);
+        return dir != null && dir.length() > 0 ? dir : null;
+    }
+
+    private static String version(Class<?> klass) {
+        Package pkg = klass.getPackage();
+        String version = pkg != null ? pkg.getImplementationVersion() : null;
+        return version != null ? version : "unknown";
+    }
+
+    private static InputStream getClassResource(Class<?> klass) {
+        ClassLoader loader = klass.getClassLoader();
+        String path = klass.getName().replace('.', '/') + ".class";
+        return loader != null ? loader.getResourceAsStream(path) : ClassLoader.getSystemResourceAsStream(path);
+    }
+
+    private static URL getResource(Class<?> owner, String name) {
+        ClassLoader loader = owner.getClassLoader();
+        String path = PREFIX + owner.getName() + "/" + name;
+        return loader != null ? loader.getResource(path) : ClassLoader.getSystemResource(path);
+    }
+
+    private static InputStream getResourceAsStream(Class<?> owner, String name) {
+        ClassLoader loader = owner.getClassLoader();
+        String path = PREFIX + owner.getName() + "/" + name;
+        return loader != null ? loader.getResourceAsStream(path) : ClassLoader.getSystemResourceAsStream(path);
+    }
+
+    /**
+     * Writes a file by renaming a complete temporary file over it, so concurrent readers, including other
+     * processes sharing the directory, never see a partly written class.
+     */
+    private static void write(File dir, String name, byte[] bytes) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("could not create directory " + dir);
+        }
+
+        File tmp = File.createTempFile(name, ".tmp", dir);
+        try {
+            OutputStream os = new FileOutputStream(tmp);
+            try {
+                os.write(bytes);
+            } finally {
+                close(os);
+            }
+            Files.move(tmp.toPath(), new File(dir, name).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static synchronized void appendIndex(File file, String key) throws IOException {
+        OutputStream os = new FileOutputStream(file, true);
+        try {
+            os.write((key + "\n").getBytes("US-ASCII"));
+        } finally {
+            close(os);
+        }
+    }
+
+    private static void close(java.io.Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
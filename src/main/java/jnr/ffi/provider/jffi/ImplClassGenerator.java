@@ -0,0 +1,45 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.LibraryLoader;
+
+/**
+ * Generates library implementation classes at build time, so they do not have to be generated when the
+ * application starts.
+ * <p>
+ * Usage: {@code ImplClassGenerator <output directory> <interface>=<library>[,<library>...] ...}
+ * <p>
+ * Each interface is loaded with its libraries and the default options, and the generated classes are written
+ * under {@code META-INF/jnr-ffi} in the output directory, which should then be packaged with the interfaces.
+ * Interfaces that are loaded with custom options can be captured instead by running the application with the
+ * {@code jnr.ffi.pregenerated.output} system property set to the output directory.
+ * <p>
+ * Packaged classes are entries of the {@link GeneratedClassCache}, so they are only used when loading the interface
+ * gives the same key, e.g. on the same platform and with the same options.  A class whose functions only take and
+ * return primitive values is then defined as is, and loading the library only looks up its symbols; other classes
+ * are still emitted to build their converters, and only used when their fields and methods match.
+ */
+public final class ImplClassGenerator {
+    private ImplClassGenerator() {
+    }
+
+    public static void main(String[] args) throws ClassNotFoundException {
+        if (args.length < 2) {
+            System.err.println("usage: ImplClassGenerator <output directory> <interface>=<library>[,<library>...] ...");
+            System.exit(1);
+        }
+
+        System.setProperty(GeneratedClassCache.OUTPUT_PROPERTY, args[0]);
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            String interfaceName = eq >= 0 ? args[i].substring(0, eq) : args[i];
+            LibraryLoader<?> loader = LibraryLoader.create(Class.forName(interfaceName, false, classLoader));
+            if (eq >= 0) {
+                for (String libraryName : args[i].substring(eq + 1).split(",")) {
+                    loader.library(libraryName);
+                }
+            }
+            loader.failImmediately().load();
+        }
+    }
+}
@@ -48,7 +48,9 @@ import jnr.ffi.provider.converters.CharSequenceArrayParameterConverter;
 import jnr.ffi.provider.converters.CharSequenceParameterConverter;
 import jnr.ffi.provider.converters.EnumConverter;
 import jnr.ffi.provider.converters.EnumSetConverter;
+import jnr.ffi.provider.converters.InternedCharSequenceParameterConverter;
 import jnr.ffi.provider.converters.Long32ArrayParameterConverter;
+import jnr.ffi.provider.converters.NativeArrayParameterConverter;
 import jnr.ffi.provider.converters.NativeLong32ArrayParameterConverter;
 import jnr.ffi.provider.converters.NativeLong64ArrayParameterConverter;
 import jnr.ffi.provider.converters.NativeLongConverter;
@@ -59,6 +61,7 @@ import jnr.ffi.provider.converters.StringBuilderParameterConverter;
 import jnr.ffi.provider.converters.StringResultConverter;
 import jnr.ffi.provider.converters.StructArrayParameterConverter;
 import jnr.ffi.provider.converters.StructByReferenceToNativeConverter;
+import jnr.ffi.util.NativeArray;
 
 import java.lang.reflect.Method;
 import java.util.EnumSet;
@@ -82,7 +85,8 @@ final class InvokerTypeMapper extends AbstractSignatureTypeMapper implements Sig
         if (Enum.class.isAssignableFrom(signatureType.getDeclaredType())) {
             return EnumConverter.getInstance(signatureType.getDeclaredType().asSubclass(Enum.class));
 
-        } else if (Struct.class.isAssignableFrom(signatureType.getDeclaredType())) {
+        } else if (Struct.class.isAssignableFrom(signatureType.getDeclaredType())
+                && !StructByValue.isByValue(signatureType.getDeclaredType(), fromNativeContext.getAnnotations())) {
             return structResultConverterFactory.get(signatureType.getDeclaredType().asSubclass(Struct.class), fromNativeContext);
 
         } else if (closureManager != null && isDelegate(signatureType.getDeclaredType())) {
@@ -119,9 +123,12 @@ final class InvokerTypeMapper extends AbstractSignatureTypeMapper implements Sig
         } else if (ByReference.class.isAssignableFrom(javaType)) {
             return ByReferenceParameterConverter.getInstance(context);
 
-        } else if (Struct.class.isAssignableFrom(javaType)) {
+        } else if (Struct.class.isAssignableFrom(javaType) && !StructByValue.isByValue(javaType, context.getAnnotations())) {
             return StructByReferenceToNativeConverter.getInstance(context);
 
+        } else if (NativeArray.class.isAssignableFrom(javaType)) {
+            return NativeArrayParameterConverter.getInstance(context);
+
         } else if (NativeLong.class.isAssignableFrom(javaType)) {
             return NativeLongConverter.getInstance();
 
@@ -131,6 +138,9 @@ final class InvokerTypeMapper extends AbstractSignatureTypeMapper implements Sig
         } else if (StringBuffer.class.isAssignableFrom(javaType)) {
             return StringBufferParameterConverter.getInstance(ParameterFlags.parse(context.getAnnotations()), context);
 
+        } else if (CharSequence.class.isAssignableFrom(javaType) && InternedCharSequenceParameterConverter.isInterned(context)) {
+            return InternedCharSequenceParameterConverter.getInstance(context);
+
         } else if (CharSequence.class.isAssignableFrom(javaType)) {
             return CharSequenceParameterConverter.getInstance(context);
 
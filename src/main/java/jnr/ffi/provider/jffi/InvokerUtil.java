@@ -24,6 +24,7 @@ import com.kenai.jffi.Type;
 import jnr.ffi.CallingConvention;
 import jnr.ffi.LibraryOption;
 import jnr.ffi.NativeType;
+import jnr.ffi.annotations.Pinned;
 import jnr.ffi.annotations.StdCall;
 import jnr.ffi.mapper.DefaultSignatureType;
 import jnr.ffi.mapper.FromNativeContext;
@@ -36,6 +37,7 @@ import jnr.ffi.mapper.ToNativeConverter;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.ffi.provider.SigType;
+import jnr.ffi.util.AnnotationProxy;
 import jnr.ffi.util.Annotations;
 
 import java.lang.annotation.Annotation;
@@ -116,6 +118,12 @@ final class InvokerUtil {
         throw new IllegalArgumentException("unsupported parameter type: " + jnrType);
     }
 
+    static Type jffiType(SigType type) {
+        return type.getNativeType() == NativeType.STRUCT
+                ? StructByValue.getInstance(type.effectiveJavaType()).getJffiType()
+                : jffiType(type.getNativeType());
+    }
+
     static NativeType nativeType(jnr.ffi.Type jnrType) {
         return jnrType.getNativeType();
     }
@@ -165,8 +173,20 @@ final class InvokerUtil {
         return new ParameterType(type, nativeType, annotations, toNativeConverter, toNativeContext);
     }
 
+    private static final Collection<Annotation> CRITICAL_PARAMETER_ANNOTATIONS
+            = Collections.<Annotation>singletonList(AnnotationProxy.newProxy(Pinned.class).getProxedAnnotation());
+
     static ParameterType[] getParameterTypes(jnr.ffi.Runtime runtime, SignatureTypeMapper typeMapper,
                                              Method m) {
+        return getParameterTypes(runtime, typeMapper, m, false);
+    }
+
+    /**
+     * Gets the parameter types of a method.  The array and heap buffer parameters of a critical function are
+     * pinned instead of copied, as the call is known to be short.
+     */
+    static ParameterType[] getParameterTypes(jnr.ffi.Runtime runtime, SignatureTypeMapper typeMapper,
+                                             Method m, boolean critical) {
         final Class[] javaParameterTypes = m.getParameterTypes();
         final Annotation[][] parameterAnnotations = m.getParameterAnnotations();
         ParameterType[] parameterTypes = new ParameterType[javaParameterTypes.length];
@@ -179,6 +199,9 @@ final class InvokerUtil {
             ToNativeConverter toNativeConverter = toNativeType != null ? toNativeType.getToNativeConverter() : null;
             Collection<Annotation> converterAnnotations = ConverterMetaData.getAnnotations(toNativeConverter);
             Collection<Annotation> allAnnotations = Annotations.mergeAnnotations(annotations, converterAnnotations);
+            if (critical) {
+                allAnnotations = Annotations.mergeAnnotations(allAnnotations, CRITICAL_PARAMETER_ANNOTATIONS);
+            }
 
             boolean contextRequired = toNativeConverter != null && !hasAnnotation(converterAnnotations, ToNativeConverter.NoContext.class);
             parameterTypes[pidx] = getParameterType(runtime, javaParameterTypes[pidx],
@@ -200,11 +223,11 @@ final class InvokerUtil {
         com.kenai.jffi.Type[] nativeParamTypes = new com.kenai.jffi.Type[paramTypesLength];
 
         for (int i = 0; i < nativeParamTypes.length; ++i) {
-            nativeParamTypes[i] = jffiType(parameterTypes[i].getNativeType());
+            nativeParamTypes[i] = jffiType(parameterTypes[i]);
         }
 
         return CallContextCache.getInstance().getCallContext(
-                jffiType(resultType.getNativeType()),
+                jffiType(resultType),
                 fixedParamCount,
                 nativeParamTypes,
                 jffiConvention(convention),
@@ -222,11 +245,13 @@ final class InvokerUtil {
 
     
     static NativeType getMethodParameterNativeType(jnr.ffi.Runtime runtime, Class parameterClass, Collection<Annotation> annotations) {
-        return Types.getType(runtime, parameterClass, annotations).getNativeType();
+        return StructByValue.isByValue(parameterClass, annotations)
+                ? NativeType.STRUCT : Types.getType(runtime, parameterClass, annotations).getNativeType();
     }
 
     static NativeType getMethodResultNativeType(jnr.ffi.Runtime runtime, Class resultClass, Collection<Annotation> annotations) {
-        return Types.getType(runtime, resultClass, annotations).getNativeType();
+        return StructByValue.isByValue(resultClass, annotations)
+                ? NativeType.STRUCT : Types.getType(runtime, resultClass, annotations).getNativeType();
     }
     
     public static final com.kenai.jffi.CallingConvention jffiConvention(jnr.ffi.CallingConvention callingConvention) {
@@ -0,0 +1,123 @@
+package jnr.ffi.provider.jffi;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static jnr.ffi.provider.jffi.CodegenUtils.ci;
+import static jnr.ffi.provider.jffi.CodegenUtils.p;
+import static jnr.ffi.provider.jffi.CodegenUtils.sig;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.H_INVOKESTATIC;
+
+/**
+ * Links the methods of a library implementation to their call paths the first time they are called.
+ * <p>
+ * Each such method is an {@code invokedynamic} call site which is bootstrapped by {@link #bootstrap}.  The
+ * bootstrap asks the {@code LazyBinding} of the implementation class for the method handle of the method, and
+ * links the call site to it permanently, so later calls go straight to the handle and can be inlined.  The binding
+ * is held in a private static final field of the class, which its static initializer sets once.
+ */
+public abstract class LazyBinding {
+    /** The name of the static field of the implementation class that holds its {@code LazyBinding} */
+    private static final String FIELD_NAME = "jnr$lazyBinding";
+
+    /** Bindings being handed over to the static initializers of their implementation classes */
+    private static final ConcurrentMap<Class, LazyBinding> pending = new ConcurrentHashMap<Class, LazyBinding>();
+
+    /**
+     * Creates the call path of a method.
+     *
+     * @param index the index the method was generated with.
+     * @return a handle with the same type as the method, not including the receiver.
+     */
+    abstract MethodHandle bind(int index) throws Exception;
+
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, int index) throws Throwable {
+        LazyBinding binding = (LazyBinding) lookup.findStaticGetter(lookup.lookupClass(), FIELD_NAME, LazyBinding.class).invoke();
+
+        return new ConstantCallSite(binding.bind(index).asType(type));
+    }
+
+    /**
+     * Adds the field that holds the binding to an implementation class, and the static initializer that sets it.
+     */
+    static void generateField(ClassVisitor cv, String className) {
+        cv.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, FIELD_NAME, ci(LazyBinding.class), null, null);
+
+        SkinnyMethodAdapter clinit = new SkinnyMethodAdapter(cv, ACC_STATIC, "<clinit>", sig(void.class), null, null);
+        clinit.start();
+        clinit.ldc(Type.getObjectType(className));
+        clinit.invokestatic(LazyBinding.class, "claim", LazyBinding.class, Class.class);
+        clinit.putstatic(className, FIELD_NAME, ci(LazyBinding.class));
+        clinit.voidreturn();
+        clinit.visitMaxs(1, 0);
+        clinit.visitEnd();
+    }
+
+    /**
+     * Sets the binding of an implementation class, by initializing the class before any of its methods are called.
+     */
+    static void install(Class implClass, LazyBinding binding) throws ClassNotFoundException {
+        pending.put(implClass, binding);
+        LazyBinding unclaimed;
+        try {
+            Class.forName(implClass.getName(), true, implClass.getClassLoader());
+        } finally {
+            unclaimed = pending.remove(implClass);
+        }
+        if (unclaimed != null) {
+            throw new IllegalStateException(implClass.getName() + " was initialized before its binding was installed");
+        }
+    }
+
+    /**
+     * Takes the binding of an implementation class.  This is only called by the static initializer of the class.
+     *
+     * @param implClass the implementation class.
+     * @return the binding passed to {@link #install}.
+     */
+    public static LazyBinding claim(Class implClass) {
+        LazyBinding binding = pending.remove(implClass);
+        if (binding == null) {
+            throw new IllegalStateException("no binding installed for " + implClass.getName());
+        }
+
+        return binding;
+    }
+
+    /**
+     * Generates a method that calls its handle through an {@code invokedynamic} call site.
+     */
+    static void generateInvocation(ClassVisitor cv, Method m, int index) {
+        Class[] parameterTypes = m.getParameterTypes();
+        SkinnyMethodAdapter mv = new SkinnyMethodAdapter(cv, ACC_PUBLIC | ACC_FINAL,
+                m.getName(), sig(m.getReturnType(), parameterTypes), null, null);
+        mv.start();
+
+        LocalVariable[] parameters = AsmUtil.getParameterVariables(parameterTypes);
+        for (int i = 0; i < parameterTypes.length; i++) {
+            AsmUtil.load(mv, parameterTypes[i], parameters[i]);
+        }
+
+        mv.getMethodVisitor().visitInvokeDynamicInsn(m.getName(), sig(m.getReturnType(), parameterTypes),
+                new Handle(H_INVOKESTATIC, p(LazyBinding.class), "bootstrap",
+                        sig(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false),
+                index);
+        AsmUtil.emitReturnOp(mv, m.getReturnType());
+        mv.visitMaxs(100, AsmUtil.calculateLocalVariableSpace(parameterTypes) + 1);
+        mv.visitEnd();
+    }
+}
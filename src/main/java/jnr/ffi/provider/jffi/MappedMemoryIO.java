@@ -0,0 +1,624 @@
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.PageManager;
+import jnr.ffi.Address;
+import jnr.ffi.LastError;
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.MappedMemory;
+import jnr.ffi.Platform;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.provider.AbstractMemoryIO;
+import jnr.ffi.provider.DelegatingMemoryIO;
+import jnr.ffi.types.intptr_t;
+import jnr.ffi.types.off_t;
+import jnr.ffi.types.size_t;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A region of a file mapped into memory with {@code mmap}.  Every access is checked against the bounds of the
+ * region and fails with {@link IllegalStateException} once it has been closed, as the memory is then unmapped.
+ */
+final class MappedMemoryIO extends AbstractMemoryIO implements MappedMemory, DelegatingMemoryIO {
+    private static final int PROT_READ = 0x1, PROT_WRITE = 0x2;
+    private static final int MAP_SHARED = 0x1, MAP_PRIVATE = 0x2;
+    private static final int O_RDONLY = 0x0, O_RDWR = 0x2;
+    private static final long MAP_FAILED = -1L;
+
+    private final DirectMemoryIO io;
+    private final long size;
+    private final long mapping;
+    private final Unmap unmap;
+    private volatile boolean closed;
+
+    private MappedMemoryIO(Runtime runtime, long address, long size, long mapping, long mappingLength) {
+        super(runtime, address, true);
+        this.io = new DirectMemoryIO(runtime, address);
+        this.size = size;
+        this.mapping = mapping;
+        this.unmap = new Unmap(this, mapping, mappingLength);
+    }
+
+    static MappedMemory map(Runtime runtime, Path path, long offset, long length, FileChannel.MapMode mode)
+            throws IOException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("negative offset: " + offset);
+        }
+        if (length <= 0) {
+            throw new IllegalArgumentException("invalid length: " + length);
+        }
+        LibC libc = getLibC();
+
+        if (mode == FileChannel.MapMode.READ_WRITE) {
+            RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+            try {
+                if (file.length() < offset + length) {
+                    file.setLength(offset + length);
+                }
+            } finally {
+                file.close();
+            }
+
+        } else if (Files.size(path) < offset + length) {
+            // Accessing pages past the end of the file would crash the VM
+            throw new IOException("region " + offset + "+" + length + " is past the end of " + path);
+        }
+
+        // mmap only maps whole pages, so the mapping starts at the page containing the offset
+        long pageSize = PageManager.getInstance().pageSize();
+        long mappingOffset = offset - (offset % pageSize);
+        long mappingLength = length + (offset - mappingOffset);
+
+        int fd = libc.open(path.toString(), mode == FileChannel.MapMode.READ_WRITE ? O_RDWR : O_RDONLY);
+        if (fd < 0) {
+            throw new IOException("cannot open " + path + ": " + libc.strerror(LastError.getLastError(runtime)));
+        }
+
+        long mapping;
+        int error;
+        try {
+            mapping = libc.mmap(0L, mappingLength,
+                    mode == FileChannel.MapMode.READ_ONLY ? PROT_READ : PROT_READ | PROT_WRITE,
+                    mode == FileChannel.MapMode.PRIVATE ? MAP_PRIVATE : MAP_SHARED, fd, mappingOffset);
+            error = LastError.getLastError(runtime);
+        } finally {
+            // The mapping keeps its own reference to the file
+            libc.close(fd);
+        }
+
+        if (mapping == MAP_FAILED) {
+            throw new IOException("cannot map " + path + ": " + libc.strerror(error));
+        }
+
+        return new MappedMemoryIO(runtime, mapping + (offset - mappingOffset), length, mapping, mappingLength);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void checkBounds(long offset, long length) {
+        checkRange(offset, length);
+    }
+
+    public Pointer getPointer() {
+        return this;
+    }
+
+    public Pointer getDelegatedMemoryIO() {
+        return io;
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public Object array() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public int arrayOffset() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public int arrayLength() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public int hashCode() {
+        return io.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return io.equals(obj);
+    }
+
+    @Override
+    public byte getByte(long offset) {
+        checkRange(offset, 1);
+        return io.getByte(offset);
+    }
+
+    @Override
+    public short getShort(long offset) {
+        checkRange(offset, 2);
+        return io.getShort(offset);
+    }
+
+    @Override
+    public int getInt(long offset) {
+        checkRange(offset, 4);
+        return io.getInt(offset);
+    }
+
+    @Override
+    public long getLongLong(long offset) {
+        checkRange(offset, 8);
+        return io.getLongLong(offset);
+    }
+
+    @Override
+    public float getFloat(long offset) {
+        checkRange(offset, 4);
+        return io.getFloat(offset);
+    }
+
+    @Override
+    public double getDouble(long offset) {
+        checkRange(offset, 8);
+        return io.getDouble(offset);
+    }
+
+    @Override
+    public void putByte(long offset, byte value) {
+        checkRange(offset, 1);
+        io.putByte(offset, value);
+    }
+
+    @Override
+    public void putShort(long offset, short value) {
+        checkRange(offset, 2);
+        io.putShort(offset, value);
+    }
+
+    @Override
+    public void putInt(long offset, int value) {
+        checkRange(offset, 4);
+        io.putInt(offset, value);
+    }
+
+    @Override
+    public void putLongLong(long offset, long value) {
+        checkRange(offset, 8);
+        io.putLongLong(offset, value);
+    }
+
+    @Override
+    public void putFloat(long offset, float value) {
+        checkRange(offset, 4);
+        io.putFloat(offset, value);
+    }
+
+    @Override
+    public void putDouble(long offset, double value) {
+        checkRange(offset, 8);
+        io.putDouble(offset, value);
+    }
+
+    @Override
+    public void get(long offset, byte[] dst, int off, int len) {
+        checkRange(offset, len);
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, byte[] src, int off, int len) {
+        checkRange(offset, len);
+        io.put(offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, short[] dst, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Short.SIZE / 8));
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, short[] src, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Short.SIZE / 8));
+        io.put(offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, int[] dst, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Integer.SIZE / 8));
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, int[] src, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Integer.SIZE / 8));
+        io.put(offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, long[] dst, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Long.SIZE / 8));
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, long[] src, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Long.SIZE / 8));
+        io.put(offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, float[] dst, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Float.SIZE / 8));
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, float[] src, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Float.SIZE / 8));
+        io.put(offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, double[] dst, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Double.SIZE / 8));
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, double[] src, int off, int len) {
+        checkRange(offset, Math.multiplyExact(len, Double.SIZE / 8));
+        io.put(offset, src, off, len);
+    }
+
+    @Override
+    public Pointer getPointer(long offset) {
+        checkRange(offset, getRuntime().addressSize());
+        return io.getPointer(offset);
+    }
+
+    @Override
+    public Pointer getPointer(long offset, long size) {
+        checkRange(offset, getRuntime().addressSize());
+        return io.getPointer(offset, size);
+    }
+
+    @Override
+    public void putPointer(long offset, Pointer value) {
+        checkRange(offset, getRuntime().addressSize());
+        io.putPointer(offset, value);
+    }
+
+    @Override
+    public long getAddress(long offset) {
+        checkRange(offset, getRuntime().addressSize());
+        return io.getAddress(offset);
+    }
+
+    @Override
+    public void putAddress(long offset, long value) {
+        checkRange(offset, getRuntime().addressSize());
+        io.putAddress(offset, value);
+    }
+
+    @Override
+    public void putAddress(long offset, Address value) {
+        checkRange(offset, getRuntime().addressSize());
+        io.putAddress(offset, value);
+    }
+
+    @Override
+    public String getString(long offset) {
+        return getString(offset, remaining(offset), Charset.defaultCharset());
+    }
+
+    @Override
+    public String getString(long offset, int maxLength, Charset cs) {
+        checkRange(offset, Math.min(maxLength, remaining(offset)));
+        return io.getString(offset, Math.min(maxLength, remaining(offset)), cs);
+    }
+
+    @Override
+    public void putString(long offset, String string, int maxLength, Charset cs) {
+        checkRange(offset, maxLength);
+        io.putString(offset, string, maxLength, cs);
+    }
+
+    @Override
+    public int indexOf(long offset, byte value) {
+        return indexOf(offset, value, remaining(offset));
+    }
+
+    @Override
+    public int indexOf(long offset, byte value, int maxlen) {
+        checkRange(offset, Math.min(maxlen, remaining(offset)));
+        return io.indexOf(offset, value, Math.min(maxlen, remaining(offset)));
+    }
+
+    @Override
+    public void setMemory(long offset, long size, byte value) {
+        checkRange(offset, size);
+        io.setMemory(offset, size, value);
+    }
+
+    @Override
+    public long indexOf(long offset, long length, byte[] pattern) {
+        checkRange(offset, length);
+        return io.indexOf(offset, length, pattern);
+    }
+
+    @Override
+    public long mismatch(long offset, Pointer other, long otherOffset, long length) {
+        checkRange(offset, length);
+        return io.mismatch(offset, other, otherOffset, length);
+    }
+
+    @Override
+    public long hash(long offset, long length) {
+        checkRange(offset, length);
+        return io.hash(offset, length);
+    }
+
+    @Override
+    public void fill(long offset, long size, long pattern) {
+        checkRange(offset, size);
+        io.fill(offset, size, pattern);
+    }
+
+    @Override
+    public void transferTo(long offset, Pointer other, long otherOffset, long count) {
+        checkRange(offset, count);
+        io.transferTo(offset, other, otherOffset, count);
+    }
+
+    @Override
+    public void transferFrom(long offset, Pointer other, long otherOffset, long count) {
+        checkRange(offset, count);
+        io.transferFrom(offset, other, otherOffset, count);
+    }
+
+    @Override
+    public void transferToSwapped(long offset, Pointer dst, long dstOffset, long count, int elementSize) {
+        checkRange(offset, count);
+        io.transferToSwapped(offset, dst, dstOffset, count, elementSize);
+    }
+
+    @Override
+    public int getIntVolatile(long offset) {
+        checkRange(offset, 4);
+        return io.getIntVolatile(offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        checkRange(offset, 4);
+        io.putIntVolatile(offset, value);
+    }
+
+    @Override
+    public int getIntAcquire(long offset) {
+        checkRange(offset, 4);
+        return io.getIntAcquire(offset);
+    }
+
+    @Override
+    public void putIntRelease(long offset, int value) {
+        checkRange(offset, 4);
+        io.putIntRelease(offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetInt(long offset, int expected, int value) {
+        checkRange(offset, 4);
+        return io.compareAndSetInt(offset, expected, value);
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        checkRange(offset, 4);
+        return io.getAndAddInt(offset, delta);
+    }
+
+    @Override
+    public int getAndSetInt(long offset, int value) {
+        checkRange(offset, 4);
+        return io.getAndSetInt(offset, value);
+    }
+
+    @Override
+    public long getLongLongVolatile(long offset) {
+        checkRange(offset, 8);
+        return io.getLongLongVolatile(offset);
+    }
+
+    @Override
+    public void putLongLongVolatile(long offset, long value) {
+        checkRange(offset, 8);
+        io.putLongLongVolatile(offset, value);
+    }
+
+    @Override
+    public long getLongLongAcquire(long offset) {
+        checkRange(offset, 8);
+        return io.getLongLongAcquire(offset);
+    }
+
+    @Override
+    public void putLongLongRelease(long offset, long value) {
+        checkRange(offset, 8);
+        io.putLongLongRelease(offset, value);
+    }
+
+    @Override
+    public boolean compareAndSetLongLong(long offset, long expected, long value) {
+        checkRange(offset, 8);
+        return io.compareAndSetLongLong(offset, expected, value);
+    }
+
+    @Override
+    public long getAndAddLongLong(long offset, long delta) {
+        checkRange(offset, 8);
+        return io.getAndAddLongLong(offset, delta);
+    }
+
+    @Override
+    public long getAndSetLongLong(long offset, long value) {
+        checkRange(offset, 8);
+        return io.getAndSetLongLong(offset, value);
+    }
+
+    public void force() {
+        force(0, size);
+    }
+
+    public void force(long offset, long length) {
+        checkRange(offset, length);
+        long start = pageStart(offset);
+        if (getLibC().msync(start, address() + offset + length - start, getSyncFlag()) != 0) {
+            throw new UncheckedIOException(new IOException("msync failed: "
+                    + getLibC().strerror(LastError.getLastError(getRuntime()))));
+        }
+    }
+
+    public boolean advise(Advice advice) {
+        return advise(advice, 0, size);
+    }
+
+    public boolean advise(Advice advice, long offset, long length) {
+        checkRange(offset, length);
+        int value = getAdviceValue(advice);
+        if (value < 0) {
+            return false;
+        }
+
+        long start = pageStart(offset);
+        return getLibC().madvise(start, address() + offset + length - start, value) == 0;
+    }
+
+    public void prefetch(long offset, long length) {
+        advise(Advice.WILL_NEED, offset, length);
+    }
+
+    public void close() {
+        closed = true;
+        unmap.dispose();
+    }
+
+    private void checkRange(long offset, long length) {
+        if (closed) {
+            throw new IllegalStateException("mapping is closed");
+        }
+        checkBounds(size, offset, length);
+    }
+
+    /**
+     * Gets the number of bytes from an offset to the end of the region, as the limit of a string or search.
+     */
+    private int remaining(long offset) {
+        return (int) Math.max(0, Math.min(size - offset, Integer.MAX_VALUE - 1));
+    }
+
+    /**
+     * Gets the start of the page containing an offset, as msync and madvise only take page aligned addresses.
+     */
+    private long pageStart(long offset) {
+        long address = address() + offset;
+        return address - ((address - mapping) % PageManager.getInstance().pageSize());
+    }
+
+    private static int getAdviceValue(Advice advice) {
+        switch (advice) {
+            case NORMAL:
+                return 0;
+            case RANDOM:
+                return 1;
+            case SEQUENTIAL:
+                return 2;
+            case WILL_NEED:
+                return 3;
+            case DONT_NEED:
+                return 4;
+            case HUGE_PAGE:
+                return Platform.getNativePlatform().getOS() == Platform.OS.LINUX ? 14 : -1;
+            default:
+                return -1;
+        }
+    }
+
+    private static int getSyncFlag() {
+        switch (Platform.getNativePlatform().getOS()) {
+            case DARWIN:
+                return 0x10;
+            case FREEBSD:
+            case DRAGONFLY:
+            case MIDNIGHTBSD:
+                return 0x0;
+            case OPENBSD:
+                return 0x2;
+            default:
+                return 0x4;
+        }
+    }
+
+    private static LibC getLibC() {
+        if (Platform.getNativePlatform().getOS() == Platform.OS.WINDOWS) {
+            throw new UnsupportedOperationException("memory mapped files are not supported on Windows");
+        }
+
+        return SingletonHolder.INSTANCE;
+    }
+
+    private static final class SingletonHolder {
+        static final LibC INSTANCE = LibraryLoader.create(LibC.class)
+                .load(Platform.getNativePlatform().getStandardCLibraryName());
+    }
+
+    @NoTrace
+    public static interface LibC {
+        int open(String path, int flags);
+        int close(int fd);
+        @intptr_t long mmap(@intptr_t long addr, @size_t long length, int prot, int flags, int fd, @off_t long offset);
+        int munmap(@intptr_t long addr, @size_t long length);
+        int msync(@intptr_t long addr, @size_t long length, int flags);
+        int madvise(@intptr_t long addr, @size_t long length, int advice);
+        String strerror(int error);
+    }
+
+    /**
+     * Unmaps the memory once it has been closed, or once its {@code MappedMemoryIO} has been collected.
+     * This must not hold a reference to the {@code MappedMemoryIO} itself.
+     */
+    private static final class Unmap extends NativeMemoryCleaner.Cleanup<MappedMemoryIO> {
+        private final long mapping;
+
+        Unmap(MappedMemoryIO memory, long mapping, long length) {
+            super(memory, length);
+            this.mapping = mapping;
+        }
+
+        protected void free(boolean reclaimed) {
+            getLibC().munmap(mapping, size);
+        }
+    }
+}
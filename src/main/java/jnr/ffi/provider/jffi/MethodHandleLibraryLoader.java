@@ -0,0 +1,493 @@
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.CallContext;
+import jnr.ffi.CallingConvention;
+import jnr.ffi.LibraryOption;
+import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
+import jnr.ffi.Variable;
+import jnr.ffi.annotations.Synchronized;
+import jnr.ffi.annotations.Variadic;
+import jnr.ffi.mapper.CompositeTypeMapper;
+import jnr.ffi.mapper.DefaultSignatureType;
+import jnr.ffi.mapper.FromNativeContext;
+import jnr.ffi.mapper.FromNativeConverter;
+import jnr.ffi.mapper.FunctionMapper;
+import jnr.ffi.mapper.MethodResultContext;
+import jnr.ffi.mapper.SignatureType;
+import jnr.ffi.mapper.SignatureTypeMapper;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+import jnr.ffi.provider.IdentityFunctionMapper;
+import jnr.ffi.provider.InterfaceScanner;
+import jnr.ffi.provider.Invoker;
+import jnr.ffi.provider.NativeFunction;
+import jnr.ffi.provider.NativeVariable;
+import jnr.ffi.provider.ParameterType;
+import jnr.ffi.provider.ResultType;
+import org.objectweb.asm.ClassWriter;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jnr.ffi.provider.jffi.CodegenUtils.p;
+import static jnr.ffi.provider.jffi.CodegenUtils.sig;
+import static jnr.ffi.provider.jffi.InvokerUtil.getCallContext;
+import static jnr.ffi.provider.jffi.InvokerUtil.getCallingConvention;
+import static jnr.ffi.provider.jffi.InvokerUtil.getParameterTypes;
+import static jnr.ffi.provider.jffi.InvokerUtil.getResultType;
+import static jnr.ffi.provider.jffi.NumberUtil.sizeof;
+import static jnr.ffi.util.Annotations.sortedAnnotationCollection;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+/**
+ * Binds each method of a library interface to a chain of method handles, selected by setting the
+ * {@code jnr.ffi.methodhandle.enabled} system property.
+ * <p>
+ * The implementation class only contains an {@code invokedynamic} call site per method, so it is much cheaper to
+ * generate than the classes of {@link AsmLibraryLoader}.  Each call site is linked by {@link LazyBinding} on its
+ * first call.  Functions with only numeric, boolean and direct pointer parameters are linked to the jffi
+ * {@code invokeN} methods, with the type mapper converters applied as argument and return value filters, so the
+ * JIT can inline the whole call path.  On JDK 22 or later those functions can use the JDK's own downcalls instead,
+ * see {@link ForeignLinker}.  Anything else is linked to the same {@link Invoker} the reflection loader would use.
+ */
+final class MethodHandleLibraryLoader extends LibraryLoader {
+    private static final int MAX_PARAMETERS = FastNumericMethodGenerator.getMaximumParameters();
+    private static final AtomicLong nextClassID = new AtomicLong(0);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle INVOKE, TO_NATIVE, FROM_NATIVE, POINTER_VALUE, IS_DIRECT, ADDRESS_VALUE;
+    private static final MethodHandle[] INVOKE_N = new MethodHandle[MAX_PARAMETERS + 1];
+    static {
+        try {
+            INVOKE = LOOKUP.findVirtual(Invoker.class, "invoke", MethodType.methodType(Object.class, Object.class, Object[].class));
+            TO_NATIVE = LOOKUP.findVirtual(ToNativeConverter.class, "toNative",
+                    MethodType.methodType(Object.class, Object.class, ToNativeContext.class));
+            FROM_NATIVE = LOOKUP.findVirtual(FromNativeConverter.class, "fromNative",
+                    MethodType.methodType(Object.class, Object.class, FromNativeContext.class));
+            POINTER_VALUE = LOOKUP.findStatic(AsmRuntime.class, "pointerValue",
+                    MethodType.methodType(Pointer.class, long.class, jnr.ffi.Runtime.class));
+            IS_DIRECT = LOOKUP.findStatic(MethodHandleLibraryLoader.class, "isDirect", MethodType.methodType(boolean.class, Pointer.class));
+            ADDRESS_VALUE = LOOKUP.findStatic(MethodHandleLibraryLoader.class, "addressValue", MethodType.methodType(long.class, Pointer.class));
+            for (int i = 0; i < INVOKE_N.length; i++) {
+                Class[] parameterTypes = new Class[i + 2];
+                parameterTypes[0] = CallContext.class;
+                for (int n = 1; n < parameterTypes.length; n++) {
+                    parameterTypes[n] = long.class;
+                }
+                INVOKE_N[i] = LOOKUP.findVirtual(com.kenai.jffi.Invoker.class, "invokeN" + i,
+                        MethodType.methodType(long.class, parameterTypes)).bindTo(com.kenai.jffi.Invoker.getInstance());
+            }
+        } catch (ReflectiveOperationException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static final boolean FOREIGN_ENABLED = Util.getBooleanProperty("jnr.ffi.foreign.enabled", false);
+
+    private final NativeRuntime runtime = NativeRuntime.getInstance();
+    private final boolean foreign;
+
+    MethodHandleLibraryLoader() {
+        this(FOREIGN_ENABLED);
+    }
+
+    /**
+     * @param foreign whether functions are linked with {@link ForeignLinker} when the JDK supports it, whatever the
+     *                {@code jnr.ffi.foreign.enabled} system property is set to.
+     */
+    MethodHandleLibraryLoader(boolean foreign) {
+        this.foreign = foreign;
+    }
+
+    @Override
+    <T> T loadLibrary(NativeLibrary library, Class<T> interfaceClass, Map<LibraryOption, ?> libraryOptions,
+                      boolean failImmediately) {
+        AsmClassLoader classLoader = new AsmClassLoader(interfaceClass.getClassLoader());
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        String className = p(interfaceClass) + "$jnr$ffi$mh$" + nextClassID.getAndIncrement();
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL, className, null, p(AbstractAsmLibraryInterface.class),
+                new String[]{ p(interfaceClass) });
+
+        SignatureTypeMapper typeMapper = getSignatureTypeMapper(libraryOptions);
+        CompositeTypeMapper closureTypeMapper = newClosureTypeMapper(classLoader, typeMapper);
+        typeMapper = newCompositeTypeMapper(runtime, classLoader, typeMapper, closureTypeMapper);
+        CallingConvention libraryCallingConvention = getCallingConvention(interfaceClass, libraryOptions);
+        InterfaceScanner scanner = new InterfaceScanner(interfaceClass, typeMapper, libraryCallingConvention);
+        FunctionMapper functionMapper = getFunctionMapper(libraryOptions);
+
+        List<Method> methods = new ArrayList<Method>();
+        List<NativeFunction> functions = new ArrayList<NativeFunction>();
+        for (NativeFunction function : scanner.functions()) {
+            Method method = function.getMethod();
+            if (method.getName().equals("getRuntime") && method.getParameterTypes().length == 0
+                    && method.getReturnType().isAssignableFrom(NativeRuntime.class)) {
+                // implemented by AbstractAsmLibraryInterface
+                continue;
+            }
+            if (failImmediately) {
+                // functions are bound on their first call, so only check that they can be
+                findSymbolAddress(library, functionMapper, function.name(), method);
+            }
+            LazyBinding.generateInvocation(cw, method, methods.size());
+            methods.add(method);
+            functions.add(function);
+        }
+        for (NativeVariable variable : scanner.variables()) {
+            if (failImmediately) {
+                findSymbolAddress(library, functionMapper, variable.getMethod().getName(), variable.getMethod());
+            }
+            LazyBinding.generateInvocation(cw, variable.getMethod(), methods.size());
+            methods.add(variable.getMethod());
+        }
+        LazyBinding.generateField(cw, className);
+
+        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cw, ACC_PUBLIC, "<init>",
+                sig(void.class, jnr.ffi.Runtime.class, NativeLibrary.class), null, null);
+        init.start();
+        init.aload(0);
+        init.aload(1);
+        init.aload(2);
+        init.invokespecial(p(AbstractAsmLibraryInterface.class), "<init>", sig(void.class, jnr.ffi.Runtime.class, NativeLibrary.class));
+        init.voidreturn();
+        init.visitMaxs(10, 10);
+        init.visitEnd();
+        cw.visitEnd();
+
+        try {
+            Class<T> implClass = classLoader.defineClass(className.replace("/", "."), cw.toByteArray());
+            LazyBinding.install(implClass, new Binding(library, libraryOptions, typeMapper, libraryCallingConvention,
+                    interfaceClass.isAnnotationPresent(Synchronized.class), methods.toArray(new Method[0]),
+                    functions.toArray(new NativeFunction[0])));
+
+            return implClass.getDeclaredConstructor(jnr.ffi.Runtime.class, NativeLibrary.class).newInstance(runtime, library);
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static FunctionMapper getFunctionMapper(Map<LibraryOption, ?> libraryOptions) {
+        return libraryOptions.containsKey(LibraryOption.FunctionMapper)
+                ? (FunctionMapper) libraryOptions.get(LibraryOption.FunctionMapper) : IdentityFunctionMapper.getInstance();
+    }
+
+    static long findSymbolAddress(NativeLibrary library, FunctionMapper functionMapper, String name, Method method) {
+        Collection<Annotation> annotations = sortedAnnotationCollection(method.getAnnotations());
+        String functionName = functionMapper.mapFunctionName(name, new NativeFunctionMapperContext(library, annotations));
+        long symbolAddress = library.getSymbolAddress(functionName);
+        if (symbolAddress == 0L) {
+            throw new UnsatisfiedLinkError(String.format("native symbol '%s' not found for method %s", functionName, method));
+        }
+
+        return symbolAddress;
+    }
+
+    public static boolean isDirect(Pointer pointer) {
+        return pointer == null || pointer.isDirect();
+    }
+
+    public static long addressValue(Pointer pointer) {
+        return pointer != null ? pointer.address() : 0L;
+    }
+
+    public static long toNative(boolean value) {
+        return value ? 1L : 0L;
+    }
+
+    public static long toNative(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    public static long toNative(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    public static long signed8(long value) {
+        return (byte) value;
+    }
+
+    public static long unsigned8(long value) {
+        return value & 0xffL;
+    }
+
+    public static long signed16(long value) {
+        return (short) value;
+    }
+
+    public static long unsigned16(long value) {
+        return value & 0xffffL;
+    }
+
+    public static long signed32(long value) {
+        return (int) value;
+    }
+
+    public static long unsigned32(long value) {
+        return value & 0xffffffffL;
+    }
+
+    public static byte byteValue(long value) {
+        return (byte) value;
+    }
+
+    public static short shortValue(long value) {
+        return (short) value;
+    }
+
+    public static char charValue(long value) {
+        return (char) value;
+    }
+
+    public static int intValue(long value) {
+        return (int) value;
+    }
+
+    public static boolean booleanValue(long value) {
+        return value != 0L;
+    }
+
+    public static float floatValue(long value) {
+        return Float.intBitsToFloat((int) value);
+    }
+
+    public static double doubleValue(long value) {
+        return Double.longBitsToDouble(value);
+    }
+
+    private final class Binding extends LazyBinding {
+        private final NativeLibrary library;
+        private final Map<LibraryOption, ?> libraryOptions;
+        private final SignatureTypeMapper typeMapper;
+        private final FunctionMapper functionMapper;
+        private final CallingConvention libraryCallingConvention;
+        private final DefaultInvokerFactory invokerFactory;
+        private final boolean libraryIsSynchronized;
+        private final Method[] methods;
+        private final NativeFunction[] functions;
+
+        Binding(NativeLibrary library, Map<LibraryOption, ?> libraryOptions, SignatureTypeMapper typeMapper,
+                CallingConvention libraryCallingConvention, boolean libraryIsSynchronized, Method[] methods,
+                NativeFunction[] functions) {
+            this.library = library;
+            this.libraryOptions = libraryOptions;
+            this.typeMapper = typeMapper;
+            this.functionMapper = getFunctionMapper(libraryOptions);
+            this.libraryCallingConvention = libraryCallingConvention;
+            this.libraryIsSynchronized = libraryIsSynchronized;
+            this.invokerFactory = new DefaultInvokerFactory(runtime, library, typeMapper, functionMapper,
+                    libraryCallingConvention, libraryOptions, libraryIsSynchronized);
+            this.methods = methods;
+            this.functions = functions;
+        }
+
+        MethodHandle bind(int index) throws Exception {
+            Method method = methods[index];
+            MethodType type = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+            if (index >= functions.length) {
+                return MethodHandles.constant(Variable.class, getVariable(method));
+            }
+
+            // Metered and recorded calls go through the invokers, which time them
+            MethodHandle handle = !method.isVarArgs() && library.getMetrics() == null && !FlightRecorderEvents.ENABLED
+                    ? getDirectHandle(functions[index]) : null;
+
+            return handle != null ? handle : INVOKE.bindTo(invokerFactory.createInvoker(method))
+                    .bindTo(null)
+                    .asCollector(Object[].class, type.parameterCount())
+                    .asType(type);
+        }
+
+        private Variable getVariable(Method method) {
+            long symbolAddress = findSymbolAddress(library, functionMapper, method.getName(), method);
+            return ReflectionVariableAccessorGenerator.createVariableAccessor(runtime, method, symbolAddress, typeMapper,
+                    sortedAnnotationCollection(method.getAnnotations()));
+        }
+
+        /**
+         * Builds a handle that calls the function directly through jffi, or returns {@code null} if the function
+         * has to go through an {@link Invoker}.
+         */
+        private MethodHandle getDirectHandle(NativeFunction function) throws Exception {
+            Method method = function.getMethod();
+            Collection<Annotation> annotations = sortedAnnotationCollection(method.getAnnotations());
+            if (libraryIsSynchronized || method.isAnnotationPresent(Synchronized.class) || method.isAnnotationPresent(Variadic.class)) {
+                return null;
+            }
+
+            FromNativeContext resultContext = new MethodResultContext(runtime, method);
+            SignatureType signatureType = DefaultSignatureType.create(method.getReturnType(), resultContext);
+            ResultType resultType = getResultType(runtime, method.getReturnType(),
+                    resultContext.getAnnotations(), typeMapper.getFromNativeType(signatureType, resultContext),
+                    resultContext);
+            ParameterType[] parameterTypes = getParameterTypes(runtime, typeMapper, method);
+
+            if (function.convention() != CallingConvention.DEFAULT || parameterTypes.length > MAX_PARAMETERS
+                    || !new FastNumericMethodGenerator().isSupported(resultType, parameterTypes, function.convention())) {
+                return null;
+            }
+
+            for (ParameterType parameterType : parameterTypes) {
+                if (!isDirectParameter(parameterType)) {
+                    return null;
+                }
+            }
+
+            String functionName = functionMapper.mapFunctionName(function.name(), new NativeFunctionMapperContext(library, annotations));
+            long functionAddress = library.getSymbolAddress(functionName);
+            if (functionAddress == 0L) {
+                return null;
+            }
+
+            boolean critical = jnr.ffi.LibraryLoader.isCritical(libraryOptions, function.isCritical());
+            boolean saveError = !critical && jnr.ffi.LibraryLoader.saveError(libraryOptions, function.hasSaveError(), function.hasIgnoreError());
+            // The foreign function API does not save errno where jnr.ffi.LastError can read it
+            MethodHandle handle = foreign && !saveError ? ForeignLinker.downcallHandle(functionAddress, resultType, parameterTypes, critical) : null;
+            if (handle == null) {
+                CallContext callContext = getCallContext(resultType, parameterTypes, function.convention(), saveError);
+                handle = MethodHandles.insertArguments(INVOKE_N[parameterTypes.length], 0, callContext, functionAddress);
+            }
+            for (int i = 0; i < parameterTypes.length; i++) {
+                handle = MethodHandles.filterArguments(handle, i, getParameterFilter(parameterTypes[i]));
+            }
+            handle = getResultFilter(handle, resultType);
+
+            // Heap memory can not be passed by address, so pointers are checked before each call
+            MethodHandle fallback = null;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (Pointer.class.isAssignableFrom(parameterTypes[i].effectiveJavaType())) {
+                    if (fallback == null) {
+                        fallback = INVOKE.bindTo(invokerFactory.createInvoker(method)).bindTo(null)
+                                .asCollector(Object[].class, parameterTypes.length)
+                                .asType(handle.type());
+                    }
+                    MethodHandle test = MethodHandles.permuteArguments(IS_DIRECT.asType(MethodType.methodType(boolean.class,
+                            handle.type().parameterType(i))), handle.type().changeReturnType(boolean.class), i);
+                    handle = MethodHandles.guardWithTest(test, handle, fallback);
+                }
+            }
+
+            return handle;
+        }
+
+        private boolean isDirectParameter(ParameterType parameterType) {
+            ToNativeConverter converter = parameterType.getToNativeConverter();
+            if (converter instanceof ToNativeConverter.PostInvocation) {
+                return false;
+            }
+
+            Class javaType = parameterType.effectiveJavaType();
+            if (Pointer.class.isAssignableFrom(javaType)) {
+                // the fallback invoker converts again, so only unconverted pointers can be checked
+                return converter == null;
+            }
+
+            return javaType.isPrimitive() || Number.class.isAssignableFrom(javaType) || Boolean.class == javaType;
+        }
+
+        /**
+         * Gets a handle that converts a parameter from its declared java type to the long passed to jffi.
+         */
+        private MethodHandle getParameterFilter(ParameterType parameterType) throws ReflectiveOperationException {
+            Class javaType = parameterType.effectiveJavaType();
+            Class primitiveType = AsmUtil.unboxedType(javaType);
+            MethodHandle filter;
+
+            if (Pointer.class.isAssignableFrom(javaType)) {
+                filter = ADDRESS_VALUE.asType(MethodType.methodType(long.class, javaType));
+
+            } else if (boolean.class == primitiveType || float.class == primitiveType || double.class == primitiveType) {
+                filter = LOOKUP.findStatic(MethodHandleLibraryLoader.class, "toNative",
+                        MethodType.methodType(long.class, primitiveType)).asType(MethodType.methodType(long.class, javaType));
+
+            } else {
+                filter = MethodHandles.identity(long.class).asType(MethodType.methodType(long.class, javaType));
+                String narrow = getNarrowingMethod(parameterType.getNativeType());
+                if (narrow != null) {
+                    filter = MethodHandles.filterReturnValue(filter,
+                            LOOKUP.findStatic(MethodHandleLibraryLoader.class, narrow, MethodType.methodType(long.class, long.class)));
+                }
+            }
+
+            ToNativeConverter converter = parameterType.getToNativeConverter();
+            if (converter != null) {
+                MethodHandle toNative = MethodHandles.insertArguments(TO_NATIVE.bindTo(converter), 1, parameterType.getToNativeContext());
+                filter = MethodHandles.filterArguments(filter, 0, toNative.asType(MethodType.methodType(javaType, Object.class)));
+                filter = filter.asType(MethodType.methodType(long.class, parameterType.getDeclaredType()));
+            }
+
+            return filter;
+        }
+
+        /**
+         * Converts the long returned by jffi to the declared java type of the result.
+         */
+        private MethodHandle getResultFilter(MethodHandle handle, ResultType resultType) throws ReflectiveOperationException {
+            Class javaType = resultType.effectiveJavaType();
+            if (void.class == javaType || Void.class == javaType) {
+                return handle.asType(handle.type().changeReturnType(void.class));
+            }
+
+            if (Pointer.class.isAssignableFrom(javaType)) {
+                handle = MethodHandles.filterReturnValue(handle, MethodHandles.insertArguments(POINTER_VALUE, 1, runtime));
+
+            } else {
+                String narrow = getNarrowingMethod(resultType.getNativeType());
+                if (narrow != null) {
+                    handle = MethodHandles.filterReturnValue(handle,
+                            LOOKUP.findStatic(MethodHandleLibraryLoader.class, narrow, MethodType.methodType(long.class, long.class)));
+                }
+
+                Class primitiveType = AsmUtil.unboxedType(javaType);
+                if (long.class != primitiveType) {
+                    handle = MethodHandles.filterReturnValue(handle, LOOKUP.findStatic(MethodHandleLibraryLoader.class,
+                            primitiveType.getName() + "Value", MethodType.methodType(primitiveType, long.class)));
+                }
+            }
+            handle = handle.asType(handle.type().changeReturnType(javaType));
+
+            FromNativeConverter converter = resultType.getFromNativeConverter();
+            if (converter != null) {
+                MethodHandle fromNative = MethodHandles.insertArguments(FROM_NATIVE.bindTo(converter), 1, resultType.getFromNativeContext());
+                handle = MethodHandles.filterReturnValue(handle, fromNative.asType(MethodType.methodType(Object.class, javaType)));
+            }
+
+            return handle.asType(handle.type().changeReturnType(resultType.getDeclaredType()));
+        }
+
+        /**
+         * Gets the name of the method that sign or zero extends a value of the given native type to a long.
+         */
+        private String getNarrowingMethod(NativeType nativeType) {
+            switch (nativeType) {
+                case SCHAR:
+                    return "signed8";
+                case UCHAR:
+                    return "unsigned8";
+                case SSHORT:
+                    return "signed16";
+                case USHORT:
+                    return "unsigned16";
+                case SINT:
+                    return "signed32";
+                case UINT:
+                    return "unsigned32";
+                case SLONG:
+                    return sizeof(nativeType) == 4 ? "signed32" : null;
+                case ULONG:
+                case ADDRESS:
+                    return sizeof(nativeType) == 4 ? "unsigned32" : null;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -28,13 +28,16 @@ import jnr.ffi.provider.ClosureManager;
 
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
  */
 final class NativeClosureManager implements ClosureManager {
-    private volatile Map<Class<?>, NativeClosureFactory> factories = new IdentityHashMap<Class<?>, NativeClosureFactory>();
-    private volatile Map<ClassLoader,AsmClassLoader> asmClassLoaders = new IdentityHashMap<ClassLoader,AsmClassLoader>();
+    private final ConcurrentMap<Class<?>, NativeClosureFactory> factories = new ConcurrentHashMap<Class<?>, NativeClosureFactory>();
+    /** guarded by this; keyed by identity, and the bootstrap class loader is null */
+    private final Map<ClassLoader, AsmClassLoader> asmClassLoaders = new IdentityHashMap<ClassLoader, AsmClassLoader>();
     private final jnr.ffi.Runtime runtime;
     private final SignatureTypeMapper typeMapper;
 
@@ -48,13 +51,8 @@ final class NativeClosureManager implements ClosureManager {
         if (factory != null) {
             return factory;
         }
-        AsmClassLoader asmCl = asmClassLoaders.get(closureClass.getClassLoader());
-        if (asmCl==null) {
-            asmCl = new AsmClassLoader( closureClass.getClassLoader());
-            asmClassLoaders.put(closureClass.getClassLoader(), asmCl);
-        }
 
-        return initClosureFactory(closureClass, asmCl);
+        return initClosureFactory(closureClass);
     }
 
     public <T> T newClosure(Class<? extends T> closureClass, T instance) {
@@ -69,18 +67,25 @@ final class NativeClosureManager implements ClosureManager {
         return getClosureFactory(closureClass).getClosureReference(instance).getPointer();
     }
 
-    synchronized <T> NativeClosureFactory<T> initClosureFactory(Class<T> closureClass, AsmClassLoader classLoader) {
+    /*
+     * Factory creation may recursively need the factories of other closure types (e.g. a callback that takes a
+     * callback), so it is serialized on this manager's monitor, which is reentrant, rather than done inside
+     * ConcurrentHashMap.computeIfAbsent.
+     */
+    synchronized <T> NativeClosureFactory<T> initClosureFactory(Class<T> closureClass) {
         NativeClosureFactory<T> factory = factories.get(closureClass);
         if (factory != null) {
             return factory;
         }
 
+        AsmClassLoader asmCl = asmClassLoaders.get(closureClass.getClassLoader());
+        if (asmCl == null) {
+            asmCl = new AsmClassLoader(closureClass.getClassLoader());
+            asmClassLoaders.put(closureClass.getClassLoader(), asmCl);
+        }
 
-        factory = NativeClosureFactory.newClosureFactory(runtime, closureClass, typeMapper, classLoader);
-        Map<Class<?>, NativeClosureFactory> factories = new IdentityHashMap<Class<?>, NativeClosureFactory>();
-        factories.putAll(this.factories);
+        factory = NativeClosureFactory.newClosureFactory(runtime, closureClass, typeMapper, asmCl);
         factories.put(closureClass, factory);
-        this.factories = factories;
 
         return factory;
     }
@@ -91,8 +96,15 @@ final class NativeClosureManager implements ClosureManager {
 
     @ToNativeConverter.NoContext
     public static final class ClosureSite<T> implements ToNativeConverter<T, Pointer> {
+        /** The number of recently used closures remembered by each call site; a power of two */
+        private static final int CACHE_SIZE = 4;
         private final NativeClosureFactory<T> factory;
-        private NativeClosureFactory.ClosureReference closureReference = null;
+        /*
+         * Racy by design: the elements are only ever replaced whole, and every hit is re-validated against
+         * the callable, so a stale or missing entry only costs a lookup in the factory.
+         */
+        private final NativeClosureFactory.ClosureReference[] closureReferences = new NativeClosureFactory.ClosureReference[CACHE_SIZE];
+        private int nextVictim;
 
         private ClosureSite(NativeClosureFactory<T> factory) {
             this.factory = factory;
@@ -108,17 +120,24 @@ final class NativeClosureManager implements ClosureManager {
                 return (ClosureFromNativeConverter.AbstractClosurePointer) value;
             }
 
-            NativeClosureFactory.ClosureReference ref = closureReference;
-            // Fast path - same delegate as last call to this site - just re-use the native closure
-            if (ref != null && ref.getCallable() == value) {
-                return ref.getPointer();
+            // Fast path - one of the delegates recently passed to this site - just re-use the native closure
+            final NativeClosureFactory.ClosureReference[] refs = closureReferences;
+            for (int i = 0; i < refs.length; i++) {
+                NativeClosureFactory.ClosureReference ref = refs[i];
+                if (ref != null && ref.getCallable() == value) {
+                    return ref.getPointer();
+                }
             }
 
-            ref = factory.getClosureReference(value);
-            // Cache the new native closure, if this site has no valid native closure
-            if (closureReference == null || closureReference.get() == null) {
-                closureReference = ref;
+            NativeClosureFactory.ClosureReference ref = factory.getClosureReference(value);
+            // Cache the new native closure, preferring a slot whose delegate has been collected
+            int victim = -1;
+            for (int i = 0; i < refs.length && victim < 0; i++) {
+                if (refs[i] == null || refs[i].get() == null) {
+                    victim = i;
+                }
             }
+            refs[victim >= 0 ? victim : (nextVictim++ & (CACHE_SIZE - 1))] = ref;
 
             return ref.getPointer();
         }
@@ -21,11 +21,14 @@ package jnr.ffi.provider.jffi;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 
 import java.io.PrintWriter;
 import java.lang.ref.Reference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import jnr.ffi.NativeType;
@@ -100,9 +103,45 @@ public abstract class NativeClosureProxy {
 
     static Factory newProxyFactory(jnr.ffi.Runtime runtime, Method callMethod,
                             ToNativeType resultType, FromNativeType[] parameterTypes, AsmClassLoader classLoader) {
-        final String closureProxyClassName = p(NativeClosureProxy.class) + "$$impl$$" + nextClassID.getAndIncrement();
-        final ClassWriter closureClassWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        final ClassVisitor closureClassVisitor = DEBUG ? AsmUtil.newCheckClassAdapter(closureClassWriter) : closureClassWriter;
+        Factory factory = newProxyFactory(runtime, callMethod, resultType, parameterTypes, classLoader,
+                lookupProxyClass(callMethod, resultType, parameterTypes, classLoader));
+        if (factory == null) {
+            // the cached class did not match the callback and was discarded, so generate it again
+            factory = newProxyFactory(runtime, callMethod, resultType, parameterTypes, classLoader, null);
+        }
+
+        return factory;
+    }
+
+    private static GeneratedClassCache.Entry lookupProxyClass(Method callMethod, ToNativeType resultType,
+                                                              FromNativeType[] parameterTypes, AsmClassLoader classLoader) {
+        List<Object> types = new ArrayList<Object>();
+        types.add(resultType.getDeclaredType());
+        types.add(resultType.getNativeType());
+        types.add(resultType.getToNativeConverter());
+        for (FromNativeType parameterType : parameterTypes) {
+            types.add(parameterType.getDeclaredType());
+            types.add(parameterType.getNativeType());
+            types.add(parameterType.getFromNativeConverter());
+        }
+
+        return GeneratedClassCache.lookup(classLoader, callMethod.getDeclaringClass(), p(NativeClosureProxy.class) + "$$impl$$",
+                callMethod.getName(), sig(callMethod.getReturnType(), callMethod.getParameterTypes()), types);
+    }
+
+    /**
+     * Generates the proxy class of a callback, or reuses a cached one if there is an entry for it.
+     *
+     * @return a factory for the class, or {@code null} if the cached class did not match and was discarded.
+     */
+    private static Factory newProxyFactory(jnr.ffi.Runtime runtime, Method callMethod, ToNativeType resultType,
+                                           FromNativeType[] parameterTypes, AsmClassLoader classLoader,
+                                           GeneratedClassCache.Entry cacheEntry) {
+        final String closureProxyClassName = cacheEntry != null
+                ? cacheEntry.getClassName() : p(NativeClosureProxy.class) + "$$impl$$" + nextClassID.getAndIncrement();
+        final ClassWriter closureClassWriter = cacheEntry == null ? new ClassWriter(ClassWriter.COMPUTE_FRAMES) : null;
+        final ClassVisitor closureClassVisitor = cacheEntry != null
+                ? cacheEntry.getClassVisitor() : DEBUG ? AsmUtil.newCheckClassAdapter(closureClassWriter) : closureClassWriter;
         AsmBuilder builder = new AsmBuilder(runtime, closureProxyClassName, closureClassVisitor, classLoader);
 
         closureClassVisitor.visit(V1_8, ACC_PUBLIC | ACC_FINAL, closureProxyClassName, null, p(NativeClosureProxy.class),
@@ -120,6 +159,26 @@ public abstract class NativeClosureProxy {
                 null, null);
         mv.start();
 
+        // Construct callback method
+        LocalVariableAllocator localVariableAllocator = new LocalVariableAllocator(nativeParameterClasses);
+
+        AsmBuilder.ObjectField events = null;
+        LocalVariable event = null;
+        if (FlightRecorderEvents.ENABLED) {
+            events = builder.getObjectField(FlightRecorderEvents.upcall(callMethod), FlightRecorderEvents.Call.class);
+            event = localVariableAllocator.allocate(Object.class);
+            AsmUtil.getfield(mv, builder, events);
+            mv.invokevirtual(FlightRecorderEvents.Call.class, "begin", Object.class);
+            mv.astore(event);
+        }
+
+        // with events enabled, the callback is called with a handler that also ends the events of calls that throw
+        Label start = new Label(), end = new Label(), handler = new Label();
+        if (events != null) {
+            mv.trycatch(start, end, handler, null);
+        }
+        mv.label(start);
+
         // Cast the callable instance to the correct class
         mv.aload(0);
         mv.invokevirtual(NativeClosureProxy.class, "getCallable", Object.class);
@@ -127,9 +186,6 @@ public abstract class NativeClosureProxy {
 
         LocalVariable[] parameterVariables = AsmUtil.getParameterVariables(nativeParameterClasses);
 
-        // Construct callback method
-        LocalVariableAllocator localVariableAllocator = new LocalVariableAllocator(nativeParameterClasses);
-
         for (int i = 0; i < parameterTypes.length; ++i) {
             FromNativeType parameterType = parameterTypes[i];
             Class parameterClass = parameterType.effectiveJavaType();
@@ -170,8 +226,25 @@ public abstract class NativeClosureProxy {
 
             }
         }
+        mv.label(end);
+
+        // events.end(event), with the result left on the stack
+        if (events != null) {
+            AsmUtil.getfield(mv, builder, events);
+            mv.aload(event);
+            mv.invokevirtual(FlightRecorderEvents.Call.class, "end", void.class, Object.class);
+        }
 
         emitReturnOp(mv, nativeResultClass);
+
+        // events.end(event), with the exception left on the stack and rethrown
+        if (events != null) {
+            mv.label(handler);
+            AsmUtil.getfield(mv, builder, events);
+            mv.aload(event);
+            mv.invokevirtual(FlightRecorderEvents.Call.class, "end", void.class, Object.class);
+            mv.athrow();
+        }
         mv.visitMaxs(10, 10 + localVariableAllocator.getSpaceUsed());
         mv.visitEnd();
 
@@ -210,10 +283,18 @@ public abstract class NativeClosureProxy {
         closureClassVisitor.visitEnd();
 
         try {
-            byte[] closureImpBytes = closureClassWriter.toByteArray();
-            if (DEBUG) {
-                ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
-                new ClassReader(closureImpBytes).accept(trace, 0);
+            Class<? extends NativeClosureProxy> klass;
+            if (cacheEntry != null) {
+                if ((klass = cacheEntry.define(builder.getClassLoader())) == null) {
+                    return null;
+                }
+            } else {
+                byte[] closureImpBytes = closureClassWriter.toByteArray();
+                if (DEBUG) {
+                    ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
+                    new ClassReader(closureImpBytes).accept(trace, 0);
+                }
+                klass = builder.getClassLoader().defineClass(c(closureProxyClassName), closureImpBytes);
             }
             ClassLoader cl = NativeClosureFactory.class.getClassLoader();
             if (cl == null) {
@@ -222,7 +303,6 @@ public abstract class NativeClosureProxy {
             if (cl == null) {
                 cl = ClassLoader.getSystemClassLoader();
             }
-            Class<? extends NativeClosureProxy> klass = builder.getClassLoader().defineClass(c(closureProxyClassName), closureImpBytes);
             Constructor<? extends NativeClosureProxy> constructor = null;
             try {
                 constructor = klass.getConstructor(NativeRuntime.class, Object[].class);
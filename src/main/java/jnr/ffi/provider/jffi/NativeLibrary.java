@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,20 +40,27 @@ import jnr.ffi.LibraryLoader;
 import jnr.ffi.LibraryOption;
 import jnr.ffi.Platform;
 import jnr.ffi.Runtime;
+import jnr.ffi.util.LibraryMetrics;
+import jnr.ffi.util.ref.FinalizablePhantomReference;
 
 public class NativeLibrary {
     private final List<String> libraryNames;
     private final List<String> searchPaths;
     private final List<String> successfulPaths = new ArrayList<>();
     private final Map<LibraryOption, Object> options;
+    private final LibraryMetrics metrics;
 
     private volatile List<com.kenai.jffi.Library> nativeLibraries = Collections.emptyList();
 
     NativeLibrary(Collection<String> libraryNames, Collection<String> searchPaths,
-                  Map<LibraryOption, Object> options) {
+                  Map<LibraryOption, Object> options, LibraryMetrics metrics) {
         this.libraryNames = Collections.unmodifiableList(new ArrayList<>(libraryNames));
         this.searchPaths = Collections.unmodifiableList(new ArrayList<>(searchPaths));
         this.options = options;
+        this.metrics = metrics;
+        if (metrics != null) {
+            new MetricsRelease(this, metrics);
+        }
         if (options.containsKey(LibraryOption.LoadNow)) getNativeLibraries();
     }
 
@@ -60,6 +68,17 @@ public class NativeLibrary {
         return Platform.getNativePlatform().locateLibrary(libraryName, searchPaths, options);
     }
 
+    /**
+     * Gets the call metrics of the library, or {@code null} if metrics are not enabled.
+     */
+    LibraryMetrics getMetrics() {
+        return metrics;
+    }
+
+    List<String> getLibraryNames() {
+        return libraryNames;
+    }
+
     long getSymbolAddress(String name) {
         for (com.kenai.jffi.Library l : getNativeLibraries()) {
             long address = l.getSymbolAddress(name);
@@ -86,6 +105,7 @@ public class NativeLibrary {
     }
 
     private synchronized List<com.kenai.jffi.Library> loadNativeLibraries() {
+        Object event = FlightRecorderEvents.ENABLED ? FlightRecorderEvents.LIBRARY_LOAD.begin() : null;
         List<com.kenai.jffi.Library> libs = new ArrayList<>();
 
         for (String libraryName : libraryNames) {
@@ -113,6 +133,10 @@ public class NativeLibrary {
             libs.add(lib);
         }
         putLibraryIntoRuntime(); // successfulPaths have been set and library has been loaded
+        if (event != null) {
+            FlightRecorderEvents.LIBRARY_LOAD.commit(event, FlightRecorderEvents.join(libraryNames),
+                    FlightRecorderEvents.join(successfulPaths));
+        }
 
         return Collections.unmodifiableList(libs);
     }
@@ -174,6 +198,34 @@ public class NativeLibrary {
         }
     }
 
+    /**
+     * Removes this library from the loaded libraries of the runtime, when binding an interface to it failed.
+     */
+    void removeLibraryFromRuntime() {
+        if (Runtime.getSystemRuntime() instanceof NativeRuntime) {
+            ((NativeRuntime) Runtime.getSystemRuntime()).loadedLibraries.remove(this);
+        }
+    }
+
+    /**
+     * Unregisters the metrics of a library once it has been garbage collected.
+     */
+    private static final class MetricsRelease extends FinalizablePhantomReference<NativeLibrary> {
+        private static final Map<MetricsRelease, Boolean> references = new ConcurrentHashMap<MetricsRelease, Boolean>();
+        private final LibraryMetrics metrics;
+
+        MetricsRelease(NativeLibrary library, LibraryMetrics metrics) {
+            super(library, NativeFinalizer.getInstance().getFinalizerQueue());
+            this.metrics = metrics;
+            references.put(this, Boolean.TRUE);
+        }
+
+        public void finalizeReferent() {
+            references.remove(this);
+            metrics.unregister();
+        }
+    }
+
     /**
      * Data class containing information about a loaded native library.
      *
@@ -19,7 +19,9 @@
 package jnr.ffi.provider.jffi;
 
 import jnr.ffi.LibraryOption;
+import jnr.ffi.util.LibraryMetrics;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
@@ -30,25 +32,66 @@ import static jnr.ffi.provider.jffi.Util.getBooleanProperty;
  */
 class NativeLibraryLoader<T>  extends jnr.ffi.LibraryLoader<T> {
     static final boolean ASM_ENABLED = getBooleanProperty("jnr.ffi.asm.enabled", true);
+    static final boolean METHOD_HANDLES_ENABLED = getBooleanProperty("jnr.ffi.methodhandle.enabled", false);
+    static final boolean METRICS_ENABLED = getBooleanProperty("jnr.ffi.metrics.enabled", false);
+
+    private final LibraryLoader libraryLoader;
+    private final boolean metrics;
 
     NativeLibraryLoader(Class<T> interfaceClass) {
+        this(interfaceClass, newLibraryLoader());
+    }
+
+    NativeLibraryLoader(Class<T> interfaceClass, LibraryLoader libraryLoader) {
+        this(interfaceClass, libraryLoader, METRICS_ENABLED);
+    }
+
+    /**
+     * Creates a loader that binds libraries with {@code libraryLoader}, and collects their {@link LibraryMetrics} if
+     * {@code metrics} is true, whatever the {@code jnr.ffi.asm.enabled}, {@code jnr.ffi.methodhandle.enabled} and
+     * {@code jnr.ffi.metrics.enabled} system properties are set to.
+     */
+    NativeLibraryLoader(Class<T> interfaceClass, LibraryLoader libraryLoader, boolean metrics) {
         super(interfaceClass);
+        this.libraryLoader = libraryLoader;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates the loader selected by the system properties.
+     */
+    static LibraryLoader newLibraryLoader() {
+        return METHOD_HANDLES_ENABLED ? new MethodHandleLibraryLoader()
+                : ASM_ENABLED ? new AsmLibraryLoader() : new ReflectionLibraryLoader();
     }
 
     public T loadLibrary(Class<T> interfaceClass, Collection<String> libraryNames, Collection<String> searchPaths,
                              Map<LibraryOption, Object> options, boolean failImmediately) {
-        NativeLibrary nativeLibrary = new NativeLibrary(libraryNames, searchPaths, options);
+        NativeLibrary nativeLibrary = new NativeLibrary(libraryNames, searchPaths, options, metrics
+                ? LibraryMetrics.register(interfaceClass, new ArrayList<String>(libraryNames)) : null);
 
+        Object event = FlightRecorderEvents.ENABLED ? FlightRecorderEvents.LIBRARY_BIND.begin() : null;
+        boolean bound = false;
         try {
-            return ASM_ENABLED
-                ? new AsmLibraryLoader().loadLibrary(nativeLibrary, interfaceClass, options, failImmediately)
-                : new ReflectionLibraryLoader().loadLibrary(nativeLibrary, interfaceClass, options, failImmediately);
+            T library = libraryLoader.loadLibrary(nativeLibrary, interfaceClass, options, failImmediately);
+            if (event != null) {
+                FlightRecorderEvents.LIBRARY_BIND.commit(event, interfaceClass.getName(), null);
+            }
+            bound = true;
+
+            return library;
 
         } catch (RuntimeException ex) {
             throw ex;
 
         } catch (Exception ex) {
             throw new RuntimeException(ex);
+
+        } finally {
+            if (!bound) {
+                // nothing uses the library if the interface could not be bound to it, such as when a symbol is missing
+                nativeLibrary.removeLibraryFromRuntime();
+            }
         }
     }
 }
@@ -0,0 +1,160 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.util.ref.FinalizablePhantomReference;
+import jnr.ffi.util.ref.FinalizableReferenceQueue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frees native memory once the java object that owns it has been garbage collected, without making
+ * the owner a finalizable object.
+ * <p>
+ * Each owner is tracked by a {@link FinalizablePhantomReference} registered on one of a fixed set of
+ * {@link FinalizableReferenceQueue}s, each of which is serviced by its own background thread.  The number
+ * of queues, and so of cleanup threads, is set with the {@code jnr.ffi.memory.cleaner.threads} system
+ * property and defaults to one.
+ */
+public final class NativeMemoryCleaner {
+    static final int THREADS = (int) Math.max(1, Util.getLongProperty("jnr.ffi.memory.cleaner.threads", 1));
+
+    private static final FinalizableReferenceQueue[] queues = new FinalizableReferenceQueue[THREADS];
+    static {
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new FinalizableReferenceQueue();
+        }
+    }
+    private static final AtomicInteger nextQueue = new AtomicInteger();
+
+    /** Keeps strong references to the cleanups until their memory is freed */
+    private static final Map<Cleanup<?>, Boolean> referenceSet = new ConcurrentHashMap<Cleanup<?>, Boolean>();
+
+    private static final AtomicLong pendingBytes = new AtomicLong();
+    private static final AtomicLong disposedBytes = new AtomicLong();
+    private static final AtomicLong reclaimedBytes = new AtomicLong();
+    private static final AtomicLong pooledBytes = new AtomicLong();
+
+    private NativeMemoryCleaner() {
+    }
+
+    /**
+     * Gets the number of bytes of native memory that have been allocated and not yet freed, either because
+     * their owners are still in use or because they are waiting for a cleanup thread.  This includes the
+     * blocks handed out by the {@link NativeMemoryPool}.
+     *
+     * @return the number of bytes pending release.
+     */
+    public static long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Gets the number of bytes freed through an explicit dispose.  Pool blocks are not included, as they are
+     * returned to the pool rather than freed.
+     *
+     * @return the number of bytes disposed.
+     */
+    public static long getDisposedBytes() {
+        return disposedBytes.get();
+    }
+
+    /**
+     * Gets the number of bytes freed by the cleanup threads after their owners were garbage collected.  Pool
+     * blocks are not included, as they are returned to the pool rather than freed.
+     *
+     * @return the number of bytes reclaimed.
+     */
+    public static long getReclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    /**
+     * Gets the number of bytes of {@link NativeMemoryPool} blocks returned to the pool, either through an
+     * explicit dispose or after their owners were garbage collected.
+     *
+     * @return the number of bytes returned to the pool.
+     */
+    public static long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Gets the number of cleanup threads.
+     *
+     * @return the number of threads.
+     */
+    public static int getThreadCount() {
+        return THREADS;
+    }
+
+    static FinalizableReferenceQueue nextQueue() {
+        return queues[(nextQueue.getAndIncrement() & Integer.MAX_VALUE) % queues.length];
+    }
+
+    /**
+     * Releases a block of native memory, exactly once, either on an explicit {@link #dispose()} or after
+     * its owner has been garbage collected.
+     *
+     * @param <T> the type of the owner.
+     */
+    static abstract class Cleanup<T> extends FinalizablePhantomReference<T> {
+        private static final AtomicIntegerFieldUpdater<Cleanup> RELEASED_UPDATER
+                = AtomicIntegerFieldUpdater.newUpdater(Cleanup.class, "released");
+        final long size;
+        private final boolean pooled;
+        private volatile int released;
+
+        Cleanup(T owner, long size) {
+            this(owner, size, false);
+        }
+
+        /**
+         * @param pooled {@code true} if the memory is returned to the {@link NativeMemoryPool} instead of freed.
+         */
+        Cleanup(T owner, long size, boolean pooled) {
+            super(owner, nextQueue());
+            this.size = size;
+            this.pooled = pooled;
+            referenceSet.put(this, Boolean.TRUE);
+            pendingBytes.addAndGet(size);
+        }
+
+        /**
+         * Frees the memory.
+         *
+         * @param reclaimed {@code true} if the owner was garbage collected, {@code false} on an explicit dispose.
+         */
+        protected abstract void free(boolean reclaimed);
+
+        final boolean dispose() {
+            if (release()) {
+                clear();
+                free(false);
+                (pooled ? pooledBytes : disposedBytes).addAndGet(size);
+                return true;
+            }
+
+            return false;
+        }
+
+        public final void finalizeReferent() {
+            if (release()) {
+                free(true);
+                (pooled ? pooledBytes : reclaimedBytes).addAndGet(size);
+            }
+        }
+
+        private boolean release() {
+            if (RELEASED_UPDATER.getAndSet(this, 1) == 0) {
+                referenceSet.remove(this);
+                pendingBytes.addAndGet(-size);
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
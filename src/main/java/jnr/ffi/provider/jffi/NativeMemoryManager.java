@@ -18,11 +18,16 @@
 
 package jnr.ffi.provider.jffi;
 
+import jnr.ffi.MappedMemory;
+import jnr.ffi.MemoryScope;
 import jnr.ffi.Pointer;
 import jnr.ffi.provider.BoundedMemoryIO;
 import jnr.ffi.provider.IntPointer;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
     private final jnr.ffi.Runtime runtime;
@@ -54,10 +59,15 @@ public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
     }
 
     public Pointer allocateTemporary(int size) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
+        return allocateTemporary(size, true);
     }
 
     public Pointer allocateTemporary(int size, boolean clear) {
+        NativeMemoryScope scope = NativeMemoryScope.current();
+        if (scope != null) {
+            return new BoundedMemoryIO(scope.allocate(size, 8, clear), 0, size);
+        }
+
         return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
     }
 
@@ -77,4 +87,28 @@ public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
         return new IntPointer(runtime, address);
     }
 
+    public MemoryScope openScope() {
+        return NativeMemoryScope.open(runtime);
+    }
+
+    public MappedMemory map(Path path, long offset, long length, FileChannel.MapMode mode) throws IOException {
+        return MappedMemoryIO.map(runtime, path, offset, length, mode);
+    }
+
+    public void dispose(Pointer pointer) {
+        // allocateDirect wraps the memory it owns in a single BoundedMemoryIO, so a slice, which wraps that
+        // pointer again, is not unwrapped and is ignored
+        Pointer memory = pointer instanceof BoundedMemoryIO ? ((BoundedMemoryIO) pointer).getDelegatedMemoryIO() : pointer;
+
+        if (memory instanceof NativeMemoryPool.PooledMemoryIO) {
+            ((NativeMemoryPool.PooledMemoryIO) memory).dispose();
+
+        } else if (memory instanceof AllocatedDirectMemoryIO) {
+            ((AllocatedDirectMemoryIO) memory).dispose();
+
+        } else if (pointer instanceof MappedMemoryIO) {
+            ((MappedMemoryIO) pointer).close();
+        }
+    }
+
 }
@@ -0,0 +1,328 @@
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.PageManager;
+import jnr.ffi.util.ref.FinalizablePhantomReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jnr.ffi.provider.jffi.DirectMemoryIO.IO;
+
+/**
+ * A size-classed pool of native memory, used for direct allocations when the
+ * {@code jnr.ffi.memory.pool.enabled} system property is set.
+ * <p>
+ * Requests are rounded up to the next power of two between 16 bytes and 64KiB, and served from page aligned
+ * slabs that are carved into equally sized blocks, so each block is aligned to its size, up to the page size.
+ * Each thread keeps a small cache of free blocks per size class in front of the shared free list, so most
+ * allocations and explicit releases do not contend.  Blocks are returned to the pool either explicitly, through
+ * {@link jnr.ffi.provider.MemoryManager#dispose(jnr.ffi.Pointer)}, or by the {@link NativeMemoryCleaner}
+ * once the pointer has been garbage collected.  Slabs are never returned to the system, so the memory held by
+ * the pool is that of the peak number of blocks in use.
+ * <p>
+ * Requests larger than the biggest size class are allocated individually, with the alignment of malloc.
+ */
+public final class NativeMemoryPool {
+    static final boolean ENABLED = Util.getBooleanProperty("jnr.ffi.memory.pool.enabled", false);
+
+    private static final int MIN_SHIFT = 4;
+    private static final int MAX_SHIFT = 16;
+    private static final int MIN_SLAB_SIZE = 64 * 1024;
+    private static final int THREAD_CACHE_BYTES = 32 * 1024;
+    private static final int MAX_THREAD_CACHE_BLOCKS = 128;
+
+    private static final SizeClass[] sizeClasses = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+    static {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (MIN_SHIFT + i));
+        }
+    }
+
+    private static final ThreadLocal<ThreadCache> threadCaches = new ThreadLocal<ThreadCache>();
+
+    /** Keeps strong references to the thread caches until their threads are collected */
+    private static final Map<ThreadCache, Boolean> referenceSet = new ConcurrentHashMap<ThreadCache, Boolean>();
+
+    private NativeMemoryPool() {
+    }
+
+    static DirectMemoryIO allocate(jnr.ffi.Runtime runtime, long size, int align, boolean clear) {
+        if (align > PageManager.getInstance().pageSize()) {
+            throw new IllegalArgumentException("alignment larger than a page: " + align);
+        }
+
+        // blocks are aligned to their size, so a block large enough for the alignment is also aligned to it
+        int index = sizeClassIndex(Math.max(size, align));
+        if (index < 0) {
+            return new AllocatedDirectMemoryIO(runtime, size, clear);
+        }
+
+        long address = getThreadCache().allocate(index);
+        if (clear) {
+            IO.setMemory(address, size, (byte) 0);
+        }
+
+        PooledMemoryIO memory = new PooledMemoryIO(runtime, address, size);
+        memory.reclaimer = new Reclaimer(memory, address, index);
+        sizeClasses[index].allocations.incrementAndGet();
+
+        return memory;
+    }
+
+    /**
+     * Returns a snapshot of the counters of every size class.
+     *
+     * @return a list of statistics, ordered by block size.
+     */
+    public static List<SizeClassStatistics> getStatistics() {
+        List<SizeClassStatistics> statistics = new ArrayList<SizeClassStatistics>(sizeClasses.length);
+        for (SizeClass sizeClass : sizeClasses) {
+            statistics.add(new SizeClassStatistics(sizeClass));
+        }
+
+        return Collections.unmodifiableList(statistics);
+    }
+
+    private static int sizeClassIndex(long size) {
+        if (size > (1 << MAX_SHIFT)) {
+            return -1;
+        }
+
+        int shift = size <= (1 << MIN_SHIFT) ? MIN_SHIFT : 64 - Long.numberOfLeadingZeros(size - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    private static ThreadCache getThreadCache() {
+        ThreadCache cache = threadCaches.get();
+        if (cache == null) {
+            referenceSet.put(cache = new ThreadCache(Thread.currentThread()), Boolean.TRUE);
+            threadCaches.set(cache);
+        }
+
+        return cache;
+    }
+
+    /**
+     * Point-in-time counters for one size class.
+     */
+    public static final class SizeClassStatistics {
+        private final int blockSize;
+        private final long allocations, disposed, reclaimed, reservedBytes;
+
+        SizeClassStatistics(SizeClass sizeClass) {
+            this.blockSize = sizeClass.blockSize;
+            this.allocations = sizeClass.allocations.get();
+            this.disposed = sizeClass.disposed.get();
+            this.reclaimed = sizeClass.reclaimed.get();
+            this.reservedBytes = sizeClass.reservedBytes.get();
+        }
+
+        /** @return the size in bytes of each block in this class. */
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        /** @return the number of blocks handed out. */
+        public long getAllocations() {
+            return allocations;
+        }
+
+        /** @return the number of blocks returned through an explicit dispose. */
+        public long getDisposed() {
+            return disposed;
+        }
+
+        /** @return the number of blocks returned after their pointer was garbage collected. */
+        public long getReclaimed() {
+            return reclaimed;
+        }
+
+        /** @return the number of blocks currently handed out. */
+        public long getBlocksInUse() {
+            return allocations - disposed - reclaimed;
+        }
+
+        /** @return the number of bytes of native memory held by the slabs of this class. */
+        public long getReservedBytes() {
+            return reservedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SizeClassStatistics[blockSize=%d, allocations=%d, disposed=%d, reclaimed=%d, "
+                    + "reservedBytes=%d]", blockSize, allocations, disposed, reclaimed, reservedBytes);
+        }
+    }
+
+    /**
+     * The shared free list of one size class.
+     */
+    private static final class SizeClass {
+        final int blockSize;
+        final int threadCacheSize;
+        final AtomicLong allocations = new AtomicLong();
+        final AtomicLong disposed = new AtomicLong();
+        final AtomicLong reclaimed = new AtomicLong();
+        final AtomicLong reservedBytes = new AtomicLong();
+        private long[] free = new long[64];
+        private int freeCount;
+
+        SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+            this.threadCacheSize = Math.max(2, Math.min(MAX_THREAD_CACHE_BLOCKS, THREAD_CACHE_BYTES / blockSize));
+        }
+
+        /**
+         * Moves up to {@code count} free blocks into {@code blocks}, allocating a new slab if the free list is empty.
+         */
+        synchronized int take(long[] blocks, int count) {
+            if (freeCount == 0) {
+                allocateSlab();
+            }
+
+            int n = Math.min(count, freeCount);
+            System.arraycopy(free, freeCount - n, blocks, 0, n);
+            freeCount -= n;
+
+            return n;
+        }
+
+        synchronized void put(long[] blocks, int offset, int count) {
+            ensureCapacity(freeCount + count);
+            System.arraycopy(blocks, offset, free, freeCount, count);
+            freeCount += count;
+        }
+
+        synchronized void put(long address) {
+            ensureCapacity(freeCount + 1);
+            free[freeCount++] = address;
+        }
+
+        private void allocateSlab() {
+            PageManager pm = PageManager.getInstance();
+            int pageCount = (int) Math.max(1, Math.max(MIN_SLAB_SIZE, 4L * blockSize) / pm.pageSize());
+            long slabSize = pageCount * pm.pageSize();
+            long slab = pm.allocatePages(pageCount, PageManager.PROT_READ | PageManager.PROT_WRITE);
+            if (slab == 0L || slab == -1L) {
+                throw new OutOfMemoryError("Failed to allocate " + slabSize + " bytes");
+            }
+            reservedBytes.addAndGet(slabSize);
+
+            int count = (int) (slabSize / blockSize);
+            ensureCapacity(freeCount + count);
+            for (int i = count - 1; i >= 0; i--) {
+                free[freeCount++] = slab + ((long) i * blockSize);
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > free.length) {
+                long[] tmp = new long[Math.max(capacity, free.length * 2)];
+                System.arraycopy(free, 0, tmp, 0, freeCount);
+                free = tmp;
+            }
+        }
+    }
+
+    /**
+     * Per-thread caches of free blocks, returned to the shared free lists once the thread has been collected.
+     */
+    private static final class ThreadCache extends FinalizablePhantomReference<Thread> {
+        private final long[][] blocks = new long[sizeClasses.length][];
+        private final int[] counts = new int[sizeClasses.length];
+
+        ThreadCache(Thread thread) {
+            super(thread, NativeFinalizer.getInstance().getFinalizerQueue());
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = new long[sizeClasses[i].threadCacheSize];
+            }
+        }
+
+        long allocate(int index) {
+            if (counts[index] == 0) {
+                counts[index] = sizeClasses[index].take(blocks[index], Math.max(1, blocks[index].length / 2));
+            }
+
+            return blocks[index][--counts[index]];
+        }
+
+        void free(int index, long address) {
+            if (counts[index] == blocks[index].length) {
+                // flush the older half of the cache to the shared free list
+                int n = blocks[index].length / 2;
+                sizeClasses[index].put(blocks[index], 0, n);
+                System.arraycopy(blocks[index], n, blocks[index], 0, counts[index] - n);
+                counts[index] -= n;
+            }
+            blocks[index][counts[index]++] = address;
+        }
+
+        public void finalizeReferent() {
+            for (int i = 0; i < blocks.length; i++) {
+                sizeClasses[i].put(blocks[i], 0, counts[i]);
+                counts[i] = 0;
+            }
+            referenceSet.remove(this);
+        }
+    }
+
+    static final class PooledMemoryIO extends DirectMemoryIO {
+        private final long size;
+        private Reclaimer reclaimer;
+
+        PooledMemoryIO(jnr.ffi.Runtime runtime, long address, long size) {
+            super(runtime, address);
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof PooledMemoryIO) {
+                PooledMemoryIO mem = (PooledMemoryIO) obj;
+                return mem.size == size && mem.address() == address();
+            }
+
+            return super.equals(obj);
+        }
+
+        public void dispose() {
+            reclaimer.dispose();
+        }
+    }
+
+    private static final class Reclaimer extends NativeMemoryCleaner.Cleanup<PooledMemoryIO> {
+        final long address;
+        final int index;
+
+        Reclaimer(PooledMemoryIO memory, long address, int index) {
+            super(memory, sizeClasses[index].blockSize, true);
+            this.address = address;
+            this.index = index;
+        }
+
+        protected void free(boolean reclaimed) {
+            if (reclaimed) {
+                // on a cleanup thread, so bypass the thread cache
+                sizeClasses[index].put(address);
+                sizeClasses[index].reclaimed.incrementAndGet();
+            } else {
+                getThreadCache().free(index, address);
+                sizeClasses[index].disposed.incrementAndGet();
+            }
+        }
+    }
+}
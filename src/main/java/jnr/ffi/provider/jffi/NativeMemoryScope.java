@@ -0,0 +1,193 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.MemoryScope;
+import jnr.ffi.Pointer;
+import jnr.ffi.provider.BoundedMemoryIO;
+import jnr.ffi.util.ref.FinalizablePhantomReference;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static jnr.ffi.provider.jffi.DirectMemoryIO.IO;
+
+/**
+ * A {@link MemoryScope} that bump-allocates from a native arena owned by the current thread.
+ * <p>
+ * Opening a scope records the arena's current offset, and closing it rewinds the arena to that offset,
+ * so releasing everything allocated within a scope does not involve the garbage collector.  The arena
+ * is allocated on first use and is reused by every subsequent scope on the same thread; it is only
+ * freed once the thread itself has been collected.
+ */
+final class NativeMemoryScope implements MemoryScope {
+    /** The per-thread arena capacity; allocations beyond it fall back to malloc */
+    static final long ARENA_SIZE = Util.getLongProperty("jnr.ffi.memory.scope.size", 64 * 1024);
+
+    private static final ThreadLocal<Arena> arenas = new ThreadLocal<Arena>();
+
+    /** Keeps strong references to the arenas until their threads are collected */
+    private static final Map<Arena, Boolean> referenceSet = new ConcurrentHashMap<Arena, Boolean>();
+
+    private final jnr.ffi.Runtime runtime;
+    private final Arena arena;
+    private final NativeMemoryScope parent;
+    private final long mark;
+    private long[] overflow;
+    private int overflowCount;
+    private boolean closed;
+
+    private NativeMemoryScope(jnr.ffi.Runtime runtime, Arena arena, NativeMemoryScope parent, long mark) {
+        this.runtime = runtime;
+        this.arena = arena;
+        this.parent = parent;
+        this.mark = mark;
+    }
+
+    static NativeMemoryScope open(jnr.ffi.Runtime runtime) {
+        Arena arena = arenas.get();
+        if (arena == null) {
+            referenceSet.put(arena = new Arena(Thread.currentThread()), Boolean.TRUE);
+            arenas.set(arena);
+        }
+
+        return arena.current = new NativeMemoryScope(runtime, arena, arena.current, arena.offset);
+    }
+
+    /**
+     * Gets the innermost open scope on the current thread.
+     *
+     * @return the current scope, or {@code null} if no scope is open.
+     */
+    static NativeMemoryScope current() {
+        Arena arena = arenas.get();
+        return arena != null ? arena.current : null;
+    }
+
+    public Pointer allocate(long size) {
+        return allocate(size, true);
+    }
+
+    public Pointer allocate(long size, boolean clear) {
+        if (arena.owner.get() != Thread.currentThread()) {
+            throw new IllegalStateException("memory scope must be used by the thread that opened it");
+        }
+
+        if (closed) {
+            throw new IllegalStateException("memory scope is closed");
+        }
+
+        if (arena.current != this) {
+            throw new IllegalStateException("memory can only be allocated from the innermost open scope");
+        }
+
+        return new BoundedMemoryIO(allocate(size, 8, clear), 0, size);
+    }
+
+    DirectMemoryIO allocate(long size, int align, boolean clear) {
+        if (size < 0) {
+            throw new IllegalArgumentException("negative size: " + size);
+        }
+
+        long address = arena.allocate(size, align);
+        if (address != 0L) {
+            if (clear) {
+                IO.setMemory(address, size, (byte) 0);
+            }
+        } else {
+            address = IO.allocateMemory(size, clear);
+            if (address == 0L) {
+                throw new OutOfMemoryError("Failed to allocate " + size + " bytes");
+            }
+            addOverflow(address);
+        }
+
+        return new ScopedMemoryIO(runtime, address, size);
+    }
+
+    private void addOverflow(long address) {
+        if (overflow == null) {
+            overflow = new long[4];
+        } else if (overflowCount == overflow.length) {
+            long[] tmp = new long[overflow.length * 2];
+            System.arraycopy(overflow, 0, tmp, 0, overflowCount);
+            overflow = tmp;
+        }
+        overflow[overflowCount++] = address;
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        if (arena.owner.get() != Thread.currentThread()) {
+            throw new IllegalStateException("memory scope must be closed by the thread that opened it");
+        }
+
+        if (arena.current != this) {
+            throw new IllegalStateException("memory scopes must be closed in the reverse order to which they were opened");
+        }
+
+        for (int i = 0; i < overflowCount; i++) {
+            IO.freeMemory(overflow[i]);
+        }
+        overflow = null;
+        overflowCount = 0;
+        closed = true;
+        arena.offset = mark;
+        arena.current = parent;
+    }
+
+    private static final class ScopedMemoryIO extends DirectMemoryIO {
+        private final long size;
+
+        ScopedMemoryIO(jnr.ffi.Runtime runtime, long address, long size) {
+            super(runtime, address);
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+    }
+
+    /**
+     * The native memory backing all the scopes of one thread.
+     */
+    private static final class Arena extends FinalizablePhantomReference<Thread> {
+        private final WeakReference<Thread> owner;
+        private long memory;
+        long offset;
+        NativeMemoryScope current;
+
+        Arena(Thread owner) {
+            super(owner, NativeFinalizer.getInstance().getFinalizerQueue());
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        long allocate(long size, int align) {
+            if (memory == 0L) {
+                if (ARENA_SIZE <= 0L || (memory = IO.allocateMemory(ARENA_SIZE, false)) == 0L) {
+                    return 0L;
+                }
+            }
+
+            long address = (memory + offset + align - 1L) & ~(align - 1L);
+            if (address + size <= memory + ARENA_SIZE) {
+                offset = address + size - memory;
+                return address;
+            }
+
+            return 0L;
+        }
+
+        public void finalizeReferent() {
+            if (memory != 0L) {
+                IO.freeMemory(memory);
+                memory = 0L;
+            }
+            referenceSet.remove(this);
+        }
+    }
+}
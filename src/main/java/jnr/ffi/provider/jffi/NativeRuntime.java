@@ -29,6 +29,7 @@ import jnr.ffi.mapper.SignatureTypeMapperAdapter;
 import jnr.ffi.provider.AbstractRuntime;
 import jnr.ffi.provider.BadType;
 import jnr.ffi.provider.DefaultObjectReferenceManager;
+import jnr.ffi.provider.SlotObjectReferenceManager;
 
 import java.lang.reflect.Field;
 import java.nio.ByteOrder;
@@ -47,6 +48,7 @@ import java.util.logging.Logger;
  *
  */
 public final class NativeRuntime extends AbstractRuntime {
+    static final boolean SLOT_REFERENCES_ENABLED = Util.getBooleanProperty("jnr.ffi.reference.slots.enabled", false);
     private final NativeMemoryManager mm = new NativeMemoryManager(this);
     private final NativeClosureManager closureManager = new NativeClosureManager(this,
             new SignatureTypeMapperAdapter(new DefaultTypeMapper()));
@@ -144,7 +146,7 @@ public final class NativeRuntime extends AbstractRuntime {
 
     @Override
     public ObjectReferenceManager newObjectReferenceManager() {
-        return new DefaultObjectReferenceManager(this);
+        return SLOT_REFERENCES_ENABLED ? new SlotObjectReferenceManager(this) : new DefaultObjectReferenceManager(this);
     }
 
     @Override
@@ -0,0 +1,114 @@
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.HeapInvocationBuffer;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+import jnr.ffi.annotations.ByValue;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Passes and returns {@link Struct} types by value, as a jffi aggregate type built from the fields of the struct.
+ * <p>
+ * Struct results are returned by jffi in a java byte array, which is used as the memory of the returned struct,
+ * so small structs returned in registers never touch native memory.
+ */
+public final class StructByValue {
+    private static final ClassValue<StructByValue> layouts = new ClassValue<StructByValue>() {
+        @Override
+        protected StructByValue computeValue(Class<?> type) {
+            return new StructByValue(type.asSubclass(Struct.class));
+        }
+    };
+
+    private final Constructor<? extends Struct> constructor;
+    private final com.kenai.jffi.Type jffiType;
+    private final int size;
+
+    private StructByValue(Class<? extends Struct> structClass) {
+        try {
+            this.constructor = structClass.getDeclaredConstructor(Runtime.class);
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("struct " + structClass.getName()
+                    + " can not be passed by value, it has no constructor with a Runtime argument", ex);
+        }
+
+        Struct.FieldLayout layout = Struct.getFieldLayout(constructor, NativeRuntime.getInstance());
+        if (layout == null || layout.getFieldCount() == 0) {
+            throw new IllegalArgumentException("struct " + structClass.getName()
+                    + " can not be passed by value, it is a union or has no fields");
+        }
+
+        // libffi lays out the fields itself, so they must be where a C compiler would put them
+        com.kenai.jffi.Type[] jffiFieldTypes = new com.kenai.jffi.Type[layout.getFieldCount()];
+        int offset = 0;
+        for (int i = 0; i < jffiFieldTypes.length; i++) {
+            jffiFieldTypes[i] = InvokerUtil.jffiType(layout.getFieldType(i));
+            int alignment = jffiFieldTypes[i].alignment();
+            offset = (offset + alignment - 1) & ~(alignment - 1);
+            if (offset != layout.getFieldOffset(i)) {
+                throw new IllegalArgumentException("struct " + structClass.getName()
+                        + " can not be passed by value, field " + i + " is at offset " + layout.getFieldOffset(i)
+                        + " instead of " + offset);
+            }
+            offset += jffiFieldTypes[i].size();
+        }
+
+        this.jffiType = com.kenai.jffi.Struct.newStruct(jffiFieldTypes);
+        this.size = layout.size();
+    }
+
+    public static StructByValue getInstance(Class structClass) {
+        return layouts.get(structClass);
+    }
+
+    static boolean isByValue(Class javaType, Collection<Annotation> annotations) {
+        return Struct.class.isAssignableFrom(javaType) && InvokerUtil.hasAnnotation(annotations, ByValue.class);
+    }
+
+    com.kenai.jffi.Type getJffiType() {
+        return jffiType;
+    }
+
+    /**
+     * Appends a struct to the parameters of a call.
+     */
+    public void marshal(HeapInvocationBuffer buffer, Struct struct) {
+        Pointer memory = Struct.getMemory(struct);
+        int nativeSize = jffiType.size();
+        if (memory.isDirect() && size >= nativeSize) {
+            buffer.putStruct(memory.address());
+
+        } else if (memory.hasArray() && memory.arrayLength() >= nativeSize) {
+            buffer.putStruct((byte[]) memory.array(), memory.arrayOffset());
+
+        } else {
+            byte[] bytes = new byte[nativeSize];
+            memory.get(0, bytes, 0, Math.min(size, nativeSize));
+            buffer.putStruct(bytes, 0);
+        }
+    }
+
+    /**
+     * Creates a struct backed by the bytes of a struct result.
+     */
+    public Struct fromNative(Runtime runtime, byte[] bytes) {
+        Struct struct = newStruct(runtime);
+        byte[] memory = bytes.length >= size ? bytes : Arrays.copyOf(bytes, size);
+        struct.useMemory(new ArrayMemoryIO(runtime, memory, 0, memory.length));
+        return struct;
+    }
+
+    private Struct newStruct(Runtime runtime) {
+        try {
+            return constructor.newInstance(runtime);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -50,6 +50,10 @@ public class TransientNativeMemory extends DirectMemoryIO {
             throw new IllegalArgumentException("negative size: " + size);
         }
 
+        if (NativeMemoryPool.ENABLED) {
+            return NativeMemoryPool.allocate(runtime, size, align, clear);
+        }
+
         if (size > 256) { /* Only use the transient allocator for small, short lived allocations */
             return new AllocatedDirectMemoryIO(runtime, size, clear);
         }
@@ -59,6 +63,7 @@ public class TransientNativeMemory extends DirectMemoryIO {
         long address;
 
         if (sentinel == null || (address = magazine.allocate(size, align)) == 0) {
+            Object event = FlightRecorderEvents.ENABLED ? FlightRecorderEvents.TRANSIENT_ALLOCATION.begin() : null;
             PageManager pm = PageManager.getInstance();
             long memory;
             do {
@@ -71,6 +76,9 @@ public class TransientNativeMemory extends DirectMemoryIO {
                 System.gc();
                 FinalizableReferenceQueue.cleanUpAll(); 
             } while (true);
+            if (event != null) {
+                FlightRecorderEvents.TRANSIENT_ALLOCATION.commit(event, memory, PAGES_PER_MAGAZINE * pm.pageSize());
+            }
 
             referenceSet.put(magazine = new Magazine(sentinel = new Sentinel(), pm, memory, PAGES_PER_MAGAZINE), Boolean.TRUE);
             currentMagazine.set(magazine);
@@ -28,4 +28,14 @@ final class Util {
             return defaultValue;
         }
     }
+
+    static long getLongProperty(String propertyName, long defaultValue) {
+        try {
+            return Long.decode(System.getProperty(propertyName, Long.toString(defaultValue)));
+        } catch (SecurityException se) {
+            return defaultValue;
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
 }
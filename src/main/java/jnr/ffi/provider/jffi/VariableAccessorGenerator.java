@@ -78,8 +78,8 @@ public class VariableAccessorGenerator {
         jnr.ffi.mapper.ToNativeType toNativeType = typeMapper.getToNativeType(signatureType, context);
         ToNativeConverter toNativeConverter = toNativeType != null ? toNativeType.getToNativeConverter() : null;
 
-        Variable variableAccessor = buildVariableAccessor(builder.getRuntime(), address, interfaceClass, javaType, annotations,
-                toNativeConverter, fromNativeConverter, classLoader);
+        Variable variableAccessor = buildVariableAccessor(builder.getRuntime(), address, interfaceClass, variableName, javaType,
+                annotations, toNativeConverter, fromNativeConverter, classLoader);
         SkinnyMethodAdapter mv = new SkinnyMethodAdapter(builder.getClassVisitor(), ACC_PUBLIC | ACC_FINAL,
                 variableName, sig(Variable.class), null, null);
         mv.start();
@@ -90,14 +90,38 @@ public class VariableAccessorGenerator {
         mv.visitEnd();
     }
 
-    Variable buildVariableAccessor(jnr.ffi.Runtime runtime, long address, Class interfaceClass, Class javaType, Collection<Annotation> annotations,
+    Variable buildVariableAccessor(jnr.ffi.Runtime runtime, long address, Class interfaceClass, String variableName,
+                                   Class javaType, Collection<Annotation> annotations,
                                    ToNativeConverter toNativeConverter, FromNativeConverter fromNativeConverter,
                                    AsmClassLoader classLoader) {
+        Variable variable = buildVariableAccessor(runtime, address, interfaceClass, javaType, annotations,
+                toNativeConverter, fromNativeConverter, classLoader,
+                GeneratedClassCache.lookup(classLoader, interfaceClass, p(interfaceClass) + "$VariableAccessor$$",
+                        variableName, javaType, annotations, toNativeConverter, fromNativeConverter));
+        if (variable == null) {
+            // the cached class did not match the variable and was discarded, so generate it again
+            variable = buildVariableAccessor(runtime, address, interfaceClass, javaType, annotations,
+                    toNativeConverter, fromNativeConverter, classLoader, null);
+        }
+
+        return variable;
+    }
+
+    /**
+     * Generates the accessor class of a global variable, or reuses a cached one if there is an entry for it.
+     *
+     * @return an accessor, or {@code null} if the cached class did not match and was discarded.
+     */
+    private Variable buildVariableAccessor(jnr.ffi.Runtime runtime, long address, Class interfaceClass, Class javaType,
+                                           Collection<Annotation> annotations,
+                                           ToNativeConverter toNativeConverter, FromNativeConverter fromNativeConverter,
+                                           AsmClassLoader classLoader, GeneratedClassCache.Entry cacheEntry) {
         boolean debug = AsmLibraryLoader.DEBUG && !hasAnnotation(annotations, NoTrace.class);
-        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        ClassVisitor cv = debug ? AsmUtil.newCheckClassAdapter(cw) : cw;
+        ClassWriter cw = cacheEntry == null ? new ClassWriter(ClassWriter.COMPUTE_FRAMES) : null;
+        ClassVisitor cv = cacheEntry != null ? cacheEntry.getClassVisitor() : debug ? AsmUtil.newCheckClassAdapter(cw) : cw;
 
-        AsmBuilder builder = new AsmBuilder(runtime, p(interfaceClass) + "$VariableAccessor$$" + nextClassID.getAndIncrement(), cv, classLoader);
+        AsmBuilder builder = new AsmBuilder(runtime, cacheEntry != null
+                ? cacheEntry.getClassName() : p(interfaceClass) + "$VariableAccessor$$" + nextClassID.getAndIncrement(), cv, classLoader);
         cv.visit(V1_8, ACC_PUBLIC | ACC_FINAL, builder.getClassNamePath(), null, p(Object.class),
                 new String[]{p(Variable.class)});
 
@@ -171,13 +195,19 @@ public class VariableAccessorGenerator {
         cv.visitEnd();
 
         try {
-            byte[] bytes = cw.toByteArray();
-            if (debug) {
-                ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
-                new ClassReader(bytes).accept(trace, 0);
+            Class<Variable> implClass;
+            if (cacheEntry != null) {
+                if ((implClass = cacheEntry.define(classLoader)) == null) {
+                    return null;
+                }
+            } else {
+                byte[] bytes = cw.toByteArray();
+                if (debug) {
+                    ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
+                    new ClassReader(bytes).accept(trace, 0);
+                }
+                implClass = classLoader.defineClass(builder.getClassNamePath().replace("/", "."), bytes);
             }
-
-            Class<Variable> implClass = classLoader.defineClass(builder.getClassNamePath().replace("/", "."), bytes);
             Constructor<Variable> cons = implClass.getDeclaredConstructor(Object[].class);
             return cons.newInstance(new Object[] { builder.getObjectFieldValues() });
         } catch (Throwable ex) {
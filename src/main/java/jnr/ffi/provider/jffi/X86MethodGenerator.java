@@ -24,10 +24,10 @@ import com.kenai.jffi.ObjectParameterInfo;
 import com.kenai.jffi.Platform;
 import jnr.ffi.CallingConvention;
 import jnr.ffi.NativeType;
-import jnr.ffi.Pointer;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.ffi.provider.SigType;
+import jnr.ffi.provider.jffi.BaseMethodGenerator.CallGuard;
 import org.objectweb.asm.Label;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -36,6 +36,7 @@ import static jnr.ffi.provider.jffi.AbstractFastNumericMethodGenerator.emitDirec
 import static jnr.ffi.provider.jffi.AbstractFastNumericMethodGenerator.emitParameterStrategyLookup;
 import static jnr.ffi.provider.jffi.AbstractFastNumericMethodGenerator.hasPointerParameterStrategy;
 import static jnr.ffi.provider.jffi.AsmUtil.unboxedReturnType;
+import static jnr.ffi.provider.jffi.BaseMethodGenerator.emitCallGuard;
 import static jnr.ffi.provider.jffi.BaseMethodGenerator.emitEpilogue;
 import static jnr.ffi.provider.jffi.BaseMethodGenerator.loadAndConvertParameter;
 import static jnr.ffi.provider.jffi.CodegenUtils.ci;
@@ -92,10 +93,9 @@ class X86MethodGenerator implements MethodGenerator {
             }
         }
 
-        if (objectCount > 0) {
-            if (parameterTypes.length > 4 || objectCount > 3) {
-                return false;
-            }
+        // Heap objects are passed by the jffi object invokers, which take up to 6 parameters
+        if (objectCount > 0 && parameterTypes.length > 6) {
+            return false;
         }
 
         return isSupportedResult(resultType)
@@ -159,13 +159,14 @@ class X86MethodGenerator implements MethodGenerator {
         final LocalVariable objCount = localVariableAllocator.allocate(int.class);
         final LocalVariable[] parameters = AsmUtil.getParameterVariables(parameterTypes);
         final LocalVariable[] converted = new LocalVariable[parameterTypes.length];
+        final CallGuard guard = emitCallGuard(mv, localVariableAllocator, parameterTypes, converted, false);
         int pointerCount = 0;
 
         for (int i = 0; i < parameterTypes.length; ++i) {
             Class javaParameterClass = parameterTypes[i].effectiveJavaType();
             Class nativeParameterClass = nativeParameterTypes[i];
 
-            converted[i] = loadAndConvertParameter(builder, mv, localVariableAllocator, parameters[i], parameterTypes[i]);
+            converted[i] = loadAndConvertParameter(builder, mv, localVariableAllocator, parameters[i], parameterTypes[i], converted[i]);
 
             ToNativeOp toNativeOp = ToNativeOp.get(parameterTypes[i]);
             if (toNativeOp != null && toNativeOp.isPrimitive()) {
@@ -179,10 +180,14 @@ class X86MethodGenerator implements MethodGenerator {
             }
         }
         Label hasObjects = new Label();
+        Label hasObjectsEnd = new Label();
         Label convertResult = new Label();
 
         // If there are any objects, jump to the fast-object path
         if (pointerCount > 0) {
+            if (guard != null) {
+                guard.cover(mv, hasObjects, hasObjectsEnd);
+            }
             mv.iload(objCount);
             mv.ifne(hasObjects);
         }
@@ -197,7 +202,7 @@ class X86MethodGenerator implements MethodGenerator {
         if (pointerCount > 0) {
             mv.label(convertResult);
         }
-        emitEpilogue(builder, mv, resultType, parameterTypes, parameters, converted, null);
+        emitEpilogue(builder, mv, resultType, parameterTypes, parameters, converted, guard, null);
 
         /* --  method returns above - below is the object path, which will jump back above to return -- */
 
@@ -277,6 +282,7 @@ class X86MethodGenerator implements MethodGenerator {
 
             // Jump to the main conversion/boxing code above
             mv.go_to(convertResult);
+            mv.label(hasObjectsEnd);
         }
         mv.visitMaxs(100, localVariableAllocator.getSpaceUsed());
         mv.visitEnd();
@@ -288,7 +294,8 @@ class X86MethodGenerator implements MethodGenerator {
 
 
     private static boolean isSupportedObjectParameterType(ParameterType type) {
-        return Pointer.class.isAssignableFrom(type.effectiveJavaType());
+        return type.getNativeType() == NativeType.ADDRESS
+                && FastNumericMethodGenerator.isSupportedPointerParameterType(type.effectiveJavaType());
     }
 
 
@@ -20,6 +20,7 @@ package jnr.ffi.provider.jffi;
 
 import com.kenai.jffi.Function;
 import jnr.ffi.CallingConvention;
+import jnr.ffi.NativeType;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.x86asm.Assembler;
@@ -67,9 +68,6 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
         }
 
 
-        int fCount = 0;
-        int iCount = 0;
-
         for (ParameterType t : parameterTypes) {
             switch (t.getNativeType()) {
                 case SCHAR:
@@ -83,12 +81,8 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
                 case SLONGLONG:
                 case ULONGLONG:
                 case ADDRESS:
-                    ++iCount;
-                    break;
-
                 case FLOAT:
                 case DOUBLE:
-                    ++fCount;
                     break;
 
                 default:
@@ -97,8 +91,8 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
             }
         }
 
-        // We can only safely compile methods with up to 6 integer and 8 floating point parameters
-        return iCount <= 6 && fCount <= 8;
+        // Parameters that do not fit in registers are copied to the stack
+        return true;
     }
 
 
@@ -114,10 +108,50 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
                        Class resultClass, Class[] parameterClasses, CallingConvention convention, boolean saveErrno) {
 
         Assembler a = new Assembler(X86_64);
-        int iCount = iCount(parameterTypes);
-        int fCount = fCount(parameterTypes);
 
-        boolean canJumpToTarget = !saveErrno & iCount <= 6 & fCount <= 8;
+        // JNI functions all look like:
+        // foo(JNIEnv* env, jobject self, arg...)
+        // on AMD64, the first 6 integer args sit in %rdi, %rsi, %rdx, %rcx, %r8 and %r9, the first 8 floating
+        // point args sit in %xmm0..%xmm7, and the rest are on the stack in parameter order.
+        // So we need to shuffle all the integer args up to over-write the env and self arguments, which
+        // also moves integer args 5 & 6 from the stack into registers, and then copy the args still
+        // on the stack into a new stack frame, since they are now at different offsets.
+        //
+        int[] srcSlots = new int[parameterTypes.length];
+        int[] dstSlots = new int[parameterTypes.length];
+        int srcSlotCount = 0, dstSlotCount = 0;
+        for (int i = 0, iCount = 0, fCount = 0; i < parameterTypes.length; i++) {
+            srcSlots[i] = dstSlots[i] = -1;
+            switch (parameterTypes[i].getNativeType()) {
+                case FLOAT:
+                case DOUBLE:
+                    if (fCount++ >= 8) {
+                        srcSlots[i] = srcSlotCount++;
+                        dstSlots[i] = dstSlotCount++;
+                    }
+                    break;
+
+                default:
+                    if (iCount >= 4) {
+                        srcSlots[i] = srcSlotCount++;
+                    }
+
+                    if (iCount < 4) {
+                        loadRegisterArgument(a, parameterTypes[i].getNativeType(), iCount);
+
+                    } else if (iCount < 6) {
+                        // Stack args are above the return address
+                        loadStackArgument(a, parameterTypes[i].getNativeType(), dstRegisters64[iCount],
+                                dstRegisters32[iCount], 8 + (srcSlots[i] * 8));
+                    } else {
+                        dstSlots[i] = dstSlotCount++;
+                    }
+                    iCount++;
+                    break;
+            }
+        }
+
+        boolean canJumpToTarget = !saveErrno & dstSlotCount == 0;
         switch (resultType.getNativeType()) {
             case SINT:
             case UINT:
@@ -145,90 +179,6 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
                 break;
         }
 
-        // JNI functions all look like:
-        // foo(JNIEnv* env, jobject self, arg...)
-        // on AMD64, those sit in %rdi, %rsi, %rdx, %rcx, %r8 and %r9
-        // So we need to shuffle all the integer args up to over-write the
-        // env and self arguments
-        //
-        for (int i = 0; i < Math.min(iCount, 4); i++) {
-            switch (parameterTypes[i].getNativeType()) {
-                case SCHAR:
-                    a.movsx(dstRegisters64[i], srcRegisters8[i]);
-                    break;
-
-                case UCHAR:
-                    a.movzx(dstRegisters64[i], srcRegisters8[i]);
-                    break;
-
-                case SSHORT:
-                    a.movsx(dstRegisters64[i], srcRegisters16[i]);
-                    break;
-
-                case USHORT:
-                    a.movzx(dstRegisters64[i], srcRegisters16[i]);
-                    break;
-
-                case SINT:
-                    a.movsxd(dstRegisters64[i], srcRegisters32[i]);
-                    break;
-
-                case UINT:
-                    // mov with a 32bit dst reg zero extends to 64bit
-                    a.mov(dstRegisters32[i], srcRegisters32[i]);
-                    break;
-
-                default:
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
-            }
-        }
-
-        if (iCount > 6) {
-            throw new IllegalArgumentException("integer argument count > 6");
-        }
-
-        // For args 5 & 6 of the function, they would have been pushed on the stack
-        for (int i = 4; i < iCount; i++) {
-            int disp = 8 + ((4 - i) * 8);
-            switch (parameterTypes[i].getNativeType()) {
-                case SCHAR:
-                    a.movsx(dstRegisters64[i], byte_ptr(rsp, disp));
-                    break;
-
-                case UCHAR:
-                    a.movzx(dstRegisters64[i], byte_ptr(rsp, disp));
-                    break;
-
-                case SSHORT:
-                    a.movsx(dstRegisters64[i], word_ptr(rsp, disp));
-                    break;
-
-                case USHORT:
-                    a.movzx(dstRegisters64[i], word_ptr(rsp, disp));
-                    break;
-
-                case SINT:
-                    a.movsxd(dstRegisters64[i], dword_ptr(rsp, disp));
-                    break;
-
-                case UINT:
-                    // mov with a 32bit dst reg zero extends to 64bit
-                    a.mov(dstRegisters32[i], dword_ptr(rsp, disp));
-                    break;
-
-                default:
-                    a.mov(dstRegisters64[i], qword_ptr(rsp, disp));
-                    break;
-            }
-        }
-
-        // All the integer registers are loaded; there nothing to do for the floating
-        // registers, as the first 8 args are already in xmm0..xmm7, so just sanity check
-        if (fCount > 8) {
-            throw new IllegalArgumentException("float argument count > 8");
-        }
-
         if (canJumpToTarget) {
             a.jmp(imm(function.getFunctionAddress()));
             stubs.add(new Stub(name, sig(resultClass, parameterClasses), a));
@@ -238,10 +188,19 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
         // Need to align the stack to 16 bytes for function call.
         // It already has 8 bytes pushed (the return address), so making space
         // to save the return value from the function neatly aligns it to 16 bytes
-        int space = resultClass == float.class || resultClass == double.class
-                    ? 24 : 8;
+        // Args passed on the stack go below that, in a block padded to keep the alignment.
+        int space = (resultClass == float.class || resultClass == double.class
+                    ? 24 : 8) + align(dstSlotCount * 8, 16);
         a.sub(rsp, imm(space));
 
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (dstSlots[i] >= 0) {
+                // Reload from above the new frame and the return address, using %rax as scratch
+                loadStackArgument(a, parameterTypes[i].getNativeType(), rax, eax, space + 8 + (srcSlots[i] * 8));
+                a.mov(qword_ptr(rsp, dstSlots[i] * 8), rax);
+            }
+        }
+
         // Clear %rax, since it is used by varargs functions to determine the number of float registers to be saved
         a.mov(rax, imm(0));
 
@@ -350,42 +309,69 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
         stubs.add(new Stub(name, sig(resultClass, parameterClasses), a));
     }
 
-    static int fCount(ParameterType[] parameterTypes) {
-        int fCount = 0;
+    private static void loadRegisterArgument(Assembler a, NativeType nativeType, int i) {
+        switch (nativeType) {
+            case SCHAR:
+                a.movsx(dstRegisters64[i], srcRegisters8[i]);
+                break;
 
-        for (ParameterType t : parameterTypes) {
-            switch (t.getNativeType()) {
-                case FLOAT:
-                case DOUBLE:
-                    ++fCount;
-                    break;
-            }
-        }
+            case UCHAR:
+                a.movzx(dstRegisters64[i], srcRegisters8[i]);
+                break;
 
-        return fCount;
-    }
+            case SSHORT:
+                a.movsx(dstRegisters64[i], srcRegisters16[i]);
+                break;
 
-    static int iCount(ParameterType[] parameterTypes) {
-        int iCount = 0;
+            case USHORT:
+                a.movzx(dstRegisters64[i], srcRegisters16[i]);
+                break;
 
-        for (ParameterType t : parameterTypes) {
-            switch (t.getNativeType()) {
-                case SCHAR:
-                case UCHAR:
-                case SSHORT:
-                case USHORT:
-                case SINT:
-                case UINT:
-                case SLONG:
-                case ULONG:
-                case SLONGLONG:
-                case ULONGLONG:
-                case ADDRESS:
-                    ++iCount;
-                    break;
-            }
+            case SINT:
+                a.movsxd(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            case UINT:
+                // mov with a 32bit dst reg zero extends to 64bit
+                a.mov(dstRegisters32[i], srcRegisters32[i]);
+                break;
+
+            default:
+                a.mov(dstRegisters64[i], srcRegisters64[i]);
+                break;
         }
+    }
+
+    private static void loadStackArgument(Assembler a, NativeType nativeType, Register dst64, Register dst32, int disp) {
+        switch (nativeType) {
+            case SCHAR:
+                a.movsx(dst64, byte_ptr(rsp, disp));
+                break;
 
-        return iCount;
+            case UCHAR:
+                a.movzx(dst64, byte_ptr(rsp, disp));
+                break;
+
+            case SSHORT:
+                a.movsx(dst64, word_ptr(rsp, disp));
+                break;
+
+            case USHORT:
+                a.movzx(dst64, word_ptr(rsp, disp));
+                break;
+
+            case SINT:
+                a.movsxd(dst64, dword_ptr(rsp, disp));
+                break;
+
+            case UINT:
+                // mov with a 32bit dst reg zero extends to 64bit
+                a.mov(dst32, dword_ptr(rsp, disp));
+                break;
+
+            default:
+                a.mov(dst64, qword_ptr(rsp, disp));
+                break;
+        }
     }
 }
@@ -0,0 +1,124 @@
+package jnr.ffi.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.ObjectName;
+
+/**
+ * The call metrics of the functions of one loaded library interface.
+ * <p>
+ * Metrics are only collected when the {@code jnr.ffi.metrics.enabled} system property is {@code true}, in which
+ * case every call of a library function is timed and counted.  Each loaded library is also registered as a
+ * {@link LibraryMetricsMXBean} in the platform MBean server, until the library has been garbage collected.
+ * </p>
+ */
+public final class LibraryMetrics implements LibraryMetricsMXBean {
+    private static final List<LibraryMetrics> libraries = new CopyOnWriteArrayList<LibraryMetrics>();
+    private static final AtomicLong nextId = new AtomicLong(0);
+
+    private final String name;
+    private final List<String> libraryNames;
+    private final ConcurrentMap<String, FunctionMetrics> functions = new ConcurrentHashMap<String, FunctionMetrics>();
+    private volatile ObjectName objectName;
+
+    private LibraryMetrics(String name, List<String> libraryNames) {
+        this.name = name;
+        this.libraryNames = Collections.unmodifiableList(new ArrayList<String>(libraryNames));
+    }
+
+    /**
+     * Creates and registers the metrics of a library.  This is called when a library is loaded.
+     *
+     * @param interfaceClass the interface of the library.
+     * @param libraryNames the names of the native libraries.
+     * @return the metrics of the library.
+     */
+    public static LibraryMetrics register(Class<?> interfaceClass, List<String> libraryNames) {
+        LibraryMetrics metrics = new LibraryMetrics(interfaceClass.getName(), libraryNames);
+        libraries.add(metrics);
+        try {
+            ObjectName objectName = new ObjectName("jnr.ffi:type=LibraryMetrics,name="
+                    + ObjectName.quote(metrics.name) + ",id=" + nextId.getAndIncrement());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+            metrics.objectName = objectName;
+        } catch (Exception ex) {
+            Logger.getLogger(LibraryMetrics.class.getName()).log(Level.WARNING,
+                    "failed to register metrics of " + metrics.name, ex);
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Removes the metrics of a library from {@link #getAll()} and from the platform MBean server.  This is called
+     * once the library has been garbage collected.
+     */
+    public void unregister() {
+        if (libraries.remove(this) && objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Exception ex) {
+                Logger.getLogger(LibraryMetrics.class.getName()).log(Level.WARNING,
+                        "failed to unregister metrics of " + name, ex);
+            }
+        }
+    }
+
+    /**
+     * Gets the metrics of all loaded libraries.
+     *
+     * @return the metrics of the libraries, in the order they were loaded.
+     */
+    public static List<LibraryMetrics> getAll() {
+        return Collections.unmodifiableList(new ArrayList<LibraryMetrics>(libraries));
+    }
+
+    /**
+     * Gets the metrics of a native function, which are shared by all methods calling the function.
+     *
+     * @param functionName the name of the native function.
+     * @return the metrics of the function.
+     */
+    public FunctionMetrics getFunction(String functionName) {
+        FunctionMetrics function = functions.get(functionName);
+        if (function == null) {
+            FunctionMetrics existing = functions.putIfAbsent(functionName, function = new FunctionMetrics(functionName));
+            if (existing != null) {
+                function = existing;
+            }
+        }
+
+        return function;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getLibraryNames() {
+        return libraryNames;
+    }
+
+    public List<FunctionMetrics.Snapshot> getFunctions() {
+        List<FunctionMetrics.Snapshot> snapshots = new ArrayList<FunctionMetrics.Snapshot>(functions.size());
+        for (FunctionMetrics function : functions.values()) {
+            snapshots.add(function.snapshot());
+        }
+
+        return snapshots;
+    }
+
+    public void reset() {
+        for (FunctionMetrics function : functions.values()) {
+            function.reset();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package jnr.ffi.util;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link LibraryMetrics}, registered as
+ * {@code jnr.ffi:type=LibraryMetrics,name=<interface>,id=<n>} in the platform MBean server.
+ */
+public interface LibraryMetricsMXBean {
+    String getName();
+
+    List<String> getLibraryNames();
+
+    List<FunctionMetrics.Snapshot> getFunctions();
+
+    void reset();
+}
@@ -0,0 +1,261 @@
+package jnr.ffi.util;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.lang.reflect.Array;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable array of primitive values in direct memory, which can be passed to native functions as a pointer
+ * to its first element, without copying.
+ * <p>
+ * A native function parameter declared as a {@code NativeArray} subclass receives {@link #getPointer()}.  The
+ * memory is moved when the array grows beyond its capacity, so native code must not keep the pointer across calls
+ * that add elements; use {@link #ensureCapacity(int)} to grow the array in advance.  Like other memory from
+ * {@link Memory#allocateDirect(Runtime, long)}, the memory is freed once the array has been garbage collected,
+ * even when the array was created inside a {@link jnr.ffi.MemoryScope}.
+ * </p>
+ * <p>
+ * Each subclass adds the accessors of one element type, and iterates over its elements; the array must not be
+ * changed while it is iterated over.  Arrays are not thread safe.
+ * </p>
+ *
+ * @param <A> the java array type of the elements, such as {@code int[]}.
+ */
+public abstract class NativeArray<A> {
+    private static final int MIN_CAPACITY = 8;
+
+    private final Runtime runtime;
+    private final int elementSize;
+    private Pointer memory;
+    private int capacity;
+    private int size;
+
+    NativeArray(Runtime runtime, int elementSize, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity: " + capacity);
+        }
+        this.runtime = runtime;
+        this.elementSize = elementSize;
+        this.capacity = Math.max(capacity, 1);
+        this.memory = Memory.allocateDirect(runtime, (long) this.capacity * elementSize, true);
+    }
+
+    public final Runtime getRuntime() {
+        return runtime;
+    }
+
+    /**
+     * Gets the memory of the array.  The pointer is only valid until the array grows beyond its capacity.
+     *
+     * @return the pointer to the first element.
+     */
+    public final Pointer getPointer() {
+        return memory;
+    }
+
+    /**
+     * Gets the number of elements in the array.
+     *
+     * @return the number of elements.
+     */
+    public final int size() {
+        return size;
+    }
+
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of elements the array can hold without growing.
+     *
+     * @return the number of elements.
+     */
+    public final int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Removes all elements, keeping the memory.
+     */
+    public final void clear() {
+        size = 0;
+    }
+
+    /**
+     * Changes the number of elements.  New elements are zero.
+     *
+     * @param size the new number of elements.
+     */
+    public final void resize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("negative size: " + size);
+        }
+        if (size > this.size) {
+            ensureCapacity(size);
+            memory.setMemory((long) this.size * elementSize, (long) (size - this.size) * elementSize, (byte) 0);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Grows the memory, if needed, so it can hold a number of elements.
+     *
+     * @param minCapacity the number of elements.
+     */
+    public final void ensureCapacity(int minCapacity) {
+        if (minCapacity > capacity) {
+            reallocate(Math.max(minCapacity, Math.max(MIN_CAPACITY, capacity + (capacity >> 1))));
+        }
+    }
+
+    /**
+     * Shrinks the memory to the number of elements.
+     */
+    public final void trimToSize() {
+        if (Math.max(size, 1) < capacity) {
+            reallocate(Math.max(size, 1));
+        }
+    }
+
+    private void reallocate(int newCapacity) {
+        if (newCapacity < 0) {
+            throw new OutOfMemoryError("array too large");
+        }
+        Pointer newMemory = Memory.allocateDirect(runtime, (long) newCapacity * elementSize, true);
+        memory.transferTo(0, newMemory, 0, (long) size * elementSize);
+        Memory.dispose(memory);
+        memory = newMemory;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Adds the values of a java array at the end of the array, growing it if needed.
+     *
+     * @param src the array to copy the values from.
+     * @param off the index of the first value in {@code src}.
+     * @param len the number of values.
+     */
+    public final void addAll(A src, int off, int len) {
+        checkArray(Array.getLength(src), off, len);
+        long offset = append(len);
+        putValues(offset, src, off, len);
+    }
+
+    /**
+     * Copies elements to a java array.
+     *
+     * @param index the index of the first element.
+     * @param dst the array to copy the values to.
+     * @param off the index in {@code dst} of the first value.
+     * @param len the number of elements.
+     */
+    public final void get(int index, A dst, int off, int len) {
+        checkArray(Array.getLength(dst), off, len);
+        getValues(offset(index, len), dst, off, len);
+    }
+
+    /**
+     * Replaces elements with the values of a java array.
+     *
+     * @param index the index of the first element.
+     * @param src the array to copy the values from.
+     * @param off the index in {@code src} of the first value.
+     * @param len the number of elements.
+     */
+    public final void put(int index, A src, int off, int len) {
+        checkArray(Array.getLength(src), off, len);
+        putValues(offset(index, len), src, off, len);
+    }
+
+    /**
+     * Copies the elements to a new java array.
+     *
+     * @return the values of the elements.
+     */
+    public final A toArray() {
+        A values = newArray(size);
+        getValues(0, values, 0, size);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        A values = toArray();
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            sb.append(i > 0 ? ", " : "").append(Array.get(values, i));
+        }
+
+        return sb.append(']').toString();
+    }
+
+    abstract A newArray(int length);
+
+    abstract void getValues(long offset, A dst, int off, int len);
+
+    abstract void putValues(long offset, A src, int off, int len);
+
+    /**
+     * Adds a number of elements at the end of the array.
+     *
+     * @param count the number of elements.
+     * @return the offset of the first new element.
+     */
+    final long append(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count: " + count);
+        }
+        int index = size;
+        if (index + count < 0) {
+            throw new OutOfMemoryError("array too large");
+        }
+        ensureCapacity(index + count);
+        size = index + count;
+
+        return (long) index * elementSize;
+    }
+
+    final long offset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+        }
+
+        return (long) index * elementSize;
+    }
+
+    final long offset(int index, int length) {
+        if (index < 0 || length < 0 || index > size - length) {
+            throw new IndexOutOfBoundsException("range " + index + "+" + length + " out of bounds for size " + size);
+        }
+
+        return (long) index * elementSize;
+    }
+
+    private static void checkArray(int arrayLength, int off, int len) {
+        if (off < 0 || len < 0 || off > arrayLength - len) {
+            throw new IndexOutOfBoundsException("range " + off + "+" + len + " out of bounds for length " + arrayLength);
+        }
+    }
+
+    /**
+     * Iterates over the elements, for the typed iterators of the subclasses.
+     */
+    abstract class ElementIterator {
+        private int index;
+
+        public final boolean hasNext() {
+            return index < size;
+        }
+
+        final int nextIndex() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return index++;
+        }
+    }
+}
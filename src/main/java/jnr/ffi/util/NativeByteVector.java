@@ -0,0 +1,87 @@
+package jnr.ffi.util;
+
+import jnr.ffi.Runtime;
+
+import java.util.Iterator;
+
+/**
+ * A growable vector of {@code byte} values in direct memory, such as a buffer that native code reads from.
+ *
+ * @see NativeArray
+ */
+public final class NativeByteVector extends NativeArray<byte[]> implements Iterable<Byte> {
+    public NativeByteVector(Runtime runtime) {
+        this(runtime, 0);
+    }
+
+    /**
+     * Creates an empty vector.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param capacity the number of elements to allocate memory for.
+     */
+    public NativeByteVector(Runtime runtime, int capacity) {
+        super(runtime, 1, capacity);
+    }
+
+    /**
+     * Creates a vector containing a copy of the values of a java array.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param values the values to copy.
+     * @return the new vector.
+     */
+    public static NativeByteVector of(Runtime runtime, byte... values) {
+        NativeByteVector vector = new NativeByteVector(runtime, values.length);
+        vector.addAll(values, 0, values.length);
+        return vector;
+    }
+
+    public byte get(int index) {
+        return getPointer().getByte(offset(index));
+    }
+
+    public void set(int index, byte value) {
+        getPointer().putByte(offset(index), value);
+    }
+
+    /**
+     * Adds a value at the end of the vector, growing the vector if needed.
+     *
+     * @param value the value to add.
+     */
+    public void add(byte value) {
+        long offset = append(1);
+        getPointer().putByte(offset, value);
+    }
+
+    /**
+     * Iterates over the elements.
+     *
+     * @return an iterator reading the elements from native memory.
+     */
+    public Iterator<Byte> iterator() {
+        return new Elements();
+    }
+
+    @Override
+    byte[] newArray(int length) {
+        return new byte[length];
+    }
+
+    @Override
+    void getValues(long offset, byte[] dst, int off, int len) {
+        getPointer().get(offset, dst, off, len);
+    }
+
+    @Override
+    void putValues(long offset, byte[] src, int off, int len) {
+        getPointer().put(offset, src, off, len);
+    }
+
+    private final class Elements extends ElementIterator implements Iterator<Byte> {
+        public Byte next() {
+            return get(nextIndex());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package jnr.ffi.util;
+
+import jnr.ffi.Runtime;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * A growable array of {@code double} values in direct memory.
+ *
+ * @see NativeArray
+ */
+public final class NativeDoubleArray extends NativeArray<double[]> implements Iterable<Double> {
+    public NativeDoubleArray(Runtime runtime) {
+        this(runtime, 0);
+    }
+
+    /**
+     * Creates an empty array.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param capacity the number of elements to allocate memory for.
+     */
+    public NativeDoubleArray(Runtime runtime, int capacity) {
+        super(runtime, 8, capacity);
+    }
+
+    /**
+     * Creates an array containing a copy of the values of a java array.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param values the values to copy.
+     * @return the new array.
+     */
+    public static NativeDoubleArray of(Runtime runtime, double... values) {
+        NativeDoubleArray array = new NativeDoubleArray(runtime, values.length);
+        array.addAll(values, 0, values.length);
+        return array;
+    }
+
+    public double get(int index) {
+        return getPointer().getDouble(offset(index));
+    }
+
+    public void set(int index, double value) {
+        getPointer().putDouble(offset(index), value);
+    }
+
+    /**
+     * Adds a value at the end of the array, growing it if needed.
+     *
+     * @param value the value to add.
+     */
+    public void add(double value) {
+        long offset = append(1);
+        getPointer().putDouble(offset, value);
+    }
+
+    /**
+     * Iterates over the elements.
+     *
+     * @return an iterator reading the elements from native memory.
+     */
+    public PrimitiveIterator.OfDouble iterator() {
+        return new Elements();
+    }
+
+    @Override
+    double[] newArray(int length) {
+        return new double[length];
+    }
+
+    @Override
+    void getValues(long offset, double[] dst, int off, int len) {
+        getPointer().get(offset, dst, off, len);
+    }
+
+    @Override
+    void putValues(long offset, double[] src, int off, int len) {
+        getPointer().put(offset, src, off, len);
+    }
+
+    private final class Elements extends ElementIterator implements PrimitiveIterator.OfDouble {
+        public double nextDouble() {
+            return get(nextIndex());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package jnr.ffi.util;
+
+import jnr.ffi.Runtime;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * A growable array of 32-bit {@code int} values in direct memory.
+ *
+ * @see NativeArray
+ */
+public final class NativeIntArray extends NativeArray<int[]> implements Iterable<Integer> {
+    public NativeIntArray(Runtime runtime) {
+        this(runtime, 0);
+    }
+
+    /**
+     * Creates an empty array.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param capacity the number of elements to allocate memory for.
+     */
+    public NativeIntArray(Runtime runtime, int capacity) {
+        super(runtime, 4, capacity);
+    }
+
+    /**
+     * Creates an array containing a copy of the values of a java array.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param values the values to copy.
+     * @return the new array.
+     */
+    public static NativeIntArray of(Runtime runtime, int... values) {
+        NativeIntArray array = new NativeIntArray(runtime, values.length);
+        array.addAll(values, 0, values.length);
+        return array;
+    }
+
+    public int get(int index) {
+        return getPointer().getInt(offset(index));
+    }
+
+    public void set(int index, int value) {
+        getPointer().putInt(offset(index), value);
+    }
+
+    /**
+     * Adds a value at the end of the array, growing it if needed.
+     *
+     * @param value the value to add.
+     */
+    public void add(int value) {
+        long offset = append(1);
+        getPointer().putInt(offset, value);
+    }
+
+    /**
+     * Iterates over the elements.
+     *
+     * @return an iterator reading the elements from native memory.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new Elements();
+    }
+
+    @Override
+    int[] newArray(int length) {
+        return new int[length];
+    }
+
+    @Override
+    void getValues(long offset, int[] dst, int off, int len) {
+        getPointer().get(offset, dst, off, len);
+    }
+
+    @Override
+    void putValues(long offset, int[] src, int off, int len) {
+        getPointer().put(offset, src, off, len);
+    }
+
+    private final class Elements extends ElementIterator implements PrimitiveIterator.OfInt {
+        public int nextInt() {
+            return get(nextIndex());
+        }
+    }
+}
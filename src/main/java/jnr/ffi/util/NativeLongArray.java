@@ -0,0 +1,87 @@
+package jnr.ffi.util;
+
+import jnr.ffi.Runtime;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * A growable array of 64-bit {@code long} values in direct memory.
+ *
+ * @see NativeArray
+ */
+public final class NativeLongArray extends NativeArray<long[]> implements Iterable<Long> {
+    public NativeLongArray(Runtime runtime) {
+        this(runtime, 0);
+    }
+
+    /**
+     * Creates an empty array.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param capacity the number of elements to allocate memory for.
+     */
+    public NativeLongArray(Runtime runtime, int capacity) {
+        super(runtime, 8, capacity);
+    }
+
+    /**
+     * Creates an array containing a copy of the values of a java array.
+     *
+     * @param runtime the runtime to allocate memory with.
+     * @param values the values to copy.
+     * @return the new array.
+     */
+    public static NativeLongArray of(Runtime runtime, long... values) {
+        NativeLongArray array = new NativeLongArray(runtime, values.length);
+        array.addAll(values, 0, values.length);
+        return array;
+    }
+
+    public long get(int index) {
+        return getPointer().getLongLong(offset(index));
+    }
+
+    public void set(int index, long value) {
+        getPointer().putLongLong(offset(index), value);
+    }
+
+    /**
+     * Adds a value at the end of the array, growing it if needed.
+     *
+     * @param value the value to add.
+     */
+    public void add(long value) {
+        long offset = append(1);
+        getPointer().putLongLong(offset, value);
+    }
+
+    /**
+     * Iterates over the elements.
+     *
+     * @return an iterator reading the elements from native memory.
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new Elements();
+    }
+
+    @Override
+    long[] newArray(int length) {
+        return new long[length];
+    }
+
+    @Override
+    void getValues(long offset, long[] dst, int off, int len) {
+        getPointer().get(offset, dst, off, len);
+    }
+
+    @Override
+    void putValues(long offset, long[] src, int off, int len) {
+        getPointer().put(offset, src, off, len);
+    }
+
+    private final class Elements extends ElementIterator implements PrimitiveIterator.OfLong {
+        public long nextLong() {
+            return get(nextIndex());
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package jnr.ffi.util;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free ring buffer of fixed size records in direct memory, which native threads write into directly.
+ * <p>
+ * Records are written by one or more producers, in java with {@link #offer(byte[], int, int)} or in native code,
+ * and read in batches by a single java consumer with {@link #drain(Handler, int)}, so passing a record costs a few
+ * memory accesses instead of a downcall or an upcall.
+ * </p>
+ * <p>
+ * The memory layout is fixed, so native code can use it without jnr-ffi.  All values are in native byte order,
+ * and offsets are in bytes from the start of the buffer, which must be 8 byte aligned:
+ * </p>
+ * <pre>
+ *   0  int64 head       position of the next record to read, only written by the consumer
+ *  64  int64 tail       position of the next record to write, only written by producers
+ * 128  int32 capacity   number of slots, a power of two
+ * 132  int32 slotSize   maximum record length, a multiple of 8
+ * 136  int32 producers  1 for a single producer, 2 for multiple producers
+ * 192  slots            capacity slots of 16 + slotSize bytes each
+ *
+ * slot:
+ *   0  int64 sequence   the position the slot can be written at, or that position + 1 once written
+ *   8  int32 length     the length of the record
+ *  16  byte[slotSize]   the record
+ * </pre>
+ * <p>
+ * The record at position {@code p} is in slot {@code p & (capacity - 1)}.  A producer writes it as follows, and the
+ * consumer releases the slot for position {@code p + capacity} once it has been read:
+ * </p>
+ * <pre>
+ * int64_t p = __atomic_load_n(&amp;ring-&gt;tail, __ATOMIC_RELAXED);
+ * for (;;) {
+ *     slot = slots + (p &amp; (capacity - 1)) * (16 + slotSize);
+ *     int64_t seq = __atomic_load_n(&amp;slot-&gt;sequence, __ATOMIC_ACQUIRE);
+ *     if (seq &lt; p) return FULL;
+ *     if (seq == p &amp;&amp; __atomic_compare_exchange_n(&amp;ring-&gt;tail, &amp;p, p + 1, 0, __ATOMIC_RELAXED, __ATOMIC_RELAXED)) break;
+ *     if (seq &gt; p) p = __atomic_load_n(&amp;ring-&gt;tail, __ATOMIC_RELAXED);
+ * }
+ * memcpy(slot-&gt;data, record, length);
+ * slot-&gt;length = length;
+ * __atomic_store_n(&amp;slot-&gt;sequence, p + 1, __ATOMIC_RELEASE);
+ * </pre>
+ * <p>
+ * A single producer can store {@code tail} instead of using a compare-and-swap.
+ * </p>
+ */
+public final class RingBuffer {
+    private static final int HEAD_OFFSET = 0;
+    private static final int TAIL_OFFSET = 64;
+    private static final int CAPACITY_OFFSET = 128;
+    private static final int SLOT_SIZE_OFFSET = 132;
+    private static final int PRODUCERS_OFFSET = 136;
+    private static final int SLOTS_OFFSET = 192;
+    private static final int SLOT_HEADER_SIZE = 16;
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = 50000;
+
+    /**
+     * Whether records are written by a single producer thread, or by several.
+     */
+    public enum ProducerType {
+        SINGLE,
+        MULTI
+    }
+
+    /**
+     * How {@link #drain(Handler, int, WaitStrategy, long, TimeUnit)} waits for records.
+     */
+    public enum WaitStrategy {
+        /** Keeps checking for records, for the lowest latency at the cost of a CPU */
+        BUSY_SPIN,
+        /**
+         * Checks for records for a short while, then parks for 50 microseconds between checks.
+         * Native producers cannot unpark the consumer, so a record can wait that long to be read.
+         */
+        PARK
+    }
+
+    /**
+     * Receives the records read from the buffer.
+     */
+    public interface Handler {
+        /**
+         * Reads a record.  The record is only valid until this returns, after which it may be overwritten.
+         *
+         * @param memory the memory of the buffer.
+         * @param offset the offset of the record within {@code memory}.
+         * @param length the length of the record.
+         */
+        void onRecord(Pointer memory, long offset, int length);
+    }
+
+    private final Pointer memory;
+    private final int capacity;
+    private final int slotSize;
+    private final boolean multiProducer;
+
+    private RingBuffer(Pointer memory, int capacity, int slotSize, boolean multiProducer) {
+        this.memory = memory;
+        this.capacity = capacity;
+        this.slotSize = slotSize;
+        this.multiProducer = multiProducer;
+    }
+
+    /**
+     * Gets the size of the memory needed for a buffer.
+     *
+     * @param capacity the number of records, a power of two.
+     * @param slotSize the maximum record length.
+     * @return the size in bytes.
+     */
+    public static long size(int capacity, int slotSize) {
+        checkLayout(capacity, slotSize);
+        return SLOTS_OFFSET + (long) capacity * (SLOT_HEADER_SIZE + align(slotSize));
+    }
+
+    /**
+     * Allocates a buffer in direct memory, which is freed once the buffer has been garbage collected.
+     *
+     * @param runtime the runtime to allocate the memory with.
+     * @param capacity the number of records, a power of two.
+     * @param slotSize the maximum record length, rounded up to a multiple of 8.
+     * @param producerType whether there are several producers.
+     * @return the new buffer.
+     */
+    public static RingBuffer allocate(Runtime runtime, int capacity, int slotSize, ProducerType producerType) {
+        long size = size(capacity, slotSize);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("ring buffer too large: " + size);
+        }
+
+        return initialize(Memory.allocateDirect(runtime, (int) size, true), capacity, slotSize, producerType);
+    }
+
+    /**
+     * Creates a buffer in existing memory, such as shared or memory mapped memory.  Any previous contents of
+     * the memory are overwritten.
+     *
+     * @param memory direct memory of at least {@link #size(int, int)} bytes.
+     * @param capacity the number of records, a power of two.
+     * @param slotSize the maximum record length, rounded up to a multiple of 8.
+     * @param producerType whether there are several producers.
+     * @return the new buffer.
+     */
+    public static RingBuffer initialize(Pointer memory, int capacity, int slotSize, ProducerType producerType) {
+        checkMemory(memory, size(capacity, slotSize));
+        RingBuffer buffer = new RingBuffer(memory, capacity, align(slotSize), producerType == ProducerType.MULTI);
+        for (int i = 0; i < capacity; i++) {
+            memory.putLongLong(buffer.slotOffset(i), i);
+            memory.putInt(buffer.slotOffset(i) + 8, 0);
+        }
+        memory.putInt(CAPACITY_OFFSET, capacity);
+        memory.putInt(SLOT_SIZE_OFFSET, buffer.slotSize);
+        memory.putInt(PRODUCERS_OFFSET, producerType == ProducerType.MULTI ? 2 : 1);
+        memory.putLongLong(HEAD_OFFSET, 0L);
+        memory.putLongLongVolatile(TAIL_OFFSET, 0L);
+
+        return buffer;
+    }
+
+    /**
+     * Attaches to a buffer that has already been created, by java or by native code.
+     *
+     * @param memory the memory of the buffer.
+     * @return the buffer.
+     */
+    public static RingBuffer wrap(Pointer memory) {
+        int capacity = memory.getInt(CAPACITY_OFFSET);
+        int slotSize = memory.getInt(SLOT_SIZE_OFFSET);
+        int producers = memory.getInt(PRODUCERS_OFFSET);
+        if (slotSize % 8 != 0 || (producers != 1 && producers != 2)) {
+            throw new IllegalArgumentException("memory does not contain a ring buffer");
+        }
+        checkMemory(memory, size(capacity, slotSize));
+
+        return new RingBuffer(memory, capacity, slotSize, producers == 2);
+    }
+
+    public Pointer getMemory() {
+        return memory;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int slotSize() {
+        return slotSize;
+    }
+
+    public ProducerType getProducerType() {
+        return multiProducer ? ProducerType.MULTI : ProducerType.SINGLE;
+    }
+
+    /**
+     * Gets the number of records that have been claimed by producers and not yet read.
+     *
+     * @return the number of records.
+     */
+    public int size() {
+        long head = memory.getLongLongVolatile(HEAD_OFFSET);
+        long size = memory.getLongLongVolatile(TAIL_OFFSET) - head;
+
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    /**
+     * Writes a record, if there is a free slot.
+     *
+     * @param src the array to copy the record from.
+     * @param off the offset of the record in {@code src}.
+     * @param len the length of the record, at most {@link #slotSize()}.
+     * @return {@code true} if the record was written, {@code false} if the buffer is full.
+     */
+    public boolean offer(byte[] src, int off, int len) {
+        checkLength(len);
+        long position = claim();
+        if (position < 0) {
+            return false;
+        }
+
+        long slot = slotOffset(position);
+        memory.put(slot + SLOT_HEADER_SIZE, src, off, len);
+        publish(slot, position, len);
+        return true;
+    }
+
+    /**
+     * Writes a record copied from other memory, if there is a free slot.
+     *
+     * @param src the memory to copy the record from.
+     * @param offset the offset of the record in {@code src}.
+     * @param len the length of the record, at most {@link #slotSize()}.
+     * @return {@code true} if the record was written, {@code false} if the buffer is full.
+     */
+    public boolean offer(Pointer src, long offset, int len) {
+        checkLength(len);
+        long position = claim();
+        if (position < 0) {
+            return false;
+        }
+
+        long slot = slotOffset(position);
+        src.transferTo(offset, memory, slot + SLOT_HEADER_SIZE, len);
+        publish(slot, position, len);
+        return true;
+    }
+
+    /**
+     * Reads the records that have been written, without waiting for more.  Only one thread may read records.
+     * If the handler throws, the record it was given and those before it are consumed, and the exception is
+     * rethrown.
+     *
+     * @param handler the handler to pass each record to.
+     * @param limit the maximum number of records to read.
+     * @return the number of records read.
+     */
+    public int drain(Handler handler, int limit) {
+        long head = memory.getLongLong(HEAD_OFFSET);
+        int count = 0;
+        try {
+            while (count < limit) {
+                long slot = slotOffset(head);
+                if (memory.getLongLongAcquire(slot) != head + 1) {
+                    break;
+                }
+
+                try {
+                    handler.onRecord(memory, slot + SLOT_HEADER_SIZE, memory.getInt(slot + 8));
+                } finally {
+                    memory.putLongLongRelease(slot, head + capacity);
+                    head++;
+                    count++;
+                }
+            }
+        } finally {
+            // a record the handler threw on is skipped, the next drain starts after it
+            if (count > 0) {
+                memory.putLongLongRelease(HEAD_OFFSET, head);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads the records that have been written, waiting for at least one if there are none.  Only one thread
+     * may read records.
+     *
+     * @param handler the handler to pass each record to.
+     * @param limit the maximum number of records to read.
+     * @param waitStrategy how to wait for records.
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of {@code timeout}.
+     * @return the number of records read, which is 0 if the timeout expired or the thread was interrupted.
+     */
+    public int drain(Handler handler, int limit, WaitStrategy waitStrategy, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int idle = 0; ; idle++) {
+            int count = drain(handler, limit);
+            if (count > 0 || System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                return count;
+            }
+
+            if (waitStrategy == WaitStrategy.PARK && idle >= SPINS) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Claims the slot for the next record.
+     *
+     * @return the position of the record, or -1 if the buffer is full.
+     */
+    private long claim() {
+        long position = memory.getLongLongVolatile(TAIL_OFFSET);
+        for (;;) {
+            long sequence = memory.getLongLongAcquire(slotOffset(position));
+            if (sequence < position) {
+                return -1;
+
+            } else if (sequence == position) {
+                if (!multiProducer) {
+                    memory.putLongLongRelease(TAIL_OFFSET, position + 1);
+                    return position;
+                } else if (memory.compareAndSetLongLong(TAIL_OFFSET, position, position + 1)) {
+                    return position;
+                }
+            }
+
+            position = memory.getLongLongVolatile(TAIL_OFFSET);
+        }
+    }
+
+    private void publish(long slot, long position, int len) {
+        memory.putInt(slot + 8, len);
+        memory.putLongLongRelease(slot, position + 1);
+    }
+
+    private long slotOffset(long position) {
+        return SLOTS_OFFSET + (position & (capacity - 1)) * (SLOT_HEADER_SIZE + slotSize);
+    }
+
+    private void checkLength(int len) {
+        if (len < 0 || len > slotSize) {
+            throw new IllegalArgumentException("record length " + len + " is not between 0 and " + slotSize);
+        }
+    }
+
+    private static int align(int slotSize) {
+        return (slotSize + 7) & ~7;
+    }
+
+    private static void checkLayout(int capacity, int slotSize) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity is not a power of two: " + capacity);
+        }
+        if (slotSize < 0 || slotSize > Integer.MAX_VALUE - 7) {
+            throw new IllegalArgumentException("invalid slot size: " + slotSize);
+        }
+    }
+
+    private static void checkMemory(Pointer memory, long size) {
+        if (!memory.isDirect()) {
+            throw new IllegalArgumentException("ring buffer memory must be direct");
+        }
+        if (memory.size() != Long.MAX_VALUE && memory.size() < size) {
+            throw new IllegalArgumentException("ring buffer needs " + size + " bytes, memory is " + memory.size());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package jnr.ffi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicPointerTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    @Test
+    public void volatileAndOrdered() {
+        Pointer p = Memory.allocateDirect(runtime, 16);
+        p.putIntVolatile(0, 0x12345678);
+        assertEquals(0x12345678, p.getIntVolatile(0));
+        assertEquals(0x12345678, p.getInt(0));
+        p.putIntRelease(4, 42);
+        assertEquals(42, p.getIntAcquire(4));
+
+        p.putLongLongVolatile(8, 0x123456789abcdefL);
+        assertEquals(0x123456789abcdefL, p.getLongLongVolatile(8));
+        p.putLongLongRelease(8, -1L);
+        assertEquals(-1L, p.getLongLongAcquire(8));
+        assertEquals(-1L, p.getLongLong(8));
+    }
+
+    @Test
+    public void compareAndSet() {
+        Pointer p = Memory.allocateDirect(runtime, 16);
+        p.putInt(0, 1);
+        assertTrue(p.compareAndSetInt(0, 1, 2));
+        assertFalse(p.compareAndSetInt(0, 1, 3));
+        assertEquals(2, p.getInt(0));
+        assertEquals(2, p.getAndSetInt(0, 5));
+        assertEquals(5, p.getAndAddInt(0, 10));
+        assertEquals(15, p.getInt(0));
+
+        p.putLongLong(8, 1L);
+        assertTrue(p.compareAndSetLongLong(8, 1L, 1L << 40));
+        assertFalse(p.compareAndSetLongLong(8, 1L, 3L));
+        assertEquals(1L << 40, p.getAndSetLongLong(8, 7L));
+        assertEquals(7L, p.getAndAddLongLong(8, 3L));
+        assertEquals(10L, p.getLongLong(8));
+    }
+
+    @Test
+    public void concurrentIncrements() throws InterruptedException {
+        final Pointer p = Memory.allocateDirect(runtime, 16, true);
+        final int threadCount = 4, iterations = 100000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < iterations; j++) {
+                        p.getAndAddInt(0, 1);
+                        long value;
+                        do {
+                            value = p.getLongLongVolatile(8);
+                        } while (!p.compareAndSetLongLong(8, value, value + 2));
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threadCount * iterations, p.getIntVolatile(0));
+        assertEquals(2L * threadCount * iterations, p.getLongLongVolatile(8));
+    }
+
+    @Test
+    public void slices() {
+        Pointer p = Memory.allocateDirect(runtime, 32, true);
+        Pointer slice = p.slice(8, 16);
+        slice.putIntVolatile(4, 3);
+        assertEquals(3, p.getIntVolatile(12));
+        assertEquals(3, slice.getAndAddInt(4, 1));
+        assertEquals(4, p.getInt(12));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getAndAddLongLong(16, 1L));
+
+        Pointer shared = p.slice(16);
+        assertTrue(shared.compareAndSetLongLong(8, 0L, 9L));
+        assertEquals(9L, p.getLongLong(24));
+    }
+
+    @Test
+    public void unaligned() {
+        Pointer p = Memory.allocateDirect(runtime, 16);
+        assertThrows(IllegalArgumentException.class, () -> p.getIntVolatile(2));
+        assertThrows(IllegalArgumentException.class, () -> p.compareAndSetLongLong(4, 0L, 1L));
+    }
+
+    @Test
+    public void heapMemory() {
+        Pointer p = Memory.allocate(runtime, 16);
+        assertThrows(UnsupportedOperationException.class, () -> p.getAndAddInt(0, 1));
+    }
+}
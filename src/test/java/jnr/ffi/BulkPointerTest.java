@@ -0,0 +1,131 @@
+package jnr.ffi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkPointerTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    private static Pointer[] pointers(byte[] contents) {
+        Pointer direct = Memory.allocateDirect(runtime, contents.length + 16);
+        direct.put(3, contents, 0, contents.length);
+        Pointer heap = Memory.allocate(runtime, contents.length + 16);
+        heap.put(5, contents, 0, contents.length);
+        Pointer wrapped = Pointer.wrap(runtime, direct.address());
+
+        return new Pointer[] {
+                direct.slice(3, contents.length),
+                heap.slice(5, contents.length),
+                wrapped.slice(3),
+                heap.slice(5),
+        };
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void mismatchAndCompare() {
+        byte[] contents = random(100);
+        for (int position : new int[] { 0, 7, 8, 63, 99 }) {
+            byte[] changed = contents.clone();
+            changed[position] = (byte) (contents[position] ^ 0x80);
+            for (Pointer a : pointers(contents)) {
+                for (Pointer b : pointers(changed)) {
+                    assertEquals(position, a.mismatch(0, b, 0, 100));
+                    assertEquals(-1, a.mismatch(0, b, 0, position));
+                    assertEquals(Integer.signum((contents[position] & 0xff) - (changed[position] & 0xff)),
+                            Integer.signum(a.compare(0, b, 0, 100)));
+                    assertEquals(0, a.compare(0, b, 0, position));
+                }
+            }
+        }
+
+        Pointer p = pointers(contents)[0];
+        assertThrows(IndexOutOfBoundsException.class, () -> p.mismatch(0, p, 1, 100));
+    }
+
+    @Test
+    public void hash() {
+        byte[] contents = random(1000);
+        for (int length : new int[] { 0, 1, 7, 8, 9, 100, 1000 }) {
+            long expected = pointers(contents)[0].hash(0, length);
+            for (Pointer p : pointers(contents)) {
+                assertEquals(expected, p.hash(0, length));
+            }
+        }
+
+        Pointer p = pointers(contents)[1];
+        assertNotEquals(p.hash(0, 100), p.hash(1, 100));
+        assertNotEquals(p.hash(0, 8), p.hash(0, 9));
+    }
+
+    @Test
+    public void indexOfPattern() {
+        byte[] contents = new byte[200];
+        byte[] pattern = { 1, 2, 3, 1, 2, 4 };
+        System.arraycopy(pattern, 0, contents, 150, pattern.length);
+        System.arraycopy(pattern, 0, contents, 40, 5);
+        contents[10] = 1;
+        contents[194] = 1;
+        for (Pointer p : pointers(contents)) {
+            assertEquals(150, p.indexOf(0, 200, pattern));
+            assertEquals(-1, p.indexOf(0, 155, pattern));
+            assertEquals(0, p.indexOf(150, 6, pattern));
+            assertEquals(10, p.indexOf(0, 200, new byte[] { 1 }));
+            assertEquals(194, p.indexOf(160, 40, new byte[] { 1 }) + 160);
+            assertEquals(40, p.indexOf(0, 200, new byte[] { 1, 2, 3, 1, 2 }));
+            assertEquals(0, p.indexOf(7, 10, new byte[0]));
+        }
+    }
+
+    @Test
+    public void fill() {
+        long pattern = 0x0102030405060708L;
+        for (int size : new int[] { 0, 5, 8, 100, 256, 1001 }) {
+            Pointer expected = Memory.allocate(runtime, size + 8);
+            for (int i = 0; i + 8 <= size + 8; i += 8) {
+                expected.putLongLong(i, pattern);
+            }
+
+            for (Pointer p : pointers(new byte[size + 1])) {
+                p.fill(0, size, pattern);
+                assertEquals(-1, p.mismatch(0, expected, 0, size));
+                assertEquals(0, p.getByte(size));
+            }
+        }
+    }
+
+    @Test
+    public void transferToSwapped() {
+        byte[] contents = random(64);
+        for (int elementSize : new int[] { 1, 2, 4, 8 }) {
+            for (Pointer src : pointers(contents)) {
+                for (Pointer dst : pointers(new byte[64])) {
+                    src.transferToSwapped(0, dst, 0, 64, elementSize);
+                    for (int i = 0; i < 64; i++) {
+                        int swapped = i - i % elementSize + elementSize - 1 - i % elementSize;
+                        assertEquals(contents[swapped], dst.getByte(i));
+                    }
+                }
+            }
+        }
+
+        Pointer p = Memory.allocateDirect(runtime, 8);
+        p.putInt(0, 0x01020304);
+        p.transferToSwapped(0, p, 0, 4, 4);
+        assertEquals(0x04030201, p.getInt(0));
+        assertThrows(IllegalArgumentException.class, () -> p.transferToSwapped(0, p, 0, 6, 4));
+        assertThrows(IllegalArgumentException.class, () -> p.transferToSwapped(0, p, 0, 6, 3));
+        assertTrue(p.compare(0, p, 0, 8) == 0);
+    }
+}
@@ -0,0 +1,81 @@
+package jnr.ffi;
+
+import jnr.ffi.annotations.Critical;
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Out;
+import jnr.ffi.annotations.SaveError;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class CriticalTest {
+    public interface Unannotated {
+        int setLastError(int error);
+        int add_int32_t(int i1, int i2);
+        void fillByteBuffer(@In byte[] buf, byte value, int size);
+    }
+
+    public interface Annotated extends Unannotated {
+        @Critical @SaveError
+        int setLastError(int error);
+
+        @Critical
+        int add_int32_t(int i1, int i2);
+
+        @Critical
+        void fillByteBuffer(@In byte[] buf, byte value, int size);
+
+        @Critical
+        void fillByteBuffer(@Out ByteBuffer buf, byte value, int size);
+    }
+
+    private static final int MAGIC = 0xdeadbeef;
+
+    @Test
+    public void criticalMethodDoesNotSaveError() {
+        Annotated lib = TstUtil.loadTestLib(Annotated.class);
+        Runtime runtime = Runtime.getRuntime(lib);
+        runtime.setLastError(0);
+        assertEquals(-1, lib.setLastError(MAGIC));
+        assertNotEquals(MAGIC, runtime.getLastError());
+    }
+
+    @Test
+    public void criticalLibraryDoesNotSaveError() {
+        Map<LibraryOption, ?> options = Collections.singletonMap(LibraryOption.Critical, true);
+        Unannotated lib = TstUtil.loadTestLib(Unannotated.class, options);
+        Runtime runtime = Runtime.getRuntime(lib);
+        runtime.setLastError(0);
+        assertEquals(-1, lib.setLastError(MAGIC));
+        assertNotEquals(MAGIC, runtime.getLastError());
+        assertEquals(3, lib.add_int32_t(1, 2));
+    }
+
+    @Test
+    public void criticalMethodCalls() {
+        Annotated lib = TstUtil.loadTestLib(Annotated.class);
+        assertEquals(Integer.MIN_VALUE, lib.add_int32_t(Integer.MAX_VALUE, 1));
+
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        lib.fillByteBuffer(buffer, (byte) 5, 8);
+        assertArrayEquals(new byte[] { 5, 5, 5, 5, 5, 5, 5, 5 }, buffer.array());
+    }
+
+    @Test
+    public void criticalArrayParameterIsPinned() {
+        // An @In array is normally copied to native memory and not copied back, a pinned array is not copied at all
+        byte[] copied = new byte[4];
+        TstUtil.loadTestLib(Unannotated.class).fillByteBuffer(copied, (byte) 7, copied.length);
+        assertArrayEquals(new byte[4], copied);
+
+        byte[] pinned = new byte[4];
+        TstUtil.loadTestLib(Annotated.class).fillByteBuffer(pinned, (byte) 7, pinned.length);
+        assertArrayEquals(new byte[] { 7, 7, 7, 7 }, pinned);
+    }
+}
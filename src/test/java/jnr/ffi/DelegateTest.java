@@ -426,6 +426,24 @@ public class DelegateTest {
         assertEquals(p1, p2, "not same native address for Callable instance");
     }
 
+    @Test public void alternatingCallables() {
+        TestLib.ReusableCallable[] closures = new TestLib.ReusableCallable[6];
+        Pointer[] pointers = new Pointer[closures.length];
+        for (int i = 0; i < closures.length; i++) {
+            closures[i] = new TestLib.ReusableCallable() {
+                public void call(int a1) {}
+            };
+            pointers[i] = lib.ret_pointer(closures[i]);
+        }
+
+        // more callables than the call site caches, so some come from the site cache and some from the factory
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < closures.length; i++) {
+                assertEquals(pointers[i], lib.ret_pointer(closures[i]), "not same native address for Callable instance");
+            }
+        }
+    }
+
     @Test public void allocateMany() {
         for (int i = 0; i < 100000; i++) {
             lib.ret_pointer(new TestLib.ReusableCallable() {
@@ -0,0 +1,181 @@
+package jnr.ffi;
+
+import jnr.ffi.annotations.Delegate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Records the flight recorder events of jnr-ffi.  The {@code jdk.jfr} API is used reflectively, as the tests are
+ * built for Java 8.
+ */
+public class FlightRecorderTest {
+    public interface TestLib {
+        interface CallableVrV {
+            @Delegate void call();
+        }
+
+        int add_int32_t(int i1, int i2);
+        int sub_int32_t(Integer i1, Integer i2);
+        void testClosureVrV(CallableVrV closure);
+    }
+
+    private static final String[] EVENTS = {
+            "jnr.ffi.Downcall", "jnr.ffi.Upcall", "jnr.ffi.TransientMemoryAllocation", "jnr.ffi.DirectMemoryAllocation",
+            "jnr.ffi.DirectMemoryFree", "jnr.ffi.LibraryLoad", "jnr.ffi.LibraryBind"
+    };
+
+    @BeforeAll
+    public static void setUpClass() {
+        boolean available;
+        try {
+            Class.forName("jdk.jfr.EventFactory");
+            available = true;
+        } catch (ClassNotFoundException ex) {
+            available = false;
+        }
+        assumeTrue(available, "flight recorder not available");
+        System.setProperty("jnr.ffi.jfr.enabled", "true");
+    }
+
+    @Test
+    public void recordsEvents() throws Throwable {
+        Object recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+        for (String name : EVENTS) {
+            Object settings = invoke(recording, "enable", name);
+            invoke(settings, "withThreshold", Duration.ZERO);
+        }
+        invoke(recording, "start");
+
+        TestLib testlib = TstUtil.loadTestLib(TestLib.class);
+        assertEquals(3, testlib.add_int32_t(1, 2));
+        final boolean[] called = { false };
+        testlib.testClosureVrV(new TestLib.CallableVrV() {
+            public void call() {
+                called[0] = true;
+            }
+        });
+        assertTrue(called[0]);
+
+        final Runtime runtime = Runtime.getRuntime(testlib);
+        Memory.dispose(Memory.allocateDirect(runtime, 1024));
+        // A new thread allocates its own transient memory
+        Thread thread = new Thread() {
+            public void run() {
+                Memory.allocateDirect(runtime, 16);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        invoke(recording, "stop");
+        Path file = Files.createTempFile("jnr-ffi", ".jfr");
+        try {
+            invoke(recording, "dump", file);
+            invoke(recording, "close");
+
+            Map<String, List<Object>> events = new HashMap<String, List<Object>>();
+            for (Object event : (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, file)) {
+                String name = (String) invoke(invoke(event, "getEventType"), "getName");
+                if (!events.containsKey(name)) {
+                    events.put(name, new ArrayList<Object>());
+                }
+                events.get(name).add(event);
+            }
+
+            assertNotNull(find(events.get("jnr.ffi.Downcall"), "function", "add_int32_t"));
+            assertNotNull(find(events.get("jnr.ffi.Downcall"), "function", "testClosureVrV"));
+            assertNotNull(find(events.get("jnr.ffi.Upcall"), "callback", TestLib.CallableVrV.class.getName()));
+            assertNotNull(find(events.get("jnr.ffi.LibraryBind"), "library", TestLib.class.getName()));
+            assertNotNull(events.get("jnr.ffi.LibraryLoad"));
+            assertNotNull(events.get("jnr.ffi.TransientMemoryAllocation"));
+
+            Object allocation = find(events.get("jnr.ffi.DirectMemoryAllocation"), "size", 1024L);
+            assertNotNull(allocation);
+            Object free = find(events.get("jnr.ffi.DirectMemoryFree"), "address", get(allocation, "address"));
+            assertNotNull(free);
+            assertEquals(false, get(free, "reclaimed"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void recordsCallsThatThrow() throws Throwable {
+        Object recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+        invoke(invoke(recording, "enable", "jnr.ffi.Downcall"), "withThreshold", Duration.ZERO);
+        invoke(invoke(recording, "enable", "jnr.ffi.Upcall"), "withThreshold", Duration.ZERO);
+        invoke(recording, "start");
+
+        // a null number fails to convert to an argument, inside the call that the event times
+        TestLib testlib = TstUtil.loadTestLib(TestLib.class);
+        assertThrows(NullPointerException.class, () -> testlib.sub_int32_t(null, 1));
+        // an exception thrown by a callback is rethrown from the call that invoked it
+        assertThrows(IllegalStateException.class, () -> testlib.testClosureVrV(new TestLib.CallableVrV() {
+            public void call() {
+                throw new IllegalStateException("callback failed");
+            }
+        }));
+
+        invoke(recording, "stop");
+        Path file = Files.createTempFile("jnr-ffi", ".jfr");
+        try {
+            invoke(recording, "dump", file);
+            invoke(recording, "close");
+
+            Map<String, List<Object>> events = new HashMap<String, List<Object>>();
+            for (Object event : (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, file)) {
+                String name = (String) invoke(invoke(event, "getEventType"), "getName");
+                if (!events.containsKey(name)) {
+                    events.put(name, new ArrayList<Object>());
+                }
+                events.get(name).add(event);
+            }
+            assertNotNull(find(events.get("jnr.ffi.Downcall"), "function", "sub_int32_t"));
+            assertNotNull(find(events.get("jnr.ffi.Downcall"), "function", "testClosureVrV"));
+            assertNotNull(find(events.get("jnr.ffi.Upcall"), "callback", TestLib.CallableVrV.class.getName()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Object find(List<Object> events, String field, Object value) throws Exception {
+        if (events != null) {
+            for (Object event : events) {
+                if (value.equals(get(event, field))) {
+                    return event;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static Object get(Object event, String field) throws Exception {
+        return event.getClass().getMethod("getValue", String.class).invoke(event, field);
+    }
+
+    private static Object invoke(Object object, String methodName, Object... args) throws Exception {
+        Class[] parameterTypes = new Class[args.length];
+        for (int i = 0; i < args.length; i++) {
+            parameterTypes[i] = args[i] instanceof Path ? Path.class : args[i].getClass();
+        }
+
+        return object.getClass().getMethod(methodName, parameterTypes).invoke(object, args);
+    }
+}
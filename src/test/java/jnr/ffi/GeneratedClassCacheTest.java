@@ -0,0 +1,220 @@
+package jnr.ffi;
+
+import jnr.ffi.mapper.FunctionMapper;
+import jnr.ffi.provider.jffi.GeneratedClassCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class GeneratedClassCacheTest {
+    public static interface TestLib {
+        int add_int32_t(int i1, int i2);
+        long add_int64_t(long i1, long i2);
+        Variable<Integer> gvar_s32();
+    }
+
+    public static interface OtherLib {
+        int add_int32_t(int i1, int i2);
+    }
+
+    /**
+     * A function mapper that is configured through its fields.
+     */
+    public static final class PrefixMapper implements FunctionMapper {
+        private final String prefix;
+
+        public PrefixMapper(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String mapFunctionName(String functionName, Context context) {
+            return functionName.replace("add", prefix);
+        }
+    }
+
+    /**
+     * A function mapper with no state.
+     */
+    public static final class IdentityMapper implements FunctionMapper {
+        public String mapFunctionName(String functionName, Context context) {
+            return functionName;
+        }
+    }
+
+    static File cacheDirectory;
+
+    @BeforeAll
+    public static void setUpClass() {
+        assumeTrue(Boolean.parseBoolean(System.getProperty("jnr.ffi.asm.enabled", "true")));
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        cacheDirectory = Files.createTempDirectory("jnr-ffi-cache").toFile();
+        System.setProperty("jnr.ffi.cache.dir", cacheDirectory.getPath());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("jnr.ffi.cache.dir");
+        for (File f : cachedFiles(cacheDirectory)) {
+            f.delete();
+        }
+        File[] dirs = cacheDirectory.listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                dir.delete();
+            }
+        }
+        cacheDirectory.delete();
+    }
+
+    private static List<File> cachedFiles(File dir, String suffix) {
+        List<File> files = cachedFiles(dir);
+        files.removeIf(f -> !f.getName().endsWith(suffix));
+
+        return files;
+    }
+
+    private static List<File> cachedFiles(File dir) {
+        List<File> files = new ArrayList<File>();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File f : children) {
+                if (f.isDirectory()) {
+                    files.addAll(cachedFiles(f));
+                } else {
+                    files.add(f);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    @Test public void reuseAndInvalidate() throws IOException {
+        long misses = GeneratedClassCache.getMisses();
+        TestLib lib = TstUtil.loadTestLib(TestLib.class);
+        assertEquals(3, lib.add_int32_t(1, 2));
+        // the library and its variable accessor
+        assertEquals(misses + 2, GeneratedClassCache.getMisses());
+        assertEquals(2, cachedFiles(cacheDirectory, ".class").size());
+        assertEquals(2, cachedFiles(cacheDirectory, ".code").size());
+
+        // a later load in a new class loader is defined from the cache, under the same names
+        long hits = GeneratedClassCache.getHits();
+        String className = lib.getClass().getName();
+        lib = TstUtil.loadTestLib(TestLib.class);
+        assertEquals(5L, lib.add_int64_t(2L, 3L));
+        lib.gvar_s32().set(7);
+        assertEquals(7, lib.gvar_s32().get().intValue());
+        assertEquals(hits + 2, GeneratedClassCache.getHits());
+        assertEquals(misses + 2, GeneratedClassCache.getMisses());
+        assertEquals(className, lib.getClass().getName());
+
+        // damaged entries are discarded and the class is generated again
+        for (File f : cachedFiles(cacheDirectory)) {
+            FileOutputStream os = new FileOutputStream(f);
+            try {
+                os.write(new byte[] { (byte) 0xca, (byte) 0xfe });
+            } finally {
+                os.close();
+            }
+        }
+        long invalidations = GeneratedClassCache.getInvalidations();
+        lib = TstUtil.loadTestLib(TestLib.class);
+        assertEquals(3, lib.add_int32_t(1, 2));
+        assertTrue(GeneratedClassCache.getInvalidations() > invalidations);
+        for (File f : cachedFiles(cacheDirectory)) {
+            assertTrue(f.length() > 2);
+        }
+    }
+
+    @Test public void symbolsAreBoundAgain() throws IOException {
+        long boundHits = GeneratedClassCache.getBoundHits();
+        assertEquals(3, TstUtil.loadTestLib(OtherLib.class).add_int32_t(1, 2));
+        assertEquals(5, TstUtil.loadTestLib(OtherLib.class).add_int32_t(2, 3));
+        assertEquals(boundHits + 1, GeneratedClassCache.getBoundHits());
+
+        // a symbol that is found now, but was missing when the class was generated, means the class is emitted
+        // again and checked against the stored one
+        File bindings = null;
+        for (File f : cachedFiles(cacheDirectory)) {
+            if (f.getName().endsWith(".bindings")) {
+                bindings = f;
+            }
+        }
+        Files.write(bindings.toPath(), Collections.singletonList("missing add_int32_t"), StandardOpenOption.APPEND);
+        long hits = GeneratedClassCache.getHits();
+        assertEquals(7, TstUtil.loadTestLib(OtherLib.class).add_int32_t(3, 4));
+        assertEquals(boundHits + 1, GeneratedClassCache.getBoundHits());
+        assertEquals(hits + 1, GeneratedClassCache.getHits());
+    }
+
+    @Test public void entryThatDoesNotMatchIsDiscarded() throws IOException {
+        TstUtil.loadTestLib(TestLib.class);
+        List<File> testLibEntries = cachedFiles(cacheDirectory);
+        assertEquals(3, TstUtil.loadTestLib(OtherLib.class).add_int32_t(1, 2));
+        List<File> entries = cachedFiles(cacheDirectory);
+        entries.removeAll(testLibEntries);
+        entries.removeIf(f -> !f.getName().endsWith(".class"));
+        assertEquals(1, entries.size());
+        testLibEntries.removeIf(f -> !f.getName().endsWith(".class"));
+
+        // a well formed class with other fields and methods is stored under the key of OtherLib
+        Files.copy(testLibEntries.get(0).toPath(), entries.get(0).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        long invalidations = GeneratedClassCache.getInvalidations();
+        OtherLib lib = TstUtil.loadTestLib(OtherLib.class);
+        assertEquals(5, lib.add_int32_t(2, 3));
+        assertEquals(invalidations + 1, GeneratedClassCache.getInvalidations());
+    }
+
+    @Test public void codeThatDoesNotMatchIsDiscarded() throws IOException {
+        TstUtil.loadTestLib(TestLib.class);
+
+        // the outline of the stored classes still matches, but the code they were generated with does not
+        for (File f : cachedFiles(cacheDirectory, ".code")) {
+            Files.write(f.toPath(), "da39a3ee5e6b4b0d3255bfef95601890afd80709".getBytes("UTF-8"));
+        }
+        long invalidations = GeneratedClassCache.getInvalidations();
+        long hits = GeneratedClassCache.getHits();
+        TestLib lib = TstUtil.loadTestLib(TestLib.class);
+        assertEquals(3, lib.add_int32_t(1, 2));
+        assertEquals(invalidations + 2, GeneratedClassCache.getInvalidations());
+        assertEquals(hits, GeneratedClassCache.getHits());
+    }
+
+    @Test public void mapperWithStateIsNotCached() {
+        // two mappers of the same class map the function to different symbols
+        long misses = GeneratedClassCache.getMisses();
+        Map<LibraryOption, ?> options = Collections.singletonMap(LibraryOption.FunctionMapper,
+                new PrefixMapper("add"));
+        assertEquals(3, TstUtil.loadTestLib(OtherLib.class, options).add_int32_t(1, 2));
+        options = Collections.singletonMap(LibraryOption.FunctionMapper, new PrefixMapper("sub"));
+        assertEquals(-1, TstUtil.loadTestLib(OtherLib.class, options).add_int32_t(2, 3));
+        assertEquals(misses, GeneratedClassCache.getMisses());
+        assertTrue(cachedFiles(cacheDirectory).isEmpty());
+
+        options = Collections.singletonMap(LibraryOption.FunctionMapper, new IdentityMapper());
+        assertEquals(3, TstUtil.loadTestLib(OtherLib.class, options).add_int32_t(1, 2));
+        assertEquals(misses + 1, GeneratedClassCache.getMisses());
+        assertEquals(1, cachedFiles(cacheDirectory, ".class").size());
+    }
+}
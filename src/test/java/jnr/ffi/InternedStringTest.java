@@ -0,0 +1,67 @@
+package jnr.ffi;
+
+import jnr.ffi.annotations.Encoding;
+import jnr.ffi.annotations.Interned;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InternedStringTest {
+    public static interface TestLib {
+        boolean string_equals(@Interned String s1, String s2);
+        boolean string_equals(@Interned CharSequence s1, @Interned CharSequence s2);
+    }
+
+    public static interface EncodingLib {
+        @Encoding("UTF-8") boolean string_equals(@Interned String s1, byte[] s2);
+    }
+
+    static TestLib testlib;
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+    }
+
+    @Test public void repeatedStrings() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(testlib.string_equals("test", "test"));
+            assertFalse(testlib.string_equals("test", "deadbeef"));
+        }
+    }
+
+    @Test public void manyStrings() {
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 200; i++) {
+                String s = "key-" + i;
+                assertTrue(testlib.string_equals(s, s));
+                assertFalse(testlib.string_equals(s, s + "x"));
+            }
+        }
+    }
+
+    @Test public void largeStringsAreNotCached() {
+        StringBuilder sb = new StringBuilder();
+        // larger than the biggest entry of the default cache
+        for (int i = 0; i < 100000; i++) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        String s = sb.toString();
+        assertTrue(testlib.string_equals(s, s));
+        assertTrue(testlib.string_equals(new StringBuilder(s), s));
+    }
+
+    @Test public void encoding() {
+        EncodingLib lib = TstUtil.loadTestLib(EncodingLib.class);
+        String s = "caf\u00e9";
+        byte[] utf8 = s.getBytes(Charset.forName("UTF-8"));
+        byte[] expected = Arrays.copyOf(utf8, utf8.length + 1);
+        assertTrue(lib.string_equals(s, expected));
+        assertTrue(lib.string_equals(s, expected));
+    }
+}
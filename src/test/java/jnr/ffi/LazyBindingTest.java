@@ -0,0 +1,97 @@
+package jnr.ffi;
+
+import jnr.ffi.annotations.LongLong;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class LazyBindingTest {
+    public static interface TestLib {
+        int add_int32_t(int i1, int i2);
+        long add_int64_t(@LongLong long i1, @LongLong long i2);
+        double add_double(double d1, double d2);
+        boolean string_equals(String s1, String s2);
+        void testClosureVrV(Callback closure);
+        int no_such_function(int i);
+
+        interface Callback {
+            @jnr.ffi.annotations.Delegate void call();
+        }
+    }
+
+    static TestLib testlib;
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = TstUtil.loadTestLib(TestLib.class, Collections.singletonMap(LibraryOption.LazyBinding, true));
+    }
+
+    @Test public void callsBindOnFirstUse() {
+        assertEquals(3, testlib.add_int32_t(1, 2));
+        assertEquals(3, testlib.add_int32_t(1, 2));
+        assertEquals(Long.MAX_VALUE, testlib.add_int64_t(Long.MAX_VALUE - 1, 1));
+        assertEquals(3.5, testlib.add_double(1.25, 2.25), 0.0);
+        assertTrue(testlib.string_equals("test", "test"));
+    }
+
+    @Test public void callbacks() {
+        final boolean[] called = { false };
+        testlib.testClosureVrV(() -> called[0] = true);
+        assertTrue(called[0]);
+    }
+
+    @Test public void missingFunction() {
+        assertThrows(UnsatisfiedLinkError.class, () -> testlib.no_such_function(1));
+        assertThrows(UnsatisfiedLinkError.class, () -> testlib.no_such_function(1));
+    }
+
+    @Test public void failImmediatelyFindsEverySymbol() {
+        assumeTrue(Boolean.parseBoolean(System.getProperty("jnr.ffi.asm.enabled", "true")));
+        assertThrows(UnsatisfiedLinkError.class, () -> LibraryLoader.create(TestLib.class)
+                .option(LibraryOption.LazyBinding, true).failImmediately().load("test"));
+        assertThrows(UnsatisfiedLinkError.class, () -> LibraryLoader.create(TestLib.class)
+                .failImmediately().load("test"));
+    }
+
+    @Test public void bindingIsPrivateAndFinal() throws Exception {
+        assumeTrue(Boolean.parseBoolean(System.getProperty("jnr.ffi.asm.enabled", "true")));
+        int modifiers = testlib.getClass().getDeclaredField("jnr$lazyBinding").getModifiers();
+        assertTrue(Modifier.isPrivate(modifiers));
+        assertTrue(Modifier.isStatic(modifiers));
+        assertTrue(Modifier.isFinal(modifiers));
+    }
+
+    @Test public void concurrentFirstCalls() throws Exception {
+        TestLib lib = TstUtil.loadTestLib(TestLib.class, Collections.singletonMap(LibraryOption.LazyBinding, true));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 8; i++) {
+                final int n = i;
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        return lib.add_int32_t(n, 1);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i + 1, results.get(i).get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package jnr.ffi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MappedMemoryTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+    private Path file;
+
+    @BeforeAll
+    public static void setUpClass() {
+        assumeTrue(Platform.getNativePlatform().getOS() != Platform.OS.WINDOWS);
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("jnr-ffi", ".bin");
+        byte[] contents = new byte[10000];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = (byte) i;
+        }
+        Files.write(file, contents);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    public void readOnly() throws IOException {
+        try (MappedMemory mapped = Memory.map(runtime, file, 0, 10000, FileChannel.MapMode.READ_ONLY)) {
+            Pointer p = mapped.getPointer();
+            assertEquals(10000, mapped.size());
+            assertEquals(10000, p.size());
+            assertTrue(p.isDirect());
+            assertTrue(mapped.advise(MappedMemory.Advice.SEQUENTIAL));
+            mapped.prefetch(0, 4096);
+
+            byte[] buf = new byte[16];
+            p.get(5000, buf, 0, buf.length);
+            for (int i = 0; i < buf.length; i++) {
+                assertEquals((byte) (5000 + i), buf[i]);
+            }
+        }
+    }
+
+    @Test
+    public void unalignedOffset() throws IOException {
+        try (MappedMemory mapped = Memory.map(runtime, file, 4099, 100, FileChannel.MapMode.READ_ONLY)) {
+            assertEquals((byte) 4099, mapped.getPointer().getByte(0));
+            assertEquals((byte) 4198, mapped.getPointer().getByte(99));
+            assertTrue(mapped.advise(MappedMemory.Advice.RANDOM, 50, 50));
+        }
+    }
+
+    @Test
+    public void readWriteExtendsFile() throws IOException {
+        try (MappedMemory mapped = Memory.map(runtime, file, 8192, 8192, FileChannel.MapMode.READ_WRITE)) {
+            assertEquals((byte) 8192, mapped.getPointer().getByte(0));
+            mapped.getPointer().putInt(4000, 0x01020304);
+            mapped.getPointer().put(8188, new byte[] { 1, 2, 3, 4 }, 0, 4);
+            mapped.force();
+        }
+
+        byte[] contents = Files.readAllBytes(file);
+        assertEquals(16384, contents.length);
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, new byte[] { contents[16380], contents[16381], contents[16382], contents[16383] });
+        try (MappedMemory mapped = Memory.map(runtime, file, 12192, 4, FileChannel.MapMode.READ_ONLY)) {
+            assertEquals(0x01020304, mapped.getPointer().getInt(0));
+        }
+    }
+
+    @Test
+    public void privateChangesAreNotWritten() throws IOException {
+        try (MappedMemory mapped = Memory.map(runtime, file, 0, 100, FileChannel.MapMode.PRIVATE)) {
+            mapped.getPointer().putByte(10, (byte) 99);
+            assertEquals((byte) 99, mapped.getPointer().getByte(10));
+        }
+
+        assertEquals((byte) 10, Files.readAllBytes(file)[10]);
+    }
+
+    @Test
+    public void readOnlyPastEndOfFile() {
+        assertThrows(IOException.class, () -> Memory.map(runtime, file, 8192, 8192, FileChannel.MapMode.READ_ONLY));
+    }
+
+    @Test
+    public void closeUnmaps() throws IOException {
+        MappedMemory mapped = Memory.map(runtime, file, 0, 100, FileChannel.MapMode.READ_ONLY);
+        mapped.close();
+        mapped.close();
+        assertThrows(IllegalStateException.class, mapped::force);
+
+        Memory.dispose(Memory.map(runtime, file, 0, 100, FileChannel.MapMode.READ_ONLY).getPointer());
+    }
+
+    @Test
+    public void accessAfterClose() throws IOException {
+        MappedMemory mapped = Memory.map(runtime, file, 0, 100, FileChannel.MapMode.READ_WRITE);
+        Pointer p = mapped.getPointer();
+        Pointer slice = p.slice(10, 10);
+        mapped.close();
+
+        // the memory is unmapped, so reading or writing it would crash the VM
+        assertThrows(IllegalStateException.class, () -> p.getByte(0));
+        assertThrows(IllegalStateException.class, () -> p.putInt(4, 1));
+        assertThrows(IllegalStateException.class, () -> p.get(0, new byte[16], 0, 16));
+        assertThrows(IllegalStateException.class, () -> p.getString(0));
+        assertThrows(IllegalStateException.class, () -> slice.getLongLong(0));
+        Pointer direct = Memory.allocateDirect(runtime, 16);
+        assertThrows(IllegalStateException.class, () -> direct.transferFrom(0, p, 0, 16));
+        assertThrows(IllegalStateException.class, () -> direct.mismatch(0, p, 0, 16));
+    }
+
+    @Test
+    public void accessOutsideMapping() throws IOException {
+        try (MappedMemory mapped = Memory.map(runtime, file, 0, 100, FileChannel.MapMode.READ_ONLY)) {
+            Pointer p = mapped.getPointer();
+            assertEquals((byte) 96, p.getByte(96));
+            assertThrows(IndexOutOfBoundsException.class, () -> p.getInt(97));
+            assertThrows(IndexOutOfBoundsException.class, () -> p.get(90, new byte[16], 0, 16));
+        }
+    }
+
+    @Test
+    public void rangeOutsideMapping() throws IOException {
+        try (MappedMemory mapped = Memory.map(runtime, file, 0, 100, FileChannel.MapMode.READ_ONLY)) {
+            assertThrows(IndexOutOfBoundsException.class, () -> mapped.advise(MappedMemory.Advice.NORMAL, 50, 51));
+            assertFalse(Platform.getNativePlatform().getOS() != Platform.OS.LINUX
+                    && mapped.advise(MappedMemory.Advice.HUGE_PAGE));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package jnr.ffi;
+
+import jnr.ffi.provider.jffi.NativeMemoryCleaner;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryCleanerTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    @Test public void threadCount() {
+        // the build sets the property, so that the tests run with more than one cleanup thread
+        long threads = Long.getLong("jnr.ffi.memory.cleaner.threads", 1);
+        assertEquals(threads, NativeMemoryCleaner.getThreadCount());
+    }
+
+    @Test public void disposeFreesOnce() {
+        long pending = NativeMemoryCleaner.getPendingBytes();
+        long disposed = NativeMemoryCleaner.getDisposedBytes();
+
+        Pointer ptr = Memory.allocateDirect(runtime, 4096);
+        assertEquals(pending + 4096, NativeMemoryCleaner.getPendingBytes());
+
+        Memory.dispose(ptr);
+        Memory.dispose(ptr);
+        assertEquals(pending, NativeMemoryCleaner.getPendingBytes());
+        assertEquals(disposed + 4096, NativeMemoryCleaner.getDisposedBytes());
+    }
+
+    @Test public void unreachableMemoryIsReclaimed() throws InterruptedException {
+        long reclaimed = NativeMemoryCleaner.getReclaimedBytes();
+        for (int i = 0; i < 100; i++) {
+            Memory.allocateDirect(runtime, 1024);
+        }
+
+        for (int i = 0; i < 100 && NativeMemoryCleaner.getReclaimedBytes() == reclaimed; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(NativeMemoryCleaner.getReclaimedBytes() > reclaimed);
+    }
+}
@@ -0,0 +1,83 @@
+package jnr.ffi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MemoryScopeTest {
+    private final Runtime runtime = Runtime.getSystemRuntime();
+
+    @Test public void memoryIsReusedAfterClose() {
+        long address;
+        try (MemoryScope scope = Memory.openScope(runtime)) {
+            Pointer ptr = scope.allocate(64);
+            ptr.putLong(0, 0xdeadbeefL);
+            assertEquals(0xdeadbeefL, ptr.getLong(0));
+            address = ptr.address();
+        }
+
+        try (MemoryScope scope = Memory.openScope(runtime)) {
+            Pointer ptr = Memory.allocateTemporary(runtime, NativeType.SLONGLONG);
+            assertEquals(address, ptr.address());
+            assertEquals(0L, ptr.getLong(0));
+        }
+    }
+
+    @Test public void nestedScopes() {
+        try (MemoryScope outer = Memory.openScope(runtime)) {
+            Pointer a = outer.allocate(16);
+            long next;
+            try (MemoryScope inner = Memory.openScope(runtime)) {
+                Pointer b = inner.allocate(16);
+                assertNotEquals(a.address(), b.address());
+                next = b.address();
+            }
+            assertEquals(next, outer.allocate(16).address());
+        }
+    }
+
+    @Test public void largeAllocationFallsBack() {
+        try (MemoryScope scope = Memory.openScope(runtime)) {
+            Pointer ptr = scope.allocate(1024 * 1024);
+            assertEquals(1024 * 1024, ptr.size());
+            ptr.putByte(1024 * 1024 - 1, (byte) 1);
+            assertEquals(1, ptr.getByte(1024 * 1024 - 1));
+        }
+    }
+
+    @Test public void directMemoryOutlivesScope() {
+        Pointer direct;
+        try (MemoryScope scope = Memory.openScope(runtime)) {
+            direct = Memory.allocateDirect(runtime, 64);
+            direct.putLong(0, 0xdeadbeefL);
+        }
+
+        try (MemoryScope scope = Memory.openScope(runtime)) {
+            assertNotEquals(direct.address(), scope.allocate(64).address());
+            assertEquals(0xdeadbeefL, direct.getLong(0));
+        }
+    }
+
+    @Test public void allocateFromOuterOrClosedScopeFails() {
+        MemoryScope outer = Memory.openScope(runtime);
+        try (MemoryScope inner = Memory.openScope(runtime)) {
+            assertThrows(IllegalStateException.class, () -> outer.allocate(16));
+        } finally {
+            outer.close();
+        }
+        assertThrows(IllegalStateException.class, () -> outer.allocate(16));
+    }
+
+    @Test public void outOfOrderCloseFails() {
+        MemoryScope outer = Memory.openScope(runtime);
+        MemoryScope inner = Memory.openScope(runtime);
+        try {
+            assertThrows(IllegalStateException.class, outer::close);
+        } finally {
+            inner.close();
+            outer.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package jnr.ffi;
+
+import jnr.ffi.util.NativeByteVector;
+import jnr.ffi.util.NativeDoubleArray;
+import jnr.ffi.util.NativeIntArray;
+import jnr.ffi.util.NativeLongArray;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.PrimitiveIterator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NativeArrayTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    public static interface TestLib {
+        void fillByteBuffer(NativeByteVector buf, byte value, int size);
+        void fillIntBuffer(NativeIntArray buf, int value, int size);
+        void fillLongBuffer(NativeLongArray buf, long value, int size);
+        void fillDoubleBuffer(NativeDoubleArray buf, double value, int size);
+        void copyIntBuffer(NativeIntArray dst, NativeIntArray src, int size);
+    }
+
+    private static TestLib testlib;
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+    }
+
+    @Test
+    public void growAndCopy() {
+        NativeIntArray array = new NativeIntArray(runtime);
+        assertTrue(array.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            array.add(i);
+        }
+        assertEquals(100, array.size());
+        assertTrue(array.capacity() >= 100);
+        assertEquals(42, array.get(42));
+        array.set(42, -1);
+        assertEquals(-1, array.getPointer().getInt(42 * 4));
+
+        array.addAll(new int[] { 1, 2, 3, 4 }, 1, 2);
+        assertEquals(102, array.size());
+        int[] values = new int[4];
+        array.get(99, values, 1, 3);
+        assertArrayEquals(new int[] { 0, 99, 2, 3 }, values);
+        array.put(0, new int[] { 7, 8 }, 0, 2);
+        assertEquals(8, array.toArray()[1]);
+
+        array.trimToSize();
+        assertEquals(102, array.capacity());
+        assertEquals(3, array.get(101));
+        array.resize(200);
+        assertEquals(0, array.get(199));
+        array.resize(2);
+        assertArrayEquals(new int[] { 7, 8 }, array.toArray());
+        array.clear();
+        assertEquals(0, array.size());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> array.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.put(0, new int[1], 0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.addAll(new int[1], 1, 1));
+    }
+
+    @Test
+    public void iterate() {
+        NativeLongArray array = NativeLongArray.of(runtime, 1L, 1L << 40, -1L);
+        PrimitiveIterator.OfLong it = array.iterator();
+        assertEquals(1L, it.nextLong());
+        assertEquals(1L << 40, it.nextLong());
+        assertEquals(-1L, it.nextLong());
+        assertFalse(it.hasNext());
+
+        double sum = 0;
+        for (double value : NativeDoubleArray.of(runtime, 0.5, 1.5, 2.0)) {
+            sum += value;
+        }
+        assertEquals(4.0, sum, 0.0);
+        assertEquals("[1, 2]", NativeByteVector.of(runtime, (byte) 1, (byte) 2).toString());
+    }
+
+    @Test
+    public void nativeParameters() {
+        NativeByteVector bytes = new NativeByteVector(runtime);
+        bytes.resize(1000);
+        testlib.fillByteBuffer(bytes, (byte) 5, bytes.size());
+        assertEquals(5, bytes.get(999));
+
+        NativeIntArray ints = new NativeIntArray(runtime, 16);
+        ints.resize(16);
+        testlib.fillIntBuffer(ints, 0x12345678, ints.size());
+        assertEquals(0x12345678, ints.get(15));
+        NativeIntArray copy = new NativeIntArray(runtime);
+        copy.resize(16);
+        testlib.copyIntBuffer(copy, ints, 16);
+        assertArrayEquals(ints.toArray(), copy.toArray());
+
+        NativeLongArray longs = new NativeLongArray(runtime);
+        longs.resize(3);
+        testlib.fillLongBuffer(longs, 1L << 50, longs.size());
+        assertEquals(1L << 50, longs.get(2));
+
+        NativeDoubleArray doubles = new NativeDoubleArray(runtime);
+        doubles.resize(3);
+        testlib.fillDoubleBuffer(doubles, 2.5, doubles.size());
+        assertArrayEquals(new double[] { 2.5, 2.5, 2.5 }, doubles.toArray());
+    }
+
+    @Test
+    public void growingMovesMemory() {
+        NativeIntArray array = new NativeIntArray(runtime, 1);
+        array.add(1);
+        Pointer before = array.getPointer();
+        array.ensureCapacity(1000);
+        assertNotEquals(before.address(), array.getPointer().address());
+        assertEquals(1, array.get(0));
+    }
+}
@@ -18,10 +18,15 @@
 
 package jnr.ffi;
 
+import jnr.ffi.provider.SlotObjectReferenceManager;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -60,4 +65,59 @@ public class ObjectReferenceManagerTest {
         assertSame(bar, referenceManager.get(ptr));
         assertSame(bar2, referenceManager.get(ptr2));
     }
+
+    @Test public void slotReferences() {
+        ObjectReferenceManager<String> referenceManager = new SlotObjectReferenceManager<String>(Runtime.getSystemRuntime());
+        String bar = "bar";
+        Pointer ptr = referenceManager.add(bar);
+        Pointer ptr2 = referenceManager.add(bar);
+        assertNotEquals(ptr, ptr2);
+        assertSame(bar, referenceManager.get(ptr));
+        assertSame(bar, referenceManager.get(Runtime.getSystemRuntime().getMemoryManager().newPointer(ptr.address())));
+        assertTrue(referenceManager.remove(ptr));
+        assertFalse(referenceManager.remove(ptr));
+        assertNull(referenceManager.get(ptr));
+        assertSame(bar, referenceManager.get(ptr2));
+    }
+
+    @Test public void staleSlotReference() {
+        ObjectReferenceManager<String> referenceManager = new SlotObjectReferenceManager<String>(Runtime.getSystemRuntime());
+        Pointer ptr = referenceManager.add("foo");
+        assertTrue(referenceManager.remove(ptr));
+        // the slot is reused, but the old handle must not find the new object
+        Pointer ptr2 = referenceManager.add("bar");
+        assertNotEquals(ptr.address(), ptr2.address());
+        assertNull(referenceManager.get(ptr));
+        assertFalse(referenceManager.remove(ptr));
+        assertSame("bar", referenceManager.get(ptr2));
+    }
+
+    @Test public void concurrentSlotReferences() throws InterruptedException {
+        final ObjectReferenceManager<Object> referenceManager = new SlotObjectReferenceManager<Object>(Runtime.getSystemRuntime());
+        final AtomicBoolean failed = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    Object[] objects = new Object[100];
+                    Pointer[] pointers = new Pointer[objects.length];
+                    for (int round = 0; round < 200; round++) {
+                        for (int i = 0; i < objects.length; i++) {
+                            pointers[i] = referenceManager.add(objects[i] = new Object());
+                        }
+                        for (int i = 0; i < objects.length; i++) {
+                            if (referenceManager.get(pointers[i]) != objects[i] || !referenceManager.remove(pointers[i])) {
+                                failed.set(true);
+                            }
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed.get());
+    }
 }
@@ -227,4 +227,47 @@ public class PointerTest {
             dst.transferFrom(10, dst, 0, src.size());
         });
     }
+
+    @Test
+    public void getStringDecodesUpToNul() {
+        Charset utf8 = Charset.forName("UTF-8");
+        String value = "caf\u00e9 \u20ac\ud83d\ude00";
+        byte[] bytes = value.getBytes(utf8);
+        for (Pointer ptr : new Pointer[] { Memory.allocateDirect(runtime, 64, true), Memory.allocate(runtime, 64) }) {
+            ptr.put(0, bytes, 0, bytes.length);
+            ptr.putByte(bytes.length, (byte) 0);
+            ptr.putByte(bytes.length + 1, (byte) 'x');
+            assertEquals(value, ptr.getString(0, 64, utf8));
+            assertEquals("caf", ptr.getString(0, 3, utf8));
+            assertEquals("", ptr.getString(bytes.length, 64 - bytes.length, utf8));
+            assertEquals("af", ptr.getString(1, 2, Charset.forName("ISO-8859-1")));
+        }
+    }
+
+    @Test
+    public void getLongString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        String value = sb.toString();
+        Pointer ptr = Memory.allocateDirect(runtime, value.length() + 1, true);
+        ptr.putString(0, value, value.length() + 1, Charset.forName("US-ASCII"));
+        assertEquals(value, ptr.getString(0));
+        assertEquals(value.substring(0, 10), ptr.getString(0, 10, Charset.forName("US-ASCII")));
+        // a short string after a long one must not see stale bytes
+        ptr.putString(0, "abc", 4, Charset.forName("US-ASCII"));
+        assertEquals("abc", ptr.getString(0));
+    }
+
+    @Test
+    public void getStringWithoutNulStopsAtMaxLength() {
+        Pointer ptr = Memory.allocateDirect(runtime, 2048, true);
+        ptr.setMemory(0, 2000, (byte) 'a');
+        assertEquals(8, ptr.getString(0, 8, Charset.forName("US-ASCII")).length());
+        assertEquals(1500, ptr.getString(0, 1500, Charset.forName("US-ASCII")).length());
+        Pointer unbounded = Pointer.wrap(runtime, ptr.address());
+        assertEquals(2000, unbounded.getString(0).length());
+        assertEquals(2000, unbounded.getString(0, Integer.MAX_VALUE, Charset.forName("US-ASCII")).length());
+    }
 }
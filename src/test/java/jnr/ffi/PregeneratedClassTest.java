@@ -0,0 +1,106 @@
+package jnr.ffi;
+
+import jnr.ffi.provider.jffi.GeneratedClassCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class PregeneratedClassTest {
+    public static interface TestLib {
+        int add_int32_t(int i1, int i2);
+        long add_int64_t(long i1, long i2);
+    }
+
+    /**
+     * Loads {@link TestLib} itself, so it sees the classes packaged in a directory as its resources.
+     */
+    static final class PackagedClassLoader extends URLClassLoader {
+        PackagedClassLoader(File packageDirectory) throws IOException {
+            super(new URL[] { packageDirectory.toURI().toURL(),
+                    TestLib.class.getProtectionDomain().getCodeSource().getLocation() },
+                    PregeneratedClassTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(TestLib.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> klass = findLoadedClass(name);
+                return klass != null ? klass : findClass(name);
+            }
+        }
+    }
+
+    static File outputDirectory;
+
+    @BeforeAll
+    public static void setUpClass() {
+        assumeTrue(Boolean.parseBoolean(System.getProperty("jnr.ffi.asm.enabled", "true")));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("jnr.ffi.pregenerated.output");
+        if (outputDirectory != null) {
+            delete(outputDirectory);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static int add(Class<?> interfaceClass, Object lib, int i1, int i2) throws ReflectiveOperationException {
+        return (Integer) interfaceClass.getMethod("add_int32_t", int.class, int.class).invoke(lib, i1, i2);
+    }
+
+    @Test public void captureAndReuse() throws Exception {
+        outputDirectory = Files.createTempDirectory("jnr-ffi-pregenerated").toFile();
+        System.setProperty("jnr.ffi.pregenerated.output", outputDirectory.getPath());
+        Class<?> capturedClass = new PackagedClassLoader(outputDirectory).loadClass(TestLib.class.getName());
+        assertEquals(3, add(capturedClass, TstUtil.loadTestLib(capturedClass), 1, 2));
+        System.clearProperty("jnr.ffi.pregenerated.output");
+
+        File dir = new File(outputDirectory, "META-INF/jnr-ffi/" + TestLib.class.getName());
+        assertTrue(new File(dir, "index").isFile());
+        File[] classes = dir.listFiles((d, name) -> name.endsWith(".class"));
+        assertEquals(1, classes != null ? classes.length : 0);
+        String key = classes[0].getName().substring(0, classes[0].getName().length() - ".class".length());
+        assertTrue(new File(dir, key + ".bindings").isFile());
+
+        // an interface packaged with its class is defined from it, under the name given by its key, and only
+        // the symbols of its functions are bound
+        long hits = GeneratedClassCache.getHits();
+        long boundHits = GeneratedClassCache.getBoundHits();
+        Class<?> interfaceClass = new PackagedClassLoader(outputDirectory).loadClass(TestLib.class.getName());
+        Object pregenerated = TstUtil.loadTestLib(interfaceClass);
+        assertEquals(hits + 1, GeneratedClassCache.getHits());
+        assertEquals(boundHits + 1, GeneratedClassCache.getBoundHits());
+        assertEquals(TestLib.class.getName() + "$jnr$ffi$" + key.substring(0, 16),
+                pregenerated.getClass().getName());
+        assertEquals(5, add(interfaceClass, pregenerated, 2, 3));
+
+        // the packaged class is not used by an interface that does not see it
+        assertEquals(3, TstUtil.loadTestLib(TestLib.class).add_int32_t(1, 2));
+        assertEquals(hits + 1, GeneratedClassCache.getHits());
+    }
+}
@@ -0,0 +1,159 @@
+package jnr.ffi;
+
+import jnr.ffi.util.RingBuffer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    public static interface TestLib {
+        int ring_produce(Pointer ring, int id, int count, int length);
+    }
+
+    private static TestLib testlib;
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+    }
+
+    @Test
+    public void offerAndDrain() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 4, 5, RingBuffer.ProducerType.SINGLE);
+        assertEquals(8, ring.slotSize());
+        assertEquals(RingBuffer.size(4, 8), RingBuffer.size(4, 5));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(new byte[] { (byte) i, 1, 2 }, 0, 3));
+        }
+        assertFalse(ring.offer(new byte[1], 0, 1));
+        assertEquals(4, ring.size());
+
+        final List<byte[]> records = new ArrayList<byte[]>();
+        RingBuffer.Handler handler = new RingBuffer.Handler() {
+            public void onRecord(Pointer memory, long offset, int length) {
+                byte[] record = new byte[length];
+                memory.get(offset, record, 0, length);
+                records.add(record);
+            }
+        };
+        assertEquals(3, ring.drain(handler, 3));
+        assertEquals(1, ring.size());
+        assertTrue(ring.offer(new byte[] { 4 }, 0, 1));
+        assertEquals(2, ring.drain(handler, 10));
+        assertEquals(0, ring.drain(handler, 10));
+
+        assertEquals(5, records.size());
+        assertArrayEquals(new byte[] { 0, 1, 2 }, records.get(0));
+        assertArrayEquals(new byte[] { 3, 1, 2 }, records.get(3));
+        assertArrayEquals(new byte[] { 4 }, records.get(4));
+        assertThrows(IllegalArgumentException.class, () -> ring.offer(new byte[9], 0, 9));
+    }
+
+    @Test
+    public void wrap() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 8, 16, RingBuffer.ProducerType.MULTI);
+        Pointer source = Memory.allocateDirect(runtime, 16);
+        source.putLongLong(0, 42L);
+        assertTrue(ring.offer(source, 0, 8));
+
+        RingBuffer wrapped = RingBuffer.wrap(ring.getMemory());
+        assertEquals(8, wrapped.capacity());
+        assertEquals(16, wrapped.slotSize());
+        assertSame(RingBuffer.ProducerType.MULTI, wrapped.getProducerType());
+        final long[] value = new long[1];
+        assertEquals(1, wrapped.drain((memory, offset, length) -> value[0] = memory.getLongLong(offset), 10));
+        assertEquals(42L, value[0]);
+        assertEquals(0, ring.size());
+
+        assertThrows(IllegalArgumentException.class, () -> RingBuffer.wrap(Memory.allocateDirect(runtime, 256, true)));
+        assertThrows(IllegalArgumentException.class,
+                () -> RingBuffer.allocate(runtime, 6, 8, RingBuffer.ProducerType.SINGLE));
+    }
+
+    @Test
+    public void drainAfterHandlerThrows() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 4, 8, RingBuffer.ProducerType.SINGLE);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(ring.offer(new byte[] { (byte) i }, 0, 1));
+            }
+
+            final List<Byte> records = new ArrayList<Byte>();
+            assertThrows(IllegalStateException.class, () -> ring.drain((memory, offset, length) -> {
+                if (memory.getByte(offset) == 1) {
+                    throw new IllegalStateException();
+                }
+                records.add(memory.getByte(offset));
+            }, 10));
+            assertEquals(2, ring.size());
+
+            assertEquals(2, ring.drain((memory, offset, length) -> records.add(memory.getByte(offset)), 10));
+            assertEquals(0, ring.size());
+            assertEquals(3, records.size());
+            assertEquals(Byte.valueOf((byte) 3), records.get(2));
+        }
+    }
+
+    @Test
+    public void drainTimesOut() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 4, 8, RingBuffer.ProducerType.SINGLE);
+        assertEquals(0, ring.drain((memory, offset, length) -> { }, 10, RingBuffer.WaitStrategy.PARK,
+                10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void nativeSingleProducer() throws InterruptedException {
+        consume(RingBuffer.ProducerType.SINGLE, 1, 100000, RingBuffer.WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void nativeMultipleProducers() throws InterruptedException {
+        consume(RingBuffer.ProducerType.MULTI, 4, 50000, RingBuffer.WaitStrategy.PARK);
+    }
+
+    private void consume(RingBuffer.ProducerType producerType, int producerCount, final int count,
+                         RingBuffer.WaitStrategy waitStrategy) throws InterruptedException {
+        final RingBuffer ring = RingBuffer.allocate(runtime, 64, 24, producerType);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < producerCount; i++) {
+            final int id = i;
+            Thread producer = new Thread(() -> testlib.ring_produce(ring.getMemory(), id, count, 24));
+            producers.add(producer);
+            producer.start();
+        }
+
+        // Records from each producer must arrive complete and in order
+        final int[] next = new int[producerCount];
+        int total = 0;
+        while (total < producerCount * count) {
+            int drained = ring.drain((memory, offset, length) -> {
+                assertEquals(24, length);
+                int id = memory.getInt(offset);
+                assertEquals(next[id]++, memory.getInt(offset + 4));
+            }, 32, waitStrategy, 10, TimeUnit.SECONDS);
+            assertTrue(drained > 0);
+            total += drained;
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (int i = 0; i < producerCount; i++) {
+            assertEquals(count, next[i]);
+        }
+        assertEquals(0, ring.size());
+    }
+}
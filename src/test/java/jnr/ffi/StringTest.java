@@ -18,15 +18,25 @@
 
 package jnr.ffi;
 
+import jnr.ffi.annotations.Encoding;
 import jnr.ffi.annotations.In;
+import jnr.ffi.mapper.FromNativeConverter;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+import jnr.ffi.mapper.TypeMapper;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StringTest {
@@ -42,6 +52,46 @@ public class StringTest {
         void string_concat(StringBuffer dst, CharSequence src);
         String ptr_return_array_element(@In String[] array, int index);
     }
+
+    public static interface EncodingLib {
+        @Encoding("UTF-8") boolean string_equals(CharSequence s1, byte[] s2);
+        @Encoding("UTF-8") boolean string_equals(String s1, String s2);
+    }
+
+    public static interface AsciiLib {
+        @Encoding("US-ASCII") boolean string_equals(CharSequence s1, byte[] s2);
+    }
+
+    public static interface Latin1Lib {
+        @Encoding("ISO-8859-1") boolean string_equals(CharSequence s1, byte[] s2);
+    }
+
+    public static final class Unconvertible {
+    }
+
+    public static interface GuardedLib {
+        @Encoding("UTF-8") long ptr_from_buffer(CharSequence s);
+        @Encoding("UTF-8") long ptr_from_buffer(CharSequence s, Unconvertible u);
+    }
+
+    static final TypeMapper unconvertibleMapper = new TypeMapper() {
+        public FromNativeConverter getFromNativeConverter(Class type) {
+            return null;
+        }
+
+        public ToNativeConverter getToNativeConverter(Class type) {
+            return Unconvertible.class == type ? new ToNativeConverter<Unconvertible, Pointer>() {
+                public Pointer toNative(Unconvertible value, ToNativeContext context) {
+                    throw new IllegalStateException("unconvertible");
+                }
+
+                public Class<Pointer> nativeType() {
+                    return Pointer.class;
+                }
+            } : null;
+        }
+    };
+
     static TestLib testlib;
     @BeforeAll
     public static void setUpClass() throws Exception {
@@ -107,6 +157,51 @@ public class StringTest {
         assertFalse(testlib.string_equals("test", "deadbeef"), "strings should not be equal");
     }
 
+    private static byte[] nulTerminated(String s, Charset charset) {
+        byte[] bytes = s.getBytes(charset);
+        return Arrays.copyOf(bytes, bytes.length + 1);
+    }
+
+    @Test public void testEncodedStringParams() {
+        EncodingLib utf8 = TstUtil.loadTestLib(EncodingLib.class);
+        AsciiLib ascii = TstUtil.loadTestLib(AsciiLib.class);
+        Latin1Lib latin1 = TstUtil.loadTestLib(Latin1Lib.class);
+        Charset UTF8 = Charset.forName("UTF-8");
+        Charset ASCII = Charset.forName("US-ASCII");
+        Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+        for (String s : new String[] { "", "deadbeef", "caf\u00e9", "\u20ac 10", "\ud83d\ude00!", "lone \ud83d surrogate", "lone \ude00 low" }) {
+            assertTrue(utf8.string_equals(s, nulTerminated(s, UTF8)), "UTF-8 mismatch for " + s);
+            assertTrue(ascii.string_equals(s, nulTerminated(s, ASCII)), "US-ASCII mismatch for " + s);
+            assertTrue(latin1.string_equals(s, nulTerminated(s, LATIN1)), "ISO-8859-1 mismatch for " + s);
+        }
+        assertTrue(utf8.string_equals("caf\u00e9", "caf\u00e9"));
+        assertFalse(utf8.string_equals("caf\u00e9", "cafe"));
+    }
+
+    @Test public void testStringReleasedWhenLaterParameterThrows() {
+        GuardedLib lib = TstUtil.loadTestLib(GuardedLib.class,
+                Collections.singletonMap(LibraryOption.TypeMapper, unconvertibleMapper));
+        long address = lib.ptr_from_buffer("test");
+        assertThrows(IllegalStateException.class, () -> lib.ptr_from_buffer("test", new Unconvertible()));
+        // the string of the failed call was released, so the next one is encoded at the same place
+        assertEquals(address, lib.ptr_from_buffer("test"));
+    }
+
+    @Test public void testLongStringParams() {
+        EncodingLib utf8 = TstUtil.loadTestLib(EncodingLib.class);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append((char) ('a' + (i % 26))).append('\u00e9');
+        }
+        String s = sb.toString();
+        // larger than the per-thread buffer, so both parameters take the heap path
+        assertTrue(utf8.string_equals(s, s));
+        assertTrue(utf8.string_equals(s, nulTerminated(s, Charset.forName("UTF-8"))));
+        // and the buffer is still usable afterwards
+        assertTrue(utf8.string_equals("test", "test"));
+    }
+
     @Test public void stringResult() {
         final String MAGIC = "deadbeef";
         assertEquals(MAGIC, testlib.ptr_return_array_element(new String[] { MAGIC }, 0));
@@ -21,6 +21,8 @@ public class VarargsTest {
         @Variadic(fixedCount = 3)
         public int snprintf(Pointer buffer, @size_t long bufferSize, String format, long value);
         public int snprintf(Pointer buffer, @size_t long bufferSize, String format, Object... varargs);
+        @Variadic(fixedCount = 3)
+        public int snprintf(Pointer buffer, @size_t long bufferSize, String format, double value, int width);
     }
 
     static C c;
@@ -84,6 +86,26 @@ public class VarargsTest {
         assertEquals(expected, result);
     }
 
+    @Test public void testDoubleFixedVariadic() {
+        Pointer ptr = Runtime.getRuntime(c).getMemoryManager().allocate(5000);
+        int size = c.snprintf(ptr, 5000, "%.2f %d", 1.5, 42);
+        assertEquals("1.50 42", ptr.getString(0, size, Charset.defaultCharset()));
+    }
+
+    @Test public void testAlternatingShapes() {
+        Pointer ptr = Runtime.getRuntime(c).getMemoryManager().allocate(5000);
+        for (int i = 0; i < 3; i++) {
+            int size = c.snprintf(ptr, 5000, "%d %s", i, "abc");
+            assertEquals(i + " abc", ptr.getString(0, size, Charset.defaultCharset()));
+
+            size = c.snprintf(ptr, 5000, "%s %.1f", "abc", 2.5);
+            assertEquals("abc 2.5", ptr.getString(0, size, Charset.defaultCharset()));
+
+            size = c.snprintf(ptr, 5000, "%lld", (long) i);
+            assertEquals(String.valueOf(i), ptr.getString(0, size, Charset.defaultCharset()));
+        }
+    }
+
     @Meta
     @Encoding(value="ASCII")
     public static @interface AsciiEncoding {
@@ -0,0 +1,130 @@
+package jnr.ffi.numeric;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.TstUtil;
+import jnr.ffi.annotations.IgnoreError;
+import jnr.ffi.annotations.LongLong;
+import jnr.ffi.annotations.Out;
+import jnr.ffi.types.int16_t;
+import jnr.ffi.types.int32_t;
+import jnr.ffi.types.int8_t;
+import jnr.ffi.types.u_int16_t;
+import jnr.ffi.types.u_int32_t;
+import jnr.ffi.types.u_int8_t;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests functions with more arguments than are passed in registers, and with several array or buffer arguments.
+ * This uses the native functions from NumberTest.c
+ */
+public class ManyArgumentsTest {
+    public static interface TestLib {
+        @LongLong long weigh_int_6(@int8_t byte a1, @u_int8_t int a2, @int16_t short a3, @u_int16_t int a4,
+                                   @int32_t int a5, @u_int32_t long a6);
+
+        @LongLong long weigh_int_9(@int8_t byte a1, @u_int8_t int a2, @int16_t short a3, @u_int16_t int a4,
+                                   @int32_t int a5, @u_int32_t long a6, @LongLong long a7, @int32_t int a8,
+                                   @u_int16_t int a9);
+
+        double weigh_mixed_18(@int8_t byte i1, double d1, @u_int16_t int i2, float f2, @int32_t int i3, double d3,
+                              @u_int32_t long i4, double d4, @LongLong long i5, double d5, @int16_t short i6,
+                              double d6, @u_int8_t int i7, double d7, @int32_t int i8, double d8,
+                              double d9, float f10);
+
+        @LongLong long weigh_arrays(int[] a1, int[] a2, IntBuffer a3, Pointer a4, int n);
+
+        void fill_arrays(@Out byte[] a1, @Out short[] a2, @Out int[] a3, @Out long[] a4, @Out double[] a5, int n);
+    }
+
+    public static interface IgnoreErrorTestLib {
+        @IgnoreError
+        @LongLong long weigh_int_9(@int8_t byte a1, @u_int8_t int a2, @int16_t short a3, @u_int16_t int a4,
+                                   @int32_t int a5, @u_int32_t long a6, @LongLong long a7, @int32_t int a8,
+                                   @u_int16_t int a9);
+
+        @IgnoreError
+        double weigh_mixed_18(@int8_t byte i1, double d1, @u_int16_t int i2, float f2, @int32_t int i3, double d3,
+                              @u_int32_t long i4, double d4, @LongLong long i5, double d5, @int16_t short i6,
+                              double d6, @u_int8_t int i7, double d7, @int32_t int i8, double d8,
+                              double d9, float f10);
+    }
+
+    private static TestLib testlib;
+    private static IgnoreErrorTestLib ignoreError;
+
+    @BeforeAll
+    public static void beforeAll() {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        ignoreError = TstUtil.loadTestLib(IgnoreErrorTestLib.class);
+    }
+
+    private static long weighInt6(byte a1, int a2, short a3, int a4, int a5, long a6) {
+        return a1 + 2L * a2 + 3L * a3 + 4L * a4 + 5L * a5 + 6L * a6;
+    }
+
+    @Test
+    public void sixIntegerArguments() {
+        assertEquals(weighInt6((byte) -1, 0xfe, (short) -3, 0xfffc, -5, 0xfffffffaL),
+                testlib.weigh_int_6((byte) -1, 0xfe, (short) -3, 0xfffc, -5, 0xfffffffaL));
+    }
+
+    @Test
+    public void integerArgumentsOnStack() {
+        long expected = weighInt6((byte) -1, 0xfe, (short) -3, 0xfffc, -5, 0xfffffffaL)
+                + 7L * (Long.MIN_VALUE / 8) + 8L * -8 + 9L * 0xfff7;
+        assertEquals(expected, testlib.weigh_int_9((byte) -1, 0xfe, (short) -3, 0xfffc, -5, 0xfffffffaL,
+                Long.MIN_VALUE / 8, -8, 0xfff7));
+        assertEquals(expected, ignoreError.weigh_int_9((byte) -1, 0xfe, (short) -3, 0xfffc, -5, 0xfffffffaL,
+                Long.MIN_VALUE / 8, -8, 0xfff7));
+    }
+
+    @Test
+    public void mixedArgumentsOnStack() {
+        double expected = 1 * -1 + 2 * 0xfffe + 3 * -3 + 4 * (double) 0xfffffffcL + 5 * (double) -5L + 6 * -6 + 7 * 0xf9 + 8 * -8
+                + 10 * 1.5 + 20 * 2.5f + 30 * 3.5 + 40 * 4.5 + 50 * 5.5 + 60 * 6.5 + 70 * 7.5 + 80 * 8.5 + 90 * 9.5 + 100 * 10.5f;
+        assertEquals(expected, testlib.weigh_mixed_18((byte) -1, 1.5, 0xfffe, 2.5f, -3, 3.5, 0xfffffffcL, 4.5,
+                -5L, 5.5, (short) -6, 6.5, 0xf9, 7.5, -8, 8.5, 9.5, 10.5f), 0.0);
+        assertEquals(expected, ignoreError.weigh_mixed_18((byte) -1, 1.5, 0xfffe, 2.5f, -3, 3.5, 0xfffffffcL, 4.5,
+                -5L, 5.5, (short) -6, 6.5, 0xf9, 7.5, -8, 8.5, 9.5, 10.5f), 0.0);
+    }
+
+    @Test
+    public void heapAndDirectObjectArguments() {
+        Runtime runtime = Runtime.getRuntime(testlib);
+        int[] a1 = { 1, 2 };
+        int[] a2 = { 3, 4 };
+        IntBuffer a3 = IntBuffer.wrap(new int[] { 5, 6 });
+        Pointer a4 = Memory.allocateDirect(runtime, 8);
+        a4.putInt(0, 7);
+        a4.putInt(4, 8);
+        assertEquals((1 + 2) + 2 * (3 + 4) + 3 * (5 + 6) + 4 * (7 + 8), testlib.weigh_arrays(a1, a2, a3, a4, 2));
+
+        Pointer heap = Memory.allocate(runtime, 8);
+        heap.putInt(0, 7);
+        heap.putInt(4, 8);
+        assertEquals((1 + 2) + 2 * (3 + 4) + 3 * (5 + 6) + 4 * (7 + 8), testlib.weigh_arrays(a1, a2, a3, heap, 2));
+    }
+
+    @Test
+    public void fiveArrayArguments() {
+        byte[] a1 = new byte[3];
+        short[] a2 = new short[3];
+        int[] a3 = new int[3];
+        long[] a4 = new long[3];
+        double[] a5 = new double[3];
+        testlib.fill_arrays(a1, a2, a3, a4, a5, 3);
+        assertArrayEquals(new byte[] { 0, 1, 2 }, a1);
+        assertArrayEquals(new short[] { 0, 2, 4 }, a2);
+        assertArrayEquals(new int[] { 0, 3, 6 }, a3);
+        assertArrayEquals(new long[] { 0, 4, 8 }, a4);
+        assertArrayEquals(new double[] { 0, 5, 10 }, a5, 0.0);
+    }
+}
@@ -0,0 +1,55 @@
+package jnr.ffi.provider.converters;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InternedStringCacheTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test public void repeatedStrings() {
+        InternedCharSequenceParameterConverter.InternedStringCache cache
+                = new InternedCharSequenceParameterConverter.InternedStringCache(UTF8, 1024);
+        ByteBuffer buffer = cache.get("caf\u00e9");
+        assertSame(buffer, cache.get("caf\u00e9"));
+        assertTrue(buffer.isReadOnly());
+        assertTrue(buffer.isDirect());
+        assertEquals(9, buffer.remaining());
+        assertEquals(0, buffer.getInt(5));
+    }
+
+    @Test public void eviction() {
+        // 8 byte entries, so the cache holds 8 of them
+        InternedCharSequenceParameterConverter.InternedStringCache cache
+                = new InternedCharSequenceParameterConverter.InternedStringCache(UTF8, 64);
+        ByteBuffer[] buffers = new ByteBuffer[8];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = cache.get("key" + i);
+        }
+        // a hit gives the first entry a second chance, so the next one is evicted in its place
+        cache.get("key0");
+        cache.get("key8");
+
+        assertSame(buffers[0], cache.get("key0"));
+        assertNotSame(buffers[1], cache.get("key1"));
+    }
+
+    @Test public void largeStringsAreNotCached() {
+        InternedCharSequenceParameterConverter.InternedStringCache cache
+                = new InternedCharSequenceParameterConverter.InternedStringCache(UTF8, 1024);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append('a');
+        }
+        assertNull(cache.get(sb.toString()));
+        // a string that is short enough, but encodes to too many bytes
+        assertNull(cache.get(sb.substring(0, 30).replace('a', '\u20ac')));
+    }
+}
@@ -0,0 +1,91 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.LibraryOption;
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.annotations.LongLong;
+import jnr.ffi.types.u_int8_t;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs with the foreign function API on JDK 22 or later on 64 bit platforms, and with jffi otherwise.
+ */
+public class ForeignDowncallTest {
+    public static interface TestLib {
+        byte add_int8_t(byte i1, byte i2);
+        @u_int8_t short add_uint8_t(@u_int8_t short i1, @u_int8_t short i2);
+        int add_int32_t(int i1, int i2);
+        long add_int64_t(@LongLong long i1, @LongLong long i2);
+        float add_float(float f1, float f2);
+        double add_double(double d1, double d2);
+        Pointer ptr_malloc(int size);
+        void ptr_free(Pointer p);
+        void ptr_set_int32_t(Pointer p, int offset, int value);
+        int ptr_ret_int32_t(Pointer p, int offset);
+        Pointer ret_pointer(Pointer p);
+    }
+
+    static TestLib testlib;
+
+    private static TestLib load() {
+        return new NativeLibraryLoader<TestLib>(TestLib.class, new MethodHandleLibraryLoader(true))
+                .library("test")
+                .option(LibraryOption.IgnoreError, true)
+                .load();
+    }
+
+    private static boolean isForeignSupported() {
+        String version = System.getProperty("java.specification.version");
+        return !version.startsWith("1.") && Integer.parseInt(version) >= 22
+                && Runtime.getSystemRuntime().addressSize() == 8;
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = load();
+    }
+
+    @Test public void linker() {
+        assertEquals(isForeignSupported(), ForeignLinker.isAvailable());
+
+        // each library binds its functions on their first call
+        TestLib lib = load();
+        long downcalls = ForeignLinker.getDowncallCount();
+        assertEquals(3, lib.add_int32_t(1, 2));
+        assertEquals(3.5, lib.add_double(1.25, 2.25), 0.0);
+        assertEquals(isForeignSupported() ? downcalls + 2 : downcalls, ForeignLinker.getDowncallCount());
+    }
+
+    @Test public void numeric() {
+        assertEquals((byte) -128, testlib.add_int8_t((byte) 127, (byte) 1));
+        assertEquals((short) 0, testlib.add_uint8_t((short) 255, (short) 1));
+        assertEquals((short) 200, testlib.add_uint8_t((short) 100, (short) 100));
+        assertEquals(3, testlib.add_int32_t(1, 2));
+        assertEquals(Long.MAX_VALUE, testlib.add_int64_t(Long.MAX_VALUE - 1, 1));
+        assertEquals(3.5f, testlib.add_float(1.25f, 2.25f), 0.0f);
+        assertEquals(3.5, testlib.add_double(1.25, 2.25), 0.0);
+    }
+
+    @Test public void pointers() {
+        Pointer p = testlib.ptr_malloc(16);
+        try {
+            testlib.ptr_set_int32_t(p, 4, 0xdeadbeef);
+            assertEquals(0xdeadbeef, testlib.ptr_ret_int32_t(p, 4));
+            assertEquals(p.address(), testlib.ret_pointer(p).address());
+            assertNull(testlib.ret_pointer(null));
+        } finally {
+            testlib.ptr_free(p);
+        }
+
+        Pointer heap = Memory.allocate(Runtime.getRuntime(testlib), 16);
+        testlib.ptr_set_int32_t(heap, 8, 42);
+        assertEquals(42, heap.getInt(8));
+        assertTrue(testlib.getClass().getName().contains("$jnr$ffi$mh$"));
+    }
+}
@@ -0,0 +1,110 @@
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.PageManager;
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.provider.BoundedMemoryIO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryPoolTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    /** Allocates from the pool, whether or not it is enabled, as {@code Memory.allocateDirect} would */
+    private static Pointer allocate(long size, int align) {
+        return new BoundedMemoryIO(NativeMemoryPool.allocate(runtime, size, align, true), 0, size);
+    }
+
+    private static Pointer allocate(long size) {
+        return allocate(size, 8);
+    }
+
+    private static NativeMemoryPool.SizeClassStatistics statistics(int blockSize) {
+        for (NativeMemoryPool.SizeClassStatistics statistics : NativeMemoryPool.getStatistics()) {
+            if (statistics.getBlockSize() == blockSize) {
+                return statistics;
+            }
+        }
+
+        throw new IllegalArgumentException("no size class " + blockSize);
+    }
+
+    @Test public void disposedBlockIsReused() {
+        Pointer ptr = allocate(1000);
+        long address = ptr.address();
+        assertEquals(1000, ptr.size());
+        ptr.putInt(996, 0x12345678);
+        assertEquals(0x12345678, ptr.getInt(996));
+        Memory.dispose(ptr);
+
+        Pointer ptr2 = allocate(1024);
+        assertEquals(address, ptr2.address());
+        assertEquals(0, ptr2.getInt(996));
+        Memory.dispose(ptr2);
+    }
+
+    @Test public void countersTrackAllocations() {
+        NativeMemoryPool.SizeClassStatistics before = statistics(128);
+        Pointer[] pointers = new Pointer[10];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = allocate(100);
+        }
+        for (Pointer ptr : pointers) {
+            Memory.dispose(ptr);
+        }
+        // disposing twice is harmless
+        Memory.dispose(pointers[0]);
+
+        NativeMemoryPool.SizeClassStatistics after = statistics(128);
+        assertEquals(before.getAllocations() + 10, after.getAllocations());
+        assertEquals(before.getDisposed() + 10, after.getDisposed());
+        assertEquals(before.getBlocksInUse(), after.getBlocksInUse());
+        assertTrue(after.getReservedBytes() > 0);
+    }
+
+    @Test public void returnedBlocksAreNotCountedAsFreed() {
+        long disposed = NativeMemoryCleaner.getDisposedBytes();
+        long pooled = NativeMemoryCleaner.getPooledBytes();
+        Memory.dispose(allocate(200));
+        assertEquals(pooled + 256, NativeMemoryCleaner.getPooledBytes());
+        assertEquals(disposed, NativeMemoryCleaner.getDisposedBytes());
+    }
+
+    @Test public void disposingSliceIsIgnored() {
+        Pointer ptr = allocate(64);
+        long disposed = statistics(64).getDisposed();
+        Memory.dispose(ptr.slice(8, 16));
+        Memory.dispose(ptr.slice(0));
+        Memory.dispose(ptr.slice(0, 64));
+        assertEquals(disposed, statistics(64).getDisposed());
+
+        Pointer other = allocate(64);
+        assertNotEquals(ptr.address(), other.address());
+        Memory.dispose(other);
+        Memory.dispose(ptr);
+        assertEquals(disposed + 2, statistics(64).getDisposed());
+    }
+
+    @Test public void alignment() {
+        for (int align : new int[] { 8, 64, 512, 4096 }) {
+            Pointer ptr = allocate(24, align);
+            assertEquals(0, ptr.address() % align, "alignment " + align);
+            Memory.dispose(ptr);
+        }
+
+        long pageSize = PageManager.getInstance().pageSize();
+        assertThrows(IllegalArgumentException.class, () -> allocate(24, (int) pageSize * 2));
+    }
+
+    @Test public void largeAllocationBypassesPool() {
+        Pointer ptr = allocate(1024 * 1024);
+        assertEquals(1024 * 1024, ptr.size());
+        ptr.putByte(1024 * 1024 - 1, (byte) 1);
+        Memory.dispose(ptr);
+    }
+}
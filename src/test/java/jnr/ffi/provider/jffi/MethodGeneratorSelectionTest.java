@@ -0,0 +1,134 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.CallingConvention;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+import jnr.ffi.annotations.IgnoreError;
+import jnr.ffi.annotations.In;
+import jnr.ffi.mapper.DefaultSignatureType;
+import jnr.ffi.mapper.FromNativeContext;
+import jnr.ffi.mapper.MethodResultContext;
+import jnr.ffi.mapper.SignatureTypeMapper;
+import jnr.ffi.provider.NullTypeMapper;
+import jnr.ffi.provider.ParameterType;
+import jnr.ffi.provider.ResultType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks which method generator compiles each signature measured by the benchmarks in {@code benchmark/}, in each of
+ * the generator chains the benchmark classes select by disabling the generators ahead of the one under test.
+ */
+public class MethodGeneratorSelectionTest {
+    public interface BenchmarkLib {
+        @IgnoreError void returnVoid();
+        @IgnoreError void returnVoidI(int arg);
+        @IgnoreError int returnInt();
+        @IgnoreError int returnIntI(int arg);
+        @IgnoreError int returnIntII(int arg1, int arg2);
+        @IgnoreError int returnIntIII(int arg1, int arg2, int arg3);
+        @IgnoreError long returnLongLL(long arg1, long arg2);
+        @IgnoreError long returnLongLLL(long arg1, long arg2, long arg3);
+        @IgnoreError double returnDoubleFD(float arg1, double arg2);
+        @IgnoreError double returnDoubleIFD(int arg1, float arg2, double arg3);
+        @IgnoreError Pointer returnPointerP(Pointer arg);
+        @IgnoreError int returnIntP(Pointer arg);
+        @IgnoreError int returnIntPI(@In ByteBuffer arg, int len);
+        @IgnoreError int returnIntS(CharSequence str);
+        @IgnoreError long returnLongStruct(@In BenchStruct s);
+    }
+
+    public static final class BenchStruct extends Struct {
+        public final Signed32 i = new Signed32();
+
+        public BenchStruct(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    private static final NativeRuntime runtime = NativeRuntime.getInstance();
+    private static SignatureTypeMapper typeMapper;
+
+    private static final MethodGenerator X86 = new X86MethodGenerator(StubCompiler.newCompiler(runtime));
+    private static final MethodGenerator INT = new FastIntMethodGenerator();
+    private static final MethodGenerator LONG = new FastLongMethodGenerator();
+    private static final MethodGenerator NUMERIC = new FastNumericMethodGenerator();
+    private static final MethodGenerator BUFFER = new BufferMethodGenerator();
+    private static final MethodGenerator[] GENERATORS = { X86, INT, LONG, NUMERIC, BUFFER };
+
+    @BeforeAll
+    public static void setUpClass() {
+        AsmClassLoader classLoader = new AsmClassLoader(BenchmarkLib.class.getClassLoader());
+        typeMapper = LibraryLoader.newCompositeTypeMapper(runtime, classLoader, new NullTypeMapper(),
+                LibraryLoader.newClosureTypeMapper(classLoader, new NullTypeMapper()));
+    }
+
+    private static MethodGenerator select(int firstEnabled, String methodName) {
+        Method method = null;
+        for (Method m : BenchmarkLib.class.getMethods()) {
+            if (m.getName().equals(methodName)) {
+                method = m;
+            }
+        }
+
+        FromNativeContext resultContext = new MethodResultContext(runtime, method);
+        ResultType resultType = InvokerUtil.getResultType(runtime, method.getReturnType(), resultContext.getAnnotations(),
+                typeMapper.getFromNativeType(DefaultSignatureType.create(method.getReturnType(), resultContext), resultContext),
+                resultContext);
+        ParameterType[] parameterTypes = InvokerUtil.getParameterTypes(runtime, typeMapper, method);
+
+        return AsmLibraryLoader.selectGenerator(Arrays.copyOfRange(GENERATORS, firstEnabled, GENERATORS.length),
+                resultType, parameterTypes, CallingConvention.DEFAULT);
+    }
+
+    private static void assertSelected(int firstEnabled, MethodGenerator expected, String... methodNames) {
+        for (String methodName : methodNames) {
+            assertSame(expected, select(firstEnabled, methodName), methodName);
+        }
+    }
+
+    @Test
+    public void x86MethodGeneratorBenchmark() {
+        assumeTrue(select(0, "returnInt") == X86, "x86 stubs are not supported on this platform");
+        for (Method m : BenchmarkLib.class.getMethods()) {
+            assertSame(X86, select(0, m.getName()), m.getName());
+        }
+    }
+
+    @Test
+    public void fastIntMethodGeneratorBenchmark() {
+        assertSelected(1, INT, "returnVoid", "returnVoidI", "returnInt", "returnIntI", "returnIntII", "returnIntIII");
+        assertSelected(1, LONG, "returnLongLL", "returnLongLLL", "returnPointerP", "returnIntP", "returnIntPI",
+                "returnIntS", "returnLongStruct");
+        assertSelected(1, NUMERIC, "returnDoubleFD", "returnDoubleIFD");
+    }
+
+    @Test
+    public void fastLongMethodGeneratorBenchmark() {
+        assertSelected(2, LONG, "returnVoid", "returnInt", "returnIntIII", "returnLongLLL", "returnPointerP",
+                "returnIntPI", "returnIntS", "returnLongStruct");
+        assertSelected(2, NUMERIC, "returnDoubleFD", "returnDoubleIFD");
+    }
+
+    @Test
+    public void fastNumericMethodGeneratorBenchmark() {
+        for (Method m : BenchmarkLib.class.getMethods()) {
+            assertSame(NUMERIC, select(3, m.getName()), m.getName());
+        }
+    }
+
+    @Test
+    public void bufferMethodGeneratorBenchmark() {
+        for (Method m : BenchmarkLib.class.getMethods()) {
+            assertSame(BUFFER, select(4, m.getName()), m.getName());
+        }
+    }
+}
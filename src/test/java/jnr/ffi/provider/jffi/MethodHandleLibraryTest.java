@@ -0,0 +1,110 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.Variable;
+import jnr.ffi.annotations.Delegate;
+import jnr.ffi.annotations.LongLong;
+import jnr.ffi.types.u_int32_t;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MethodHandleLibraryTest {
+    public static interface TestLib {
+        byte add_int8_t(byte i1, byte i2);
+        int add_int32_t(int i1, int i2);
+        long add_int64_t(@LongLong long i1, @LongLong long i2);
+        float add_float(float f1, float f2);
+        double add_double(double d1, double d2);
+        Integer ret_int32_t(Integer i);
+        boolean ret_bool(boolean b);
+        Pointer ret_pointer(Pointer p);
+        Pointer ptr_malloc(int size);
+        void ptr_free(Pointer p);
+        void ptr_set_int32_t(Pointer p, int offset, int value);
+        int ptr_ret_int32_t(Pointer p, int offset);
+        boolean string_equals(String s1, String s2);
+        void testClosureVrV(Callback closure);
+        int no_such_function(int i);
+        @u_int32_t Variable<Long> gvar_s32();
+        int gvar_s32_get();
+
+        interface Callback {
+            @Delegate void call();
+        }
+    }
+
+    public static interface MissingLib {
+        int add_int32_t(int i1, int i2);
+        int no_such_function(int i);
+    }
+
+    static TestLib testlib;
+
+    private static <T> jnr.ffi.LibraryLoader<T> loader(Class<T> interfaceClass) {
+        return new NativeLibraryLoader<T>(interfaceClass, new MethodHandleLibraryLoader()).library("test");
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = loader(TestLib.class).load();
+    }
+
+    @Test public void numeric() {
+        assertTrue(testlib.getClass().getName().contains("$jnr$ffi$mh$"));
+        assertEquals((byte) -128, testlib.add_int8_t((byte) 127, (byte) 1));
+        assertEquals(3, testlib.add_int32_t(1, 2));
+        assertEquals(Long.MAX_VALUE, testlib.add_int64_t(Long.MAX_VALUE - 1, 1));
+        assertEquals(3.5f, testlib.add_float(1.25f, 2.25f), 0.0f);
+        assertEquals(3.5, testlib.add_double(1.25, 2.25), 0.0);
+        assertEquals(Integer.valueOf(-1), testlib.ret_int32_t(-1));
+        assertTrue(testlib.ret_bool(true));
+    }
+
+    @Test public void directPointers() {
+        Pointer p = testlib.ptr_malloc(16);
+        try {
+            testlib.ptr_set_int32_t(p, 4, 0xdeadbeef);
+            assertEquals(0xdeadbeef, testlib.ptr_ret_int32_t(p, 4));
+            assertEquals(p.address(), testlib.ret_pointer(p).address());
+            assertNull(testlib.ret_pointer(null));
+        } finally {
+            testlib.ptr_free(p);
+        }
+    }
+
+    @Test public void heapPointers() {
+        Pointer p = Memory.allocate(Runtime.getRuntime(testlib), 16);
+        testlib.ptr_set_int32_t(p, 8, 0xcafebabe);
+        assertEquals(0xcafebabe, p.getInt(8));
+        assertEquals(0xcafebabe, testlib.ptr_ret_int32_t(p, 8));
+    }
+
+    @Test public void invokerFallback() {
+        assertTrue(testlib.string_equals("test", "test"));
+        final boolean[] called = { false };
+        testlib.testClosureVrV(() -> called[0] = true);
+        assertTrue(called[0]);
+    }
+
+    @Test public void missingFunction() {
+        assertThrows(UnsatisfiedLinkError.class, () -> testlib.no_such_function(1));
+    }
+
+    @Test public void failImmediately() {
+        assertThrows(UnsatisfiedLinkError.class, () -> loader(MissingLib.class).failImmediately().load());
+        assertEquals(3, loader(MissingLib.class).load().add_int32_t(1, 2));
+    }
+
+    @Test public void variables() {
+        testlib.gvar_s32().set(0xdeadbeefL);
+        assertEquals(0xdeadbeef, testlib.gvar_s32_get());
+        assertEquals(Runtime.getSystemRuntime(), Runtime.getRuntime(testlib));
+    }
+}
@@ -0,0 +1,193 @@
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.LibraryOption;
+import jnr.ffi.Pointer;
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Out;
+import jnr.ffi.mapper.FromNativeConverter;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+import jnr.ffi.mapper.TypeMapper;
+import jnr.ffi.util.FunctionMetrics;
+import jnr.ffi.util.LibraryMetrics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+    public interface TestLib {
+        int add_int32_t(int i1, int i2);
+        long add_int64_t(long i1, long i2);
+        void fillByteBuffer(@Out byte[] buf, byte value, int size);
+        boolean string_equals(@In CharSequence s1, @In CharSequence s2);
+        int setLastError(int error);
+    }
+
+    public interface StringLib {
+        boolean string_equals(@In CharSequence s1, @In CharSequence s2);
+    }
+
+    public interface GuardedLib {
+        long ptr_from_buffer(CharSequence s, Unconvertible u);
+    }
+
+    public interface ReleasedLib {
+        int add_int32_t(int i1, int i2);
+    }
+
+    public static final class Unconvertible {
+    }
+
+    private static final TypeMapper unconvertibleMapper = new TypeMapper() {
+        public FromNativeConverter getFromNativeConverter(Class type) {
+            return null;
+        }
+
+        public ToNativeConverter getToNativeConverter(Class type) {
+            return Unconvertible.class == type ? new ToNativeConverter<Unconvertible, Pointer>() {
+                public Pointer toNative(Unconvertible value, ToNativeContext context) {
+                    throw new IllegalStateException("unconvertible");
+                }
+
+                public Class<Pointer> nativeType() {
+                    return Pointer.class;
+                }
+            } : null;
+        }
+    };
+
+    private static TestLib testlib;
+
+    private static <T> jnr.ffi.LibraryLoader<T> loader(Class<T> interfaceClass) {
+        return new NativeLibraryLoader<T>(interfaceClass, NativeLibraryLoader.newLibraryLoader(), true).library("test");
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = loader(TestLib.class).load();
+    }
+
+    private static Map<String, FunctionMetrics.Snapshot> getFunctions(Class<?> interfaceClass) {
+        Map<String, FunctionMetrics.Snapshot> functions = new HashMap<String, FunctionMetrics.Snapshot>();
+        for (LibraryMetrics library : LibraryMetrics.getAll()) {
+            if (library.getName().equals(interfaceClass.getName())) {
+                for (FunctionMetrics.Snapshot function : library.getFunctions()) {
+                    functions.put(function.getName(), function);
+                }
+            }
+        }
+
+        return functions;
+    }
+
+    private static LibraryMetrics getLibrary(Class<?> interfaceClass) {
+        for (LibraryMetrics library : LibraryMetrics.getAll()) {
+            if (library.getName().equals(interfaceClass.getName())) {
+                return library;
+            }
+        }
+
+        return null;
+    }
+
+    private static Set<ObjectName> queryMXBeans(Class<?> interfaceClass) throws Exception {
+        return ManagementFactory.getPlatformMBeanServer().queryNames(new ObjectName("jnr.ffi:type=LibraryMetrics,name="
+                + ObjectName.quote(interfaceClass.getName()) + ",*"), null);
+    }
+
+    @Test
+    public void countsCallsAndMarshalledBytes() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, testlib.add_int32_t(i, 1));
+        }
+        assertEquals(3L, testlib.add_int64_t(1L, 2L));
+        testlib.fillByteBuffer(new byte[16], (byte) 1, 16);
+        testlib.fillByteBuffer(new byte[32], (byte) 1, 32);
+        assertTrue(testlib.string_equals("hello", "hello"));
+
+        Map<String, FunctionMetrics.Snapshot> functions = getFunctions(TestLib.class);
+        FunctionMetrics.Snapshot add = functions.get("add_int32_t");
+        assertNotNull(add);
+        assertEquals(100, add.getCount());
+        assertEquals(0, add.getMarshalledBytes());
+        assertTrue(add.getTotalNanos() > 0);
+        assertTrue(add.getP50Nanos() <= add.getP90Nanos());
+        assertTrue(add.getP90Nanos() <= add.getP99Nanos());
+        assertTrue(add.getP99Nanos() <= add.getMaxNanos());
+
+        assertEquals(1, functions.get("add_int64_t").getCount());
+        assertEquals(2, functions.get("fillByteBuffer").getCount());
+        assertEquals(48, functions.get("fillByteBuffer").getMarshalledBytes());
+        assertEquals(10, functions.get("string_equals").getMarshalledBytes());
+    }
+
+    @Test
+    public void registersMXBean() throws Exception {
+        testlib.setLastError(0);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = queryMXBeans(TestLib.class);
+        assertEquals(1, names.size());
+
+        ObjectName name = names.iterator().next();
+        assertEquals(TestLib.class.getName(), server.getAttribute(name, "Name"));
+
+        boolean found = false;
+        for (CompositeData function : (CompositeData[]) server.getAttribute(name, "Functions")) {
+            if ("setLastError".equals(function.get("name"))) {
+                assertTrue((Long) function.get("count") >= 1);
+                found = true;
+            }
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void countsEncodedStringBytes() {
+        StringLib lib = loader(StringLib.class).load();
+        assertTrue(lib.string_equals("caf\u00e9", "caf\u00e9"));
+        assertEquals(2 * "caf\u00e9".getBytes(Charset.defaultCharset()).length,
+                getFunctions(StringLib.class).get("string_equals").getMarshalledBytes());
+    }
+
+    @Test
+    public void countsCallsThatThrow() {
+        GuardedLib lib = loader(GuardedLib.class).option(LibraryOption.TypeMapper, unconvertibleMapper).load();
+        assertThrows(IllegalStateException.class, () -> lib.ptr_from_buffer("test", new Unconvertible()));
+
+        FunctionMetrics.Snapshot function = getFunctions(GuardedLib.class).get("ptr_from_buffer");
+        assertEquals(1, function.getCount());
+        assertEquals(4, function.getMarshalledBytes());
+    }
+
+    @Test
+    public void unregistersReleasedLibrary() throws Exception {
+        ReleasedLib lib = loader(ReleasedLib.class).load();
+        assertEquals(3, lib.add_int32_t(1, 2));
+        LibraryMetrics metrics = getLibrary(ReleasedLib.class);
+        assertNotNull(metrics);
+        assertEquals(1, queryMXBeans(ReleasedLib.class).size());
+
+        lib = null;
+        for (int i = 0; i < 100 && LibraryMetrics.getAll().contains(metrics); i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertFalse(LibraryMetrics.getAll().contains(metrics));
+        assertTrue(queryMXBeans(ReleasedLib.class).isEmpty());
+    }
+}
@@ -0,0 +1,135 @@
+package jnr.ffi.struct;
+
+import jnr.ffi.Memory;
+import jnr.ffi.NativeType;
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+import jnr.ffi.TstUtil;
+import jnr.ffi.annotations.ByValue;
+import jnr.ffi.annotations.LongLong;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StructByValueTest {
+    public static class Pair extends Struct {
+        public final Signed64 a = new Signed64();
+        public final Signed64 b = new Signed64();
+
+        public Pair(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static class Mixed extends Struct {
+        public final Signed8 c = new Signed8();
+        public final Double d = new Double();
+        public final Float f = new Float();
+
+        public Mixed(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static class Large extends Struct {
+        public final Signed64[] v = array(new Signed64[3]);
+        public final Pair inner = inner(Pair.class);
+
+        public Large(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static class Packed extends Struct {
+        public final Signed8 c = new Signed8();
+        public final Signed64 l = new Signed64(new Offset(1));
+
+        public Packed(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static interface TestLib {
+        @ByValue Pair struct_pair_make(@LongLong long a, @LongLong long b);
+        @LongLong long struct_pair_sum(@ByValue Pair p);
+        @ByValue Pair struct_pair_swap(int n, @ByValue Pair p);
+        @ByValue Mixed struct_mixed_scale(@ByValue Mixed m, double k);
+        @ByValue Large struct_large_make(@LongLong long base);
+        @LongLong long struct_large_sum(@ByValue Large l);
+    }
+
+    public static interface PackedLib {
+        @LongLong long struct_pair_sum(@ByValue Packed p);
+    }
+
+    static TestLib testlib;
+    static Runtime runtime;
+
+    @BeforeAll
+    public static void setUpClass() {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        runtime = Runtime.getRuntime(testlib);
+    }
+
+    @Test public void returnSmallStruct() {
+        Pair p = testlib.struct_pair_make(1, Long.MAX_VALUE);
+        assertEquals(1, p.a.get());
+        assertEquals(Long.MAX_VALUE, p.b.get());
+        assertFalse(Struct.getMemory(p).isDirect());
+    }
+
+    @Test public void passSmallStruct() {
+        Pair p = new Pair(runtime);
+        p.a.set(40);
+        p.b.set(2);
+        assertEquals(42, testlib.struct_pair_sum(p));
+
+        Pair direct = new Pair(runtime);
+        direct.useMemory(Memory.allocateDirect(runtime, Struct.size(direct)));
+        direct.a.set(-1);
+        direct.b.set(1);
+        assertEquals(0, testlib.struct_pair_sum(direct));
+
+        Pair swapped = testlib.struct_pair_swap(10, p);
+        assertEquals(12, swapped.a.get());
+        assertEquals(50, swapped.b.get());
+        assertEquals(62, testlib.struct_pair_sum(swapped));
+    }
+
+    @Test public void mixedFields() {
+        Mixed m = new Mixed(runtime);
+        m.c.set((byte) 7);
+        m.d.set(1.5);
+        m.f.set(2.5f);
+        Mixed r = testlib.struct_mixed_scale(m, 2.0);
+        assertEquals(8, r.c.get());
+        assertEquals(3.0, r.d.get(), 0.0);
+        assertEquals(5.0f, r.f.get(), 0.0f);
+    }
+
+    @Test public void largeStructWithInnerStruct() {
+        Large l = testlib.struct_large_make(10);
+        assertEquals(10, l.v[0].get());
+        assertEquals(12, l.v[2].get());
+        assertEquals(13, l.inner.a.get());
+        assertEquals(14, l.inner.b.get());
+        assertEquals(60, testlib.struct_large_sum(l));
+    }
+
+    @Test public void fieldLayout() throws NoSuchMethodException {
+        Struct.FieldLayout layout = Struct.getFieldLayout(Large.class.getConstructor(Runtime.class), runtime);
+        assertEquals(5, layout.getFieldCount());
+        for (int i = 0; i < layout.getFieldCount(); i++) {
+            assertEquals(NativeType.SLONGLONG, layout.getFieldType(i));
+            assertEquals(i * 8, layout.getFieldOffset(i));
+        }
+        assertEquals(40, layout.size());
+    }
+
+    @Test public void unnaturalLayoutIsRejected() {
+        assertThrows(RuntimeException.class, () -> TstUtil.loadTestLib(PackedLib.class).struct_pair_sum(new Packed(runtime)));
+    }
+}